@@ -3,6 +3,7 @@ package com.criteo.drelephant.heuristics;
 import com.avaje.ebean.Ebean;
 import com.avaje.ebean.SqlRow;
 import com.avaje.ebean.Transaction;
+import com.linkedin.drelephant.analysis.LeaderElection;
 import com.linkedin.drelephant.analysis.Severity;
 import com.linkedin.drelephant.util.Utils;
 import models.AppHeuristicResult;
@@ -44,6 +45,15 @@ public class GarmadonTransferHeuristic {
     private static final int MAX_ROW = 10000;
 
     public static void transfer() {
+        transfer(null);
+    }
+
+    /**
+     * Transfers the ready garmadon heuristics into the results of their apps, committing every MAX_ROW apps.
+     *
+     * @param leaderElection The election of the node running the transfer, checked before each app, or null
+     */
+    public static void transfer(LeaderElection leaderElection) {
         int nbRow = 0;
 
         // Select all app in garmadon table
@@ -54,6 +64,10 @@ public class GarmadonTransferHeuristic {
             Ebean.beginTransaction();
             try {
                 for (SqlRow row : rows) {
+                    if (leaderElection != null && !leaderElection.isLeader()) {
+                        LOGGER.info("Not the leader of {} anymore, stop transferring", leaderElection.getName());
+                        break;
+                    }
                     nbRow++;
                     String yarn_app_result_id = row.getString("yarn_app_result_id");
                     AppResult appResult = Ebean.find(AppResult.class, yarn_app_result_id);
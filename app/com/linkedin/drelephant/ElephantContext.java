@@ -20,6 +20,7 @@ import com.avaje.ebean.Ebean;
 import com.avaje.ebean.SqlRow;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.linkedin.drelephant.analysis.ApplicationType;
 import com.linkedin.drelephant.analysis.ElephantFetcher;
 import com.linkedin.drelephant.analysis.HadoopApplicationData;
@@ -35,6 +36,8 @@ import com.linkedin.drelephant.configurations.heuristic.HeuristicConfiguration;
 import com.linkedin.drelephant.configurations.heuristic.HeuristicConfigurationData;
 import com.linkedin.drelephant.configurations.jobtype.JobTypeConfiguration;
 import com.linkedin.drelephant.mapreduce.MapReduceMetricsAggregator;
+import com.linkedin.drelephant.util.HttpConnectionPool;
+import com.linkedin.drelephant.util.ResponseCache;
 import com.linkedin.drelephant.util.Utils;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -45,6 +48,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
@@ -69,17 +75,22 @@ public class ElephantContext {
   private static final String HEURISTICS_CONF = "HeuristicConf.xml";
   private static final String JOB_TYPES_CONF = "JobTypeConf.xml";
   private static final String GENERAL_CONF = "GeneralConf.xml";
+  private static final String HEURISTICS_PARALLEL_KEY = "drelephant.analysis.heuristics.parallel";
+  private static final String HEURISTICS_THREAD_COUNT_KEY = "drelephant.analysis.heuristics.thread.count";
 
   private final Map<String, List<String>> _heuristicGroupedNames = new HashMap<String, List<String>>();
   private List<HeuristicConfigurationData> _heuristicsConfData;
   private List<FetcherConfigurationData> _fetchersConfData;
   private Configuration _generalConf;
   private List<AggregatorConfigurationData> _aggregatorConfData;
+  private ExecutorService _heuristicExecutor;
 
   private final Map<String, ApplicationType> _nameToType = new HashMap<String, ApplicationType>();
   private final Map<ApplicationType, List<Heuristic>> _typeToHeuristics = new HashMap<ApplicationType, List<Heuristic>>();
   private final Map<ApplicationType, HadoopMetricsAggregator> _typeToAggregator = new HashMap<ApplicationType, HadoopMetricsAggregator>();
   private final Map<ApplicationType, ElephantFetcher> _typeToFetcher = new HashMap<ApplicationType, ElephantFetcher>();
+  private final Map<String, Map<ApplicationType, ElephantFetcher>> _clusterTypeToFetcher =
+      new HashMap<String, Map<ApplicationType, ElephantFetcher>>();
   private final Map<String, Html> _heuristicToView = new HashMap<String, Html>();
   private Map<ApplicationType, List<JobType>> _appTypeToJobTypes = new HashMap<ApplicationType, List<JobType>>();
 
@@ -100,13 +111,15 @@ public class ElephantContext {
   }
 
   private void loadConfiguration() {
+    // The general configuration is loaded first as it configures the HTTP connections the fetchers may open
+    loadGeneralConf();
+    loadHeuristicExecutor();
+
     loadAggregators();
     loadFetchers();
     loadHeuristics();
     loadJobTypes();
 
-    loadGeneralConf();
-
     // It is important to configure supported types in the LAST step so that we could have information from all
     // configurable components.
     configureSupportedApplicationTypes();
@@ -165,11 +178,20 @@ public class ElephantContext {
         }
 
         ApplicationType type = data.getAppType();
-        if (_typeToFetcher.get(type) == null) {
-          _typeToFetcher.put(type, (ElephantFetcher) instance);
+        Map<ApplicationType, ElephantFetcher> typeToFetcher = _typeToFetcher;
+        if (data.getCluster() != null) {
+          typeToFetcher = _clusterTypeToFetcher.get(data.getCluster());
+          if (typeToFetcher == null) {
+            typeToFetcher = new HashMap<ApplicationType, ElephantFetcher>();
+            _clusterTypeToFetcher.put(data.getCluster(), typeToFetcher);
+          }
+        }
+        if (typeToFetcher.get(type) == null) {
+          typeToFetcher.put(type, (ElephantFetcher) instance);
         }
 
-        logger.info("Load Fetcher : " + data.getClassName());
+        logger.info("Load Fetcher : " + data.getClassName()
+            + (data.getCluster() != null ? " for cluster " + data.getCluster() : ""));
       } catch (ClassNotFoundException e) {
         throw new RuntimeException("Could not find class " + data.getClassName(), e);
       } catch (InstantiationException e) {
@@ -309,6 +331,8 @@ public class ElephantContext {
 
     _generalConf = new Configuration();
     _generalConf.addResource(this.getClass().getClassLoader().getResourceAsStream(GENERAL_CONF));
+    HttpConnectionPool.configure(_generalConf);
+    ResponseCache.configure(_generalConf);
   }
 
   /**
@@ -364,6 +388,22 @@ public class ElephantContext {
     return _typeToFetcher.get(type);
   }
 
+  /**
+   * Returns the fetcher of an application type for a cluster, i.e. the fetcher configured for the cluster if any,
+   * otherwise the default one.
+   *
+   * @param cluster The id of the cluster, empty for the default cluster
+   * @param type The application type
+   * @return the fetcher
+   */
+  public ElephantFetcher getFetcherForApplicationType(String cluster, ApplicationType type) {
+    Map<ApplicationType, ElephantFetcher> typeToFetcher = _clusterTypeToFetcher.get(cluster);
+    if (typeToFetcher != null && typeToFetcher.get(type) != null) {
+      return typeToFetcher.get(type);
+    }
+    return getFetcherForApplicationType(type);
+  }
+
   public HadoopMetricsAggregator getAggregatorForApplicationType(ApplicationType type) {
     return _typeToAggregator.get(type);
   }
@@ -386,6 +426,30 @@ public class ElephantContext {
     return _generalConf;
   }
 
+  /**
+   * Create the thread pool shared by all the analyses to run their heuristics and aggregator concurrently, if enabled.
+   */
+  private void loadHeuristicExecutor() {
+    if (!_generalConf.getBoolean(HEURISTICS_PARALLEL_KEY, false)) {
+      return;
+    }
+    int threadCount = Utils.getNonNegativeInt(_generalConf, HEURISTICS_THREAD_COUNT_KEY,
+        Runtime.getRuntime().availableProcessors());
+    logger.info("Heuristics run concurrently on " + threadCount + " threads");
+    ThreadFactory factory = new ThreadFactoryBuilder().setNameFormat("dr-el-heuristic-thread-%d")
+        .setDaemon(true).build();
+    _heuristicExecutor = Executors.newFixedThreadPool(Math.max(threadCount, 1), factory);
+  }
+
+  /**
+   * Get the thread pool shared by all the analyses to run their heuristics and aggregator concurrently.
+   *
+   * @return The executor service, or null if heuristics should run sequentially in the analysis thread
+   */
+  public ExecutorService getHeuristicExecutor() {
+    return _heuristicExecutor;
+  }
+
   /**
    * Get the matched job type given a
    *
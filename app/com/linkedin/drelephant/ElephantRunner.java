@@ -19,27 +19,43 @@ package com.linkedin.drelephant;
 import com.criteo.drelephant.heuristics.GarmadonTransferHeuristic;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.linkedin.drelephant.analysis.AnalyticJob;
+import com.linkedin.drelephant.analysis.AnalyticJobConsumer;
 import com.linkedin.drelephant.analysis.AnalyticJobGenerator;
 import com.linkedin.drelephant.analysis.AnalyticJobGeneratorHadoop2;
+import com.linkedin.drelephant.analysis.AnalyticJobPriority;
+import com.linkedin.drelephant.analysis.AppResultWriter;
+import com.linkedin.drelephant.analysis.AsyncElephantFetcher;
 import com.linkedin.drelephant.analysis.HDFSContext;
+import com.linkedin.drelephant.analysis.HadoopApplicationData;
 import com.linkedin.drelephant.analysis.HadoopSystemContext;
+import com.linkedin.drelephant.analysis.LeaderElection;
+import com.linkedin.drelephant.analysis.LeaseTable;
 import com.linkedin.drelephant.purge.AppResultPurger;
 import com.linkedin.drelephant.security.HadoopSecurity;
 import com.linkedin.drelephant.util.Utils;
 import controllers.MetricsController;
 import java.io.IOException;
 import java.security.PrivilegedAction;
-import java.util.List;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import models.AppResult;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.security.authentication.client.AuthenticationException;
 import org.apache.log4j.Logger;
 
 
@@ -51,25 +67,65 @@ public class ElephantRunner implements Runnable {
 
   private static final long FETCH_INTERVAL = 60 * 1000;     // Interval between fetches
   private static final long RETRY_INTERVAL = 60 * 1000;     // Interval between retries
-  private static final int EXECUTOR_NUM = 5;                // The number of executor threads to analyse the jobs
+  private static final int EXECUTOR_NUM = 5;                // The number of executor threads to fetch the jobs
+  private static final int QUEUE_CAPACITY = 10000;          // The max number of jobs waiting for an executor thread
+  private static final int ANALYSIS_QUEUE_CAPACITY = 100;   // The max number of fetched jobs waiting for analysis
+  private static final int PERSIST_THREAD_NUM = 1;          // The number of threads saving the results
+  private static final long QUEUE_FULL_POLL_INTERVAL = 1000; // Interval between checks of a full queue
+  private static final int PERSIST_BATCH_SIZE = 50;         // The max number of results saved in one batch
+  private static final long PERSIST_BATCH_LATENCY = 1000;   // The max time a result waits for its batch to be saved
+
+  private static final String FETCH_STAGE = "fetch";
+  private static final String ANALYSIS_STAGE = "analyse";
 
   private static final String FETCH_INTERVAL_KEY = "drelephant.analysis.fetch.interval";
   private static final String RETRY_INTERVAL_KEY = "drelephant.analysis.retry.interval";
   private static final String EXECUTOR_NUM_KEY = "drelephant.analysis.thread.count";
+  private static final String QUEUE_CAPACITY_KEY = "drelephant.analysis.queue.capacity";
+  private static final String ANALYSIS_THREAD_NUM_KEY = "drelephant.analysis.analyse.thread.count";
+  private static final String ANALYSIS_QUEUE_CAPACITY_KEY = "drelephant.analysis.analyse.queue.capacity";
+  private static final String PERSIST_THREAD_NUM_KEY = "drelephant.analysis.persist.thread.count";
+  private static final String PERSIST_BATCH_SIZE_KEY = "drelephant.analysis.persist.batch.size";
+  private static final String PERSIST_BATCH_LATENCY_KEY = "drelephant.analysis.persist.batch.latency";
   private static final String RETENTION_PERIOD_DAY_KEY = "drelephant.analysis.purge.retention.period";
   private static final String PURGE_INTERVAL_SECOND_KEY = "drelephant.analysis.purge.interval";
   private static final String PURGE_BATCH_SIZE_KEY = "drelephant.analysis.purge.batch.size";
   private static final String GARMADON_TRANSFER_INTERVAL_SECOND_KEY = "drelephant.analysis.garmadon.transfer.interval";
+  private static final String CLUSTERS_KEY = "drelephant.clusters";
+  private static final String CLUSTER_PROPERTY_PREFIX = "drelephant.cluster.";
+  private static final String GENERATOR_CLASS_KEY = "drelephant.analysis.generator.class";
+  private static final String LEADER_ELECTION_ENABLED_KEY = "drelephant.leader.election.enabled";
+  private static final String LEADER_LEASE_MS_KEY = "drelephant.leader.lease.ms";
+  private static final long LEADER_LEASE_MS = 2 * 60 * 1000;
+  private static final String SCHEDULERS_ELECTION = "schedulers";
 
   private AtomicBoolean _running = new AtomicBoolean(true);
   private long lastRun;
   private long _fetchInterval;
   private long _retryInterval;
   private int _executorNum;
+  private int _queueCapacity;
+  private int _analysisThreadNum;
+  private int _analysisQueueCapacity;
+  private int _persistThreadNum;
+  private int _persistBatchSize;
+  private long _persistBatchLatency;
   private HadoopSecurity _hadoopSecurity;
   private ThreadPoolExecutor _threadPoolExecutor;
-  private AnalyticJobGenerator _analyticJobGenerator;
-
+  private AnalyticJobPriority _analyticJobPriority;
+  private Semaphore _queuePermits;
+  private ThreadPoolExecutor _analysisExecutor;
+  private Semaphore _analysisPermits;
+  private final AtomicLong _submittedJobs = new AtomicLong(0);
+  // The sequence of the last job submitted per cluster, and the highest sequence of the jobs dispatched so far
+  private final Map<String, Long> _clusterSequences = new HashMap<String, Long>();
+  private long _dispatchedSequence = 0;
+  // The generators by cluster id, the default cluster having an empty id
+  private final Map<String, AnalyticJobGenerator> _analyticJobGenerators =
+      new LinkedHashMap<String, AnalyticJobGenerator>();
+  private AppResultWriter _appResultWriter;
+
+  private LeaderElection _leaderElection;
   private ScheduledExecutorService _purgeScheduler;
   private ScheduledExecutorService _garmadonTransferScheduler;
 
@@ -77,29 +133,78 @@ public class ElephantRunner implements Runnable {
     Configuration configuration = ElephantContext.instance().getGeneralConf();
 
     _executorNum = Utils.getNonNegativeInt(configuration, EXECUTOR_NUM_KEY, EXECUTOR_NUM);
+    _queueCapacity = Utils.getNonNegativeInt(configuration, QUEUE_CAPACITY_KEY, QUEUE_CAPACITY);
+    _analysisThreadNum = Utils.getNonNegativeInt(configuration, ANALYSIS_THREAD_NUM_KEY,
+        Runtime.getRuntime().availableProcessors());
+    _analysisQueueCapacity = Utils.getNonNegativeInt(configuration, ANALYSIS_QUEUE_CAPACITY_KEY,
+        ANALYSIS_QUEUE_CAPACITY);
+    _persistThreadNum = Utils.getNonNegativeInt(configuration, PERSIST_THREAD_NUM_KEY, PERSIST_THREAD_NUM);
+    _analyticJobPriority = new AnalyticJobPriority(configuration);
     _fetchInterval = Utils.getNonNegativeLong(configuration, FETCH_INTERVAL_KEY, FETCH_INTERVAL);
     _retryInterval = Utils.getNonNegativeLong(configuration, RETRY_INTERVAL_KEY, RETRY_INTERVAL);
+    _persistBatchSize = Utils.getNonNegativeInt(configuration, PERSIST_BATCH_SIZE_KEY, PERSIST_BATCH_SIZE);
+    _persistBatchLatency = Utils.getNonNegativeLong(configuration, PERSIST_BATCH_LATENCY_KEY, PERSIST_BATCH_LATENCY);
   }
 
-  private void loadAnalyticJobGenerator() {
-    if (HadoopSystemContext.isHadoop2Env()) {
-      _analyticJobGenerator = new AnalyticJobGeneratorHadoop2();
-    } else {
+  private void loadAnalyticJobGenerators() {
+    if (!HadoopSystemContext.isHadoop2Env()) {
       throw new RuntimeException("Unsupported Hadoop major version detected. It is not 2.x.");
     }
 
-    try {
-      _analyticJobGenerator.configure(ElephantContext.instance().getGeneralConf());
-    } catch (Exception e) {
-      logger.error("Error occurred when configuring the analysis provider.", e);
-      throw new RuntimeException(e);
+    Configuration configuration = ElephantContext.instance().getGeneralConf();
+    String[] clusters = configuration.getTrimmedStrings(CLUSTERS_KEY);
+    if (clusters.length == 0) {
+      clusters = new String[] { "" };
     }
+    for (String cluster : clusters) {
+      if (cluster.length() > AppResult.CLUSTER_LIMIT) {
+        throw new IllegalArgumentException("The cluster id " + cluster + " is longer than " + AppResult.CLUSTER_LIMIT
+            + " characters");
+      }
+      Configuration clusterConfiguration = getClusterConfiguration(configuration, cluster);
+      AnalyticJobGenerator analyticJobGenerator;
+      try {
+        Class<?> generatorClass = clusterConfiguration.getClass(GENERATOR_CLASS_KEY,
+            AnalyticJobGeneratorHadoop2.class, AnalyticJobGenerator.class);
+        analyticJobGenerator = (AnalyticJobGenerator) generatorClass.getConstructor(String.class).newInstance(cluster);
+        logger.info("Providing the jobs of cluster [" + cluster + "] with " + generatorClass.getName());
+        analyticJobGenerator.configure(clusterConfiguration);
+      } catch (Exception e) {
+        logger.error("Error occurred when configuring the analysis provider of cluster [" + cluster + "].", e);
+        throw new RuntimeException(e);
+      }
+      _analyticJobGenerators.put(cluster, analyticJobGenerator);
+    }
+    logger.info("Analysing the clusters " + _analyticJobGenerators.keySet());
+  }
+
+  /**
+   * Returns the configuration of a cluster, i.e. the general configuration whose properties are overridden by the
+   * properties prefixed with drelephant.cluster.[cluster id].
+   *
+   * @param configuration The general configuration
+   * @param cluster The cluster id, empty for the default cluster
+   * @return the configuration of the cluster
+   */
+  static Configuration getClusterConfiguration(Configuration configuration, String cluster) {
+    if (cluster.isEmpty()) {
+      return configuration;
+    }
+    Configuration clusterConfiguration = new Configuration(configuration);
+    String prefix = CLUSTER_PROPERTY_PREFIX + cluster + ".";
+    for (Map.Entry<String, String> property : configuration) {
+      if (property.getKey().startsWith(prefix)) {
+        clusterConfiguration.set(property.getKey().substring(prefix.length()), property.getValue());
+      }
+    }
+    return clusterConfiguration;
   }
 
   @Override
   public void run() {
     logger.info("Dr.elephant has started");
 
+    setupLeaderElection();
     setupAppResultPurge();
 
     try {
@@ -109,24 +214,46 @@ public class ElephantRunner implements Runnable {
         public Void run() {
           HDFSContext.load();
           loadGeneralConfiguration();
-          loadAnalyticJobGenerator();
+          loadAnalyticJobGenerators();
           ElephantContext.init();
           setupGarmadonTransferHeuristic();
 
           // Initialize the metrics registries.
           MetricsController.init();
+          MetricsController.registerLeaderElection(_leaderElection);
 
-          logger.info("executor num is " + _executorNum);
-          if (_executorNum < 1) {
+          logger.info("executor num is " + _executorNum + ", queue capacity is " + _queueCapacity
+              + ", analysis thread num is " + _analysisThreadNum + ", analysis queue capacity is "
+              + _analysisQueueCapacity + ", persist thread num is " + _persistThreadNum);
+          if (_executorNum < 1 || _analysisThreadNum < 1 || _persistThreadNum < 1) {
             throw new RuntimeException("Must have at least 1 worker thread.");
           }
+          if (_queueCapacity < 1 || _analysisQueueCapacity < 1) {
+            throw new RuntimeException("Must have a queue capacity of at least 1 job.");
+          }
+
+          setupAppResultWriter();
+          setupAnalysisExecutor();
+
+          // The permits bound the jobs either waiting in the queue or being fetched by an executor thread
+          _queuePermits = new Semaphore(_queueCapacity + _executorNum);
 
           ThreadFactory factory = new ThreadFactoryBuilder().setNameFormat("dr-el-executor-thread-%d").build();
           _threadPoolExecutor = new ThreadPoolExecutor(_executorNum, _executorNum, 0L, TimeUnit.MILLISECONDS,
-                  new LinkedBlockingQueue<Runnable>(), factory);
+                  new PriorityBlockingQueue<Runnable>(_queueCapacity, new Comparator<Runnable>() {
+                    @Override
+                    public int compare(Runnable r1, Runnable r2) {
+                      return ((ExecutorJob) r1).compareTo((ExecutorJob) r2);
+                    }
+                  }), factory);
+          MetricsController.registerPipelineQueue(FETCH_STAGE, _threadPoolExecutor.getQueue());
 
           while (_running.get() && !Thread.currentThread().isInterrupted()) {
-            _analyticJobGenerator.updateResourceManagerAddresses();
+            // Do not fetch more jobs until the executor threads have drained a full queue
+            if (!waitForQueueCapacity()) {
+              continue;
+            }
+
             lastRun = System.currentTimeMillis();
 
             logger.info("Fetching analytic job list...");
@@ -140,26 +267,32 @@ public class ElephantRunner implements Runnable {
               continue;
             }
 
-            List<AnalyticJob> todos;
-            try {
-              todos = _analyticJobGenerator.fetchAnalyticJobs();
-            } catch (Exception e) {
-              logger.error("Error fetching job list. Try again later...", e);
-              //Wait for a while before retry
-              waitInterval(_retryInterval);
-              continue;
-            }
-
-            for (AnalyticJob analyticJob : todos) {
-              _threadPoolExecutor.submit(new ExecutorJob(analyticJob));
+            // With several clusters, each one submits at most its share of the queue per round, so that a cluster
+            // with a large backlog does not hold the fetch of the others
+            int quota = _analyticJobGenerators.size() > 1
+                ? Math.max(1, _queueCapacity / _analyticJobGenerators.size()) : Integer.MAX_VALUE;
+            boolean fetchedAll = true;
+            boolean failed = false;
+            for (Map.Entry<String, AnalyticJobGenerator> entry : _analyticJobGenerators.entrySet()) {
+              if (!_running.get()) {
+                break;
+              }
+              try {
+                fetchedAll &= fetchAnalyticJobs(entry.getValue(), quota);
+              } catch (Exception e) {
+                logger.error("Error fetching job list of cluster [" + entry.getKey() + "]. Try again later...", e);
+                failed = true;
+              }
             }
 
             int queueSize = _threadPoolExecutor.getQueue().size();
             MetricsController.setQueueSize(queueSize);
             logger.info("Job queue size is " + queueSize);
 
-            //Wait for a while before next fetch
-            waitInterval(_fetchInterval);
+            // Wait for a while before next fetch, unless a cluster has more jobs to submit
+            if (fetchedAll) {
+              waitInterval(failed ? _retryInterval : _fetchInterval);
+            }
           }
           logger.info("Main thread is terminated.");
           return null;
@@ -171,6 +304,117 @@ public class ElephantRunner implements Runnable {
     }
   }
 
+  /**
+   * Submits the jobs of a cluster as soon as they are fetched, the fetch being paused while the queue is full.
+   *
+   * @param analyticJobGenerator The generator of the jobs of the cluster
+   * @param quota The max number of jobs submitted
+   * @return true if all the jobs were submitted, false if the quota was reached or the runner was killed
+   */
+  private boolean fetchAnalyticJobs(AnalyticJobGenerator analyticJobGenerator, final int quota)
+      throws IOException, AuthenticationException {
+    analyticJobGenerator.updateResourceManagerAddresses();
+    return analyticJobGenerator.fetchAnalyticJobs(new AnalyticJobConsumer() {
+      private int _submitted = 0;
+
+      @Override
+      public boolean consume(AnalyticJob analyticJob) {
+        if (_submitted >= quota || !submitExecutorJob(analyticJob)) {
+          return false;
+        }
+        _submitted++;
+        return true;
+      }
+    });
+  }
+
+  /**
+   * Returns the sequence of a job submitted for a cluster. The jobs of a cluster follow each other from the sequence of
+   * the last dispatched job, so that the executor threads take turns between the clusters with waiting jobs instead of
+   * fetching them in submission order.
+   *
+   * @param cluster The cluster of the job
+   * @return the sequence of the job
+   */
+  private long nextSequence(String cluster) {
+    synchronized (_clusterSequences) {
+      Long lastSequence = _clusterSequences.get(cluster);
+      long sequence = lastSequence == null ? _dispatchedSequence : Math.max(lastSequence + 1, _dispatchedSequence);
+      _clusterSequences.put(cluster, sequence);
+      return sequence;
+    }
+  }
+
+  private void onDispatched(long sequence) {
+    synchronized (_clusterSequences) {
+      _dispatchedSequence = Math.max(_dispatchedSequence, sequence);
+    }
+  }
+
+  /**
+   * Blocks until there is room for at least one more job in the fetch queue.
+   *
+   * @return true if there is room in the queue, false if the runner was killed or interrupted while waiting
+   */
+  private boolean waitForQueueCapacity() {
+    if (!acquirePermit(_queuePermits, _threadPoolExecutor.getQueue())) {
+      return false;
+    }
+    _queuePermits.release();
+    return true;
+  }
+
+  /**
+   * Submits the job to the executor threads, blocking while the fetch queue is full. The job holds its permit until
+   * its fetched data is queued for analysis.
+   *
+   * @param analyticJob The job to analyse
+   * @return true if the job was submitted, false if the runner was killed or interrupted while waiting
+   */
+  private boolean submitExecutorJob(AnalyticJob analyticJob) {
+    if (!acquirePermit(_queuePermits, _threadPoolExecutor.getQueue())) {
+      return false;
+    }
+    ExecutorJob executorJob = new ExecutorJob(analyticJob);
+    MetricsController.updateQueueSize(executorJob._priority, 1);
+    _threadPoolExecutor.execute(executorJob);
+    return true;
+  }
+
+  /**
+   * Submits the fetched job to the analysis threads, blocking while the analysis queue is full.
+   *
+   * @param analyticJob The fetched job
+   * @param data The fetched data
+   * @param startTime The time the fetch started
+   * @return true if the job was submitted, false if the runner was killed or interrupted while waiting
+   */
+  private boolean submitAnalysisJob(AnalyticJob analyticJob, HadoopApplicationData data, long startTime) {
+    if (!acquirePermit(_analysisPermits, _analysisExecutor.getQueue())) {
+      return false;
+    }
+    _analysisExecutor.execute(new AnalysisJob(analyticJob, data, startTime));
+    return true;
+  }
+
+  private boolean acquirePermit(Semaphore permits, Collection<?> queue) {
+    boolean logged = false;
+    try {
+      while (_running.get()) {
+        if (permits.tryAcquire(QUEUE_FULL_POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+        if (!logged) {
+          logger.info("Job queue is full with " + queue.size() + " jobs, waiting...");
+          logged = true;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
   private ThreadFactory createUncaughtThreadFactory(final String name) {
     return new ThreadFactory() {
 
@@ -192,6 +436,23 @@ public class ElephantRunner implements Runnable {
     };
   }
 
+  /**
+   * Elects the node running the background schedulers, i.e. the purge and the Garmadon transfer, among the nodes
+   * sharing the database. Without an election, this node runs them.
+   */
+  private void setupLeaderElection() {
+    Configuration configuration = ElephantContext.instance().getGeneralConf();
+    String nodeId = LeaseTable.getNodeId(configuration);
+    if (configuration.getBoolean(LEADER_ELECTION_ENABLED_KEY, false)) {
+      long leaseMs = Utils.getNonNegativeLong(configuration, LEADER_LEASE_MS_KEY, LEADER_LEASE_MS);
+      _leaderElection = new LeaderElection(SCHEDULERS_ELECTION, nodeId, leaseMs, new LeaseTable());
+      logger.info("Electing the leader running the background schedulers, as " + nodeId);
+    } else {
+      _leaderElection = new LeaderElection(SCHEDULERS_ELECTION, nodeId);
+    }
+    _leaderElection.start();
+  }
+
   private void setupAppResultPurge() {
 
     Configuration configuration = ElephantContext.instance().getGeneralConf();
@@ -208,7 +469,11 @@ public class ElephantRunner implements Runnable {
       //Start purge with a little delay allowing application start
       _purgeScheduler.scheduleAtFixedRate(new Runnable() {
         @Override
-        public void run() {AppResultPurger.deleteOlderThan(retentionPeriodDay, purgeBatchSize);}
+        public void run() {
+          if (_leaderElection.isLeader()) {
+            AppResultPurger.deleteOlderThan(retentionPeriodDay, purgeBatchSize, _leaderElection);
+          }
+        }
 
       }, 60, purgeIntervalSecond, TimeUnit.SECONDS);
 
@@ -230,16 +495,103 @@ public class ElephantRunner implements Runnable {
 
     _garmadonTransferScheduler.scheduleAtFixedRate(new Runnable() {
       @Override
-      public void run() {GarmadonTransferHeuristic.transfer();}
+      public void run() {
+        if (_leaderElection.isLeader()) {
+          GarmadonTransferHeuristic.transfer(_leaderElection);
+        }
+      }
     }, 60, garmadonTransfertIntervalSecond, TimeUnit.SECONDS);
   }
 
-  private class ExecutorJob implements Runnable {
+  private class ExecutorJob implements Runnable, Comparable<ExecutorJob> {
 
     private AnalyticJob _analyticJob;
+    private final String _priority;
+    private final long _enqueueTime;
+    private final long _sequence;
+    private final long _submission;
 
     ExecutorJob(AnalyticJob analyticJob) {
       _analyticJob = analyticJob;
+      _priority = _analyticJobPriority.getLevel(analyticJob);
+      _enqueueTime = System.currentTimeMillis();
+      _sequence = nextSequence(analyticJob.getCluster());
+      _submission = _submittedJobs.getAndIncrement();
+    }
+
+    @Override
+    public int compareTo(ExecutorJob other) {
+      int result = _analyticJobPriority.compare(_analyticJob, other._analyticJob);
+      if (result != 0) {
+        return result;
+      }
+      // Jobs with the same priority are analysed in turns between the clusters, then in submission order
+      if (_sequence != other._sequence) {
+        return _sequence < other._sequence ? -1 : 1;
+      }
+      return _submission < other._submission ? -1 : (_submission == other._submission ? 0 : 1);
+    }
+
+    @Override
+    public void run() {
+      onDispatched(_sequence);
+      MetricsController.updateQueueSize(_priority, -1);
+      MetricsController.setQueueWaitTime(_priority, System.currentTimeMillis() - _enqueueTime);
+      // With a non-blocking fetcher, the callback runs later in a thread of the fetcher. The queue permit is only
+      // released then, so that the jobs being fetched stay bounded.
+      final long analysisStartTimeMillis = System.currentTimeMillis();
+      if (!isOwned(_analyticJob)) {
+        _queuePermits.release();
+        return;
+      }
+      logger.info(String.format("Fetching %s %s", _analyticJob.getAppType().getName(), _analyticJob.getAppId()));
+      try {
+        _analyticJob.fetchData(new AsyncElephantFetcher.Callback<HadoopApplicationData>() {
+          @Override
+          public void onSuccess(HadoopApplicationData data) {
+            try {
+              MetricsController.setPipelineStageTime(FETCH_STAGE, System.currentTimeMillis() - analysisStartTimeMillis);
+              if (!submitAnalysisJob(_analyticJob, data, analysisStartTimeMillis)) {
+                logger.warn("Could not queue the analysis of " + _analyticJob.getAppId());
+                onAnalysisFailure(_analyticJob,
+                    new RejectedExecutionException("The analysis queue was closed or the wait interrupted"));
+              }
+            } finally {
+              _queuePermits.release();
+            }
+          }
+
+          @Override
+          public void onFailure(Exception e) {
+            try {
+              if (e instanceof InterruptedException) {
+                onAnalysisInterrupted(_analyticJob, (InterruptedException) e);
+              } else {
+                onAnalysisFailure(_analyticJob, e);
+              }
+            } finally {
+              _queuePermits.release();
+            }
+          }
+        });
+      } catch (RuntimeException e) {
+        // The fetch could not be started
+        onAnalysisFailure(_analyticJob, e);
+        _queuePermits.release();
+      }
+    }
+  }
+
+  private class AnalysisJob implements Runnable {
+
+    private final AnalyticJob _analyticJob;
+    private final HadoopApplicationData _data;
+    private final long _startTime;
+
+    AnalysisJob(AnalyticJob analyticJob, HadoopApplicationData data, long startTime) {
+      _analyticJob = analyticJob;
+      _data = data;
+      _startTime = startTime;
     }
 
     @Override
@@ -248,37 +600,101 @@ public class ElephantRunner implements Runnable {
         String analysisName = String.format("%s %s", _analyticJob.getAppType().getName(), _analyticJob.getAppId());
         long analysisStartTimeMillis = System.currentTimeMillis();
         logger.info(String.format("Analyzing %s", analysisName));
-        AppResult result = _analyticJob.getAnalysis();
-        result.save();
-        long processingTime = System.currentTimeMillis() - analysisStartTimeMillis;
+        AppResult result = _analyticJob.getAnalysis(_data);
+        long finishTimeMillis = System.currentTimeMillis();
+        MetricsController.setPipelineStageTime(ANALYSIS_STAGE, finishTimeMillis - analysisStartTimeMillis);
+        long processingTime = finishTimeMillis - _startTime;
         logger.info(String.format("Analysis of %s took %sms", analysisName, processingTime));
         MetricsController.setJobProcessingTime(processingTime);
-        MetricsController.markProcessedJobs();
+        _appResultWriter.write(_analyticJob, result);
 
       } catch (InterruptedException e) {
-        logger.info("Thread interrupted");
-        logger.info(e.getMessage());
-        logger.info(ExceptionUtils.getStackTrace(e));
-
-        Thread.currentThread().interrupt();
+        onAnalysisInterrupted(_analyticJob, e);
       } catch (Exception e) {
-        logger.error(e.getMessage());
-        logger.error(ExceptionUtils.getStackTrace(e));
-
-        if (_analyticJob != null && _analyticJob.retry()) {
-          logger.error("Add analytic job id [" + _analyticJob.getAppId() + "] into the retry list.");
-          _analyticJobGenerator.addIntoRetries(_analyticJob);
-        } else {
-          if (_analyticJob != null) {
-            MetricsController.markSkippedJob();
-            logger.error("Drop the analytic job. Reason: reached the max retries for application id = ["
-                    + _analyticJob.getAppId() + "].");
-          }
-        }
+        onAnalysisFailure(_analyticJob, e);
+      } finally {
+        _analysisPermits.release();
       }
     }
   }
 
+  private void onAnalysisFailure(AnalyticJob analyticJob, Exception e) {
+    logger.error(e.getMessage());
+    logger.error(ExceptionUtils.getStackTrace(e));
+    retryOrDrop(analyticJob, e);
+  }
+
+  /**
+   * An interrupted job is retried like a failed one, so that its generator does not keep it pending, then the interrupt
+   * is restored.
+   */
+  private void onAnalysisInterrupted(AnalyticJob analyticJob, InterruptedException e) {
+    logger.warn("The analysis of " + analyticJob.getAppId() + " was interrupted", e);
+    retryOrDrop(analyticJob, e);
+    Thread.currentThread().interrupt();
+  }
+
+  private void retryOrDrop(AnalyticJob analyticJob, Exception e) {
+    if (analyticJob == null || !isOwned(analyticJob)) {
+      return;
+    }
+    AnalyticJobGenerator analyticJobGenerator = _analyticJobGenerators.get(analyticJob.getCluster());
+    if (analyticJobGenerator.addIntoRetries(analyticJob, e)) {
+      logger.error("Add analytic job id [" + analyticJob.getAppId() + "] into the retry list.");
+    } else {
+      analyticJobGenerator.markCompleted(analyticJob);
+      MetricsController.markSkippedJob();
+      logger.error("Drop the analytic job. Reason: reached the max retries for application id = ["
+              + analyticJob.getAppId() + "].");
+    }
+  }
+
+  /**
+   * Checks that a job is still analysed by this node. A job of a partition taken over by another node is left to it:
+   * its generator forgets it, without retrying it.
+   */
+  private boolean isOwned(AnalyticJob analyticJob) {
+    AnalyticJobGenerator analyticJobGenerator = _analyticJobGenerators.get(analyticJob.getCluster());
+    if (analyticJobGenerator.isOwned(analyticJob)) {
+      return true;
+    }
+    logger.info("The partition of " + analyticJob.getAppId() + " is now owned by another node, leaving it the analysis");
+    analyticJobGenerator.markCompleted(analyticJob);
+    return false;
+  }
+
+  private void setupAppResultWriter() {
+    _appResultWriter = new AppResultWriter(_persistThreadNum, _persistBatchSize, _persistBatchLatency, new AppResultWriter.Listener() {
+      @Override
+      public boolean accept(AnalyticJob analyticJob) {
+        return isOwned(analyticJob);
+      }
+
+      @Override
+      public void onSaved(AnalyticJob analyticJob) {
+        _analyticJobGenerators.get(analyticJob.getCluster()).markCompleted(analyticJob);
+        MetricsController.markProcessedJobs();
+      }
+
+      @Override
+      public void onFailed(AnalyticJob analyticJob, Exception e) {
+        onAnalysisFailure(analyticJob, e);
+      }
+    });
+    _appResultWriter.start();
+    MetricsController.registerPipelineQueue(AppResultWriter.PERSIST_STAGE, _appResultWriter.getQueue());
+  }
+
+  private void setupAnalysisExecutor() {
+    // The permits bound the fetched jobs either waiting in the queue or being analysed by an analysis thread
+    _analysisPermits = new Semaphore(_analysisQueueCapacity + _analysisThreadNum);
+
+    ThreadFactory factory = new ThreadFactoryBuilder().setNameFormat("dr-el-analysis-thread-%d").build();
+    _analysisExecutor = new ThreadPoolExecutor(_analysisThreadNum, _analysisThreadNum, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(), factory);
+    MetricsController.registerPipelineQueue(ANALYSIS_STAGE, _analysisExecutor.getQueue());
+  }
+
   private void waitInterval(long interval) {
     // Wait for long enough
     long nextRun = lastRun + interval;
@@ -297,8 +713,17 @@ public class ElephantRunner implements Runnable {
 
   public void kill() {
     _running.set(false);
+    if (_leaderElection != null) {
+      _leaderElection.stop();
+    }
     if (_threadPoolExecutor != null) {
       _threadPoolExecutor.shutdownNow();
     }
+    if (_analysisExecutor != null) {
+      _analysisExecutor.shutdownNow();
+    }
+    if (_appResultWriter != null) {
+      _appResultWriter.stop();
+    }
   }
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Partitions the applications of an AnalyticJobGenerator between the Dr. Elephant nodes sharing the database, so that
+ * each application is analysed by a single node.
+ *
+ * The applications are partitioned by hash of their id, and each partition is leased to a node in the LeaseTable. Every
+ * node heartbeats and renews its leases periodically, and balances the partitions so that each live node owns its fair
+ * share: a node releases the partitions above its share, e.g. when a node joins, and acquires the free or expired ones
+ * below it, e.g. when a node dies. Without a lease table, a single node owns all the partitions.
+ *
+ * A node may lose a partition at any time, so the owner of the partition of an application is checked again with
+ * isOwned before the application is handed out and before its result is saved.
+ */
+public class AnalysisPartitions extends LeaseHolder {
+  private static final Logger logger = Logger.getLogger(AnalysisPartitions.class);
+
+  private static final String LEASE_PREFIX = "partition:";
+
+  private final String _generatorId;
+  private final int _partitionCount;
+  private final TreeSet<Integer> _ownedPartitions = new TreeSet<Integer>();
+
+  /**
+   * Partitions owned by a single node.
+   *
+   * @param generatorId The id of the generator whose applications are partitioned
+   */
+  public AnalysisPartitions(String generatorId) {
+    this(generatorId, 1, null, 0, null);
+    _ownedPartitions.add(0);
+  }
+
+  /**
+   * Partitions shared between the nodes through the lease table.
+   *
+   * @param generatorId The id of the generator whose applications are partitioned
+   * @param partitionCount The number of partitions
+   * @param nodeId The id of this node
+   * @param leaseMs The duration of the leases, after which the partitions of a dead node are taken over
+   * @param leaseTable The lease table
+   */
+  public AnalysisPartitions(String generatorId, int partitionCount, String nodeId, long leaseMs,
+      LeaseTable leaseTable) {
+    super("partitions-" + generatorId, nodeId, leaseMs, leaseTable, 4);
+    if (partitionCount < 1) {
+      throw new IllegalArgumentException("The number of partitions must be positive");
+    }
+    _generatorId = generatorId;
+    _partitionCount = partitionCount;
+  }
+
+  /**
+   * Stops balancing the partitions, and releases them so that the other nodes take them over right away.
+   */
+  public synchronized void stop() {
+    stopRenewing();
+    if (_leaseTable == null) {
+      return;
+    }
+    try {
+      for (int partition : _ownedPartitions) {
+        _leaseTable.release(getLeaseName(partition), _nodeId);
+      }
+      _leaseTable.removeNode(_nodeId);
+    } catch (Exception e) {
+      logger.warn("Unable to release the partitions of " + _generatorId, e);
+    }
+    _ownedPartitions.clear();
+  }
+
+  /**
+   * @return the number of partitions
+   */
+  public int getPartitionCount() {
+    return _partitionCount;
+  }
+
+  /**
+   * Returns the partition of an application.
+   *
+   * @param appId The application id
+   * @return the partition, between 0 and the number of partitions excluded
+   */
+  public int getPartition(String appId) {
+    if (_partitionCount == 1) {
+      return 0;
+    }
+    return Hashing.consistentHash(Hashing.murmur3_32().hashString(appId, Charsets.UTF_8), _partitionCount);
+  }
+
+  /**
+   * Returns the name of a partition, which identifies its checkpoint. A single partition is named after the generator.
+   *
+   * @param partition The partition
+   * @return the name of the partition
+   */
+  public String getPartitionName(int partition) {
+    return _partitionCount == 1 ? _generatorId : _generatorId + "#" + partition;
+  }
+
+  /**
+   * Returns the partitions owned by this node. None are owned once their leases expired without being renewed, e.g.
+   * when the database is not reachable.
+   *
+   * @param now The current time
+   * @return the owned partitions
+   */
+  public synchronized Set<Integer> getOwnedPartitions(long now) {
+    if (!holdsLeases(now)) {
+      return Collections.emptySet();
+    }
+    return new TreeSet<Integer>(_ownedPartitions);
+  }
+
+  /**
+   * Returns whether the partition of an application is owned by this node, and its lease not expired.
+   *
+   * @param appId The application id
+   * @param now The current time
+   * @return true if the application is analysed by this node
+   */
+  public synchronized boolean isOwned(String appId, long now) {
+    return holdsLeases(now) && _ownedPartitions.contains(getPartition(appId));
+  }
+
+  /**
+   * Returns the fair share of the partitions of a node, i.e. the number of partitions divided by the number of live
+   * nodes, plus one for the first nodes in id order while there is a remainder, so that no node is left idle while
+   * there are at least as many partitions as nodes.
+   *
+   * @param liveNodes The ids of the live nodes, in order
+   * @param nodeId The id of the node
+   * @return the number of partitions the node should own
+   */
+  int getShare(List<String> liveNodes, String nodeId) {
+    int nodeCount = Math.max(1, liveNodes.size());
+    int rank = liveNodes.indexOf(nodeId);
+    if (rank < 0) {
+      rank = nodeCount - 1;
+    }
+    return _partitionCount / nodeCount + (rank < _partitionCount % nodeCount ? 1 : 0);
+  }
+
+  /**
+   * Renews the leases of the owned partitions, then releases or acquires partitions so that this node owns its fair
+   * share of them.
+   *
+   * @param now The current time
+   */
+  synchronized void rebalance(long now) {
+    _leaseTable.heartbeat(_nodeId, now);
+    int share = getShare(_leaseTable.listLiveNodes(now - _leaseMs), _nodeId);
+    long expiryTime = now + _leaseMs;
+
+    for (Integer partition : new TreeSet<Integer>(_ownedPartitions)) {
+      if (!holdsLeases(now) || !_leaseTable.acquire(getLeaseName(partition), _nodeId, expiryTime, now)) {
+        logger.info("Lost the partition " + getPartitionName(partition));
+        _ownedPartitions.remove(partition);
+      }
+    }
+
+    // Release the partitions above the share, the last ones first
+    while (_ownedPartitions.size() > share) {
+      int partition = _ownedPartitions.last();
+      _leaseTable.release(getLeaseName(partition), _nodeId);
+      _ownedPartitions.remove(partition);
+      logger.info("Released the partition " + getPartitionName(partition));
+    }
+
+    // Acquire the free partitions below the share, from a node dependent offset so that the nodes do not all try the
+    // same partitions first
+    int offset = (_nodeId.hashCode() & Integer.MAX_VALUE) % _partitionCount;
+    for (int i = 0; i < _partitionCount && _ownedPartitions.size() < share; i++) {
+      int partition = (offset + i) % _partitionCount;
+      if (!_ownedPartitions.contains(partition)
+          && _leaseTable.acquire(getLeaseName(partition), _nodeId, expiryTime, now)) {
+        logger.info("Acquired the partition " + getPartitionName(partition));
+        _ownedPartitions.add(partition);
+      }
+    }
+    setExpiryTime(expiryTime);
+  }
+
+  @Override
+  void renew(long now) {
+    rebalance(now);
+  }
+
+  private String getLeaseName(int partition) {
+    return LEASE_PREFIX + getPartitionName(partition);
+  }
+}
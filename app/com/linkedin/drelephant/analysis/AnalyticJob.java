@@ -17,11 +17,19 @@
 package com.linkedin.drelephant.analysis;
 
 import com.linkedin.drelephant.ElephantContext;
+import com.linkedin.drelephant.metrics.StageMetrics;
 import com.linkedin.drelephant.util.InfoExtractor;
 import com.linkedin.drelephant.util.Utils;
+import controllers.MetricsController;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import models.AppHeuristicResult;
 import models.AppHeuristicResultDetails;
 import models.AppResult;
@@ -36,16 +44,20 @@ public class AnalyticJob {
   private static final Logger logger = Logger.getLogger(AnalyticJob.class);
 
   private static final String UNKNOWN_JOB_TYPE = "Unknown";   // The default job type when the data matches nothing.
-  private static final int _RETRY_LIMIT = 3;                  // Number of times a job needs to be tried before dropping
   private static final String EXCLUDE_JOBTYPE = "exclude_jobtypes_filter"; // excluded Job Types for heuristic
+  private static final String FAILED_FINAL_STATUS = "FAILED";
+  private static final String HEURISTIC_TIMEOUT_KEY = "drelephant.analysis.heuristic.timeout";
+  private static final long HEURISTIC_TIMEOUT = 5 * 60 * 1000;  // Time given to a heuristic running concurrently
 
   private int _retries = 0;
+  private String _cluster = "";
   private ApplicationType _type;
   private String _appId;
   private String _name;
   private String _queueName;
   private String _user;
   private String _trackingUrl;
+  private String _finalStatus;
   private long _startTime;
   private long _finishTime;
 
@@ -219,6 +231,241 @@ public class AnalyticJob {
     return this;
   }
 
+  /**
+   * Runs the heuristics and the aggregator concurrently on the shared heuristic thread pool. Each of them is given
+   * drelephant.analysis.heuristic.timeout milliseconds to complete from the moment it starts running, and as long
+   * again to start while waiting for a pool thread. A heuristic that times out is left out of the results, while an
+   * aggregator timeout fails the analysis.
+   *
+   * Timed out tasks are cancelled with an interrupt, which only stops the heuristics that check it: a heuristic
+   * ignoring interrupts keeps its pool thread until it returns, so the pool should be sized with some headroom.
+   *
+   * @param executor The heuristic thread pool
+   * @param heuristics The heuristics to apply
+   * @param aggregator The aggregator of the application type
+   * @param data The fetched data
+   * @param analysisResults The list the heuristic results are added to, in the heuristics order
+   * @return the aggregated data
+   * @throws Exception if a heuristic or the aggregator failed, or the aggregator timed out
+   */
+  private HadoopAggregatedData analyzeConcurrently(ExecutorService executor, List<Heuristic> heuristics,
+      final HadoopMetricsAggregator aggregator, final HadoopApplicationData data,
+      List<HeuristicResult> analysisResults) throws Exception {
+    long timeout = Utils.getNonNegativeLong(ElephantContext.instance().getGeneralConf(), HEURISTIC_TIMEOUT_KEY,
+        HEURISTIC_TIMEOUT);
+
+    List<TimedTask<HeuristicResult>> heuristicTasks = new ArrayList<TimedTask<HeuristicResult>>();
+    TimedTask<HadoopAggregatedData> aggregatorTask = null;
+    try {
+      for (final Heuristic heuristic : heuristics) {
+        TimedTask<HeuristicResult> task = new TimedTask<HeuristicResult>(new Callable<HeuristicResult>() {
+          @Override
+          public HeuristicResult call() throws Exception {
+            return applyHeuristic(heuristic, data);
+          }
+        });
+        heuristicTasks.add(task);
+        executor.execute(task);
+      }
+      aggregatorTask = new TimedTask<HadoopAggregatedData>(new Callable<HadoopAggregatedData>() {
+        @Override
+        public HadoopAggregatedData call() throws Exception {
+          return aggregate(aggregator, data);
+        }
+      });
+      executor.execute(aggregatorTask);
+
+      for (int i = 0; i < heuristics.size(); i++) {
+        String heuristicName = heuristics.get(i).getHeuristicConfData().getHeuristicName();
+        TimedTask<HeuristicResult> task = heuristicTasks.get(i);
+        try {
+          HeuristicResult result = task.get(timeout);
+          if (result != null) {
+            analysisResults.add(result);
+          }
+        } catch (TimeoutException e) {
+          task.cancel(true);
+          logger.error("Heuristic " + heuristicName + " timed out after " + timeout + "ms for analytic job: "
+              + getAppId() + (task.isStarted() ? ", its thread is kept until it returns" : " waiting for a thread"));
+        }
+      }
+      return aggregatorTask.get(timeout);
+    } finally {
+      // Do not leave anything running if the analysis failed
+      for (TimedTask<HeuristicResult> task : heuristicTasks) {
+        task.cancel(true);
+      }
+      if (aggregatorTask != null) {
+        aggregatorTask.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * A task remembering when it was submitted and when it started running, so that its timeout only counts the time
+   * it actually ran.
+   */
+  private static class TimedTask<T> extends FutureTask<T> {
+    private final long _submitTime = System.currentTimeMillis();
+    private volatile long _startTime = 0;
+
+    TimedTask(Callable<T> callable) {
+      super(callable);
+    }
+
+    @Override
+    public void run() {
+      _startTime = System.currentTimeMillis();
+      super.run();
+    }
+
+    boolean isStarted() {
+      return _startTime != 0;
+    }
+
+    /**
+     * Waits for the result until timeout ms after the task started, or after its submission if it never starts.
+     *
+     * @param timeout The time in ms given to the task
+     * @return the result of the task
+     * @throws TimeoutException if the task did not complete in time
+     * @throws Exception the exception thrown by the task
+     */
+    T get(long timeout) throws Exception {
+      while (true) {
+        long startTime = _startTime;
+        long deadline = (startTime == 0 ? _submitTime : startTime) + timeout;
+        try {
+          return get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof Exception) {
+            throw (Exception) e.getCause();
+          }
+          throw e;
+        } catch (TimeoutException e) {
+          if (startTime != 0 || _startTime == 0) {
+            throw e;
+          }
+          // Started while we were waiting for it to start, give it its own timeout
+        }
+      }
+    }
+  }
+
+  private static HeuristicResult applyHeuristic(Heuristic heuristic, HadoopApplicationData data) {
+    long startTime = System.nanoTime();
+    long startBytes = StageMetrics.getCurrentThreadAllocatedBytes();
+    try {
+      return heuristic.apply(data);
+    } finally {
+      updateStageMetrics(StageMetrics.HEURISTIC, heuristic, startTime, startBytes);
+    }
+  }
+
+  private static HadoopAggregatedData aggregate(HadoopMetricsAggregator aggregator, HadoopApplicationData data) {
+    long startTime = System.nanoTime();
+    long startBytes = StageMetrics.getCurrentThreadAllocatedBytes();
+    try {
+      aggregator.aggregate(data);
+      return aggregator.getResult();
+    } finally {
+      updateStageMetrics(StageMetrics.AGGREGATOR, aggregator, startTime, startBytes);
+    }
+  }
+
+  /**
+   * Fetches the data of the job using the appropriate application fetcher.
+   *
+   * @throws Exception if the fetcher failed
+   * @return the fetched data
+   */
+  public HadoopApplicationData fetchData() throws Exception {
+    ElephantFetcher fetcher = ElephantContext.instance().getFetcherForApplicationType(getCluster(), getAppType());
+    long startTime = System.nanoTime();
+    long startBytes = StageMetrics.getCurrentThreadAllocatedBytes();
+    try {
+      return fetcher.fetchData(this);
+    } finally {
+      updateStageMetrics(StageMetrics.FETCHER, fetcher, startTime, startBytes);
+    }
+  }
+
+  /**
+   * Fetches the data of the job using the appropriate application fetcher, without blocking the calling thread if the
+   * fetcher is a non-blocking AsyncElephantFetcher. Otherwise the data is fetched by the calling thread, and the
+   * callback notified before returning.
+   *
+   * @param callback The callback notified exactly once with the fetched data, or the cause of the failure
+   */
+  @SuppressWarnings("unchecked")
+  public void fetchData(final AsyncElephantFetcher.Callback<HadoopApplicationData> callback) {
+    final ElephantFetcher fetcher =
+        ElephantContext.instance().getFetcherForApplicationType(getCluster(), getAppType());
+    if (!(fetcher instanceof AsyncElephantFetcher) || !((AsyncElephantFetcher) fetcher).isNonBlocking()) {
+      HadoopApplicationData data;
+      try {
+        data = fetchData();
+      } catch (Exception e) {
+        callback.onFailure(e);
+        return;
+      }
+      callback.onSuccess(data);
+      return;
+    }
+
+    // The allocations happen in the threads of the fetcher, so only the time is recorded
+    final long startTime = System.nanoTime();
+    ((AsyncElephantFetcher<HadoopApplicationData>) fetcher).fetchDataAsync(this,
+        new AsyncElephantFetcher.Callback<HadoopApplicationData>() {
+          @Override
+          public void onSuccess(HadoopApplicationData data) {
+            updateStageMetrics(StageMetrics.FETCHER, fetcher, startTime, -1);
+            callback.onSuccess(data);
+          }
+
+          @Override
+          public void onFailure(Exception e) {
+            updateStageMetrics(StageMetrics.FETCHER, fetcher, startTime, -1);
+            callback.onFailure(e);
+          }
+        });
+  }
+
+  private static void updateStageMetrics(String type, Object stage, long startTime, long startBytes) {
+    long allocatedBytes = startBytes < 0 ? -1 : StageMetrics.getCurrentThreadAllocatedBytes() - startBytes;
+    MetricsController.updateStageMetrics(type, stage.getClass().getSimpleName(), System.nanoTime() - startTime,
+        allocatedBytes);
+  }
+
+  /**
+   * Sets the final status of the job as reported by the resource manager
+   *
+   * @param finalStatus The final status, e.g. SUCCEEDED or FAILED
+   * @return The analytic job
+   */
+  public AnalyticJob setFinalStatus(String finalStatus) {
+    _finalStatus = finalStatus;
+    return this;
+  }
+
+  /**
+   * Returns the final status of the job as reported by the resource manager
+   *
+   * @return The final status
+   */
+  public String getFinalStatus() {
+    return _finalStatus;
+  }
+
+  /**
+   * Returns true if the resource manager reported the job as failed
+   *
+   * @return true if the job failed, else false
+   */
+  public boolean isFailed() {
+    return FAILED_FINAL_STATUS.equals(_finalStatus);
+  }
+
   /**
    * Returns the analysed AppResult that could be directly serialized into DB.
    *
@@ -229,41 +476,58 @@ public class AnalyticJob {
    * @return the analysed AppResult
    */
   public AppResult getAnalysis() throws Exception {
-    ElephantFetcher fetcher = ElephantContext.instance().getFetcherForApplicationType(getAppType());
-    HadoopApplicationData data = fetcher.fetchData(this);
+    return getAnalysis(fetchData());
+  }
 
+  /**
+   * Returns the analysed AppResult of already fetched data, that could be directly serialized into DB.
+   *
+   * @param data The data fetched with {@link #fetchData()}
+   * @throws Exception if the analysis process encountered a problem.
+   * @return the analysed AppResult
+   */
+  public AppResult getAnalysis(HadoopApplicationData data) throws Exception {
     JobType jobType = ElephantContext.instance().matchJobType(data);
     String jobTypeName = jobType == null ? UNKNOWN_JOB_TYPE : jobType.getName();
 
-    // Run all heuristics over the fetched data
+    // Select the heuristics to run over the fetched data
     List<HeuristicResult> analysisResults = new ArrayList<HeuristicResult>();
+    List<Heuristic> heuristics = new ArrayList<Heuristic>();
     if (data == null || data.isEmpty()) {
       // Example: a MR job has 0 mappers and 0 reducers
       logger.info("No Data Received for analytic job: " + getAppId());
       analysisResults.add(HeuristicResult.NO_DATA);
     } else {
-      List<Heuristic> heuristics = ElephantContext.instance().getHeuristicsForApplicationType(getAppType());
-      for (Heuristic heuristic : heuristics) {
+      for (Heuristic heuristic : ElephantContext.instance().getHeuristicsForApplicationType(getAppType())) {
         String confExcludedApps = heuristic.getHeuristicConfData().getParamMap().get(EXCLUDE_JOBTYPE);
 
         if (confExcludedApps == null || confExcludedApps.length() == 0 ||
                 !Arrays.asList(confExcludedApps.split(",")).contains(jobTypeName)) {
-          HeuristicResult result = heuristic.apply(data);
-          if (result != null) {
-            analysisResults.add(result);
-          }
+          heuristics.add(heuristic);
         }
       }
     }
 
-
     HadoopMetricsAggregator hadoopMetricsAggregator = ElephantContext.instance().getAggregatorForApplicationType(getAppType());
-    hadoopMetricsAggregator.aggregate(data);
-    HadoopAggregatedData hadoopAggregatedData = hadoopMetricsAggregator.getResult();
+    HadoopAggregatedData hadoopAggregatedData;
+    ExecutorService heuristicExecutor = ElephantContext.instance().getHeuristicExecutor();
+    if (heuristicExecutor == null) {
+      for (Heuristic heuristic : heuristics) {
+        HeuristicResult result = applyHeuristic(heuristic, data);
+        if (result != null) {
+          analysisResults.add(result);
+        }
+      }
+      hadoopAggregatedData = aggregate(hadoopMetricsAggregator, data);
+    } else {
+      hadoopAggregatedData = analyzeConcurrently(heuristicExecutor, heuristics, hadoopMetricsAggregator, data,
+          analysisResults);
+    }
 
     // Load app information
     AppResult result = new AppResult();
     result.id = Utils.truncateField(getAppId(), AppResult.ID_LIMIT, getAppId());
+    result.cluster = Utils.truncateField(getCluster(), AppResult.CLUSTER_LIMIT, getAppId());
     result.trackingUrl = Utils.truncateField(getTrackingUrl(), AppResult.TRACKING_URL_LIMIT, getAppId());
     result.queueName = Utils.truncateField(getQueueName(), AppResult.QUEUE_NAME_LIMIT, getAppId());
     result.username = Utils.truncateField(getUser(), AppResult.USERNAME_LIMIT, getAppId());
@@ -316,11 +580,42 @@ public class AnalyticJob {
   }
 
   /**
-   * Indicate this promise should retry itself again.
+   * Returns the number of retries already done for this job
    *
-   * @return true if should retry, else false
+   * @return the number of retries
+   */
+  public int getRetries() {
+    return _retries;
+  }
+
+  /**
+   * Sets the number of retries already done for this job, e.g. when it is restored after a restart
+   *
+   * @param retries The number of retries
+   * @return The analytic job
    */
-  public boolean retry() {
-    return (_retries++) < _RETRY_LIMIT;
+  public AnalyticJob setRetries(int retries) {
+    _retries = retries;
+    return this;
+  }
+
+  /**
+   * Returns the id of the cluster which ran this job
+   *
+   * @return the cluster id, empty for the default cluster
+   */
+  public String getCluster() {
+    return _cluster;
+  }
+
+  /**
+   * Sets the id of the cluster which ran this job, which selects the fetcher of the job
+   *
+   * @param cluster The cluster id, empty for the default cluster
+   * @return The analytic job
+   */
+  public AnalyticJob setCluster(String cluster) {
+    _cluster = cluster;
+    return this;
   }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.SqlRow;
+import com.linkedin.drelephant.ElephantContext;
+import com.linkedin.drelephant.util.Utils;
+import java.util.ArrayList;
+import java.util.List;
+import models.AppResult;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Persists the progress of an AnalyticJobGenerator in the database, so that it can resume where it stopped after a
+ * restart: the finish time up to which all the applications were fetched and analysed, and the applications waiting
+ * for a retry.
+ */
+public class AnalyticJobCheckpoint {
+  private static final Logger logger = Logger.getLogger(AnalyticJobCheckpoint.class);
+
+  private static final String CHECKPOINT_TABLE = "analysis_checkpoint";
+  private static final String RETRY_TABLE = "analysis_retry";
+  private static final int APP_TYPE_LIMIT = 20;
+  private static final int FINAL_STATUS_LIMIT = 20;
+
+  private static final String SELECT_CHECKPOINT_SQL = "SELECT last_fetch_time FROM " + CHECKPOINT_TABLE
+      + " WHERE generator_id = :generator_id";
+  private static final String UPSERT_CHECKPOINT_SQL = "INSERT INTO " + CHECKPOINT_TABLE
+      + " (generator_id, last_fetch_time) VALUES (:generator_id, :last_fetch_time)"
+      + " ON DUPLICATE KEY UPDATE last_fetch_time = VALUES(last_fetch_time)";
+  private static final String SELECT_RETRIES_SQL = "SELECT * FROM " + RETRY_TABLE
+      + " WHERE generator_id = :generator_id";
+  private static final String UPSERT_RETRY_SQL = "INSERT INTO " + RETRY_TABLE
+      + " (id, generator_id, app_type, name, username, queue_name, tracking_url, final_status, start_time,"
+      + " finish_time, retries) VALUES (:id, :generator_id, :app_type, :name, :username, :queue_name, :tracking_url,"
+      + " :final_status, :start_time, :finish_time, :retries)"
+      + " ON DUPLICATE KEY UPDATE retries = VALUES(retries)";
+  private static final String DELETE_RETRY_SQL = "DELETE FROM " + RETRY_TABLE + " WHERE id = :id";
+
+  private final String _generatorId;
+
+  /**
+   * @param generatorId The id of the generator owning the checkpoint
+   */
+  public AnalyticJobCheckpoint(String generatorId) {
+    _generatorId = generatorId;
+  }
+
+  /**
+   * @return the id of the generator owning the checkpoint
+   */
+  public String getGeneratorId() {
+    return _generatorId;
+  }
+
+  /**
+   * Returns the finish time up to which all the applications were fetched and analysed.
+   *
+   * @return the last fetch time, or 0 if there is no checkpoint yet
+   */
+  public long loadLastFetchTime() {
+    SqlRow row = Ebean.createSqlQuery(SELECT_CHECKPOINT_SQL)
+        .setParameter("generator_id", _generatorId)
+        .findUnique();
+    return row == null ? 0 : row.getLong("last_fetch_time");
+  }
+
+  /**
+   * Saves the finish time up to which all the applications were fetched and analysed.
+   *
+   * @param lastFetchTime The last fetch time
+   */
+  public void saveLastFetchTime(long lastFetchTime) {
+    Ebean.createSqlUpdate(UPSERT_CHECKPOINT_SQL)
+        .setParameter("generator_id", _generatorId)
+        .setParameter("last_fetch_time", lastFetchTime)
+        .execute();
+  }
+
+  /**
+   * Returns the jobs waiting for a retry, skipping the ones whose application type is not supported anymore.
+   *
+   * @return the jobs to retry
+   */
+  public List<AnalyticJob> loadRetries() {
+    List<AnalyticJob> jobs = new ArrayList<AnalyticJob>();
+    List<SqlRow> rows = Ebean.createSqlQuery(SELECT_RETRIES_SQL)
+        .setParameter("generator_id", _generatorId)
+        .findList();
+    for (SqlRow row : rows) {
+      ApplicationType type = ElephantContext.instance().getApplicationTypeForName(row.getString("app_type"));
+      if (type == null) {
+        logger.info("Dropping the retry of " + row.getString("id") + " of unsupported type " + row.getString("app_type"));
+        deleteRetry(row.getString("id"));
+        continue;
+      }
+      AnalyticJob job = new AnalyticJob();
+      job.setAppId(row.getString("id")).setAppType(type).setName(row.getString("name"))
+          .setUser(row.getString("username")).setQueueName(row.getString("queue_name"))
+          .setTrackingUrl(row.getString("tracking_url")).setFinalStatus(row.getString("final_status"))
+          .setStartTime(row.getLong("start_time")).setFinishTime(row.getLong("finish_time"))
+          .setRetries(row.getInteger("retries"));
+      jobs.add(job);
+    }
+    return jobs;
+  }
+
+  /**
+   * Saves a job waiting for a retry, or updates its number of retries if it is already saved.
+   *
+   * @param job The job to retry
+   */
+  public void saveRetry(AnalyticJob job) {
+    String appId = job.getAppId();
+    Ebean.createSqlUpdate(UPSERT_RETRY_SQL)
+        .setParameter("id", appId)
+        .setParameter("generator_id", _generatorId)
+        .setParameter("app_type", Utils.truncateField(job.getAppType().getName(), APP_TYPE_LIMIT, appId))
+        .setParameter("name", Utils.truncateField(job.getName(), AppResult.APP_NAME_LIMIT, appId))
+        .setParameter("username", Utils.truncateField(job.getUser(), AppResult.USERNAME_LIMIT, appId))
+        .setParameter("queue_name", Utils.truncateField(job.getQueueName(), AppResult.QUEUE_NAME_LIMIT, appId))
+        .setParameter("tracking_url", Utils.truncateField(job.getTrackingUrl(), AppResult.TRACKING_URL_LIMIT, appId))
+        .setParameter("final_status", Utils.truncateField(job.getFinalStatus(), FINAL_STATUS_LIMIT, appId))
+        .setParameter("start_time", job.getStartTime())
+        .setParameter("finish_time", job.getFinishTime())
+        .setParameter("retries", job.getRetries())
+        .execute();
+  }
+
+  /**
+   * Deletes the saved retry of an application, if any.
+   *
+   * @param appId The application id
+   */
+  public void deleteRetry(String appId) {
+    Ebean.createSqlUpdate(DELETE_RETRY_SQL)
+        .setParameter("id", appId)
+        .execute();
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+/**
+ * Receives the AnalyticJobs provided by an AnalyticJobGenerator as soon as they are discovered, instead of waiting for
+ * the whole list of jobs to be built.
+ */
+public interface AnalyticJobConsumer {
+
+  /**
+   * Consumes a job provided by the generator. This method may block, which pauses the generator.
+   *
+   * @param job The job to consume
+   * @return true if the job was consumed, false if the consumer does not accept jobs anymore and the generator should
+   *         stop providing them
+   */
+  public boolean consume(AnalyticJob job);
+}
@@ -53,10 +53,42 @@ public interface AnalyticJobGenerator {
       throws IOException, AuthenticationException;
 
   /**
-   * Add an AnalyticJob into retry list. Those jobs will be provided again via #fetchAnalyticJobs under
-   * the generator's decision.
+   * Provides the AnalyticJobs that should be calculated to the consumer, one at a time as they are discovered. The
+   * generator stops as soon as the consumer refuses a job, and provides the jobs it did not get to again on the next
+   * call.
+   *
+   * @param consumer The consumer of the AnalyticJobs
+   * @return true if all the jobs were provided, false if the consumer stopped accepting them
+   * @throws IOException
+   * @throws AuthenticationException
+   */
+  public boolean fetchAnalyticJobs(AnalyticJobConsumer consumer)
+      throws IOException, AuthenticationException;
+
+  /**
+   * Add an AnalyticJob whose analysis failed into retry list. Those jobs will be provided again via
+   * #fetchAnalyticJobs under the generator's decision.
    *
    * @param job The job to add
+   * @param failure The cause of the failure
+   * @return true if the job will be retried, false if it should be dropped
+   */
+  public boolean addIntoRetries(AnalyticJob job, Exception failure);
+
+  /**
+   * Notify the generator that an AnalyticJob it provided will not be analysed again, either because its result was
+   * saved or because it was dropped.
+   *
+   * @param job The completed job
+   */
+  public void markCompleted(AnalyticJob job);
+
+  /**
+   * Checks that an AnalyticJob it provided is still analysed by this node. A job stops being owned when its partition
+   * is taken over by another node, which analyses it instead, so its result must not be saved.
+   *
+   * @param job The job to check
+   * @return true if this node should analyse the job and save its result
    */
-  public void addIntoRetries(AnalyticJob job);
+  public boolean isOwned(AnalyticJob job);
 }
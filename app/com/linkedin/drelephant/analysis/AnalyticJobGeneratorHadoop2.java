@@ -18,56 +18,97 @@ package com.linkedin.drelephant.analysis;
 
 import com.linkedin.drelephant.ElephantContext;
 import com.linkedin.drelephant.math.Statistics;
-import controllers.MetricsController;
+import com.linkedin.drelephant.util.HttpConnectionPool;
+import com.linkedin.drelephant.util.Utils;
 import java.io.IOException;
-import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Set;
 import models.AppResult;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.security.authentication.client.AuthenticatedURL;
 import org.apache.hadoop.security.authentication.client.AuthenticationException;
 import org.apache.log4j.Logger;
 import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
 import org.codehaus.jackson.map.ObjectMapper;
 
 
 /**
  * This class provides a list of analysis promises to be generated under Hadoop YARN environment
  */
-public class AnalyticJobGeneratorHadoop2 implements AnalyticJobGenerator {
+public class AnalyticJobGeneratorHadoop2 extends CheckpointedAnalyticJobGenerator {
   private static final Logger logger = Logger.getLogger(AnalyticJobGeneratorHadoop2.class);
   private static final String RESOURCE_MANAGER_ADDRESS = "yarn.resourcemanager.webapp.address";
   private static final String IS_RM_HA_ENABLED = "yarn.resourcemanager.ha.enabled";
   private static final String RESOURCE_MANAGER_IDS = "yarn.resourcemanager.ha.rm-ids";
   private static final String RM_NODE_STATE_URL = "http://%s/ws/v1/cluster/info";
   private static final String FETCH_INITIAL_WINDOW_MS = "drelephant.analysis.fetch.initial.windowMillis";
+  private static final String FETCH_SLICE_WINDOW_MS = "drelephant.analysis.fetch.slice.windowMillis";
+  private static final String FETCH_CHECKPOINT_ENABLED = "drelephant.analysis.fetch.checkpoint.enabled";
+  private static final String PARTITION_COUNT_KEY = "drelephant.analysis.partition.count";
+  private static final String PARTITION_LEASE_MS_KEY = "drelephant.analysis.partition.lease.ms";
+  private static final long PARTITION_LEASE_MS = 2 * Statistics.MINUTE_IN_MS;
+  private static final String CHECKPOINT_ID = "default";
 
-  private static Configuration configuration;
+  private Configuration configuration;
 
   // We provide one minute job fetch delay due to the job sending lag from AM/NM to JobHistoryServer HDFS
   private static final long FETCH_DELAY = 60000;
 
+  // Max time range of the apps requested at once to the resource manager
+  private static final long FETCH_SLICE_WINDOW = 15 * Statistics.MINUTE_IN_MS;
+
+  // How far back the apps are fetched on the first start, without a checkpoint
+  private static final long FETCH_INITIAL_WINDOW = 24 * Statistics.HOUR_IN_MS;
+
   // Generate a token update interval with a random deviation so that it does not update the token exactly at the same
   // time with other token updaters (e.g. ElephantFetchers).
   private static final long TOKEN_UPDATE_INTERVAL =
       Statistics.MINUTE_IN_MS * 30 + new Random().nextLong() % (3 * Statistics.MINUTE_IN_MS);
 
   private String _resourceManagerAddress;
+  private long _initialTime = 0;
   private long _lastTime = 0;
-  private long _fetchStartTime = 0;
+  private long _fetchSliceWindow = FETCH_SLICE_WINDOW;
   private long _currentTime = 0;
   private long _tokenUpdatedTime = 0;
   private AuthenticatedURL.Token _token;
   private AuthenticatedURL _authenticatedURL;
   private final ObjectMapper _objectMapper = new ObjectMapper();
 
-  private final Queue<AnalyticJob> _retryQueue = new ConcurrentLinkedQueue<AnalyticJob>();
+  // Finish times of the apps already consumed from the slice being fetched, by app id, so that they are not provided
+  // twice when the slice is fetched again after a failure
+  private final Map<String, Long> _sliceApps = new HashMap<String, Long>();
+
+  // The partitions of the apps owned by this node, with the finish time up to which their apps were fetched
+  private AnalysisPartitions _partitions;
+  private final Map<Integer, Long> _partitionTimes = new HashMap<Integer, Long>();
+  // The owned partitions whose apps are checked against the DB on the next fetch, to avoid analysing the apps which
+  // were analysed before a restart or by the previous owner of the partition
+  private final Set<Integer> _checkedPartitions = new HashSet<Integer>();
+  private boolean _checkpointEnabled;
+  private final Map<Integer, AnalyticJobCheckpoint> _checkpoints = new HashMap<Integer, AnalyticJobCheckpoint>();
+
+  public AnalyticJobGeneratorHadoop2() {
+    this("");
+  }
+
+  /**
+   * @param cluster The id of the cluster whose apps are provided, empty for the default cluster
+   */
+  public AnalyticJobGeneratorHadoop2(String cluster) {
+    super(cluster);
+  }
 
   public void updateResourceManagerAddresses() {
     if (Boolean.valueOf(configuration.get(IS_RM_HA_ENABLED))) {
@@ -111,69 +152,200 @@ public class AnalyticJobGeneratorHadoop2 implements AnalyticJobGenerator {
   @Override
   public void configure(Configuration configuration)
       throws IOException {
+    super.configure(configuration);
     this.configuration = configuration;
-    String initialFetchWindowString = configuration.get(FETCH_INITIAL_WINDOW_MS);
-    if (initialFetchWindowString != null) {
-      long initialFetchWindow = Long.getLong(initialFetchWindowString);
-      _lastTime = System.currentTimeMillis() - FETCH_DELAY - initialFetchWindow;
-      _fetchStartTime = _lastTime;
+    long initialFetchWindow = configuration.getLong(FETCH_INITIAL_WINDOW_MS, FETCH_INITIAL_WINDOW);
+    _initialTime = Math.max(System.currentTimeMillis() - FETCH_DELAY - initialFetchWindow, 0);
+    _checkpointEnabled = configuration.getBoolean(FETCH_CHECKPOINT_ENABLED, true);
+
+    // With several nodes, the apps are partitioned between them, each partition having its own checkpoint
+    String generatorId = _cluster.isEmpty() ? CHECKPOINT_ID : _cluster;
+    int partitionCount = Utils.getNonNegativeInt(configuration, PARTITION_COUNT_KEY, 0);
+    if (partitionCount > 0) {
+      if (!_checkpointEnabled) {
+        throw new IllegalArgumentException(PARTITION_COUNT_KEY + " requires " + FETCH_CHECKPOINT_ENABLED);
+      }
+      long leaseMs = Utils.getNonNegativeLong(configuration, PARTITION_LEASE_MS_KEY, PARTITION_LEASE_MS);
+      _partitions = new AnalysisPartitions(generatorId, partitionCount, LeaseTable.getNodeId(configuration), leaseMs,
+          new LeaseTable());
+      _partitions.start();
+    } else {
+      _partitions = new AnalysisPartitions(generatorId);
+    }
+    _fetchSliceWindow = configuration.getLong(FETCH_SLICE_WINDOW_MS, FETCH_SLICE_WINDOW);
+    if (_fetchSliceWindow <= 0) {
+      throw new IllegalArgumentException(FETCH_SLICE_WINDOW_MS + " must be positive");
     }
     updateResourceManagerAddresses();
   }
 
   /**
-   *  Fetch all the succeeded and failed applications/analytic jobs from the resource manager.
+   * Fetch all the succeeded and failed applications/analytic jobs from the resource manager, and provide them to the
+   * consumer as they are read.
    *
-   * @return
+   * The fetch window is split into slices of at most drelephant.analysis.fetch.slice.windowMillis which are requested
+   * one after another, so that a large window never has to be held in memory. The apps of a response are read before
+   * being provided, so that the connection to the resource manager is not held while the consumer waits. The window
+   * start only moves forward once all the jobs of a slice have been consumed.
+   *
+   * @param consumer The consumer of the AnalyticJobs
+   * @return true if all the jobs were provided, false if the consumer stopped accepting them
    * @throws IOException
    * @throws AuthenticationException
    */
   @Override
-  public List<AnalyticJob> fetchAnalyticJobs()
+  public boolean fetchAnalyticJobs(AnalyticJobConsumer consumer)
       throws IOException, AuthenticationException {
-    List<AnalyticJob> appList = new ArrayList<AnalyticJob>();
-
     // There is a lag of job data from AM/NM to JobHistoryServer HDFS, we shouldn't use the current time, since there
     // might be new jobs arriving after we fetch jobs. We provide one minute delay to address this lag.
     _currentTime = System.currentTimeMillis() - FETCH_DELAY;
     updateAuthToken();
 
+    updatePartitions();
+    if (_partitionTimes.isEmpty()) {
+      logger.info("No partition of the applications is owned by this node");
+      return true;
+    }
+
     logger.info("Fetching recent finished application runs between last time: " + (_lastTime + 1)
         + ", and current time: " + _currentTime);
 
-    // Fetch all succeeded apps
-    URL succeededAppsURL = new URL(new URL("http://" + _resourceManagerAddress), String.format(
-            "/ws/v1/cluster/apps?finalStatus=SUCCEEDED&finishedTimeBegin=%s&finishedTimeEnd=%s",
-            String.valueOf(_lastTime + 1), String.valueOf(_currentTime)));
-    logger.info("The succeeded apps URL is " + succeededAppsURL);
-    List<AnalyticJob> succeededApps = readApps(succeededAppsURL);
-    appList.addAll(succeededApps);
+    while (_lastTime < _currentTime) {
+      long sliceEndTime = Math.min(_lastTime + _fetchSliceWindow, _currentTime);
 
-    // Fetch all failed apps
-    // state: Application Master State
-    // finalStatus: Status of the Application as reported by the Application Master
-    URL failedAppsURL = new URL(new URL("http://" + _resourceManagerAddress), String.format(
-        "/ws/v1/cluster/apps?finalStatus=FAILED&state=FINISHED&finishedTimeBegin=%s&finishedTimeEnd=%s",
-        String.valueOf(_lastTime + 1), String.valueOf(_currentTime)));
-    List<AnalyticJob> failedApps = readApps(failedAppsURL);
-    logger.info("The failed apps URL is " + failedAppsURL);
-    appList.addAll(failedApps);
+      // Fetch all succeeded apps
+      URL succeededAppsURL = new URL(new URL("http://" + _resourceManagerAddress), String.format(
+              "/ws/v1/cluster/apps?finalStatus=SUCCEEDED&finishedTimeBegin=%s&finishedTimeEnd=%s",
+              String.valueOf(_lastTime + 1), String.valueOf(sliceEndTime)));
+      logger.info("The succeeded apps URL is " + succeededAppsURL);
+      if (!readApps(succeededAppsURL, consumer)) {
+        return false;
+      }
+
+      // Fetch all failed apps
+      // state: Application Master State
+      // finalStatus: Status of the Application as reported by the Application Master
+      URL failedAppsURL = new URL(new URL("http://" + _resourceManagerAddress), String.format(
+          "/ws/v1/cluster/apps?finalStatus=FAILED&state=FINISHED&finishedTimeBegin=%s&finishedTimeEnd=%s",
+          String.valueOf(_lastTime + 1), String.valueOf(sliceEndTime)));
+      logger.info("The failed apps URL is " + failedAppsURL);
+      if (!readApps(failedAppsURL, consumer)) {
+        return false;
+      }
+
+      _lastTime = sliceEndTime;
+      for (Map.Entry<Integer, Long> partitionTime : _partitionTimes.entrySet()) {
+        partitionTime.setValue(Math.max(partitionTime.getValue(), sliceEndTime));
+      }
+      Iterator<Long> sliceFinishTimes = _sliceApps.values().iterator();
+      while (sliceFinishTimes.hasNext()) {
+        if (sliceFinishTimes.next() <= sliceEndTime) {
+          sliceFinishTimes.remove();
+        }
+      }
+      saveCheckpoint();
+    }
 
-    // Append promises from the retry queue at the end of the list
-    while (!_retryQueue.isEmpty()) {
-      appList.add(_retryQueue.poll());
+    // Provide the promises due for retry after the new ones. The retries of a partition lost by this node are dropped,
+    // the new owner restores them from the checkpoint.
+    if (!provideRetries(consumer)) {
+      return false;
     }
 
-    _lastTime = _currentTime;
-    return appList;
+    _checkedPartitions.clear();
+    saveCheckpoint();
+    return true;
+  }
+
+  @Override
+  public boolean isOwned(AnalyticJob job) {
+    return _partitions.isOwned(job.getAppId(), System.currentTimeMillis());
   }
 
+  /**
+   * The saved retry of a job of a lost partition belongs to the new owner, so it is neither saved nor deleted.
+   */
   @Override
-  public void addIntoRetries(AnalyticJob promise) {
-    _retryQueue.add(promise);
-    int retryQueueSize = _retryQueue.size();
-    MetricsController.setRetryQueueSize(retryQueueSize);
-    logger.info("Retry queue size is " + retryQueueSize);
+  protected AnalyticJobCheckpoint getCheckpoint(AnalyticJob job) {
+    if (!_checkpointEnabled || !isOwned(job)) {
+      return null;
+    }
+    return getCheckpoint(_partitions.getPartition(job.getAppId()));
+  }
+
+  private AnalyticJobCheckpoint getCheckpoint(int partition) {
+    synchronized (_checkpoints) {
+      AnalyticJobCheckpoint checkpoint = _checkpoints.get(partition);
+      if (checkpoint == null) {
+        checkpoint = new AnalyticJobCheckpoint(_partitions.getPartitionName(partition));
+        _checkpoints.put(partition, checkpoint);
+      }
+      return checkpoint;
+    }
+  }
+
+  /**
+   * Update the partitions owned by this node. The fetch of a newly owned partition resumes from its checkpoint, and its
+   * retries saved by the previous owner or before a restart are restored, due right away. The fetch window starts at the
+   * earliest fetch time of the owned partitions.
+   */
+  private void updatePartitions() {
+    Set<Integer> ownedPartitions = _partitions.getOwnedPartitions(System.currentTimeMillis());
+    Iterator<Integer> partitions = _partitionTimes.keySet().iterator();
+    while (partitions.hasNext()) {
+      int partition = partitions.next();
+      if (!ownedPartitions.contains(partition)) {
+        logger.info("Stopped fetching the partition " + _partitions.getPartitionName(partition));
+        partitions.remove();
+        _checkedPartitions.remove(partition);
+      }
+    }
+    for (int partition : ownedPartitions) {
+      if (_partitionTimes.containsKey(partition)) {
+        continue;
+      }
+      long partitionTime = _initialTime;
+      if (_checkpointEnabled) {
+        AnalyticJobCheckpoint checkpoint = getCheckpoint(partition);
+        long checkpointTime = checkpoint.loadLastFetchTime();
+        if (checkpointTime > 0) {
+          logger.info("Resuming the fetch of finished applications of " + _partitions.getPartitionName(partition)
+              + " from the checkpoint " + checkpointTime);
+          partitionTime = checkpointTime;
+        }
+        restoreRetries(checkpoint);
+      }
+      _partitionTimes.put(partition, partitionTime);
+      _checkedPartitions.add(partition);
+    }
+    if (!_partitionTimes.isEmpty()) {
+      _lastTime = Collections.min(_partitionTimes.values());
+    }
+  }
+
+  /**
+   * Save the finish time up to which all the apps of each owned partition provided from the RM listing were analysed,
+   * that is the fetch time of the partition unless some of its apps provided before it are still pending. The
+   * checkpoints of the partitions lost since the start of the fetch are left to their new owners.
+   */
+  private void saveCheckpoint() {
+    if (!_checkpointEnabled) {
+      return;
+    }
+    Map<Integer, Long> checkpointTimes = new HashMap<Integer, Long>(_partitionTimes);
+    checkpointTimes.keySet().retainAll(_partitions.getOwnedPartitions(System.currentTimeMillis()));
+    for (Map.Entry<String, Long> pendingApp : getPendingApps().entrySet()) {
+      int partition = _partitions.getPartition(pendingApp.getKey());
+      Long checkpointTime = checkpointTimes.get(partition);
+      if (checkpointTime != null) {
+        checkpointTimes.put(partition, Math.min(checkpointTime, pendingApp.getValue() - 1));
+      }
+    }
+    for (Map.Entry<Integer, Long> checkpointTime : checkpointTimes.entrySet()) {
+      if (checkpointTime.getValue() > 0) {
+        saveLastFetchTime(getCheckpoint(checkpointTime.getKey()), checkpointTime.getValue());
+      }
+    }
   }
 
   /**
@@ -183,7 +355,7 @@ public class AnalyticJobGeneratorHadoop2 implements AnalyticJobGenerator {
     if (_currentTime - _tokenUpdatedTime > TOKEN_UPDATE_INTERVAL) {
       logger.info("AnalysisProvider updating its Authenticate Token...");
       _token = new AuthenticatedURL.Token();
-      _authenticatedURL = new AuthenticatedURL();
+      _authenticatedURL = HttpConnectionPool.newAuthenticatedURL();
       _tokenUpdatedTime = _currentTime;
     }
   }
@@ -198,50 +370,133 @@ public class AnalyticJobGeneratorHadoop2 implements AnalyticJobGenerator {
    */
   private JsonNode readJsonNode(URL url)
       throws IOException, AuthenticationException {
-    HttpURLConnection conn = _authenticatedURL.openConnection(url, _token);
-    return _objectMapper.readTree(conn.getInputStream());
+    return HttpConnectionPool.readJsonNode(_authenticatedURL, _token, url, _objectMapper);
   }
 
   /**
-   * Parse the returned json from Resource manager
+   * Read the apps returned by the resource manager, then provide them to the consumer one at a time once the response
+   * is closed.
    *
    * @param url The REST call
-   * @return
+   * @param consumer The consumer of the AnalyticJobs
+   * @return true if all the apps were consumed, false if the consumer stopped accepting them
    * @throws IOException
    * @throws AuthenticationException Problem authenticating to resource manager
    */
-  private List<AnalyticJob> readApps(URL url) throws IOException, AuthenticationException{
-    List<AnalyticJob> appList = new ArrayList<AnalyticJob>();
-
-    JsonNode rootNode = readJsonNode(url);
-    JsonNode apps = rootNode.path("apps").path("app");
-
-    for (JsonNode app : apps) {
-      String appId = app.get("id").getValueAsText();
-
-      // When called first time after launch, hit the DB and avoid duplicated analytic jobs that have been analyzed
-      // before.
-      if (_lastTime > _fetchStartTime || (_lastTime == _fetchStartTime && AppResult.find.byId(appId) == null)) {
-        String user = app.get("user").getValueAsText();
-        String name = app.get("name").getValueAsText();
-        String queueName = app.get("queue").getValueAsText();
-        String trackingUrl = app.get("trackingUrl") != null? app.get("trackingUrl").getValueAsText() : null;
-        long startTime = app.get("startedTime").getLongValue();
-        long finishTime = app.get("finishedTime").getLongValue();
-
-        ApplicationType type =
-            ElephantContext.instance().getApplicationTypeForName(app.get("applicationType").getValueAsText());
-
-        // If the application type is supported
-        if (type != null) {
-          AnalyticJob analyticJob = new AnalyticJob();
-          analyticJob.setAppId(appId).setAppType(type).setUser(user).setName(name).setQueueName(queueName)
-              .setTrackingUrl(trackingUrl).setStartTime(startTime).setFinishTime(finishTime);
-
-          appList.add(analyticJob);
+  private boolean readApps(URL url, AnalyticJobConsumer consumer) throws IOException, AuthenticationException {
+    for (AnalyticJob analyticJob : readApps(url)) {
+      if (_sliceApps.containsKey(analyticJob.getAppId())) {
+        continue;
+      }
+      _sliceApps.put(analyticJob.getAppId(), analyticJob.getFinishTime());
+      addPending(analyticJob);
+      if (!consumer.consume(analyticJob)) {
+        removePending(analyticJob);
+        _sliceApps.remove(analyticJob.getAppId());
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Stream the returned json from Resource manager and read the apps to analyse
+   *
+   * @param url The REST call
+   * @return the apps to analyse
+   * @throws IOException
+   * @throws AuthenticationException Problem authenticating to resource manager
+   */
+  private List<AnalyticJob> readApps(URL url) throws IOException, AuthenticationException {
+    List<AnalyticJob> analyticJobs = new ArrayList<AnalyticJob>();
+    JsonParser parser = _objectMapper.getJsonFactory().createJsonParser(
+        HttpConnectionPool.openStream(_authenticatedURL, _token, url));
+    try {
+      // The response looks like {"apps":{"app":[{...}, {...}]}}, or {"apps":null} when there is no app
+      if (!moveToField(parser, "apps") || parser.nextToken() != JsonToken.START_OBJECT
+          || !moveToField(parser, "app") || parser.nextToken() != JsonToken.START_ARRAY) {
+        return analyticJobs;
+      }
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        AnalyticJob analyticJob = readApp(_objectMapper.readTree(parser));
+        if (analyticJob != null) {
+          analyticJobs.add(analyticJob);
         }
       }
+      return analyticJobs;
+    } finally {
+      parser.close();
     }
-    return appList;
+  }
+
+  /**
+   * Move the parser to the value of the given field of the current object, skipping the other fields
+   *
+   * @param parser The parser, positioned before a field name of the object
+   * @param fieldName The name of the field to look for
+   * @return true if the field was found, false if the end of the object was reached
+   * @throws IOException
+   */
+  private static boolean moveToField(JsonParser parser, String fieldName) throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token == JsonToken.START_OBJECT) {
+      token = parser.nextToken();
+    }
+    while (token == JsonToken.FIELD_NAME) {
+      if (fieldName.equals(parser.getCurrentName())) {
+        return true;
+      }
+      parser.nextToken();
+      parser.skipChildren();
+      token = parser.nextToken();
+    }
+    return false;
+  }
+
+  /**
+   * Build the AnalyticJob of an app returned by the resource manager
+   *
+   * @param app The json of the app
+   * @return the AnalyticJob or null if the app should not be analyzed
+   */
+  private AnalyticJob readApp(JsonNode app) {
+    String appId = app.get("id").getValueAsText();
+    long finishTime = app.get("finishedTime").getLongValue();
+
+    // Skip the apps of the partitions owned by other nodes, including the partitions lost since the start of the fetch,
+    // and the apps of a partition already fetched, e.g. when the fetch window starts earlier for a partition taken over
+    // from another node
+    int partition = _partitions.getPartition(appId);
+    Long partitionTime = _partitionTimes.get(partition);
+    if (partitionTime == null || finishTime <= partitionTime
+        || !_partitions.isOwned(appId, System.currentTimeMillis())) {
+      return null;
+    }
+
+    // When called first time after launch or after taking a partition over, hit the DB and avoid duplicated analytic
+    // jobs that have been analyzed before.
+    if (_checkedPartitions.contains(partition) && AppResult.find.byId(appId) != null) {
+      return null;
+    }
+
+    String user = app.get("user").getValueAsText();
+    String name = app.get("name").getValueAsText();
+    String queueName = app.get("queue").getValueAsText();
+    String trackingUrl = app.get("trackingUrl") != null? app.get("trackingUrl").getValueAsText() : null;
+    String finalStatus = app.get("finalStatus") != null ? app.get("finalStatus").getValueAsText() : null;
+    long startTime = app.get("startedTime").getLongValue();
+
+    ApplicationType type =
+        ElephantContext.instance().getApplicationTypeForName(app.get("applicationType").getValueAsText());
+
+    // If the application type is not supported
+    if (type == null) {
+      return null;
+    }
+
+    AnalyticJob analyticJob = new AnalyticJob();
+    analyticJob.setCluster(_cluster).setAppId(appId).setAppType(type).setUser(user).setName(name).setQueueName(queueName)
+        .setTrackingUrl(trackingUrl).setFinalStatus(finalStatus).setStartTime(startTime).setFinishTime(finishTime);
+    return analyticJob;
   }
 }
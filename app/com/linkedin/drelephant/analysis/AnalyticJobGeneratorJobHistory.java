@@ -0,0 +1,458 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import com.linkedin.drelephant.math.Statistics;
+import com.linkedin.drelephant.util.Utils;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import models.AppResult;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.security.authentication.client.AuthenticationException;
+import org.apache.log4j.Logger;
+
+
+/**
+ * This class provides the finished MapReduce jobs to analyse from the done directory of the job history server, instead
+ * of polling the resource manager.
+ *
+ * The history server moves the history files of a finished job to {done-dir}/yyyy/mm/dd/{serialPart}/, where yyyy/mm/dd
+ * is the finish date of the job, and names them after the job, e.g. its user, name, finish time and status. Only the
+ * day directories of the last few days are scanned, and only the serial directories modified since they were last
+ * listed, so the load of the scan grows with the new files only. The other application types are not provided.
+ *
+ * With several nodes, the jobs are partitioned between them like the applications of the resource manager, each
+ * partition having its own checkpoint, and the jobs of the partitions owned by other nodes are skipped.
+ */
+public class AnalyticJobGeneratorJobHistory extends CheckpointedAnalyticJobGenerator {
+  private static final Logger logger = Logger.getLogger(AnalyticJobGeneratorJobHistory.class);
+
+  private static final String DONE_DIR_KEY = "drelephant.analysis.history.done-dir";
+  private static final String TIME_ZONE_KEY = "drelephant.analysis.history.time.zone";
+  private static final String LOOKBACK_DAYS_KEY = "drelephant.analysis.history.lookback.days";
+  private static final String JHS_DONE_DIR_KEY = "mapreduce.jobhistory.done-dir";
+  private static final String JHS_WEBAPP_ADDRESS_KEY = "mapreduce.jobhistory.webapp.address";
+  private static final String FETCH_INITIAL_WINDOW_MS = "drelephant.analysis.fetch.initial.windowMillis";
+  private static final String FETCH_CHECKPOINT_ENABLED = "drelephant.analysis.fetch.checkpoint.enabled";
+  private static final String PARTITION_COUNT_KEY = "drelephant.analysis.partition.count";
+  private static final String PARTITION_LEASE_MS_KEY = "drelephant.analysis.partition.lease.ms";
+  private static final long PARTITION_LEASE_MS = 2 * Statistics.MINUTE_IN_MS;
+  private static final String CHECKPOINT_ID = "history";
+  private static final int LOOKBACK_DAYS = 1;
+
+  private static final String MAPREDUCE = "MAPREDUCE";
+  private static final String JHIST_SUFFIX = ".jhist";
+  private static final String DAY_DIR_FORMAT = "%04d/%02d/%02d";
+  private static final Set<String> ANALYSED_STATUSES = new HashSet<String>(Arrays.asList("SUCCEEDED", "FAILED"));
+
+  private FileSystem _fs;
+  private Path _doneDir;
+  private TimeZone _timeZone;
+  private int _lookbackDays;
+  private String _trackingUrlPrefix;
+  private final ApplicationType _appType = new ApplicationType(MAPREDUCE);
+
+  // The time from which the day directories are scanned when no checkpoint is found
+  private long _initialTime;
+  // The state of the scanned day directories, by path
+  private final TreeMap<String, DayDir> _dayDirs = new TreeMap<String, DayDir>();
+
+  // The partitions of the jobs owned by this node, with the time from which their day directories are scanned
+  private AnalysisPartitions _partitions;
+  private final Map<Integer, Long> _partitionTimes = new HashMap<Integer, Long>();
+  // The owned partitions whose jobs are checked against the DB on the next scan, to avoid analysing the jobs which
+  // were analysed before a restart or by the previous owner of the partition
+  private final Set<Integer> _checkedPartitions = new HashSet<Integer>();
+  private boolean _checkpointEnabled;
+  private final Map<Integer, AnalyticJobCheckpoint> _checkpoints = new HashMap<Integer, AnalyticJobCheckpoint>();
+
+  /**
+   * The state of a scanned day directory: the modification time of its serial directories when they were last listed,
+   * and the jobs already provided from them.
+   */
+  private static class DayDir {
+    private final Map<String, Long> _serialDirTimes = new HashMap<String, Long>();
+    private final Set<String> _jobIds = new HashSet<String>();
+  }
+
+  public AnalyticJobGeneratorJobHistory() {
+    this("");
+  }
+
+  /**
+   * @param cluster The id of the cluster whose jobs are provided, empty for the default cluster
+   */
+  public AnalyticJobGeneratorJobHistory(String cluster) {
+    super(cluster);
+  }
+
+  @Override
+  public void configure(Configuration configuration) throws IOException {
+    super.configure(configuration);
+    // The job history server settings are in mapred-site.xml, loaded by JobConf
+    JobConf jobConf = new JobConf(configuration);
+    String doneDir = configuration.get(DONE_DIR_KEY, jobConf.get(JHS_DONE_DIR_KEY));
+    if (doneDir == null) {
+      throw new IllegalArgumentException("Cannot get the job history done dir from " + DONE_DIR_KEY + " or "
+          + JHS_DONE_DIR_KEY);
+    }
+    _doneDir = new Path(doneDir);
+    _fs = _doneDir.getFileSystem(configuration);
+    String timeZone = configuration.get(TIME_ZONE_KEY);
+    _timeZone = timeZone == null ? TimeZone.getDefault() : TimeZone.getTimeZone(timeZone);
+    _lookbackDays = Utils.getNonNegativeInt(configuration, LOOKBACK_DAYS_KEY, LOOKBACK_DAYS);
+    _trackingUrlPrefix = "http://" + jobConf.get(JHS_WEBAPP_ADDRESS_KEY) + "/jobhistory/job/";
+    logger.info("Scanning the finished jobs in " + _doneDir + ", in the " + _timeZone.getID() + " time zone");
+
+    _initialTime = getStartOfDay(System.currentTimeMillis());
+    String initialFetchWindow = configuration.get(FETCH_INITIAL_WINDOW_MS);
+    if (initialFetchWindow != null) {
+      _initialTime = System.currentTimeMillis() - Long.parseLong(initialFetchWindow);
+    }
+    _checkpointEnabled = configuration.getBoolean(FETCH_CHECKPOINT_ENABLED, true);
+
+    // With several nodes, the jobs are partitioned between them, each partition having its own checkpoint
+    String generatorId = _cluster.isEmpty() ? CHECKPOINT_ID : _cluster + "-" + CHECKPOINT_ID;
+    int partitionCount = Utils.getNonNegativeInt(configuration, PARTITION_COUNT_KEY, 0);
+    if (partitionCount > 0) {
+      if (!_checkpointEnabled) {
+        throw new IllegalArgumentException(PARTITION_COUNT_KEY + " requires " + FETCH_CHECKPOINT_ENABLED);
+      }
+      long leaseMs = Utils.getNonNegativeLong(configuration, PARTITION_LEASE_MS_KEY, PARTITION_LEASE_MS);
+      _partitions = new AnalysisPartitions(generatorId, partitionCount, LeaseTable.getNodeId(configuration), leaseMs,
+          new LeaseTable());
+      _partitions.start();
+    } else {
+      _partitions = new AnalysisPartitions(generatorId);
+    }
+  }
+
+  @Override
+  public void updateResourceManagerAddresses() {
+    // The resource manager is not used
+  }
+
+  /**
+   * Scan the day directories from the earliest scan time of the owned partitions to today, and provide the jobs of the
+   * owned partitions found in the serial directories modified since they were last listed. Once all of them are
+   * provided, the scan times move forward to the start of the oldest day looked back at.
+   *
+   * @param consumer The consumer of the AnalyticJobs
+   * @return true if all the jobs were provided, false if the consumer stopped accepting them
+   * @throws IOException
+   */
+  @Override
+  public boolean fetchAnalyticJobs(AnalyticJobConsumer consumer) throws IOException, AuthenticationException {
+    long now = System.currentTimeMillis();
+    updatePartitions();
+    if (_partitionTimes.isEmpty()) {
+      logger.info("No partition of the finished jobs is owned by this node");
+      return true;
+    }
+
+    List<String> dayDirs = getDayDirs(Collections.min(_partitionTimes.values()), now);
+    logger.info("Scanning the finished jobs in " + dayDirs.size() + " day directories from " + dayDirs.get(0));
+    for (String dayDir : dayDirs) {
+      if (!scanDayDir(dayDir, consumer)) {
+        return false;
+      }
+    }
+
+    // Provide the jobs due for retry after the new ones
+    if (!provideRetries(consumer)) {
+      return false;
+    }
+
+    // Forget the days not looked back at anymore
+    long lookbackTime = getStartOfDay(now) - _lookbackDays * 24 * Statistics.HOUR_IN_MS;
+    for (Map.Entry<Integer, Long> partitionTime : _partitionTimes.entrySet()) {
+      partitionTime.setValue(Math.max(partitionTime.getValue(), lookbackTime));
+    }
+    long scanStartTime = Collections.min(_partitionTimes.values());
+    _dayDirs.headMap(getDayDirs(scanStartTime, scanStartTime).get(0)).clear();
+
+    _checkedPartitions.clear();
+    saveCheckpoint();
+    return true;
+  }
+
+  /**
+   * Provide the jobs of a day directory not provided yet.
+   *
+   * @param dayDir The path of the day directory
+   * @param consumer The consumer of the AnalyticJobs
+   * @return true if all the jobs were provided, false if the consumer stopped accepting them
+   * @throws IOException
+   */
+  private boolean scanDayDir(String dayDir, AnalyticJobConsumer consumer) throws IOException {
+    FileStatus[] serialDirs;
+    try {
+      serialDirs = _fs.listStatus(new Path(_doneDir, dayDir));
+    } catch (FileNotFoundException e) {
+      // No job finished that day yet
+      return true;
+    }
+    if (serialDirs == null) {
+      return true;
+    }
+    DayDir state = _dayDirs.get(dayDir);
+    if (state == null) {
+      state = new DayDir();
+      _dayDirs.put(dayDir, state);
+    }
+    Arrays.sort(serialDirs);
+    for (FileStatus serialDir : serialDirs) {
+      String serialDirName = serialDir.getPath().getName();
+      Long listedTime = state._serialDirTimes.get(serialDirName);
+      if (!serialDir.isDirectory()
+          || (listedTime != null && listedTime == serialDir.getModificationTime())) {
+        continue;
+      }
+      for (FileStatus file : _fs.listStatus(serialDir.getPath())) {
+        AnalyticJob job = readJob(file.getPath().getName());
+        if (job == null || state._jobIds.contains(job.getAppId()) || !isProvided(job.getAppId())) {
+          continue;
+        }
+        state._jobIds.add(job.getAppId());
+        addPending(job);
+        if (!consumer.consume(job)) {
+          removePending(job);
+          state._jobIds.remove(job.getAppId());
+          return false;
+        }
+      }
+      state._serialDirTimes.put(serialDirName, serialDir.getModificationTime());
+    }
+    return true;
+  }
+
+  /**
+   * Skip the jobs of the partitions owned by other nodes, including the partitions lost since the start of the scan.
+   * When called first time after launch or after taking a partition over, hit the DB and avoid duplicated analytic jobs
+   * that have been analyzed before.
+   *
+   * @param appId The app id of a job scanned
+   * @return true if the job should be provided
+   */
+  private boolean isProvided(String appId) {
+    int partition = _partitions.getPartition(appId);
+    if (!_partitionTimes.containsKey(partition) || !_partitions.isOwned(appId, System.currentTimeMillis())) {
+      return false;
+    }
+    return !_checkedPartitions.contains(partition) || !isAnalyzed(appId);
+  }
+
+  /**
+   * Build the AnalyticJob of a job from the name of its history file in the done dir, i.e.
+   * jobId-submitTime-user-jobName-finishTime-numMaps-numReduces-status[-queue[-startTime]].jhist, the fields being URL
+   * encoded.
+   *
+   * @param fileName The name of a file of the done dir
+   * @return the AnalyticJob or null if the file is not a history file, or the job should not be analysed
+   */
+  AnalyticJob readJob(String fileName) {
+    if (!fileName.endsWith(JHIST_SUFFIX)) {
+      return null;
+    }
+    String[] fields = fileName.substring(0, fileName.length() - JHIST_SUFFIX.length()).split("-");
+    if (fields.length < 8) {
+      logger.warn("Unexpected history file name " + fileName);
+      return null;
+    }
+    try {
+      String jobId = decode(fields[0]);
+      String status = decode(fields[7]);
+      if (!jobId.startsWith("job_") || !ANALYSED_STATUSES.contains(status)) {
+        return null;
+      }
+      String appId = "application" + jobId.substring("job".length());
+      long submitTime = Long.parseLong(fields[1]);
+      long startTime = fields.length > 9 ? Long.parseLong(fields[9]) : -1;
+      AnalyticJob job = new AnalyticJob();
+      job.setCluster(_cluster).setAppId(appId).setAppType(_appType).setUser(decode(fields[2]))
+          .setName(decode(fields[3])).setFinishTime(Long.parseLong(fields[4])).setFinalStatus(status)
+          .setQueueName(fields.length > 8 ? decode(fields[8]) : null)
+          .setStartTime(startTime > 0 ? startTime : submitTime).setTrackingUrl(_trackingUrlPrefix + jobId);
+      return job;
+    } catch (NumberFormatException e) {
+      logger.warn("Unexpected history file name " + fileName, e);
+      return null;
+    }
+  }
+
+  /**
+   * @return true if the app was already analysed, e.g. before a restart
+   */
+  protected boolean isAnalyzed(String appId) {
+    return AppResult.find.byId(appId) != null;
+  }
+
+  @Override
+  public boolean isOwned(AnalyticJob job) {
+    return _partitions.isOwned(job.getAppId(), System.currentTimeMillis());
+  }
+
+  /**
+   * The saved retry of a job of a lost partition belongs to the new owner, so it is neither saved nor deleted.
+   */
+  @Override
+  protected AnalyticJobCheckpoint getCheckpoint(AnalyticJob job) {
+    if (!_checkpointEnabled || !isOwned(job)) {
+      return null;
+    }
+    return getCheckpoint(_partitions.getPartition(job.getAppId()));
+  }
+
+  private AnalyticJobCheckpoint getCheckpoint(int partition) {
+    synchronized (_checkpoints) {
+      AnalyticJobCheckpoint checkpoint = _checkpoints.get(partition);
+      if (checkpoint == null) {
+        checkpoint = new AnalyticJobCheckpoint(_partitions.getPartitionName(partition));
+        _checkpoints.put(partition, checkpoint);
+      }
+      return checkpoint;
+    }
+  }
+
+  /**
+   * Update the partitions owned by this node. The scan of a newly owned partition resumes from its checkpoint, and its
+   * retries saved by the previous owner or before a restart are restored, due right away. The serial directories are
+   * listed again so that the jobs of the newly owned partitions already listed are found, and the jobs of a lost
+   * partition are forgotten so that they are found again if it is taken back.
+   */
+  private void updatePartitions() {
+    Set<Integer> ownedPartitions = _partitions.getOwnedPartitions(System.currentTimeMillis());
+    Set<Integer> lostPartitions = new HashSet<Integer>(_partitionTimes.keySet());
+    lostPartitions.removeAll(ownedPartitions);
+    for (int partition : lostPartitions) {
+      logger.info("Stopped scanning the partition " + _partitions.getPartitionName(partition));
+      _partitionTimes.remove(partition);
+      _checkedPartitions.remove(partition);
+    }
+    if (!lostPartitions.isEmpty()) {
+      for (DayDir dayDir : _dayDirs.values()) {
+        Iterator<String> jobIds = dayDir._jobIds.iterator();
+        while (jobIds.hasNext()) {
+          if (lostPartitions.contains(_partitions.getPartition(jobIds.next()))) {
+            jobIds.remove();
+          }
+        }
+      }
+    }
+
+    boolean newPartitions = false;
+    for (int partition : ownedPartitions) {
+      if (_partitionTimes.containsKey(partition)) {
+        continue;
+      }
+      long partitionTime = _initialTime;
+      if (_checkpointEnabled) {
+        AnalyticJobCheckpoint checkpoint = getCheckpoint(partition);
+        long checkpointTime = checkpoint.loadLastFetchTime();
+        if (checkpointTime > 0) {
+          logger.info("Resuming the scan of the finished jobs of " + _partitions.getPartitionName(partition)
+              + " from the checkpoint " + checkpointTime);
+          partitionTime = checkpointTime;
+        }
+        restoreRetries(checkpoint);
+      }
+      _partitionTimes.put(partition, partitionTime);
+      _checkedPartitions.add(partition);
+      newPartitions = true;
+    }
+    if (newPartitions) {
+      for (DayDir dayDir : _dayDirs.values()) {
+        dayDir._serialDirTimes.clear();
+      }
+    }
+  }
+
+  /**
+   * Save the time from which the scan of each owned partition resumes after a restart, that is the scan time of the
+   * partition unless some of its jobs which finished before it are still pending. The checkpoints of the partitions
+   * lost since the start of the scan are left to their new owners.
+   */
+  private void saveCheckpoint() {
+    if (!_checkpointEnabled) {
+      return;
+    }
+    Map<Integer, Long> checkpointTimes = new HashMap<Integer, Long>(_partitionTimes);
+    checkpointTimes.keySet().retainAll(_partitions.getOwnedPartitions(System.currentTimeMillis()));
+    for (Map.Entry<String, Long> pendingApp : getPendingApps().entrySet()) {
+      int partition = _partitions.getPartition(pendingApp.getKey());
+      Long checkpointTime = checkpointTimes.get(partition);
+      if (checkpointTime != null) {
+        checkpointTimes.put(partition, Math.min(checkpointTime, pendingApp.getValue() - 1));
+      }
+    }
+    for (Map.Entry<Integer, Long> checkpointTime : checkpointTimes.entrySet()) {
+      saveLastFetchTime(getCheckpoint(checkpointTime.getKey()), checkpointTime.getValue());
+    }
+  }
+
+  /**
+   * @return the paths relative to the done dir of the day directories from the day of the start time to the day of
+   *         the end time, in the time zone of the history server
+   */
+  private List<String> getDayDirs(long startTime, long endTime) {
+    List<String> dayDirs = new ArrayList<String>();
+    Calendar day = Calendar.getInstance(_timeZone);
+    day.setTimeInMillis(getStartOfDay(startTime));
+    do {
+      dayDirs.add(String.format(DAY_DIR_FORMAT, day.get(Calendar.YEAR), day.get(Calendar.MONTH) + 1,
+          day.get(Calendar.DAY_OF_MONTH)));
+      day.add(Calendar.DAY_OF_MONTH, 1);
+    } while (day.getTimeInMillis() <= endTime);
+    return dayDirs;
+  }
+
+  private long getStartOfDay(long time) {
+    Calendar day = Calendar.getInstance(_timeZone);
+    day.setTimeInMillis(time);
+    day.set(Calendar.HOUR_OF_DAY, 0);
+    day.set(Calendar.MINUTE, 0);
+    day.set(Calendar.SECOND, 0);
+    day.set(Calendar.MILLISECOND, 0);
+    return day.getTimeInMillis();
+  }
+
+  private static String decode(String field) {
+    try {
+      return URLDecoder.decode(field, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
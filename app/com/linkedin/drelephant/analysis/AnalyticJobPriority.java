@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Orders AnalyticJobs waiting for analysis according to a configurable list of criteria.
+ *
+ * The criteria are read from a comma separated list and applied in order, the next criterion only being used to break
+ * ties of the previous ones. The supported criteria are:
+ * <ul>
+ *   <li>failed - failed applications come before succeeded ones</li>
+ *   <li>finishTime - applications that finished earlier come first</li>
+ *   <li>queue - applications submitted to the configured YARN queues come first, in the configured order</li>
+ * </ul>
+ * With no criteria configured all the jobs have the same priority.
+ */
+public class AnalyticJobPriority implements Comparator<AnalyticJob> {
+  private static final Logger logger = Logger.getLogger(AnalyticJobPriority.class);
+
+  public static final String PRIORITY_KEY = "drelephant.analysis.queue.priority";
+  public static final String PRIORITY_QUEUES_KEY = "drelephant.analysis.queue.priority.queues";
+
+  public static final String DEFAULT_LEVEL = "default";
+  private static final String FAILED_LEVEL = "failed";
+  private static final String SUCCEEDED_LEVEL = "succeeded";
+  private static final String OTHER_QUEUES_LEVEL = "other";
+
+  private enum Criterion {
+    FAILED, FINISH_TIME, QUEUE
+  }
+
+  private final List<Criterion> _criteria = new ArrayList<Criterion>();
+  private final List<String> _queues = new ArrayList<String>();
+
+  public AnalyticJobPriority(Configuration configuration) {
+    for (String name : configuration.getTrimmedStrings(PRIORITY_KEY)) {
+      if (name.equalsIgnoreCase("failed")) {
+        _criteria.add(Criterion.FAILED);
+      } else if (name.equalsIgnoreCase("finishTime")) {
+        _criteria.add(Criterion.FINISH_TIME);
+      } else if (name.equalsIgnoreCase("queue")) {
+        _criteria.add(Criterion.QUEUE);
+      } else {
+        logger.warn("Ignoring unknown analysis priority criterion [" + name + "] in " + PRIORITY_KEY);
+      }
+    }
+    for (String queue : configuration.getTrimmedStrings(PRIORITY_QUEUES_KEY)) {
+      _queues.add(queue);
+    }
+    logger.info("Analysis queue priority criteria are " + _criteria + ", prioritized queues are " + _queues);
+  }
+
+  @Override
+  public int compare(AnalyticJob job1, AnalyticJob job2) {
+    for (Criterion criterion : _criteria) {
+      int result;
+      switch (criterion) {
+        case FAILED:
+          result = compareBooleans(job2.isFailed(), job1.isFailed());
+          break;
+        case FINISH_TIME:
+          result = compareLongs(job1.getFinishTime(), job2.getFinishTime());
+          break;
+        case QUEUE:
+          result = compareLongs(getQueueRank(job1), getQueueRank(job2));
+          break;
+        default:
+          result = 0;
+      }
+      if (result != 0) {
+        return result;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Returns the name of the priority level the job belongs to, used to report queue metrics per priority. The level
+   * is given by the first discrete criterion configured, finish time being continuous it never defines a level.
+   *
+   * @param job The analytic job
+   * @return the priority level name
+   */
+  public String getLevel(AnalyticJob job) {
+    for (Criterion criterion : _criteria) {
+      if (criterion == Criterion.FAILED) {
+        return job.isFailed() ? FAILED_LEVEL : SUCCEEDED_LEVEL;
+      } else if (criterion == Criterion.QUEUE) {
+        return _queues.contains(job.getQueueName()) ? job.getQueueName() : OTHER_QUEUES_LEVEL;
+      }
+    }
+    return DEFAULT_LEVEL;
+  }
+
+  private int getQueueRank(AnalyticJob job) {
+    int rank = _queues.indexOf(job.getQueueName());
+    return rank < 0 ? _queues.size() : rank;
+  }
+
+  private static int compareBooleans(boolean b1, boolean b2) {
+    return b1 == b2 ? 0 : (b1 ? 1 : -1);
+  }
+
+  private static int compareLongs(long l1, long l2) {
+    return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+  }
+}
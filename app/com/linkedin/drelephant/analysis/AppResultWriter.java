@@ -0,0 +1,303 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.Transaction;
+import controllers.MetricsController;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import models.AppHeuristicResult;
+import models.AppHeuristicResultDetails;
+import models.AppResult;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Write-behind persistence of the analysed AppResults.
+ *
+ * The analysis threads hand their results over to the writer threads, which save them in JDBC batches within one
+ * transaction each, instead of paying one round-trip per inserted row. A batch is flushed as soon as it holds batchSize
+ * results, or maxLatency milliseconds after its first result was written. If a batch fails, its results are inserted
+ * one by one so that a single faulty result does not fail the whole batch.
+ *
+ * With MySQL, rewriteBatchedStatements=true should be set on the JDBC url for the driver to turn the batches into
+ * multi-row inserts, as scripts/start.sh does.
+ */
+public class AppResultWriter {
+  private static final Logger logger = Logger.getLogger(AppResultWriter.class);
+
+  private static final int QUEUE_CAPACITY_BATCHES = 4;   // The number of batches that can wait for each writer thread
+
+  public static final String PERSIST_STAGE = "persist";
+
+  /**
+   * Notified by the writer thread once a result is saved, or failed to be saved.
+   */
+  public interface Listener {
+
+    /**
+     * Called by the writer thread right before the result of a job is saved.
+     *
+     * @param job The job whose result is about to be saved
+     * @return true to save the result, false to drop it, e.g. when the job is now analysed by another node
+     */
+    public boolean accept(AnalyticJob job);
+
+    /**
+     * @param job The job whose result was saved
+     */
+    public void onSaved(AnalyticJob job);
+
+    /**
+     * @param job The job whose result could not be saved
+     * @param e The cause of the failure
+     */
+    public void onFailed(AnalyticJob job, Exception e);
+  }
+
+  static class Entry {
+    final AnalyticJob _job;
+    final AppResult _result;
+
+    Entry(AnalyticJob job, AppResult result) {
+      _job = job;
+      _result = result;
+    }
+  }
+
+  private final int _batchSize;
+  private final long _maxLatency;
+  private final Listener _listener;
+  private final BlockingQueue<Entry> _queue;
+  private final List<Thread> _threads = new ArrayList<Thread>();
+  private volatile boolean _running = true;
+
+  /**
+   * @param threadCount The number of writer threads
+   * @param batchSize The max number of results saved in one batch
+   * @param maxLatency The max time in milliseconds a result waits for its batch to be flushed
+   * @param listener The listener notified of the saved results
+   */
+  public AppResultWriter(int threadCount, int batchSize, long maxLatency, Listener listener) {
+    _batchSize = Math.max(batchSize, 1);
+    _maxLatency = maxLatency;
+    _listener = listener;
+    _queue = new ArrayBlockingQueue<Entry>(Math.max(threadCount, 1) * _batchSize * QUEUE_CAPACITY_BATCHES);
+    for (int i = 0; i < Math.max(threadCount, 1); i++) {
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          writeLoop();
+        }
+      }, "dr-el-writer-thread-" + i);
+      thread.setDaemon(true);
+      _threads.add(thread);
+    }
+  }
+
+  public void start() {
+    for (Thread thread : _threads) {
+      thread.start();
+    }
+  }
+
+  /**
+   * Stops the writer threads once the results already written are saved.
+   */
+  public void stop() {
+    _running = false;
+    for (Thread thread : _threads) {
+      thread.interrupt();
+    }
+  }
+
+  /**
+   * @return the queue of the results waiting to be saved
+   */
+  public BlockingQueue<?> getQueue() {
+    return _queue;
+  }
+
+  /**
+   * Queues a result to be saved, blocking while the writer thread is lagging behind.
+   *
+   * @param job The analysed job
+   * @param result The result of the analysis
+   * @throws InterruptedException if interrupted while waiting for room in the queue
+   */
+  public void write(AnalyticJob job, AppResult result) throws InterruptedException {
+    _queue.put(new Entry(job, result));
+  }
+
+  private void writeLoop() {
+    List<Entry> batch = new ArrayList<Entry>(_batchSize);
+    while (_running || !_queue.isEmpty()) {
+      try {
+        nextBatch(batch);
+      } catch (InterruptedException e) {
+        // Stopping, save what is left before exiting
+        _queue.drainTo(batch);
+      }
+      if (!batch.isEmpty()) {
+        long startTime = System.currentTimeMillis();
+        flush(batch);
+        MetricsController.setPipelineStageTime(PERSIST_STAGE, System.currentTimeMillis() - startTime);
+        batch.clear();
+      }
+    }
+    logger.info("Writer thread is terminated.");
+  }
+
+  /**
+   * Fills the batch with the queued results, waiting for the first one and then until the batch is full or its first
+   * result waited for maxLatency.
+   */
+  void nextBatch(List<Entry> batch) throws InterruptedException {
+    batch.add(_queue.take());
+    long deadline = System.currentTimeMillis() + _maxLatency;
+    while (batch.size() < _batchSize) {
+      long wait = deadline - System.currentTimeMillis();
+      if (_queue.drainTo(batch, _batchSize - batch.size()) == 0) {
+        if (wait <= 0) {
+          break;
+        }
+        Entry entry = _queue.poll(wait, TimeUnit.MILLISECONDS);
+        if (entry == null) {
+          break;
+        }
+        batch.add(entry);
+      }
+    }
+  }
+
+  private void flush(List<Entry> batch) {
+    Iterator<Entry> entries = batch.iterator();
+    while (entries.hasNext()) {
+      Entry entry = entries.next();
+      if (!_listener.accept(entry._job)) {
+        logger.info("Dropped the result of " + entry._job.getAppId());
+        entries.remove();
+      }
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      saveBatch(batch);
+    } catch (Exception e) {
+      logger.warn("Failed to save a batch of " + batch.size() + " results, saving them one by one", e);
+      for (Entry entry : batch) {
+        try {
+          saveOne(entry);
+        } catch (Exception e1) {
+          _listener.onFailed(entry._job, e1);
+          continue;
+        }
+        _listener.onSaved(entry._job);
+      }
+      return;
+    }
+    for (Entry entry : batch) {
+      _listener.onSaved(entry._job);
+    }
+  }
+
+  void saveBatch(List<Entry> batch) {
+    Transaction transaction = Ebean.beginTransaction();
+    try {
+      transaction.setBatchMode(true);
+      transaction.setBatchSize(_batchSize);
+      for (Entry entry : batch) {
+        entry._result.save();
+      }
+      Ebean.commitTransaction();
+    } finally {
+      Ebean.endTransaction();
+    }
+  }
+
+  /**
+   * Inserts a result of a failed batch. Ebean may have flagged the beans of the batch as inserted before the
+   * transaction was rolled back, and saving them again would then update rows that do not exist, so a copy of the
+   * result is inserted instead.
+   */
+  void saveOne(Entry entry) {
+    Ebean.getServer(null).insert(copyOf(entry._result));
+  }
+
+  /**
+   * @return a new copy of the result, of its heuristic results and of their details
+   */
+  static AppResult copyOf(AppResult result) {
+    AppResult copy = new AppResult();
+    copy.id = result.id;
+    copy.name = result.name;
+    copy.username = result.username;
+    copy.queueName = result.queueName;
+    copy.startTime = result.startTime;
+    copy.finishTime = result.finishTime;
+    copy.trackingUrl = result.trackingUrl;
+    copy.jobType = result.jobType;
+    copy.severity = result.severity;
+    copy.score = result.score;
+    copy.workflowDepth = result.workflowDepth;
+    copy.scheduler = result.scheduler;
+    copy.jobName = result.jobName;
+    copy.jobExecId = result.jobExecId;
+    copy.flowExecId = result.flowExecId;
+    copy.jobDefId = result.jobDefId;
+    copy.flowDefId = result.flowDefId;
+    copy.jobExecUrl = result.jobExecUrl;
+    copy.flowExecUrl = result.flowExecUrl;
+    copy.jobDefUrl = result.jobDefUrl;
+    copy.flowDefUrl = result.flowDefUrl;
+    copy.resourceUsed = result.resourceUsed;
+    copy.resourceWasted = result.resourceWasted;
+    copy.totalDelay = result.totalDelay;
+    copy.cluster = result.cluster;
+    if (result.yarnAppHeuristicResults == null) {
+      return copy;
+    }
+    copy.yarnAppHeuristicResults = new ArrayList<AppHeuristicResult>();
+    for (AppHeuristicResult heuristicResult : result.yarnAppHeuristicResults) {
+      AppHeuristicResult heuristicCopy = new AppHeuristicResult();
+      heuristicCopy.yarnAppResult = copy;
+      heuristicCopy.heuristicClass = heuristicResult.heuristicClass;
+      heuristicCopy.heuristicName = heuristicResult.heuristicName;
+      heuristicCopy.severity = heuristicResult.severity;
+      heuristicCopy.score = heuristicResult.score;
+      if (heuristicResult.yarnAppHeuristicResultDetails != null) {
+        heuristicCopy.yarnAppHeuristicResultDetails = new ArrayList<AppHeuristicResultDetails>();
+        for (AppHeuristicResultDetails details : heuristicResult.yarnAppHeuristicResultDetails) {
+          AppHeuristicResultDetails detailsCopy = new AppHeuristicResultDetails();
+          detailsCopy.yarnAppHeuristicResult = heuristicCopy;
+          detailsCopy.name = details.name;
+          detailsCopy.value = details.value;
+          detailsCopy.details = details.details;
+          heuristicCopy.yarnAppHeuristicResultDetails.add(detailsCopy);
+        }
+      }
+      copy.yarnAppHeuristicResults.add(heuristicCopy);
+    }
+    return copy;
+  }
+}
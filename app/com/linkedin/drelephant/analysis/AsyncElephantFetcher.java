@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+/**
+ * A fetcher able to fetch the data of a job without blocking the calling thread. The caller is notified once the data
+ * is fetched, or the fetch failed.
+ */
+public interface AsyncElephantFetcher<T extends HadoopApplicationData> extends ElephantFetcher<T> {
+
+  /**
+   * Notified on completion of a non-blocking fetch.
+   */
+  public interface Callback<T> {
+
+    /**
+     * @param data The fetched data
+     */
+    public void onSuccess(T data);
+
+    /**
+     * @param e The cause of the failure
+     */
+    public void onFailure(Exception e);
+  }
+
+  /**
+   * @return true if the jobs should be fetched with {@link #fetchDataAsync}, false if with {@link #fetchData}
+   */
+  public boolean isNonBlocking();
+
+  /**
+   * Starts fetching the data of a job, and returns without waiting for the fetch to complete.
+   *
+   * @param job The job being analysed
+   * @param callback The callback notified exactly once, from a thread of the fetcher
+   */
+  public void fetchDataAsync(AnalyticJob job, Callback<T> callback);
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import controllers.MetricsController;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.security.authentication.client.AuthenticationException;
+import org.apache.log4j.Logger;
+
+
+/**
+ * The bookkeeping shared by the generators resuming from checkpoints after a restart: the retry queue, whose jobs are
+ * saved in the checkpoints, and the jobs provided whose analysis is not over yet, which the checkpoints cannot move
+ * past.
+ */
+public abstract class CheckpointedAnalyticJobGenerator implements AnalyticJobGenerator {
+  private static final Logger logger = Logger.getLogger(CheckpointedAnalyticJobGenerator.class);
+
+  // The id of the cluster whose jobs are provided, empty for the default cluster
+  protected final String _cluster;
+  protected RetryScheduler _retryScheduler;
+
+  // Finish times of the jobs provided whose analysis is not over yet, by app id. The checkpoints cannot move past
+  // them, otherwise they would be lost on restart.
+  private final Map<String, Long> _pendingApps = new HashMap<String, Long>();
+
+  /**
+   * @param cluster The id of the cluster whose jobs are provided, empty for the default cluster
+   */
+  protected CheckpointedAnalyticJobGenerator(String cluster) {
+    _cluster = cluster;
+  }
+
+  @Override
+  public void configure(Configuration configuration) throws IOException {
+    _retryScheduler = new RetryScheduler(configuration);
+  }
+
+  @Override
+  public List<AnalyticJob> fetchAnalyticJobs() throws IOException, AuthenticationException {
+    final List<AnalyticJob> appList = new ArrayList<AnalyticJob>();
+    fetchAnalyticJobs(new AnalyticJobConsumer() {
+      @Override
+      public boolean consume(AnalyticJob job) {
+        return appList.add(job);
+      }
+    });
+    return appList;
+  }
+
+  @Override
+  public boolean addIntoRetries(AnalyticJob job, Exception failure) {
+    long delay = _retryScheduler.backOff(job, failure);
+    if (delay < 0) {
+      return false;
+    }
+    AnalyticJobCheckpoint checkpoint = getCheckpoint(job);
+    if (checkpoint != null) {
+      try {
+        checkpoint.saveRetry(job);
+      } catch (Exception e) {
+        logger.warn("Unable to save the retry of " + job.getAppId() + ", it will be lost on restart", e);
+      }
+    }
+    removePending(job);
+    _retryScheduler.schedule(job, delay);
+    int retryQueueSize = _retryScheduler.size();
+    MetricsController.setRetryQueueSize(retryQueueSize);
+    logger.info("Retry queue size is " + retryQueueSize);
+    return true;
+  }
+
+  @Override
+  public void markCompleted(AnalyticJob job) {
+    removePending(job);
+    AnalyticJobCheckpoint checkpoint = job.getRetries() > 0 ? getCheckpoint(job) : null;
+    if (checkpoint != null) {
+      try {
+        checkpoint.deleteRetry(job.getAppId());
+      } catch (Exception e) {
+        logger.warn("Unable to delete the retry of " + job.getAppId(), e);
+      }
+    }
+  }
+
+  @Override
+  public boolean isOwned(AnalyticJob job) {
+    return true;
+  }
+
+  /**
+   * @param job A job provided by this generator
+   * @return the checkpoint saving the retries of the job, or null if they are not saved, e.g. when the checkpoints are
+   *         disabled or the job belongs to another node
+   */
+  protected abstract AnalyticJobCheckpoint getCheckpoint(AnalyticJob job);
+
+  /**
+   * Records a job being provided, until it is retried or completed.
+   *
+   * @param job The job provided
+   */
+  protected void addPending(AnalyticJob job) {
+    synchronized (_pendingApps) {
+      _pendingApps.put(job.getAppId(), job.getFinishTime());
+    }
+  }
+
+  /**
+   * @param job A job which is not pending anymore, or was not provided after all
+   */
+  protected void removePending(AnalyticJob job) {
+    synchronized (_pendingApps) {
+      _pendingApps.remove(job.getAppId());
+    }
+  }
+
+  /**
+   * @return a copy of the finish times of the pending jobs, by app id
+   */
+  protected Map<String, Long> getPendingApps() {
+    synchronized (_pendingApps) {
+      return new HashMap<String, Long>(_pendingApps);
+    }
+  }
+
+  /**
+   * Loads the retries saved in a checkpoint into the retry queue, due right away.
+   *
+   * @param checkpoint The checkpoint
+   */
+  protected void restoreRetries(AnalyticJobCheckpoint checkpoint) {
+    List<AnalyticJob> retries = checkpoint.loadRetries();
+    logger.info("Restoring " + retries.size() + " saved retries of " + checkpoint.getGeneratorId());
+    for (AnalyticJob retry : retries) {
+      retry.setCluster(_cluster);
+      _retryScheduler.schedule(retry, 0);
+    }
+    MetricsController.setRetryQueueSize(_retryScheduler.size());
+  }
+
+  /**
+   * Provides the jobs due for retry which are still owned by this node. The others are dropped, their new owner
+   * restores them from the checkpoints.
+   *
+   * @param consumer The consumer of the AnalyticJobs
+   * @return true if all the jobs were provided, false if the consumer stopped accepting them
+   */
+  protected boolean provideRetries(AnalyticJobConsumer consumer) {
+    AnalyticJob retry;
+    while ((retry = _retryScheduler.poll()) != null) {
+      if (!isOwned(retry)) {
+        continue;
+      }
+      if (!consumer.consume(retry)) {
+        _retryScheduler.schedule(retry, 0);
+        return false;
+      }
+    }
+    MetricsController.setRetryQueueSize(_retryScheduler.size());
+    return true;
+  }
+
+  /**
+   * Saves the time from which the fetch resumes after a restart.
+   *
+   * @param checkpoint The checkpoint
+   * @param lastFetchTime The finish time up to which all the jobs were analysed
+   */
+  protected static void saveLastFetchTime(AnalyticJobCheckpoint checkpoint, long lastFetchTime) {
+    try {
+      checkpoint.saveLastFetchTime(lastFetchTime);
+    } catch (Exception e) {
+      logger.warn("Unable to save the fetch checkpoint " + lastFetchTime + " of " + checkpoint.getGeneratorId(), e);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import org.apache.log4j.Logger;
+
+
+/**
+ * Elects a single leader among the Dr. Elephant nodes sharing the database, e.g. to run the background tasks which must
+ * not run on every node.
+ *
+ * The leader holds a lease in the LeaseTable, which it renews several times per lease duration. The other nodes try to
+ * acquire the lease as often, and one of them becomes the leader once the lease of a dead leader expired. Without a
+ * lease table, the node is always the leader. The leader should check that it still is between the units of work of
+ * its tasks, as it may lose the lease at any time.
+ */
+public class LeaderElection extends LeaseHolder {
+  private static final Logger logger = Logger.getLogger(LeaderElection.class);
+
+  private static final String LEASE_PREFIX = "leader:";
+
+  private final String _name;
+  private volatile String _leader;
+
+  /**
+   * An election of a single node, always the leader.
+   *
+   * @param name The name of the election
+   * @param nodeId The id of this node
+   */
+  public LeaderElection(String name, String nodeId) {
+    this(name, nodeId, 0, null);
+    _leader = nodeId;
+  }
+
+  /**
+   * An election between the nodes through the lease table.
+   *
+   * @param name The name of the election
+   * @param nodeId The id of this node
+   * @param leaseMs The duration of the lease, after which another node is elected if the leader died
+   * @param leaseTable The lease table
+   */
+  public LeaderElection(String name, String nodeId, long leaseMs, LeaseTable leaseTable) {
+    super("leader-election-" + name, nodeId, leaseMs, leaseTable, 3);
+    _name = name;
+  }
+
+  /**
+   * Stops running for election, and releases the lease if this node is the leader so that another node is elected
+   * right away.
+   */
+  public synchronized void stop() {
+    stopRenewing();
+    if (_leaseTable == null || !isLeader()) {
+      return;
+    }
+    setExpiryTime(0);
+    try {
+      _leaseTable.release(LEASE_PREFIX + _name, _nodeId);
+    } catch (Exception e) {
+      logger.warn("Unable to release the leadership of " + _name, e);
+    }
+  }
+
+  /**
+   * @return the name of the election
+   */
+  public String getName() {
+    return _name;
+  }
+
+  /**
+   * @return true if this node is the leader
+   */
+  public boolean isLeader() {
+    return isLeader(System.currentTimeMillis());
+  }
+
+  boolean isLeader(long now) {
+    return holdsLeases(now);
+  }
+
+  /**
+   * @return the id of the leader as of the last election, or null if there is none
+   */
+  public String getLeader() {
+    return _leader;
+  }
+
+  /**
+   * Acquires or renews the lease of the leader.
+   *
+   * @param now The current time
+   */
+  synchronized void elect(long now) {
+    boolean wasLeader = isLeader(now);
+    long expiryTime = now + _leaseMs;
+    if (_leaseTable.acquire(LEASE_PREFIX + _name, _nodeId, expiryTime, now)) {
+      if (!wasLeader) {
+        logger.info(_nodeId + " is elected the leader of " + _name);
+      }
+      setExpiryTime(expiryTime);
+      _leader = _nodeId;
+    } else {
+      if (wasLeader) {
+        logger.info(_nodeId + " is not the leader of " + _name + " anymore");
+      }
+      setExpiryTime(0);
+      _leader = _leaseTable.getOwner(LEASE_PREFIX + _name, now);
+    }
+  }
+
+  @Override
+  void renew(long now) {
+    elect(now);
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Logger;
+
+
+/**
+ * A node holding leases in the LeaseTable, which it renews several times per lease duration in a thread of its own.
+ * The leases are valid until the expiry time of their last renewal, so that they are known lost even when the database
+ * is not reachable. Without a lease table, the leases never expire.
+ */
+public abstract class LeaseHolder {
+  private static final Logger logger = Logger.getLogger(LeaseHolder.class);
+
+  // The min duration of a lease, so that the renewals do not poll the database in a loop
+  public static final long MIN_LEASE_MS = 1000;
+
+  private final String _name;
+  protected final String _nodeId;
+  protected final long _leaseMs;
+  protected final LeaseTable _leaseTable;
+  private final int _renewalsPerLease;
+  // The time until which the leases are held
+  private volatile long _expiryTime;
+  private ScheduledExecutorService _scheduler;
+
+  /**
+   * @param name The name of the holder, naming its thread
+   * @param nodeId The id of this node
+   * @param leaseMs The duration of the leases, at least MIN_LEASE_MS with a lease table
+   * @param leaseTable The lease table, null if the leases are not shared with other nodes
+   * @param renewalsPerLease The number of renewals per lease duration
+   */
+  protected LeaseHolder(String name, String nodeId, long leaseMs, LeaseTable leaseTable, int renewalsPerLease) {
+    if (leaseTable != null && leaseMs < MIN_LEASE_MS) {
+      throw new IllegalArgumentException("The lease duration of " + name + " must be at least " + MIN_LEASE_MS
+          + " ms");
+    }
+    _name = name;
+    _nodeId = nodeId;
+    _leaseMs = leaseMs;
+    _leaseTable = leaseTable;
+    _renewalsPerLease = renewalsPerLease;
+    _expiryTime = leaseTable == null ? Long.MAX_VALUE : 0;
+  }
+
+  /**
+   * Starts renewing the leases periodically.
+   */
+  public void start() {
+    if (_leaseTable == null) {
+      return;
+    }
+    renewQuietly();
+    _scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("dr-el-" + _name).setDaemon(true).build());
+    long interval = _leaseMs / _renewalsPerLease;
+    _scheduler.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        renewQuietly();
+      }
+    }, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops renewing the leases, which stay held until they expire unless released.
+   */
+  protected void stopRenewing() {
+    if (_scheduler != null) {
+      _scheduler.shutdownNow();
+    }
+  }
+
+  /**
+   * Acquires or renews the leases.
+   *
+   * @param now The current time
+   */
+  abstract void renew(long now);
+
+  /**
+   * @param now The current time
+   * @return true if the leases were renewed recently enough to be still held
+   */
+  protected boolean holdsLeases(long now) {
+    return now <= _expiryTime;
+  }
+
+  /**
+   * @param expiryTime The time until which the leases are held, 0 if they are lost
+   */
+  protected void setExpiryTime(long expiryTime) {
+    _expiryTime = expiryTime;
+  }
+
+  private void renewQuietly() {
+    try {
+      renew(System.currentTimeMillis());
+    } catch (Exception e) {
+      logger.warn("Unable to renew the leases of " + _name, e);
+    }
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.SqlRow;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+
+
+/**
+ * Leases of named resources, e.g. the partitions of the applications to analyse, to the Dr. Elephant nodes sharing the
+ * database, and the heartbeats of these nodes.
+ *
+ * A lease is held by a node until its expiry time, unless the node renews it before. Once expired, any node can
+ * acquire it. The clocks of the nodes must be synchronized.
+ */
+public class LeaseTable {
+  private static final String NODE_ID_KEY = "drelephant.node.id";
+
+  private static final String LEASE_TABLE = "analysis_lease";
+  private static final String NODE_TABLE = "analysis_node";
+
+  private static final String ACQUIRE_LEASE_SQL = "UPDATE " + LEASE_TABLE
+      + " SET owner = :owner, expiry_time = :expiry_time"
+      + " WHERE name = :name AND (owner = :owner OR expiry_time < :now)";
+  private static final String INSERT_LEASE_SQL = "INSERT IGNORE INTO " + LEASE_TABLE
+      + " (name, owner, expiry_time) VALUES (:name, :owner, :expiry_time)";
+  private static final String RELEASE_LEASE_SQL = "UPDATE " + LEASE_TABLE + " SET expiry_time = 0"
+      + " WHERE name = :name AND owner = :owner";
+  private static final String SELECT_OWNER_SQL = "SELECT owner FROM " + LEASE_TABLE
+      + " WHERE name = :name AND expiry_time >= :now";
+  private static final String UPSERT_HEARTBEAT_SQL = "INSERT INTO " + NODE_TABLE
+      + " (node_id, heartbeat_time) VALUES (:node_id, :heartbeat_time)"
+      + " ON DUPLICATE KEY UPDATE heartbeat_time = VALUES(heartbeat_time)";
+  private static final String SELECT_LIVE_NODES_SQL = "SELECT node_id FROM " + NODE_TABLE
+      + " WHERE heartbeat_time >= :since ORDER BY node_id";
+  private static final String DELETE_NODE_SQL = "DELETE FROM " + NODE_TABLE + " WHERE node_id = :node_id";
+
+  /**
+   * Returns the id of this node, drelephant.node.id if set, otherwise the name of the JVM, i.e. pid@hostname.
+   *
+   * @param configuration The general configuration
+   * @return the node id
+   */
+  public static String getNodeId(Configuration configuration) {
+    String nodeId = configuration.getTrimmed(NODE_ID_KEY);
+    if (nodeId == null || nodeId.isEmpty()) {
+      nodeId = ManagementFactory.getRuntimeMXBean().getName();
+    }
+    return nodeId;
+  }
+
+  /**
+   * Acquires a lease if it is free or expired, or renews it if the node already holds it.
+   *
+   * @param name The name of the lease
+   * @param owner The node acquiring the lease
+   * @param expiryTime The time until which the lease is held
+   * @param now The current time
+   * @return true if the node holds the lease until the expiry time, false if another node holds it
+   */
+  public boolean acquire(String name, String owner, long expiryTime, long now) {
+    int updated = Ebean.createSqlUpdate(ACQUIRE_LEASE_SQL)
+        .setParameter("name", name)
+        .setParameter("owner", owner)
+        .setParameter("expiry_time", expiryTime)
+        .setParameter("now", now)
+        .execute();
+    if (updated > 0) {
+      return true;
+    }
+    // The lease was never acquired before
+    return Ebean.createSqlUpdate(INSERT_LEASE_SQL)
+        .setParameter("name", name)
+        .setParameter("owner", owner)
+        .setParameter("expiry_time", expiryTime)
+        .execute() > 0;
+  }
+
+  /**
+   * Releases a lease held by a node, so that the other nodes can acquire it right away.
+   *
+   * @param name The name of the lease
+   * @param owner The node holding the lease
+   */
+  public void release(String name, String owner) {
+    Ebean.createSqlUpdate(RELEASE_LEASE_SQL)
+        .setParameter("name", name)
+        .setParameter("owner", owner)
+        .execute();
+  }
+
+  /**
+   * Returns the node holding a lease.
+   *
+   * @param name The name of the lease
+   * @param now The current time
+   * @return the node holding the lease, or null if it is free or expired
+   */
+  public String getOwner(String name, long now) {
+    SqlRow row = Ebean.createSqlQuery(SELECT_OWNER_SQL)
+        .setParameter("name", name)
+        .setParameter("now", now)
+        .findUnique();
+    return row == null ? null : row.getString("owner");
+  }
+
+  /**
+   * Records that a node is alive.
+   *
+   * @param nodeId The node id
+   * @param now The current time
+   */
+  public void heartbeat(String nodeId, long now) {
+    Ebean.createSqlUpdate(UPSERT_HEARTBEAT_SQL)
+        .setParameter("node_id", nodeId)
+        .setParameter("heartbeat_time", now)
+        .execute();
+  }
+
+  /**
+   * Returns the nodes alive, i.e. whose last heartbeat is recent enough.
+   *
+   * @param since The time of the oldest heartbeat of a live node
+   * @return the ids of the live nodes, in order
+   */
+  public List<String> listLiveNodes(long since) {
+    List<String> nodeIds = new ArrayList<String>();
+    for (SqlRow row : Ebean.createSqlQuery(SELECT_LIVE_NODES_SQL).setParameter("since", since).findList()) {
+      nodeIds.add(row.getString("node_id"));
+    }
+    return nodeIds;
+  }
+
+  /**
+   * Removes a node leaving, so that the other nodes do not wait for its heartbeat to expire.
+   *
+   * @param nodeId The node id
+   */
+  public void removeNode(String nodeId) {
+    Ebean.createSqlUpdate(DELETE_NODE_SQL)
+        .setParameter("node_id", nodeId)
+        .execute();
+  }
+}
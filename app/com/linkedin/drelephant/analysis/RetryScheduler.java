@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import com.linkedin.drelephant.math.Statistics;
+import com.linkedin.drelephant.util.Utils;
+import controllers.MetricsController;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.persistence.PersistenceException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.ServerErrorException;
+import org.apache.avro.AvroRuntimeException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.security.authentication.client.AuthenticationException;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Schedules the retries of the jobs whose analysis failed.
+ *
+ * A failed job is retried after an exponential backoff, with jitter so that the jobs failed together are not retried
+ * together: the n-th retry waits between half and all of min(initial delay * 2^n, max delay). The failures are
+ * classified, and each class has its own retry budget, i.e. the max number of retries of a job whose last attempt
+ * failed that way.
+ */
+public class RetryScheduler {
+  private static final Logger logger = Logger.getLogger(RetryScheduler.class);
+
+  private static final String BACKOFF_INITIAL_MS_KEY = "drelephant.analysis.retry.backoff.initial.ms";
+  private static final String BACKOFF_MAX_MS_KEY = "drelephant.analysis.retry.backoff.max.ms";
+  private static final String RETRY_LIMIT_KEY = "drelephant.analysis.retry.%s.limit";
+  private static final long BACKOFF_INITIAL_MS = Statistics.MINUTE_IN_MS;
+  private static final long BACKOFF_MAX_MS = Statistics.HOUR_IN_MS;
+
+  /**
+   * The classes of failures, with their default retry budget
+   */
+  public enum FailureClass {
+    // The servers or the database could not be reached, or timed out
+    TRANSIENT(5),
+    // The history of the job is not available yet, or is incomplete
+    MISSING_DATA(4),
+    // The history of the job cannot be parsed, retrying is unlikely to help
+    PARSE(1),
+    OTHER(3);
+
+    private final int _defaultLimit;
+
+    FailureClass(int defaultLimit) {
+      _defaultLimit = defaultLimit;
+    }
+
+    /**
+     * @return the name of the class in the configuration and the metrics
+     */
+    public String getName() {
+      return name().toLowerCase().replace('_', '-');
+    }
+  }
+
+  private final long _backoffInitialMs;
+  private final long _backoffMaxMs;
+  private final int[] _retryLimits = new int[FailureClass.values().length];
+  private final Random _random;
+  private final DelayQueue<ScheduledRetry> _retries = new DelayQueue<ScheduledRetry>();
+
+  public RetryScheduler(Configuration configuration) {
+    this(configuration, new Random());
+  }
+
+  RetryScheduler(Configuration configuration, Random random) {
+    _backoffInitialMs = Utils.getNonNegativeLong(configuration, BACKOFF_INITIAL_MS_KEY, BACKOFF_INITIAL_MS);
+    _backoffMaxMs = Math.max(_backoffInitialMs,
+        Utils.getNonNegativeLong(configuration, BACKOFF_MAX_MS_KEY, BACKOFF_MAX_MS));
+    for (FailureClass failureClass : FailureClass.values()) {
+      _retryLimits[failureClass.ordinal()] = Utils.getNonNegativeInt(configuration,
+          String.format(RETRY_LIMIT_KEY, failureClass.getName()), failureClass._defaultLimit);
+    }
+    _random = random;
+  }
+
+  /**
+   * Counts a failed attempt of a job, and returns the delay before retrying it.
+   *
+   * @param job The failed job
+   * @param failure The cause of the failure
+   * @return the delay in ms before retrying the job, or -1 if its retry budget is exhausted
+   */
+  public long backOff(AnalyticJob job, Throwable failure) {
+    FailureClass failureClass = classify(failure);
+    int retries = job.getRetries();
+    if (retries >= _retryLimits[failureClass.ordinal()]) {
+      MetricsController.markRetryExhausted(failureClass.getName());
+      logger.info("The " + failureClass.getName() + " retries of " + job.getAppId() + " are exhausted after "
+          + retries + " retries");
+      return -1;
+    }
+    job.setRetries(retries + 1);
+    MetricsController.markRetry(failureClass.getName());
+
+    long backoff = _backoffMaxMs;
+    // Unless the shift would overflow
+    if (retries < Long.numberOfLeadingZeros(Math.max(_backoffInitialMs, 1)) - 1) {
+      backoff = Math.min(_backoffInitialMs << retries, _backoffMaxMs);
+    }
+    long delay = backoff / 2 + (long) (_random.nextDouble() * (backoff - backoff / 2));
+    logger.info("Retrying " + job.getAppId() + " after a " + failureClass.getName() + " failure in " + delay + "ms");
+    return delay;
+  }
+
+  /**
+   * Schedules the retry of a job.
+   *
+   * @param job The job to retry
+   * @param delay The delay in ms before it is retried
+   */
+  public void schedule(AnalyticJob job, long delay) {
+    _retries.add(new ScheduledRetry(job, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay)));
+  }
+
+  /**
+   * @return a job due for retry, or null if none is due
+   */
+  public AnalyticJob poll() {
+    ScheduledRetry retry = _retries.poll();
+    return retry == null ? null : retry._job;
+  }
+
+  /**
+   * @return the number of scheduled retries, due or not
+   */
+  public int size() {
+    return _retries.size();
+  }
+
+  /**
+   * Classifies a failure from its causes. A missing history takes precedence over a parse error, which takes
+   * precedence over a transient failure, as the latter often wrap the former.
+   *
+   * @param failure The failure
+   * @return the class of the failure
+   */
+  public static FailureClass classify(Throwable failure) {
+    Set<FailureClass> classes = new HashSet<FailureClass>();
+    Set<Throwable> seen = new HashSet<Throwable>();
+    for (Throwable cause = failure; cause != null && seen.add(cause); cause = cause.getCause()) {
+      if (cause instanceof FileNotFoundException || cause instanceof EOFException
+          || cause instanceof NotFoundException) {
+        classes.add(FailureClass.MISSING_DATA);
+      } else if (cause instanceof org.codehaus.jackson.JsonProcessingException
+          || cause instanceof com.fasterxml.jackson.core.JsonProcessingException
+          || cause instanceof AvroRuntimeException || cause instanceof NumberFormatException) {
+        classes.add(FailureClass.PARSE);
+      } else if (cause instanceof IOException || cause instanceof AuthenticationException
+          || cause instanceof TimeoutException || cause instanceof ProcessingException
+          || cause instanceof ServerErrorException || cause instanceof SQLException
+          || cause instanceof PersistenceException) {
+        classes.add(FailureClass.TRANSIENT);
+      }
+    }
+    for (FailureClass failureClass : new FailureClass[] {
+        FailureClass.MISSING_DATA, FailureClass.PARSE, FailureClass.TRANSIENT }) {
+      if (classes.contains(failureClass)) {
+        return failureClass;
+      }
+    }
+    return FailureClass.OTHER;
+  }
+
+  private static class ScheduledRetry implements Delayed {
+    private final AnalyticJob _job;
+    private final long _dueTime;
+
+    ScheduledRetry(AnalyticJob job, long dueTime) {
+      _job = job;
+      _dueTime = dueTime;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(_dueTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      long diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+      return diff < 0 ? -1 : (diff == 0 ? 0 : 1);
+    }
+  }
+}
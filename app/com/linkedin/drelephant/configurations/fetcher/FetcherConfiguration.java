@@ -90,10 +90,17 @@ public class FetcherConfiguration {
         }
         ApplicationType appType = new ApplicationType(appTypeStr);
 
+        // The fetchers of a cluster other than the default one
+        String cluster = null;
+        Node clusterNode = fetcherElem.getElementsByTagName("cluster").item(0);
+        if (clusterNode != null && !clusterNode.getTextContent().trim().isEmpty()) {
+          cluster = clusterNode.getTextContent().trim();
+        }
+
         // Check if parameters are defined for the heuristic
         Map<String, String> paramsMap = Utils.getConfigurationParameters(fetcherElem);
 
-        FetcherConfigurationData fetcherData = new FetcherConfigurationData(className, appType, paramsMap);
+        FetcherConfigurationData fetcherData = new FetcherConfigurationData(className, appType, paramsMap, cluster);
         _fetchersConfDataList.add(fetcherData);
 
       }
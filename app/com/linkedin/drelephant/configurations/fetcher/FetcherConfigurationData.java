@@ -27,11 +27,18 @@ public class FetcherConfigurationData {
   private final String _className;
   private final ApplicationType _appType;
   private final Map<String, String> _paramMap;
+  private final String _cluster;
 
   public FetcherConfigurationData(String className, ApplicationType appType, Map<String, String> paramMap) {
+    this(className, appType, paramMap, null);
+  }
+
+  public FetcherConfigurationData(String className, ApplicationType appType, Map<String, String> paramMap,
+      String cluster) {
     _className = className;
     _appType = appType;
     _paramMap = paramMap;
+    _cluster = cluster;
   }
 
   public String getClassName() {
@@ -45,4 +52,11 @@ public class FetcherConfigurationData {
   public Map<String, String> getParamMap() {
     return _paramMap;
   }
+
+  /**
+   * @return the id of the cluster the fetcher fetches the applications of, or null if it is the default fetcher
+   */
+  public String getCluster() {
+    return _cluster;
+  }
 }
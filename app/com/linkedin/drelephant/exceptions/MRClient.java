@@ -17,6 +17,7 @@
 package com.linkedin.drelephant.exceptions;
 
 import com.linkedin.drelephant.security.HadoopSecurity;
+import com.linkedin.drelephant.util.HttpConnectionPool;
 import java.security.PrivilegedAction;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.security.authentication.client.AuthenticatedURL;
@@ -26,7 +27,6 @@ import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.map.ObjectMapper;
 
 import java.io.IOException;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 
@@ -42,7 +42,7 @@ public class MRClient {
 
   public MRClient() {
     _token = new AuthenticatedURL.Token();
-    _authenticatedURL = new AuthenticatedURL();
+    _authenticatedURL = HttpConnectionPool.newAuthenticatedURL();
   }
 
   /**
@@ -55,8 +55,7 @@ public class MRClient {
       throws IOException {
     try {
       ObjectMapper objectMapper = new ObjectMapper();
-      HttpURLConnection conn = _authenticatedURL.openConnection(url, _token);
-      return objectMapper.readTree(conn.getInputStream());
+      return HttpConnectionPool.readJsonNode(_authenticatedURL, _token, url, objectMapper);
     } catch (AuthenticationException e) {
       logger.error(String.format("Cannot authenticate in Mr Client %s", e.getMessage()));
     } catch (IOException e) {
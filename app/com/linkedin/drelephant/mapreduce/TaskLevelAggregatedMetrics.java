@@ -16,11 +16,10 @@
 
 package com.linkedin.drelephant.mapreduce;
 
-import com.linkedin.drelephant.mapreduce.data.MapReduceCounterData;
 import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskMetrics;
 import com.linkedin.drelephant.math.Statistics;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 
@@ -33,8 +32,9 @@ public class TaskLevelAggregatedMetrics {
   private long _resourceWasted = 0;
   private long _resourceUsed = 0;
 
-  private List<Long> finishTimes = new ArrayList<Long>();
-  private List<Long> durations = new ArrayList<Long>();
+  private long[] finishTimes = new long[0];
+  private long[] durations = new long[0];
+  private int taskCount = 0;
 
   private static final double MEMORY_BUFFER = 1.5;
   private static final double CLUSTER_MEMORY_FACTOR = 2.1;
@@ -46,10 +46,10 @@ public class TaskLevelAggregatedMetrics {
    */
   public long getNthPercentileFinishTime(int percentile)
   {
-    if(finishTimes == null || finishTimes.size() == 0 ) {
+    if(taskCount == 0) {
       return -1;
     }
-    return Statistics.percentile(finishTimes, percentile);
+    return Statistics.percentile(finishTimes, taskCount, percentile);
   }
 
   /**
@@ -61,7 +61,17 @@ public class TaskLevelAggregatedMetrics {
    *                       the slow start time.
    */
   public TaskLevelAggregatedMetrics(MapReduceTaskData[] taskData, long containerSize, long idealStartTime) {
-    compute(taskData, containerSize, idealStartTime);
+    this(new MapReduceTaskMetrics(taskData), containerSize, idealStartTime);
+  }
+
+  /**
+   * Constructor for TaskLevelAggregatedMetrics
+   * @param taskMetrics The metrics of the mappers or of the reducers
+   * @param containerSize The container size of the tasks
+   * @param idealStartTime The ideal start time for the task
+   */
+  public TaskLevelAggregatedMetrics(MapReduceTaskMetrics taskMetrics, long containerSize, long idealStartTime) {
+    compute(taskMetrics, containerSize, idealStartTime);
   }
 
   /**
@@ -91,40 +101,44 @@ public class TaskLevelAggregatedMetrics {
   /**
    * Computes the aggregated metrics -> peakMemory, delay, total task duration, wasted resources and memory usage.
    * Aggregated metrics are expected to be approximation when sampling is enabled.
-   * @param taskDatas
+   * @param taskMetrics
    * @param containerSize
    * @param idealStartTime
    */
-  private void compute(MapReduceTaskData[] taskDatas, long containerSize, long idealStartTime) {
+  private void compute(MapReduceTaskMetrics taskMetrics, long containerSize, long idealStartTime) {
 
     long peakMemoryNeed = 0;
     long taskFinishTimeMax = 0;
     long taskDurationMax = 0;
 
     // if there are zero tasks, then nothing to compute.
-    if(taskDatas == null || taskDatas.length == 0) {
+    if(taskMetrics.getTaskCount() == 0) {
       return;
     }
 
-    for (MapReduceTaskData taskData: taskDatas) {
-      if (!taskData.isTimeAndCounterDataPresent()) {
-        continue;
-      }
-      long taskMemory = taskData.getCounters().get(MapReduceCounterData.CounterName.PHYSICAL_MEMORY_BYTES)/ FileUtils.ONE_MB; // MB
-      long taskVM = taskData.getCounters().get(MapReduceCounterData.CounterName.VIRTUAL_MEMORY_BYTES)/ FileUtils.ONE_MB; // MB
-      long taskDuration = taskData.getFinishTimeMs() - taskData.getStartTimeMs(); // Milliseconds
+    taskCount = taskMetrics.getTimeAndCounterCount();
+    long[] physicalMemoryBytes = taskMetrics.getPhysicalMemoryBytes();
+    long[] virtualMemoryBytes = taskMetrics.getVirtualMemoryBytes();
+    long[] startTimes = taskMetrics.getStartTimesMs();
+    // Copied, as the percentiles reorder the finish times and the metrics are shared with the heuristics
+    finishTimes = Arrays.copyOf(taskMetrics.getFinishTimesMs(), taskCount);
+    durations = new long[taskCount];
+
+    for (int i = 0; i < taskCount; i++) {
+      long taskMemory = physicalMemoryBytes[i] / FileUtils.ONE_MB; // MB
+      long taskVM = virtualMemoryBytes[i] / FileUtils.ONE_MB; // MB
+      long taskDuration = finishTimes[i] - startTimes[i]; // Milliseconds
       long taskCost =  (containerSize) * (taskDuration / Statistics.SECOND_IN_MS); // MB Seconds
 
-      durations.add(taskDuration);
-      finishTimes.add(taskData.getFinishTimeMs());
+      durations[i] = taskDuration;
 
       //peak Memory usage
       long memoryRequiredForVM = (long) (taskVM/CLUSTER_MEMORY_FACTOR);
       long biggerMemoryRequirement = memoryRequiredForVM > taskMemory ? memoryRequiredForVM : taskMemory;
       peakMemoryNeed = biggerMemoryRequirement > peakMemoryNeed ? biggerMemoryRequirement : peakMemoryNeed;
 
-      if(taskFinishTimeMax < taskData.getFinishTimeMs()) {
-        taskFinishTimeMax = taskData.getFinishTimeMs();
+      if(taskFinishTimeMax < finishTimes[i]) {
+        taskFinishTimeMax = finishTimes[i];
       }
 
       if(taskDurationMax < taskDuration) {
@@ -144,8 +158,8 @@ public class TaskLevelAggregatedMetrics {
     // wastedResources
     long wastedMemory = containerSize -  (long) (peakMemoryNeed * MEMORY_BUFFER); // give a 50% buffer
     if(wastedMemory > 0) {
-      for (long duration : durations) {
-        _resourceWasted += (wastedMemory) * (duration / Statistics.SECOND_IN_MS); // MB Seconds
+      for (int i = 0; i < taskCount; i++) {
+        _resourceWasted += (wastedMemory) * (durations[i] / Statistics.SECOND_IN_MS); // MB Seconds
       }
     }
   }
@@ -41,6 +41,12 @@ public class MapReduceApplicationData implements HadoopApplicationData {
   private MapReduceCounterData _counterHolder;
   private MapReduceTaskData[] _mapperData;
   private MapReduceTaskData[] _reducerData;
+  // The sketches of all the tasks, when the task data is only a sample of them
+  private MapReduceTaskSketches _mapperSketches;
+  private MapReduceTaskSketches _reducerSketches;
+  // Built on the first use, once for all the heuristics
+  private MapReduceTaskMetrics _mapperMetrics;
+  private MapReduceTaskMetrics _reducerMetrics;
   private Properties _jobConf;
   private boolean _isRetry = false;
 
@@ -104,13 +110,25 @@ public class MapReduceApplicationData implements HadoopApplicationData {
     return this;
   }
 
-  public MapReduceApplicationData setMapperData(MapReduceTaskData[] mappers) {
+  public synchronized MapReduceApplicationData setMapperData(MapReduceTaskData[] mappers) {
     this._mapperData = mappers;
+    this._mapperMetrics = null;
     return this;
   }
 
-  public MapReduceApplicationData setReducerData(MapReduceTaskData[] reducers) {
+  public synchronized MapReduceApplicationData setReducerData(MapReduceTaskData[] reducers) {
     this._reducerData = reducers;
+    this._reducerMetrics = null;
+    return this;
+  }
+
+  public MapReduceApplicationData setMapperSketches(MapReduceTaskSketches mapperSketches) {
+    this._mapperSketches = mapperSketches;
+    return this;
+  }
+
+  public MapReduceApplicationData setReducerSketches(MapReduceTaskSketches reducerSketches) {
+    this._reducerSketches = reducerSketches;
     return this;
   }
 
@@ -131,6 +149,40 @@ public class MapReduceApplicationData implements HadoopApplicationData {
     return _reducerData;
   }
 
+  /**
+   * @return the metrics of the mappers, gathered in one pass over the mapper data on the first call
+   */
+  public synchronized MapReduceTaskMetrics getMapperMetrics() {
+    if (_mapperMetrics == null) {
+      _mapperMetrics = new MapReduceTaskMetrics(_mapperData);
+    }
+    return _mapperMetrics;
+  }
+
+  /**
+   * @return the metrics of the reducers, gathered in one pass over the reducer data on the first call
+   */
+  public synchronized MapReduceTaskMetrics getReducerMetrics() {
+    if (_reducerMetrics == null) {
+      _reducerMetrics = new MapReduceTaskMetrics(_reducerData);
+    }
+    return _reducerMetrics;
+  }
+
+  /**
+   * @return the sketches of all the mappers, or null if the mapper data has all of them
+   */
+  public MapReduceTaskSketches getMapperSketches() {
+    return _mapperSketches;
+  }
+
+  /**
+   * @return the sketches of all the reducers, or null if the reducer data has all of them
+   */
+  public MapReduceTaskSketches getReducerSketches() {
+    return _reducerSketches;
+  }
+
   @Override
   public String getAppId() {
     return _appId;
@@ -29,31 +29,34 @@ public class MapReduceCounterData {
 
   // This is a map of group to all the counters in the group and their values.
   private final Map<String, Map<String, Long>> _pubCounters;
+  // The values of the counters used by the analysis, by ordinal of their name, whatever their group
+  private final long[] _values;
 
   public String toString() {
     return _pubCounters.toString();
   }
 
   public MapReduceCounterData() {
-    _pubCounters = new HashMap<String, Map<String, Long>>(8);
+    this(new HashMap<String, Map<String, Long>>(8), new long[CounterName.values().length]);
+  }
+
+  /**
+   * @param pubCounters The map of group to counters, null for the views storing the counters elsewhere
+   * @param values The values by ordinal of counter name, null for the views storing the counters elsewhere
+   */
+  MapReduceCounterData(Map<String, Map<String, Long>> pubCounters, long[] values) {
+    _pubCounters = pubCounters;
+    _values = values;
   }
 
   /**
    * @return the value of the counter, 0 if not present.
    * This method is only used for job heuristics
-   * Due to h1 & h2 counter group incompatibility, we iterate every counter group (4 by default)
-   * to find a matching counter name, otherwise we have to hardcode the h1&h2 version of counter group
-   * and try twice with two names for each counter in this method.
-   * This approach is less efficient, but cleaner.
+   * Due to h1 & h2 counter group incompatibility, the counters are matched by name only, whatever their group, so
+   * that we don't have to hardcode the h1&h2 version of counter group.
    */
   public long get(CounterName counterName) {
-    // For each counter group, try to match the counter name
-    for(Map<String, Long> counterGrp : _pubCounters.values()) {
-      if(counterGrp.containsKey(counterName._name)) {
-        return counterGrp.get(counterName._name);
-      }
-    }
-    return 0;
+    return _values[counterName.ordinal()];
   }
 
   public void set(CounterName counterName, long value) {
@@ -74,6 +77,10 @@ public class MapReduceCounterData {
       _pubCounters.put(groupName, counterMap);
     }
     counterMap.put(counterName, value);
+    CounterName name = CounterName.getCounterFromName(counterName);
+    if (name != null) {
+      _values[name.ordinal()] = value;
+    }
   }
 
   public Set<String> getGroupNames() {
@@ -18,99 +18,129 @@ package com.linkedin.drelephant.mapreduce.data;
 
 
 /**
- * This class manages the MapReduce Tasks
+ * This class manages the MapReduce Tasks, as views of the rows of a MapReduceTaskTable
  */
 public class MapReduceTaskData {
 
+  private final MapReduceTaskTable _table;
+  private final int _index;
+  // The view of the counters of the task, created on first use
   private MapReduceCounterData _counterHolder;
-  private String _state;
-  private String _taskId;
-  // The successful attempt id
-  private String _attemptId;
 
-  public void setTotalTimeMs(long totalTimeMs, boolean isTimeDataPresent) {
-    this._totalTimeMs = totalTimeMs;
-    this._isTimeDataPresent = isTimeDataPresent;
+  public MapReduceTaskData(String taskId, String taskAttemptId) {
+    this(taskId, taskAttemptId, "SUCCEEDED");
   }
 
-  private long _totalTimeMs = 0;
-  private long _shuffleTimeMs = 0;
-  private long _sortTimeMs = 0;
-  private long _startTimeMs = 0;
-  private long _finishTimeMs = 0;
+  /**
+   * Creates a task with its own table. The fetchers add their tasks to one table per task type instead.
+   */
+  public MapReduceTaskData(String taskId, String taskAttemptId, String state) {
+    this._table = new MapReduceTaskTable(1);
+    this._index = _table.addTask(taskId, taskAttemptId, state)._index;
+  }
 
-  // This flag will only be true when successfully setting time and counter values.
-  private boolean _isTimeDataPresent = false;
-  private boolean _isCounterDataPresent = false;
+  MapReduceTaskData(MapReduceTaskTable table, int index) {
+    this._table = table;
+    this._index = index;
+  }
 
+  public void setTotalTimeMs(long totalTimeMs, boolean isTimeDataPresent) {
+    _table.setTotalTimeMs(_index, totalTimeMs, isTimeDataPresent);
+  }
 
-  public MapReduceTaskData(String taskId, String taskAttemptId) {
-    this(taskId, taskAttemptId, "SUCCEEDED");
+  /**
+   * Sets the time of the task, from its successful attempt.
+   *
+   * @param time The total, shuffle, sort, start and finish times in milliseconds
+   */
+  public void setTime(long[] time) {
+    _table.setTime(_index, time);
   }
-  public MapReduceTaskData(String taskId, String taskAttemptId, String state) {
-    this._taskId = taskId;
-    this._attemptId = taskAttemptId;
-    this._state = state;
+
+  /**
+   * Sets the value of a counter of the task, the counters without CounterName being ignored. Marks the counter data
+   * as present.
+   *
+   * @param counterName The name of the counter
+   * @param value The value of the counter
+   */
+  public void setCounter(String counterName, long value) {
+    MapReduceCounterData.CounterName name = MapReduceCounterData.CounterName.getCounterFromName(counterName);
+    if (name != null) {
+      _table.setCounter(_index, name, value);
+    } else {
+      _table.setCounterPresent(_index);
+    }
   }
 
   public void setTimeAndCounter(long[] time, MapReduceCounterData counterHolder) {
     if (time != null) {
-      this._totalTimeMs = time[0];
-      this._shuffleTimeMs = time[1];
-      this._sortTimeMs = time[2];
-      this._startTimeMs = time[3];
-      this._finishTimeMs = time[4];
-      this._isTimeDataPresent = true;
+      setTime(time);
     }
     if (counterHolder != null) {
-      this._counterHolder = counterHolder;
-      this._isCounterDataPresent = true;
+      for (MapReduceCounterData.CounterName counterName : MapReduceCounterData.CounterName.values()) {
+        long value = counterHolder.get(counterName);
+        if (value != 0) {
+          _table.setCounter(_index, counterName, value);
+        }
+      }
+      _table.setCounterPresent(_index);
     }
   }
 
+  /**
+   * @return the counters of the task, null if not set
+   */
   public MapReduceCounterData getCounters() {
+    if (!isCounterDataPresent()) {
+      return null;
+    }
+    if (_counterHolder == null) {
+      _counterHolder = new MapReduceTaskTable.TaskCounterData(_table, _index);
+    }
     return _counterHolder;
   }
 
   public long getTotalRunTimeMs() {
-    return _totalTimeMs;
+    return _table.getTotalTimeMs(_index);
   }
 
   public long getCodeExecutionTimeMs() {
-    return _totalTimeMs - _shuffleTimeMs - _sortTimeMs;
+    return _table.getTotalTimeMs(_index) - _table.getShuffleTimeMs(_index) - _table.getSortTimeMs(_index);
   }
 
   public long getShuffleTimeMs() {
-    return _shuffleTimeMs;
+    return _table.getShuffleTimeMs(_index);
   }
 
   public long getSortTimeMs() {
-    return _sortTimeMs;
+    return _table.getSortTimeMs(_index);
   }
 
   public long getStartTimeMs() {
-    return _startTimeMs;
+    return _table.getStartTimeMs(_index);
   }
 
   public long getFinishTimeMs() {
-    return _finishTimeMs;
+    return _table.getFinishTimeMs(_index);
   }
 
+  // This flag will only be true when successfully setting time and counter values.
   public boolean isTimeDataPresent() {
-    return _isTimeDataPresent;
+    return _table.isTimePresent(_index);
   }
 
-  public boolean isCounterDataPresent() { return _isCounterDataPresent; }
+  public boolean isCounterDataPresent() { return _table.isCounterPresent(_index); }
 
   public boolean isTimeAndCounterDataPresent() { return isTimeDataPresent() && isCounterDataPresent();}
 
   public String getTaskId() {
-    return _taskId;
+    return _table.getTaskId(_index);
   }
 
   public String getAttemptId() {
-    return _attemptId;
+    return _table.getAttemptId(_index);
   }
 
-  public String getState() { return _state; }
+  public String getState() { return _table.getState(_index); }
 }
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.mapreduce.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The metrics of the tasks of one type of a MapReduce job read by the heuristics and the aggregator, gathered in a
+ * single pass over the tasks so that each heuristic reads arrays of primitives instead of walking the tasks again.
+ *
+ * The metrics are kept for three groups of tasks, as the heuristics only consider the tasks with the data they need:
+ * the tasks with time data, the tasks with counter data, and the tasks with both. The arrays of a group are filled
+ * up to the number of tasks of the group, and must not be modified, being shared by the heuristics.
+ */
+public class MapReduceTaskMetrics {
+  /**
+   * The counters of the bytes read by a task from the file systems
+   */
+  public static final List<MapReduceCounterData.CounterName> INPUT_BYTES_COUNTERS = Collections.unmodifiableList(
+      Arrays.asList(MapReduceCounterData.CounterName.HDFS_BYTES_READ, MapReduceCounterData.CounterName.S3_BYTES_READ,
+          MapReduceCounterData.CounterName.S3A_BYTES_READ, MapReduceCounterData.CounterName.S3N_BYTES_READ));
+
+  private final int _taskCount;
+
+  // Tasks with time data
+  private int _timeCount = 0;
+  private final long[] _runtimesMs;
+  private final long[] _codeExecutionTimesMs;
+  private final long[] _shuffleTimesMs;
+  private final long[] _sortTimesMs;
+
+  // Tasks with counter data
+  private int _counterCount = 0;
+  private final long[] _inputBytes;
+  private final long[] _shuffleBytes;
+  private final long[] _spilledRecords;
+  private final long[] _mapOutputRecords;
+
+  // Tasks with time and counter data
+  private int _timeAndCounterCount = 0;
+  private final long[] _timeAndCounterRuntimesMs;
+  private final long[] _timeAndCounterInputBytes;
+  private final long[] _gcTimesMs;
+  private final long[] _cpuTimesMs;
+  private final long[] _physicalMemoryBytes;
+  private final long[] _virtualMemoryBytes;
+  private final long[] _startTimesMs;
+  private final long[] _finishTimesMs;
+
+  /**
+   * @param tasks The tasks, null for none
+   */
+  public MapReduceTaskMetrics(MapReduceTaskData[] tasks) {
+    if (tasks == null) {
+      tasks = new MapReduceTaskData[0];
+    }
+    _taskCount = tasks.length;
+    _runtimesMs = new long[_taskCount];
+    _codeExecutionTimesMs = new long[_taskCount];
+    _shuffleTimesMs = new long[_taskCount];
+    _sortTimesMs = new long[_taskCount];
+    _inputBytes = new long[_taskCount];
+    _shuffleBytes = new long[_taskCount];
+    _spilledRecords = new long[_taskCount];
+    _mapOutputRecords = new long[_taskCount];
+    _timeAndCounterRuntimesMs = new long[_taskCount];
+    _timeAndCounterInputBytes = new long[_taskCount];
+    _gcTimesMs = new long[_taskCount];
+    _cpuTimesMs = new long[_taskCount];
+    _physicalMemoryBytes = new long[_taskCount];
+    _virtualMemoryBytes = new long[_taskCount];
+    _startTimesMs = new long[_taskCount];
+    _finishTimesMs = new long[_taskCount];
+
+    for (MapReduceTaskData task : tasks) {
+      boolean isTimeDataPresent = task.isTimeDataPresent();
+      MapReduceCounterData counters = task.getCounters();
+      long runtimeMs = task.getTotalRunTimeMs();
+      if (isTimeDataPresent) {
+        _runtimesMs[_timeCount] = runtimeMs;
+        _codeExecutionTimesMs[_timeCount] = task.getCodeExecutionTimeMs();
+        _shuffleTimesMs[_timeCount] = task.getShuffleTimeMs();
+        _sortTimesMs[_timeCount] = task.getSortTimeMs();
+        _timeCount++;
+      }
+      if (counters == null) {
+        continue;
+      }
+      long inputBytes = 0;
+      for (MapReduceCounterData.CounterName counterName : INPUT_BYTES_COUNTERS) {
+        inputBytes += counters.get(counterName);
+      }
+      _inputBytes[_counterCount] = inputBytes;
+      _shuffleBytes[_counterCount] = counters.get(MapReduceCounterData.CounterName.REDUCE_SHUFFLE_BYTES);
+      _spilledRecords[_counterCount] = counters.get(MapReduceCounterData.CounterName.SPILLED_RECORDS);
+      _mapOutputRecords[_counterCount] = counters.get(MapReduceCounterData.CounterName.MAP_OUTPUT_RECORDS);
+      _counterCount++;
+      if (isTimeDataPresent) {
+        _timeAndCounterRuntimesMs[_timeAndCounterCount] = runtimeMs;
+        _timeAndCounterInputBytes[_timeAndCounterCount] = inputBytes;
+        _gcTimesMs[_timeAndCounterCount] = counters.get(MapReduceCounterData.CounterName.GC_MILLISECONDS);
+        _cpuTimesMs[_timeAndCounterCount] = counters.get(MapReduceCounterData.CounterName.CPU_MILLISECONDS);
+        _physicalMemoryBytes[_timeAndCounterCount] =
+            counters.get(MapReduceCounterData.CounterName.PHYSICAL_MEMORY_BYTES);
+        _virtualMemoryBytes[_timeAndCounterCount] =
+            counters.get(MapReduceCounterData.CounterName.VIRTUAL_MEMORY_BYTES);
+        _startTimesMs[_timeAndCounterCount] = task.getStartTimeMs();
+        _finishTimesMs[_timeAndCounterCount] = task.getFinishTimeMs();
+        _timeAndCounterCount++;
+      }
+    }
+  }
+
+  /**
+   * @return the number of tasks
+   */
+  public int getTaskCount() {
+    return _taskCount;
+  }
+
+  /**
+   * @return the number of tasks with time data
+   */
+  public int getTimeCount() {
+    return _timeCount;
+  }
+
+  /**
+   * @return the run times of the tasks with time data
+   */
+  public long[] getRuntimesMs() {
+    return _runtimesMs;
+  }
+
+  /**
+   * @return the code execution times of the tasks with time data
+   */
+  public long[] getCodeExecutionTimesMs() {
+    return _codeExecutionTimesMs;
+  }
+
+  /**
+   * @return the shuffle times of the tasks with time data
+   */
+  public long[] getShuffleTimesMs() {
+    return _shuffleTimesMs;
+  }
+
+  /**
+   * @return the sort times of the tasks with time data
+   */
+  public long[] getSortTimesMs() {
+    return _sortTimesMs;
+  }
+
+  /**
+   * @return the number of tasks with counter data
+   */
+  public int getCounterCount() {
+    return _counterCount;
+  }
+
+  /**
+   * @return the bytes read from the file systems by the tasks with counter data
+   */
+  public long[] getInputBytes() {
+    return _inputBytes;
+  }
+
+  /**
+   * @return the shuffled bytes of the tasks with counter data
+   */
+  public long[] getShuffleBytes() {
+    return _shuffleBytes;
+  }
+
+  /**
+   * @return the spilled records of the tasks with counter data
+   */
+  public long[] getSpilledRecords() {
+    return _spilledRecords;
+  }
+
+  /**
+   * @return the map output records of the tasks with counter data
+   */
+  public long[] getMapOutputRecords() {
+    return _mapOutputRecords;
+  }
+
+  /**
+   * @return the number of tasks with time and counter data
+   */
+  public int getTimeAndCounterCount() {
+    return _timeAndCounterCount;
+  }
+
+  /**
+   * @return the run times of the tasks with time and counter data
+   */
+  public long[] getTimeAndCounterRuntimesMs() {
+    return _timeAndCounterRuntimesMs;
+  }
+
+  /**
+   * @return the bytes read from the file systems by the tasks with time and counter data
+   */
+  public long[] getTimeAndCounterInputBytes() {
+    return _timeAndCounterInputBytes;
+  }
+
+  /**
+   * @return the GC times of the tasks with time and counter data
+   */
+  public long[] getGcTimesMs() {
+    return _gcTimesMs;
+  }
+
+  /**
+   * @return the CPU times of the tasks with time and counter data
+   */
+  public long[] getCpuTimesMs() {
+    return _cpuTimesMs;
+  }
+
+  /**
+   * @return the physical memory of the tasks with time and counter data
+   */
+  public long[] getPhysicalMemoryBytes() {
+    return _physicalMemoryBytes;
+  }
+
+  /**
+   * @return the virtual memory of the tasks with time and counter data
+   */
+  public long[] getVirtualMemoryBytes() {
+    return _virtualMemoryBytes;
+  }
+
+  /**
+   * @return the start times of the tasks with time and counter data
+   */
+  public long[] getStartTimesMs() {
+    return _startTimesMs;
+  }
+
+  /**
+   * @return the finish times of the tasks with time and counter data
+   */
+  public long[] getFinishTimesMs() {
+    return _finishTimesMs;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.mapreduce.data;
+
+import com.linkedin.drelephant.math.QuantileSketch;
+
+
+/**
+ * Sketches of the distributions of the run time and of the counters of all the tasks of one type of a job, computed
+ * while fetching the job, so that the heuristics are not limited to the sample of tasks kept in the job data.
+ *
+ * The run time sketch covers the tasks with time data, and the counter sketches the tasks with counter data, a task
+ * without a counter counting as 0.
+ */
+public class MapReduceTaskSketches {
+  private static final int COUNTER_COUNT = MapReduceCounterData.CounterName.values().length;
+
+  private int _taskCount = 0;
+  private long _counterTaskCount = 0;
+  private final QuantileSketch _runtimeSketch = new QuantileSketch();
+  // Created on the first task with a value, the previous tasks counting as 0
+  private final QuantileSketch[] _counterSketches = new QuantileSketch[COUNTER_COUNT];
+
+  /**
+   * Adds a task to the sketches.
+   */
+  public void update(MapReduceTaskData task) {
+    _taskCount++;
+    if (task.isTimeDataPresent()) {
+      _runtimeSketch.update(task.getTotalRunTimeMs());
+    }
+    MapReduceCounterData counters = task.getCounters();
+    if (counters == null) {
+      return;
+    }
+    for (MapReduceCounterData.CounterName counterName : MapReduceCounterData.CounterName.values()) {
+      QuantileSketch sketch = _counterSketches[counterName.ordinal()];
+      long value = counters.get(counterName);
+      if (sketch == null) {
+        if (value == 0) {
+          continue;
+        }
+        sketch = newCounterSketch();
+        _counterSketches[counterName.ordinal()] = sketch;
+      }
+      sketch.update(value);
+    }
+    _counterTaskCount++;
+  }
+
+  /**
+   * @return the number of tasks added
+   */
+  public int getTaskCount() {
+    return _taskCount;
+  }
+
+  /**
+   * @return the sketch of the run times of the tasks, in milliseconds
+   */
+  public QuantileSketch getRuntimeSketch() {
+    return _runtimeSketch;
+  }
+
+  /**
+   * @return the sketch of the values of a counter of the tasks
+   */
+  public QuantileSketch getCounterSketch(MapReduceCounterData.CounterName counterName) {
+    QuantileSketch sketch = _counterSketches[counterName.ordinal()];
+    return sketch == null ? newCounterSketch() : sketch;
+  }
+
+  private QuantileSketch newCounterSketch() {
+    QuantileSketch sketch = new QuantileSketch();
+    sketch.update(0, _counterTaskCount);
+    return sketch;
+  }
+}
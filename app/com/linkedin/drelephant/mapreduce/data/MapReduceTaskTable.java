@@ -0,0 +1,308 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.mapreduce.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * The tasks of one type of a MapReduce job, stored by column: one array of primitive values per counter used by the
+ * analysis and per time, indexed by task. The fetchers fill the table through the MapReduceTaskData views of its
+ * rows, and the heuristics read the views through the usual accessors, without boxing nor hashing.
+ *
+ * The counters not used by the analysis, i.e. without a CounterName, are not kept. The column of a counter is only
+ * allocated once a task has a value for it.
+ *
+ * A table is not thread safe.
+ */
+public class MapReduceTaskTable {
+  private static final int DEFAULT_CAPACITY = 16;
+  private static final int COUNTER_COUNT = MapReduceCounterData.CounterName.values().length;
+  private static final byte TIME_PRESENT = 1;
+  private static final byte COUNTER_PRESENT = 2;
+
+  private int _size = 0;
+  private String[] _taskIds;
+  private String[] _attemptIds;
+  private String[] _states;
+  private byte[] _flags;
+  private long[] _totalTimeMs;
+  private long[] _shuffleTimeMs;
+  private long[] _sortTimeMs;
+  private long[] _startTimeMs;
+  private long[] _finishTimeMs;
+  private final long[][] _counters = new long[COUNTER_COUNT][];
+
+  public MapReduceTaskTable() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity The expected number of tasks, the table growing beyond if needed
+   */
+  public MapReduceTaskTable(int capacity) {
+    capacity = Math.max(1, capacity);
+    _taskIds = new String[capacity];
+    _attemptIds = new String[capacity];
+    _states = new String[capacity];
+    _flags = new byte[capacity];
+    _totalTimeMs = new long[capacity];
+    _shuffleTimeMs = new long[capacity];
+    _sortTimeMs = new long[capacity];
+    _startTimeMs = new long[capacity];
+    _finishTimeMs = new long[capacity];
+  }
+
+  /**
+   * @return the number of tasks in the table
+   */
+  public int size() {
+    return _size;
+  }
+
+  /**
+   * Adds a task without time nor counters.
+   *
+   * @return the view of the task
+   */
+  public MapReduceTaskData addTask(String taskId, String attemptId, String state) {
+    if (_size == _taskIds.length) {
+      grow();
+    }
+    int index = _size++;
+    setIds(index, taskId, attemptId, state);
+    return new MapReduceTaskData(this, index);
+  }
+
+  /**
+   * Replaces a task with a task without time nor counters, e.g. to keep a sample of the tasks.
+   *
+   * @return the view of the new task
+   */
+  public MapReduceTaskData replaceTask(int index, String taskId, String attemptId, String state) {
+    checkIndex(index);
+    setIds(index, taskId, attemptId, state);
+    _flags[index] = 0;
+    _totalTimeMs[index] = 0;
+    _shuffleTimeMs[index] = 0;
+    _sortTimeMs[index] = 0;
+    _startTimeMs[index] = 0;
+    _finishTimeMs[index] = 0;
+    for (long[] column : _counters) {
+      if (column != null) {
+        column[index] = 0;
+      }
+    }
+    return new MapReduceTaskData(this, index);
+  }
+
+  /**
+   * @return the view of a task
+   */
+  public MapReduceTaskData getTask(int index) {
+    checkIndex(index);
+    return new MapReduceTaskData(this, index);
+  }
+
+  /**
+   * @return the views of all the tasks, in the order of the table
+   */
+  public MapReduceTaskData[] getTasks() {
+    MapReduceTaskData[] tasks = new MapReduceTaskData[_size];
+    for (int i = 0; i < _size; i++) {
+      tasks[i] = new MapReduceTaskData(this, i);
+    }
+    return tasks;
+  }
+
+  String getTaskId(int index) {
+    return _taskIds[index];
+  }
+
+  String getAttemptId(int index) {
+    return _attemptIds[index];
+  }
+
+  String getState(int index) {
+    return _states[index];
+  }
+
+  long getTotalTimeMs(int index) {
+    return _totalTimeMs[index];
+  }
+
+  long getShuffleTimeMs(int index) {
+    return _shuffleTimeMs[index];
+  }
+
+  long getSortTimeMs(int index) {
+    return _sortTimeMs[index];
+  }
+
+  long getStartTimeMs(int index) {
+    return _startTimeMs[index];
+  }
+
+  long getFinishTimeMs(int index) {
+    return _finishTimeMs[index];
+  }
+
+  boolean isTimePresent(int index) {
+    return (_flags[index] & TIME_PRESENT) != 0;
+  }
+
+  boolean isCounterPresent(int index) {
+    return (_flags[index] & COUNTER_PRESENT) != 0;
+  }
+
+  void setTotalTimeMs(int index, long totalTimeMs, boolean isTimeDataPresent) {
+    _totalTimeMs[index] = totalTimeMs;
+    setFlag(index, TIME_PRESENT, isTimeDataPresent);
+  }
+
+  /**
+   * @param time The total, shuffle, sort, start and finish times
+   */
+  void setTime(int index, long[] time) {
+    _totalTimeMs[index] = time[0];
+    _shuffleTimeMs[index] = time[1];
+    _sortTimeMs[index] = time[2];
+    _startTimeMs[index] = time[3];
+    _finishTimeMs[index] = time[4];
+    setFlag(index, TIME_PRESENT, true);
+  }
+
+  long getCounter(int index, MapReduceCounterData.CounterName counterName) {
+    long[] column = _counters[counterName.ordinal()];
+    return column == null ? 0 : column[index];
+  }
+
+  void setCounter(int index, MapReduceCounterData.CounterName counterName, long value) {
+    long[] column = _counters[counterName.ordinal()];
+    if (column == null) {
+      if (value == 0) {
+        setFlag(index, COUNTER_PRESENT, true);
+        return;
+      }
+      column = new long[_taskIds.length];
+      _counters[counterName.ordinal()] = column;
+    }
+    column[index] = value;
+    setFlag(index, COUNTER_PRESENT, true);
+  }
+
+  void setCounterPresent(int index) {
+    setFlag(index, COUNTER_PRESENT, true);
+  }
+
+  private void setIds(int index, String taskId, String attemptId, String state) {
+    _taskIds[index] = taskId;
+    _attemptIds[index] = attemptId;
+    _states[index] = state;
+  }
+
+  private void setFlag(int index, byte flag, boolean value) {
+    _flags[index] = (byte) (value ? _flags[index] | flag : _flags[index] & ~flag);
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= _size) {
+      throw new IndexOutOfBoundsException("Task " + index + " of " + _size);
+    }
+  }
+
+  private void grow() {
+    int capacity = _taskIds.length * 2;
+    _taskIds = Arrays.copyOf(_taskIds, capacity);
+    _attemptIds = Arrays.copyOf(_attemptIds, capacity);
+    _states = Arrays.copyOf(_states, capacity);
+    _flags = Arrays.copyOf(_flags, capacity);
+    _totalTimeMs = Arrays.copyOf(_totalTimeMs, capacity);
+    _shuffleTimeMs = Arrays.copyOf(_shuffleTimeMs, capacity);
+    _sortTimeMs = Arrays.copyOf(_sortTimeMs, capacity);
+    _startTimeMs = Arrays.copyOf(_startTimeMs, capacity);
+    _finishTimeMs = Arrays.copyOf(_finishTimeMs, capacity);
+    for (int i = 0; i < COUNTER_COUNT; i++) {
+      if (_counters[i] != null) {
+        _counters[i] = Arrays.copyOf(_counters[i], capacity);
+      }
+    }
+  }
+
+  /**
+   * The counters of one task of the table, whose groups are the groups of the CounterNames.
+   */
+  static class TaskCounterData extends MapReduceCounterData {
+    private final MapReduceTaskTable _table;
+    private final int _index;
+
+    TaskCounterData(MapReduceTaskTable table, int index) {
+      super(null, null);
+      _table = table;
+      _index = index;
+    }
+
+    @Override
+    public long get(CounterName counterName) {
+      return _table.getCounter(_index, counterName);
+    }
+
+    @Override
+    public void set(String groupName, String counterName, long value) {
+      CounterName name = CounterName.getCounterFromName(counterName);
+      if (name != null) {
+        _table.setCounter(_index, name, value);
+      }
+    }
+
+    @Override
+    public Set<String> getGroupNames() {
+      Set<String> groupNames = new LinkedHashSet<String>();
+      for (CounterName counterName : CounterName.values()) {
+        if (_table._counters[counterName.ordinal()] != null) {
+          groupNames.add(counterName.getGroupName());
+        }
+      }
+      return Collections.unmodifiableSet(groupNames);
+    }
+
+    @Override
+    public Map<String, Long> getAllCountersInGroup(String groupName) {
+      Map<String, Long> counterMap = new HashMap<String, Long>();
+      for (CounterName counterName : CounterName.values()) {
+        if (counterName.getGroupName().equals(groupName) && _table._counters[counterName.ordinal()] != null) {
+          counterMap.put(counterName.getName(), get(counterName));
+        }
+      }
+      return counterMap;
+    }
+
+    @Override
+    public String toString() {
+      Map<String, Map<String, Long>> counters = new HashMap<String, Map<String, Long>>();
+      for (String groupName : getGroupNames()) {
+        counters.put(groupName, getAllCountersInGroup(groupName));
+      }
+      return counters.toString();
+    }
+  }
+}
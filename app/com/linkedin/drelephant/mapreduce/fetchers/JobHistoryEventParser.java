@@ -0,0 +1,417 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.mapreduce.fetchers;
+
+import com.linkedin.drelephant.mapreduce.data.MapReduceCounterData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskSketches;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskTable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.CounterGroup;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.jobhistory.EventReader;
+import org.apache.hadoop.mapreduce.jobhistory.HistoryEvent;
+import org.apache.hadoop.mapreduce.jobhistory.JobFinishedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.JobInfoChangeEvent;
+import org.apache.hadoop.mapreduce.jobhistory.JobInitedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.JobSubmittedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.JobUnsuccessfulCompletionEvent;
+import org.apache.hadoop.mapreduce.jobhistory.MapAttemptFinishedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.ReduceAttemptFinishedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.TaskAttemptFinishedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.TaskAttemptStartedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.TaskAttemptUnsuccessfulCompletionEvent;
+import org.apache.hadoop.mapreduce.jobhistory.TaskFailedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.TaskFinishedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.TaskStartedEvent;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Streaming parser of the MapReduce job history (.jhist) files.
+ *
+ * Unlike Hadoop's JobHistoryParser, which keeps every task and attempt of the job in memory, this parser only keeps
+ * the attempts of the tasks still running at the current point of the history. Once a task completes, its
+ * MapReduceTaskData is built and the attempts are dropped. When sampling is enabled, the tasks are reservoir sampled
+ * as they complete, and every task is also added to the sketches of its type, so that the distributions of the run
+ * times and counters of all the tasks are known in a memory that does not depend on the size of the job.
+ */
+class JobHistoryEventParser {
+  private static final Logger logger = Logger.getLogger(JobHistoryEventParser.class);
+
+  private static final String DIAGNOSTICS_FIELD = "diagnostics";
+
+  private final String _jobId;
+  private final boolean _samplingEnabled;
+  private final int _maxSampleSize;
+  private final Random _random;
+
+  private long _submitTime = -1;
+  private long _launchTime = -1;
+  private long _finishTime = -1;
+  private String _jobStatus;
+  private String _errorInfo = "";
+  private MapReduceCounterData _totalCounters = new MapReduceCounterData();
+
+  // Keyed by the string ids, as the ids read from the history can be either mapred or mapreduce ids, which are never
+  // equal to each other
+  private final Map<String, RunningTask> _runningTasks = new HashMap<String, RunningTask>();
+  private final TaskSample _mappers;
+  private final TaskSample _reducers;
+
+  /**
+   * @param jobId The id of the job
+   * @param samplingEnabled Whether to keep a sample of maxSampleSize tasks per task type, or all of them
+   * @param maxSampleSize The size of the samples
+   * @param random The random generator sampling the tasks
+   */
+  JobHistoryEventParser(String jobId, boolean samplingEnabled, int maxSampleSize, Random random) {
+    _jobId = jobId;
+    _samplingEnabled = samplingEnabled;
+    _maxSampleSize = maxSampleSize;
+    _random = random;
+    _mappers = new TaskSample();
+    _reducers = new TaskSample();
+  }
+
+  /**
+   * Reads all the events of a history file.
+   *
+   * @param reader The reader of the history file
+   * @throws IOException if the history cannot be read
+   */
+  void parse(EventReader reader) throws IOException {
+    HistoryEvent event;
+    while ((event = reader.getNextEvent()) != null) {
+      handleEvent(event);
+    }
+    if (!_runningTasks.isEmpty()) {
+      logger.debug(_jobId + " has " + _runningTasks.size() + " tasks without completion in its history");
+    }
+    if (_mappers.getSeen() > _maxSampleSize) {
+      logger.debug(_jobId + " total mappers: " + _mappers.getSeen());
+    }
+    if (_reducers.getSeen() > _maxSampleSize) {
+      logger.debug(_jobId + " total reducers: " + _reducers.getSeen());
+    }
+  }
+
+  void handleEvent(HistoryEvent event) {
+    switch (event.getEventType()) {
+      case JOB_SUBMITTED:
+        _submitTime = ((JobSubmittedEvent) event).getSubmitTime();
+        break;
+      case JOB_INITED:
+        _launchTime = ((JobInitedEvent) event).getLaunchTime();
+        break;
+      case JOB_INFO_CHANGED:
+        JobInfoChangeEvent infoChangeEvent = (JobInfoChangeEvent) event;
+        _submitTime = infoChangeEvent.getSubmitTime();
+        _launchTime = infoChangeEvent.getLaunchTime();
+        break;
+      case JOB_FINISHED:
+        JobFinishedEvent finishedEvent = (JobFinishedEvent) event;
+        _finishTime = finishedEvent.getFinishTime();
+        _jobStatus = "SUCCEEDED";
+        _totalCounters = getCounterData(finishedEvent.getTotalCounters());
+        break;
+      case JOB_FAILED:
+      case JOB_KILLED:
+      case JOB_ERROR:
+        handleJobUnsuccessfulCompletion((JobUnsuccessfulCompletionEvent) event);
+        break;
+      case TASK_STARTED:
+        TaskStartedEvent taskStartedEvent = (TaskStartedEvent) event;
+        getRunningTask(taskStartedEvent.getTaskId(), taskStartedEvent.getTaskType());
+        break;
+      case MAP_ATTEMPT_STARTED:
+      case REDUCE_ATTEMPT_STARTED:
+      case SETUP_ATTEMPT_STARTED:
+      case CLEANUP_ATTEMPT_STARTED:
+        TaskAttemptStartedEvent attemptStartedEvent = (TaskAttemptStartedEvent) event;
+        getAttempt(attemptStartedEvent.getTaskAttemptId(), attemptStartedEvent.getTaskType())._startTime =
+            attemptStartedEvent.getStartTime();
+        break;
+      case MAP_ATTEMPT_FINISHED:
+        MapAttemptFinishedEvent mapFinishedEvent = (MapAttemptFinishedEvent) event;
+        getAttempt(mapFinishedEvent.getAttemptId(), mapFinishedEvent.getTaskType())._finishTime =
+            mapFinishedEvent.getFinishTime();
+        break;
+      case REDUCE_ATTEMPT_FINISHED:
+        ReduceAttemptFinishedEvent reduceFinishedEvent = (ReduceAttemptFinishedEvent) event;
+        Attempt reduceAttempt = getAttempt(reduceFinishedEvent.getAttemptId(), reduceFinishedEvent.getTaskType());
+        reduceAttempt._finishTime = reduceFinishedEvent.getFinishTime();
+        reduceAttempt._shuffleFinishTime = reduceFinishedEvent.getShuffleFinishTime();
+        reduceAttempt._sortFinishTime = reduceFinishedEvent.getSortFinishTime();
+        break;
+      case SETUP_ATTEMPT_FINISHED:
+      case CLEANUP_ATTEMPT_FINISHED:
+        TaskAttemptFinishedEvent attemptFinishedEvent = (TaskAttemptFinishedEvent) event;
+        getAttempt(attemptFinishedEvent.getAttemptId(), attemptFinishedEvent.getTaskType())._finishTime =
+            attemptFinishedEvent.getFinishTime();
+        break;
+      case MAP_ATTEMPT_FAILED:
+      case MAP_ATTEMPT_KILLED:
+      case REDUCE_ATTEMPT_FAILED:
+      case REDUCE_ATTEMPT_KILLED:
+      case SETUP_ATTEMPT_FAILED:
+      case SETUP_ATTEMPT_KILLED:
+      case CLEANUP_ATTEMPT_FAILED:
+      case CLEANUP_ATTEMPT_KILLED:
+        TaskAttemptUnsuccessfulCompletionEvent attemptFailedEvent = (TaskAttemptUnsuccessfulCompletionEvent) event;
+        getAttempt(attemptFailedEvent.getTaskAttemptId(), attemptFailedEvent.getTaskType())._finishTime =
+            attemptFailedEvent.getFinishTime();
+        break;
+      case TASK_FINISHED:
+        TaskFinishedEvent taskFinishedEvent = (TaskFinishedEvent) event;
+        completeTask(taskFinishedEvent.getTaskId(), taskFinishedEvent.getTaskType(), "SUCCEEDED",
+            taskFinishedEvent.getSuccessfulTaskAttemptId(), taskFinishedEvent.getCounters());
+        break;
+      case TASK_FAILED:
+        TaskFailedEvent taskFailedEvent = (TaskFailedEvent) event;
+        RunningTask failedTask = completeTask(taskFailedEvent.getTaskId(), taskFailedEvent.getTaskType(),
+            taskFailedEvent.getTaskStatus(), taskFailedEvent.getFailedAttemptID(), taskFailedEvent.getCounters());
+        _errorInfo = "Task " + taskFailedEvent.getTaskId() + " failed " + failedTask._attempts.size() + " times ";
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void handleJobUnsuccessfulCompletion(JobUnsuccessfulCompletionEvent event) {
+    _finishTime = event.getFinishTime();
+    _jobStatus = event.getStatus();
+    // The diagnostics of the job are only recorded in the history since Hadoop 2.5, otherwise the error of the last
+    // failed task is kept
+    Object datum = event.getDatum();
+    if (datum instanceof GenericRecord) {
+      GenericRecord record = (GenericRecord) datum;
+      Schema.Field field = record.getSchema().getField(DIAGNOSTICS_FIELD);
+      if (field != null && record.get(field.pos()) != null && record.get(field.pos()).toString().length() > 0) {
+        _errorInfo = record.get(field.pos()).toString();
+      }
+    }
+  }
+
+  private RunningTask getRunningTask(TaskID taskId, TaskType taskType) {
+    RunningTask task = _runningTasks.get(taskId.toString());
+    if (task == null) {
+      task = new RunningTask(taskType);
+      _runningTasks.put(taskId.toString(), task);
+    }
+    return task;
+  }
+
+  private Attempt getAttempt(TaskAttemptID attemptId, TaskType taskType) {
+    RunningTask task = getRunningTask(attemptId.getTaskID(), taskType);
+    Attempt attempt = task._attempts.get(attemptId.toString());
+    if (attempt == null) {
+      attempt = new Attempt();
+      task._attempts.put(attemptId.toString(), attempt);
+    }
+    return attempt;
+  }
+
+  /**
+   * Adds a completed task to the samples and sketches, and forgets about its attempts.
+   */
+  private RunningTask completeTask(TaskID taskId, TaskType taskType, String status, TaskAttemptID attemptId,
+      Counters counters) {
+    RunningTask task = _runningTasks.remove(taskId.toString());
+    if (task == null) {
+      task = new RunningTask(taskType);
+    }
+    TaskSample sample = task._taskType == TaskType.MAP ? _mappers : _reducers;
+    MapReduceTaskData taskData =
+        sample.set(sample.nextIndex(), taskId.toString(), attemptId == null ? "" : attemptId.toString(), status);
+    if (attemptId != null) {
+      Attempt attempt = task._attempts.get(attemptId.toString());
+      taskData.setTime(getTaskExecTime(task._taskType, attempt == null ? new Attempt() : attempt));
+    }
+    if (counters != null) {
+      for (CounterGroup group : counters) {
+        for (Counter counter : group) {
+          taskData.setCounter(counter.getName(), counter.getValue());
+        }
+      }
+    }
+    sample.sketch(taskData);
+    return task;
+  }
+
+  private static long[] getTaskExecTime(TaskType taskType, Attempt attempt) {
+    long startTime = attempt._startTime;
+    long finishTime = attempt._finishTime;
+    if (taskType == TaskType.MAP) {
+      return new long[]{finishTime - startTime, 0, 0, startTime, finishTime};
+    }
+    return new long[]{finishTime - startTime, attempt._shuffleFinishTime - startTime,
+        attempt._sortFinishTime - attempt._shuffleFinishTime, startTime, finishTime};
+  }
+
+  static MapReduceCounterData getCounterData(Counters counters) {
+    MapReduceCounterData holder = new MapReduceCounterData();
+    if (counters != null) {
+      for (CounterGroup group : counters) {
+        String groupName = group.getName();
+        for (Counter counter : group) {
+          holder.set(groupName, counter.getName(), counter.getValue());
+        }
+      }
+    }
+    return holder;
+  }
+
+  long getSubmitTime() {
+    return _submitTime;
+  }
+
+  long getLaunchTime() {
+    return _launchTime;
+  }
+
+  long getFinishTime() {
+    return _finishTime;
+  }
+
+  /**
+   * @return SUCCEEDED, FAILED, KILLED or ERROR, or null if the history has no job completion
+   */
+  String getJobStatus() {
+    return _jobStatus;
+  }
+
+  String getErrorInfo() {
+    return _errorInfo;
+  }
+
+  MapReduceCounterData getTotalCounters() {
+    return _totalCounters;
+  }
+
+  MapReduceTaskData[] getMapperData() {
+    return _mappers.toArray();
+  }
+
+  MapReduceTaskData[] getReducerData() {
+    return _reducers.toArray();
+  }
+
+  /**
+   * @return the sketches of all the mappers, or null if all of them are in the sample
+   */
+  MapReduceTaskSketches getMapperSketches() {
+    return _mappers.getSketches();
+  }
+
+  /**
+   * @return the sketches of all the reducers, or null if all of them are in the sample
+   */
+  MapReduceTaskSketches getReducerSketches() {
+    return _reducers.getSketches();
+  }
+
+  /**
+   * Reservoir sample and sketches of the completed tasks of one type.
+   */
+  private class TaskSample {
+    private final MapReduceTaskTable _tasks = new MapReduceTaskTable();
+    private final MapReduceTaskSketches _sketches = _samplingEnabled ? new MapReduceTaskSketches() : null;
+    // The row the tasks not sampled are built in before being sketched
+    private final MapReduceTaskTable _scratch = new MapReduceTaskTable(1);
+    private int _seen = 0;
+
+    /**
+     * Counts a new completed task.
+     *
+     * @return the index in the sample where the task should be stored, or -1 if the task is not sampled
+     */
+    int nextIndex() {
+      _seen++;
+      if (!_samplingEnabled || _tasks.size() < _maxSampleSize) {
+        return _tasks.size();
+      }
+      int index = _random.nextInt(_seen);
+      return index < _maxSampleSize ? index : -1;
+    }
+
+    /**
+     * Stores a task at an index returned by nextIndex, replacing the task stored there if any. A task not sampled is
+     * stored in a scratch row, valid until the next task.
+     *
+     * @return the task, without time nor counters
+     */
+    MapReduceTaskData set(int index, String taskId, String attemptId, String status) {
+      if (index < 0) {
+        if (_scratch.size() == 0) {
+          return _scratch.addTask(taskId, attemptId, status);
+        }
+        return _scratch.replaceTask(0, taskId, attemptId, status);
+      }
+      if (index == _tasks.size()) {
+        return _tasks.addTask(taskId, attemptId, status);
+      }
+      return _tasks.replaceTask(index, taskId, attemptId, status);
+    }
+
+    /**
+     * Adds a completed task, with its time and counters, to the sketches.
+     */
+    void sketch(MapReduceTaskData task) {
+      if (_sketches != null) {
+        _sketches.update(task);
+      }
+    }
+
+    int getSeen() {
+      return _seen;
+    }
+
+    MapReduceTaskSketches getSketches() {
+      return _seen > _tasks.size() ? _sketches : null;
+    }
+
+    MapReduceTaskData[] toArray() {
+      return _tasks.getTasks();
+    }
+  }
+
+  private static class RunningTask {
+    private final TaskType _taskType;
+    private final Map<String, Attempt> _attempts = new HashMap<String, Attempt>();
+
+    RunningTask(TaskType taskType) {
+      _taskType = taskType;
+    }
+  }
+
+  private static class Attempt {
+    private long _startTime = -1;
+    private long _finishTime = -1;
+    private long _shuffleFinishTime = -1;
+    private long _sortFinishTime = -1;
+  }
+}
@@ -19,8 +19,7 @@ package com.linkedin.drelephant.mapreduce.fetchers;
 import com.linkedin.drelephant.analysis.AnalyticJob;
 import com.linkedin.drelephant.configurations.fetcher.FetcherConfigurationData;
 import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
-import com.linkedin.drelephant.mapreduce.data.MapReduceCounterData;
-import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.util.ResponseCache;
 import com.linkedin.drelephant.util.Utils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
@@ -29,23 +28,20 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.LocatedFileStatus;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.RemoteIterator;
-import org.apache.hadoop.mapreduce.Counter;
-import org.apache.hadoop.mapreduce.CounterGroup;
-import org.apache.hadoop.mapreduce.Counters;
-import org.apache.hadoop.mapreduce.TaskAttemptID;
-import org.apache.hadoop.mapreduce.TaskID;
-import org.apache.hadoop.mapreduce.TaskType;
-import org.apache.hadoop.mapreduce.jobhistory.JobHistoryParser;
+import org.apache.hadoop.mapreduce.jobhistory.EventReader;
+import org.apache.hadoop.security.authentication.client.AuthenticationException;
 import org.apache.log4j.Logger;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
 import java.util.Calendar;
-import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Random;
 import java.util.TimeZone;
 
 /**
@@ -59,6 +55,8 @@ public class MapReduceFSFetcherHadoop2 extends MapReduceFetcher {
 
   private static final String LOG_SIZE_XML_FIELD = "history_log_size_limit_in_mb";
   private static final String HISTORY_SERVER_TIME_ZONE_XML_FIELD = "history_server_time_zone";
+  private static final String HISTORY_DONE_DIR_XML_FIELD = "history_done_dir";
+  private static final String HISTORY_INTERMEDIATE_DONE_DIR_XML_FIELD = "history_intermediate_done_dir";
   private static final String TIMESTAMP_DIR_FORMAT = "%04d" + File.separator + "%02d" + File.separator + "%02d";
   private static final int SERIAL_NUMBER_DIRECTORY_DIGITS = 6;
   protected static final double DEFALUT_MAX_LOG_SIZE_IN_MB = 500;
@@ -85,14 +83,23 @@ public class MapReduceFSFetcherHadoop2 extends MapReduceFetcher {
     _timeZone = timeZoneStr == null ? TimeZone.getDefault() : TimeZone.getTimeZone(timeZoneStr);
     logger.info("Using timezone: " + _timeZone.getID());
 
+    // The history directories of another cluster than the default one are configured in the fetcher params, as
+    // fully qualified paths when they are not on the default file system
     Configuration conf = new Configuration();
-    this._fs = FileSystem.get(conf);
-    this._historyLocation = conf.get("mapreduce.jobhistory.done-dir");
-    this._intermediateHistoryLocation = conf.get("mapreduce.jobhistory.intermediate-done-dir");
+    this._historyLocation = getParam(fetcherConfData, HISTORY_DONE_DIR_XML_FIELD,
+        conf.get("mapreduce.jobhistory.done-dir"));
+    this._intermediateHistoryLocation = getParam(fetcherConfData, HISTORY_INTERMEDIATE_DONE_DIR_XML_FIELD,
+        conf.get("mapreduce.jobhistory.intermediate-done-dir"));
+    this._fs = _historyLocation == null ? FileSystem.get(conf) : new Path(_historyLocation).getFileSystem(conf);
     logger.info("Intermediate history dir: " + _intermediateHistoryLocation);
     logger.info("History done dir: " + _historyLocation);
   }
 
+  private static String getParam(FetcherConfigurationData fetcherConfData, String name, String defaultValue) {
+    String value = fetcherConfData.getParamMap().get(name);
+    return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+  }
+
   public String getHistoryLocation() {
     return _historyLocation;
   }
@@ -205,15 +212,17 @@ public class MapReduceFSFetcherHadoop2 extends MapReduceFetcher {
 
     // Fetch job config
     Configuration jobConf = new Configuration(false);
-    jobConf.addResource(_fs.open(new Path(confFile)), confFile);
+    jobConf.addResource(openCached(jobId, new Path(confFile)), confFile);
     Properties jobConfProperties = new Properties();
     for (Map.Entry<String, String> entry : jobConf) {
       jobConfProperties.put(entry.getKey(), entry.getValue());
     }
     jobData.setJobConf(jobConfProperties);
 
-    // Check if job history file is too large and should be throttled
-    if (_fs.getFileStatus(new Path(histFile)).getLen() > _maxLogSizeInMB * FileUtils.ONE_MB) {
+    // Check if job history file is too large and should be throttled. With sampling, the history is parsed in
+    // bounded memory whatever its size.
+    if (!isSamplingEnabled()
+        && _fs.getFileStatus(new Path(histFile)).getLen() > _maxLogSizeInMB * FileUtils.ONE_MB) {
       String errMsg = "The history log of MapReduce application: " + appId + " is over the limit size of "
               + _maxLogSizeInMB + " MB, the parsing process gets throttled.";
       logger.warn(errMsg);
@@ -223,115 +232,62 @@ public class MapReduceFSFetcherHadoop2 extends MapReduceFetcher {
     }
 
     // Analyze job history file
-    JobHistoryParser parser = new JobHistoryParser(_fs, histFile);
-    JobHistoryParser.JobInfo jobInfo = parser.parse();
-    IOException parseException = parser.getParseException();
-    if (parseException != null) {
-      throw new RuntimeException("Could not parse history file " + histFile, parseException);
+    JobHistoryEventParser parser =
+        new JobHistoryEventParser(jobId, isSamplingEnabled(), MAX_SAMPLE_SIZE, new Random());
+    EventReader reader =
+        new EventReader(new DataInputStream(new BufferedInputStream(openCached(jobId, new Path(histFile)))));
+    try {
+      parser.parse(reader);
+    } catch (IOException e) {
+      throw new RuntimeException("Could not parse history file " + histFile, e);
+    } finally {
+      reader.close();
     }
 
-    jobData.setSubmitTime(jobInfo.getSubmitTime());
-    jobData.setStartTime(jobInfo.getLaunchTime());
-    jobData.setFinishTime(jobInfo.getFinishTime());
+    jobData.setSubmitTime(parser.getSubmitTime());
+    jobData.setStartTime(parser.getLaunchTime());
+    jobData.setFinishTime(parser.getFinishTime());
 
-    String state = jobInfo.getJobStatus();
-    if (state.equals("SUCCEEDED")) {
+    String state = parser.getJobStatus();
+    if ("SUCCEEDED".equals(state)) {
       jobData.setSucceeded(true);
     }
-    else if (state.equals("FAILED")) {
+    else if ("FAILED".equals(state)) {
       jobData.setSucceeded(false);
-      jobData.setDiagnosticInfo(jobInfo.getErrorInfo());
+      jobData.setDiagnosticInfo(parser.getErrorInfo());
     } else {
       throw new RuntimeException("job neither succeeded or failed. can not process it ");
     }
 
-
-    // Fetch job counter
-    MapReduceCounterData jobCounter = getCounterData(jobInfo.getTotalCounters());
-
-    // Fetch task data
-    Map<TaskID, JobHistoryParser.TaskInfo> allTasks = jobInfo.getAllTasks();
-    List<JobHistoryParser.TaskInfo> mapperInfoList = new ArrayList<JobHistoryParser.TaskInfo>();
-    List<JobHistoryParser.TaskInfo> reducerInfoList = new ArrayList<JobHistoryParser.TaskInfo>();
-    for (JobHistoryParser.TaskInfo taskInfo : allTasks.values()) {
-      if (taskInfo.getTaskType() == TaskType.MAP) {
-        mapperInfoList.add(taskInfo);
-      } else {
-        reducerInfoList.add(taskInfo);
-      }
-    }
-    if (jobInfo.getTotalMaps() > MAX_SAMPLE_SIZE) {
-      logger.debug(jobId + " total mappers: " + mapperInfoList.size());
-    }
-    if (jobInfo.getTotalReduces() > MAX_SAMPLE_SIZE) {
-      logger.debug(jobId + " total reducers: " + reducerInfoList.size());
-    }
-    MapReduceTaskData[] mapperList = getTaskData(jobId, mapperInfoList);
-    MapReduceTaskData[] reducerList = getTaskData(jobId, reducerInfoList);
-
-    jobData.setCounters(jobCounter).setMapperData(mapperList).setReducerData(reducerList);
+    jobData.setCounters(parser.getTotalCounters())
+        .setMapperData(parser.getMapperData())
+        .setReducerData(parser.getReducerData())
+        .setMapperSketches(parser.getMapperSketches())
+        .setReducerSketches(parser.getReducerSketches());
 
     return jobData;
   }
 
-  private MapReduceCounterData getCounterData(Counters counters) {
-    MapReduceCounterData holder = new MapReduceCounterData();
-    if (counters != null) {
-      for (CounterGroup group : counters) {
-        String groupName = group.getName();
-        for (Counter counter : group) {
-          holder.set(groupName, counter.getName(), counter.getValue());
+  /**
+   * Opens a history file, from the response cache if already fetched.
+   *
+   * @param jobId The id of the job the file belongs to
+   * @param path The path of the file
+   * @return the file content
+   * @throws IOException if the file cannot be read
+   */
+  private InputStream openCached(String jobId, final Path path) throws IOException {
+    try {
+      return ResponseCache.getInstance().open(jobId, path.toString(), new ResponseCache.Loader() {
+        @Override
+        public InputStream load() throws IOException {
+          return _fs.open(path);
         }
-      }
-    }
-    return holder;
-  }
-
-  private long[] getTaskExecTime(JobHistoryParser.TaskAttemptInfo attempInfo) {
-    long startTime = attempInfo.getStartTime();
-    long finishTime = attempInfo.getFinishTime();
-    boolean isMapper = (attempInfo.getTaskType() == TaskType.MAP);
-
-    long[] time;
-    if (isMapper) {
-      time = new long[]{finishTime - startTime, 0, 0, startTime, finishTime};
-    } else {
-      long shuffleFinishTime = attempInfo.getShuffleFinishTime();
-      long mergeFinishTime = attempInfo.getSortFinishTime();
-      time = new long[]{finishTime - startTime, shuffleFinishTime - startTime,
-              mergeFinishTime - shuffleFinishTime, startTime, finishTime};
-    }
-    return time;
-  }
-
-  protected MapReduceTaskData[] getTaskData(String jobId, List<JobHistoryParser.TaskInfo> infoList) {
-    int sampleSize = sampleAndGetSize(jobId, infoList);
-
-    List<MapReduceTaskData> taskList = new ArrayList<MapReduceTaskData>();
-    for (int i = 0; i < sampleSize; i++) {
-      JobHistoryParser.TaskInfo tInfo = infoList.get(i);
-
-      String taskId = tInfo.getTaskId().toString();
-      TaskAttemptID attemptId = null;
-      if(tInfo.getTaskStatus().equals("SUCCEEDED")) {
-        attemptId = tInfo.getSuccessfulAttemptId();
-      } else {
-        attemptId = tInfo.getFailedDueToAttemptId();
-      }
-
-      MapReduceTaskData taskData = new MapReduceTaskData(taskId, attemptId == null ? "" : attemptId.toString() , tInfo.getTaskStatus());
-
-      MapReduceCounterData taskCounterData = getCounterData(tInfo.getCounters());
-
-      long[] taskExecTime = null;
-      if (attemptId != null) {
-        taskExecTime = getTaskExecTime(tInfo.getAllTaskAttempts().get(attemptId));
-      }
-
-      taskData.setTimeAndCounter(taskExecTime, taskCounterData);
-      taskList.add(taskData);
+      });
+    } catch (AuthenticationException e) {
+      // Not thrown by the file system
+      throw new IOException(e);
     }
-    return taskList.toArray(new MapReduceTaskData[taskList.size()]);
   }
 
   private class DataFiles {
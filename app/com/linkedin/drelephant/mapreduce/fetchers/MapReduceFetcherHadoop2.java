@@ -16,17 +16,24 @@
 
 package com.linkedin.drelephant.mapreduce.fetchers;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.linkedin.drelephant.analysis.AnalyticJob;
 import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
 import com.linkedin.drelephant.mapreduce.data.MapReduceCounterData;
 import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskTable;
 import com.linkedin.drelephant.math.Statistics;
 import com.linkedin.drelephant.configurations.fetcher.FetcherConfigurationData;
+import com.linkedin.drelephant.util.HttpConnectionPool;
+import com.linkedin.drelephant.util.ResponseCache;
 import com.linkedin.drelephant.util.Utils;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.lang.Integer;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
@@ -34,6 +41,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -54,14 +69,28 @@ public class MapReduceFetcherHadoop2 extends MapReduceFetcher {
   private static final Logger logger = Logger.getLogger(MapReduceFetcherHadoop2.class);
   // We provide one minute job fetch delay due to the job sending lag from AM/NM to JobHistoryServer HDFS
 
+  private static final String REQUEST_CONCURRENCY_XML_FIELD = "request_concurrency";
+  private static final String JHISTORY_WEBAPP_ADDRESS_XML_FIELD = "jhistory_webapp_address";
+  private static final int REQUEST_WINDOW_FACTOR = 4;   // The number of tasks requested at once per request thread
+  private static final long REQUEST_THREAD_KEEP_ALIVE = 60;
+  private static final ExecutorService SAME_THREAD_EXECUTOR = MoreExecutors.sameThreadExecutor();
+
   private URLFactory _urlFactory;
   private JSONFactory _jsonFactory;
   private String _jhistoryWebAddr;
+  private ExecutorService _requestExecutor;
+  private int _requestWindow;
 
   public MapReduceFetcherHadoop2(FetcherConfigurationData fetcherConfData) throws IOException {
     super(fetcherConfData);
 
-    final String jhistoryAddr = new JobConf().get("mapreduce.jobhistory.webapp.address");
+    // The job history server of another cluster than the default one is configured in the fetcher params
+    String jhistoryAddr = fetcherConfData.getParamMap().get(JHISTORY_WEBAPP_ADDRESS_XML_FIELD);
+    if (jhistoryAddr == null || jhistoryAddr.trim().isEmpty()) {
+      jhistoryAddr = new JobConf().get("mapreduce.jobhistory.webapp.address");
+    } else {
+      jhistoryAddr = jhistoryAddr.trim();
+    }
 
     logger.info("Connecting to the job history server at " + jhistoryAddr + "...");
     _urlFactory = new URLFactory(jhistoryAddr);
@@ -69,6 +98,25 @@ public class MapReduceFetcherHadoop2 extends MapReduceFetcher {
 
     _jsonFactory = new JSONFactory();
     _jhistoryWebAddr = "http://" + jhistoryAddr + "/jobhistory/job/";
+
+    // The request threads are shared by all the fetches and bound the connections opened to the job history server
+    int requestConcurrency = 1;
+    String concurrency = fetcherConfData.getParamMap().get(REQUEST_CONCURRENCY_XML_FIELD);
+    if (concurrency != null) {
+      requestConcurrency = Integer.parseInt(concurrency.trim());
+    }
+    if (requestConcurrency > 1) {
+      logger.info("Requests to the job history server are made by " + requestConcurrency + " threads");
+      ThreadFactory factory = new ThreadFactoryBuilder().setNameFormat("dr-el-mr-request-thread-%d")
+          .setDaemon(true).build();
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(requestConcurrency, requestConcurrency,
+          REQUEST_THREAD_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), factory);
+      executor.allowCoreThreadTimeOut(true);
+      _requestExecutor = executor;
+    } else {
+      _requestExecutor = SAME_THREAD_EXECUTOR;
+    }
+    _requestWindow = Math.max(requestConcurrency, 1) * REQUEST_WINDOW_FACTOR;
   }
 
   @Override
@@ -79,78 +127,117 @@ public class MapReduceFetcherHadoop2 extends MapReduceFetcher {
     jobData.setAppId(appId).setJobId(jobId);
     // Change job tracking url to job history page
     analyticJob.setTrackingUrl(_jhistoryWebAddr + jobId);
+
+    // The job, its config, counters and tasks are independent requests
+    List<Future<JsonNode>> requests = new ArrayList<Future<JsonNode>>();
     try {
+      Future<JsonNode> jobConfRequest = readJsonNodeAsync(jobId, _urlFactory.getJobConfigURL(jobId), requests);
+      Future<JsonNode> jobRequest = readJsonNodeAsync(jobId, _urlFactory.getJobURL(jobId), requests);
+      Future<JsonNode> jobCounterRequest = readJsonNodeAsync(jobId, _urlFactory.getJobCounterURL(jobId), requests);
+      Future<JsonNode> taskListRequest = readJsonNodeAsync(jobId, _urlFactory.getTaskListURL(jobId), requests);
 
       // Fetch job config
-      Properties jobConf = _jsonFactory.getProperties(_urlFactory.getJobConfigURL(jobId));
+      Properties jobConf = _jsonFactory.getProperties(getResult(jobConfRequest));
       jobData.setJobConf(jobConf);
 
-      URL jobURL = _urlFactory.getJobURL(jobId);
-      String state = _jsonFactory.getState(jobURL);
-
-      jobData.setSubmitTime(_jsonFactory.getSubmitTime(jobURL));
-      jobData.setStartTime(_jsonFactory.getStartTime(jobURL));
-      jobData.setFinishTime(_jsonFactory.getFinishTime(jobURL));
+      JsonNode jobNode = getResult(jobRequest);
+      String state = _jsonFactory.getState(jobNode);
 
-      if (state.equals("SUCCEEDED")) {
-
-        jobData.setSucceeded(true);
-
-        // Fetch job counter
-        MapReduceCounterData jobCounter = _jsonFactory.getJobCounter(_urlFactory.getJobCounterURL(jobId));
-
-        // Fetch task data
-        URL taskListURL = _urlFactory.getTaskListURL(jobId);
-        List<MapReduceTaskData> mapperList = new ArrayList<MapReduceTaskData>();
-        List<MapReduceTaskData> reducerList = new ArrayList<MapReduceTaskData>();
-        _jsonFactory.getTaskDataAll(taskListURL, jobId, mapperList, reducerList);
+      jobData.setSubmitTime(_jsonFactory.getSubmitTime(jobNode));
+      jobData.setStartTime(_jsonFactory.getStartTime(jobNode));
+      jobData.setFinishTime(_jsonFactory.getFinishTime(jobNode));
 
-        MapReduceTaskData[] mapperData = mapperList.toArray(new MapReduceTaskData[mapperList.size()]);
-        MapReduceTaskData[] reducerData = reducerList.toArray(new MapReduceTaskData[reducerList.size()]);
+      if (state.equals("SUCCEEDED") || state.equals("FAILED")) {
 
-        jobData.setCounters(jobCounter).setMapperData(mapperData).setReducerData(reducerData);
-      } else if (state.equals("FAILED")) {
+        jobData.setSucceeded(state.equals("SUCCEEDED"));
 
-        jobData.setSucceeded(false);
         // Fetch job counter
-        MapReduceCounterData jobCounter = _jsonFactory.getJobCounter(_urlFactory.getJobCounterURL(jobId));
+        MapReduceCounterData jobCounter = _jsonFactory.getJobCounter(getResult(jobCounterRequest));
 
         // Fetch task data
-        URL taskListURL = _urlFactory.getTaskListURL(jobId);
         List<MapReduceTaskData> mapperList = new ArrayList<MapReduceTaskData>();
         List<MapReduceTaskData> reducerList = new ArrayList<MapReduceTaskData>();
-        _jsonFactory.getTaskDataAll(taskListURL, jobId, mapperList, reducerList);
+        _jsonFactory.getTaskDataAll(getResult(taskListRequest), jobId, mapperList, reducerList);
 
         MapReduceTaskData[] mapperData = mapperList.toArray(new MapReduceTaskData[mapperList.size()]);
         MapReduceTaskData[] reducerData = reducerList.toArray(new MapReduceTaskData[reducerList.size()]);
 
         jobData.setCounters(jobCounter).setMapperData(mapperData).setReducerData(reducerData);
+      } else {
+        // Should not reach here
+        throw new RuntimeException("Job state not supported. Should be either SUCCEEDED or FAILED");
+      }
 
+      if (!jobData.getSucceeded()) {
         String diagnosticInfo;
         try {
-          diagnosticInfo = parseException(jobData.getJobId(),  _jsonFactory.getDiagnosticInfo(jobURL));
+          diagnosticInfo = parseException(jobData.getJobId(), _jsonFactory.getDiagnosticInfo(jobNode));
         } catch(Exception e) {
           diagnosticInfo = null;
           logger.warn("Failed getting diagnostic info for failed job " + jobData.getJobId());
         }
         jobData.setDiagnosticInfo(diagnosticInfo);
-      } else {
-        // Should not reach here
-        throw new RuntimeException("Job state not supported. Should be either SUCCEEDED or FAILED");
       }
     } finally {
+      cancelAll(requests);
       ThreadContextMR2.updateAuthToken();
     }
 
     return jobData;
   }
 
+  /**
+   * Reads the Json document at the given url, on the request threads if concurrent requests are enabled, otherwise
+   * in the calling thread.
+   *
+   * @param jobId The id of the job the document belongs to
+   * @param url The url to read
+   * @param requests The list of pending requests the request is added to
+   * @return the future Json document
+   */
+  private Future<JsonNode> readJsonNodeAsync(final String jobId, final URL url, List<Future<JsonNode>> requests) {
+    Future<JsonNode> request = _requestExecutor.submit(new Callable<JsonNode>() {
+      @Override
+      public JsonNode call() throws Exception {
+        try {
+          return ThreadContextMR2.readJsonNode(jobId, url);
+        } finally {
+          if (_requestExecutor != SAME_THREAD_EXECUTOR) {
+            ThreadContextMR2.updateAuthToken();
+          }
+        }
+      }
+    });
+    requests.add(request);
+    return request;
+  }
+
+  private static <T> T getResult(Future<T> future) throws IOException, AuthenticationException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the job history server");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      Throwables.propagateIfInstanceOf(cause, IOException.class);
+      Throwables.propagateIfInstanceOf(cause, AuthenticationException.class);
+      throw Throwables.propagate(cause);
+    }
+  }
+
+  private static void cancelAll(List<? extends Future<?>> requests) {
+    for (Future<?> request : requests) {
+      request.cancel(true);
+    }
+  }
+
   private String parseException(String jobId, String diagnosticInfo) throws MalformedURLException, IOException,
                                                                             AuthenticationException {
     Matcher m = ThreadContextMR2.getDiagnosticMatcher(diagnosticInfo);
     if (m.matches()) {
       String taskId = m.group(1);
-      return _jsonFactory.getTaskFailedStackTrace(_urlFactory.getTaskAllAttemptsURL(jobId, taskId));
+      return _jsonFactory.getTaskFailedStackTrace(jobId, _urlFactory.getTaskAllAttemptsURL(jobId, taskId));
     }
     logger.warn("Does not match regex!!");
     // Diagnostic info not present in the job. Usually due to exception during AM setup
@@ -212,36 +299,30 @@ public class MapReduceFetcherHadoop2 extends MapReduceFetcher {
 
   private class JSONFactory {
 
-    private long getStartTime(URL url) throws IOException, AuthenticationException {
-      JsonNode rootNode = ThreadContextMR2.readJsonNode(url);
+    private long getStartTime(JsonNode rootNode) {
       return rootNode.path("job").path("startTime").getValueAsLong();
     }
 
-    private long getFinishTime(URL url) throws IOException, AuthenticationException {
-      JsonNode rootNode = ThreadContextMR2.readJsonNode(url);
+    private long getFinishTime(JsonNode rootNode) {
       return rootNode.path("job").path("finishTime").getValueAsLong();
     }
 
-    private long getSubmitTime(URL url) throws IOException, AuthenticationException {
-      JsonNode rootNode = ThreadContextMR2.readJsonNode(url);
+    private long getSubmitTime(JsonNode rootNode) {
       return rootNode.path("job").path("submitTime").getValueAsLong();
     }
 
-    private String getState(URL url) throws IOException, AuthenticationException {
-      JsonNode rootNode = ThreadContextMR2.readJsonNode(url);
+    private String getState(JsonNode rootNode) {
       return rootNode.path("job").path("state").getValueAsText();
     }
 
-    private String getDiagnosticInfo(URL url) throws IOException, AuthenticationException {
-      JsonNode rootNode = ThreadContextMR2.readJsonNode(url);
+    private String getDiagnosticInfo(JsonNode rootNode) {
       String diag = rootNode.path("job").path("diagnostics").getValueAsText();
       return diag;
     }
 
-    private Properties getProperties(URL url) throws IOException, AuthenticationException {
+    private Properties getProperties(JsonNode rootNode) {
       Properties jobConf = new Properties();
 
-      JsonNode rootNode = ThreadContextMR2.readJsonNode(url);
       JsonNode configs = rootNode.path("conf").path("property");
 
       for (JsonNode conf : configs) {
@@ -252,10 +333,9 @@ public class MapReduceFetcherHadoop2 extends MapReduceFetcher {
       return jobConf;
     }
 
-    private MapReduceCounterData getJobCounter(URL url) throws IOException, AuthenticationException {
+    private MapReduceCounterData getJobCounter(JsonNode rootNode) {
       MapReduceCounterData holder = new MapReduceCounterData();
 
-      JsonNode rootNode = ThreadContextMR2.readJsonNode(url);
       JsonNode groups = rootNode.path("jobCounters").path("counterGroup");
 
       for (JsonNode group : groups) {
@@ -269,25 +349,18 @@ public class MapReduceFetcherHadoop2 extends MapReduceFetcher {
       return holder;
     }
 
-    private MapReduceCounterData getTaskCounter(URL url) throws IOException, AuthenticationException {
-      JsonNode rootNode = ThreadContextMR2.readJsonNode(url);
+    private void getTaskCounter(JsonNode rootNode, MapReduceTaskData data) {
       JsonNode groups = rootNode.path("jobTaskCounters").path("taskCounterGroup");
-      MapReduceCounterData holder = new MapReduceCounterData();
 
       for (JsonNode group : groups) {
         for (JsonNode counter : group.path("counter")) {
-          String name = counter.get("name").getValueAsText();
-          String groupName = group.get("counterGroupName").getValueAsText();
-          Long value = counter.get("value").getLongValue();
-          holder.set(groupName, name, value);
+          data.setCounter(counter.get("name").getValueAsText(), counter.get("value").getLongValue());
         }
       }
-      return holder;
     }
 
-    private long[] getTaskExecTime(URL url) throws IOException, AuthenticationException {
+    private long[] getTaskExecTime(JsonNode rootNode) {
 
-      JsonNode rootNode = ThreadContextMR2.readJsonNode(url);
       JsonNode taskAttempt = rootNode.path("taskAttempt");
 
       long startTime = taskAttempt.get("startTime").getLongValue();
@@ -307,31 +380,61 @@ public class MapReduceFetcherHadoop2 extends MapReduceFetcher {
       return time;
     }
 
-    private void getTaskDataAll(URL url, String jobId, List<MapReduceTaskData> mapperList,
+    private void getTaskDataAll(JsonNode rootNode, String jobId, List<MapReduceTaskData> mapperList,
         List<MapReduceTaskData> reducerList) throws IOException, AuthenticationException {
 
-      JsonNode rootNode = ThreadContextMR2.readJsonNode(url);
       JsonNode tasks = rootNode.path("tasks").path("task");
 
+      // The attempts of the failed tasks are requested concurrently
+      List<JsonNode> taskList = new ArrayList<JsonNode>();
+      int mapperCount = 0;
       for (JsonNode task : tasks) {
-        String state = task.get("state").getValueAsText();
-        String taskId = task.get("id").getValueAsText();
-        String attemptId = "";
-        if(state.equals("SUCCEEDED")) {
-           attemptId = task.get("successfulAttempt").getValueAsText();
-        } else {
-          JsonNode firstAttempt = getTaskFirstFailedAttempt(_urlFactory.getTaskAllAttemptsURL(jobId, taskId));
-          if( firstAttempt != null) {
-            attemptId = firstAttempt.get("id").getValueAsText();
-          }
+        taskList.add(task);
+        if (task.get("type").getValueAsText().equals("MAP")) {
+          mapperCount++;
         }
+      }
+      MapReduceTaskTable mappers = new MapReduceTaskTable(mapperCount);
+      MapReduceTaskTable reducers = new MapReduceTaskTable(taskList.size() - mapperCount);
+      for (int start = 0; start < taskList.size(); start += _requestWindow) {
+        List<JsonNode> window = taskList.subList(start, Math.min(start + _requestWindow, taskList.size()));
+        List<Future<JsonNode>> requests = new ArrayList<Future<JsonNode>>();
+        try {
+          List<Future<JsonNode>> attemptRequests = new ArrayList<Future<JsonNode>>();
+          for (JsonNode task : window) {
+            if (task.get("state").getValueAsText().equals("SUCCEEDED")) {
+              attemptRequests.add(null);
+            } else {
+              String taskId = task.get("id").getValueAsText();
+              URL taskAllAttemptsURL = _urlFactory.getTaskAllAttemptsURL(jobId, taskId);
+              attemptRequests.add(readJsonNodeAsync(jobId, taskAllAttemptsURL, requests));
+            }
+          }
 
-        boolean isMapper = task.get("type").getValueAsText().equals("MAP");
-
-        if (isMapper) {
-          mapperList.add(new MapReduceTaskData(taskId, attemptId, state));
-        } else {
-          reducerList.add(new MapReduceTaskData(taskId, attemptId, state));
+          for (int i = 0; i < window.size(); i++) {
+            JsonNode task = window.get(i);
+            String state = task.get("state").getValueAsText();
+            String taskId = task.get("id").getValueAsText();
+            String attemptId = "";
+            if(state.equals("SUCCEEDED")) {
+               attemptId = task.get("successfulAttempt").getValueAsText();
+            } else {
+              JsonNode firstAttempt = getTaskFirstFailedAttempt(getResult(attemptRequests.get(i)));
+              if( firstAttempt != null) {
+                attemptId = firstAttempt.get("id").getValueAsText();
+              }
+            }
+
+            boolean isMapper = task.get("type").getValueAsText().equals("MAP");
+
+            if (isMapper) {
+              mapperList.add(mappers.addTask(taskId, attemptId, state));
+            } else {
+              reducerList.add(reducers.addTask(taskId, attemptId, state));
+            }
+          }
+        } finally {
+          cancelAll(requests);
         }
       }
 
@@ -343,23 +446,42 @@ public class MapReduceFetcherHadoop2 extends MapReduceFetcher {
 
       int sampleSize = sampleAndGetSize(jobId, taskList);
 
-      for(int i=0; i < sampleSize; i++) {
-        MapReduceTaskData data = taskList.get(i);
+      // The counters and attempt of the tasks are requested concurrently, a window of tasks at a time
+      for (int start = 0; start < sampleSize; start += _requestWindow) {
+        int end = Math.min(start + _requestWindow, sampleSize);
+        List<Future<JsonNode>> requests = new ArrayList<Future<JsonNode>>();
+        try {
+          List<Future<JsonNode>> counterRequests = new ArrayList<Future<JsonNode>>();
+          List<Future<JsonNode>> attemptRequests = new ArrayList<Future<JsonNode>>();
+          for (int i = start; i < end; i++) {
+            MapReduceTaskData data = taskList.get(i);
+            counterRequests.add(readJsonNodeAsync(jobId, getTaskCounterURL(jobId, data.getTaskId()), requests));
+            if (data.getAttemptId().isEmpty()) {
+              attemptRequests.add(null);
+            } else {
+              URL taskAttemptURL = getTaskAttemptURL(jobId, data.getTaskId(), data.getAttemptId());
+              attemptRequests.add(readJsonNodeAsync(jobId, taskAttemptURL, requests));
+            }
+          }
 
-        URL taskCounterURL = getTaskCounterURL(jobId, data.getTaskId());
-        MapReduceCounterData taskCounter = getTaskCounter(taskCounterURL);
+          for (int i = start; i < end; i++) {
+            MapReduceTaskData data = taskList.get(i);
+            getTaskCounter(getResult(counterRequests.get(i - start)), data);
 
-        long[] taskExecTime = null;
-        if(!data.getAttemptId().isEmpty()) {
-          URL taskAttemptURL = getTaskAttemptURL(jobId, data.getTaskId(), data.getAttemptId());
-          taskExecTime = getTaskExecTime(taskAttemptURL);
+            Future<JsonNode> attemptRequest = attemptRequests.get(i - start);
+            if (attemptRequest != null) {
+              data.setTime(getTaskExecTime(getResult(attemptRequest)));
+            }
+          }
+        } finally {
+          cancelAll(requests);
         }
-        data.setTimeAndCounter(taskExecTime, taskCounter);
       }
     }
 
-    private String getTaskFailedStackTrace(URL taskAllAttemptsUrl) throws IOException, AuthenticationException {
-      JsonNode firstAttempt = getTaskFirstFailedAttempt(taskAllAttemptsUrl);
+    private String getTaskFailedStackTrace(String jobId, URL taskAllAttemptsUrl)
+        throws IOException, AuthenticationException {
+      JsonNode firstAttempt = getTaskFirstFailedAttempt(ThreadContextMR2.readJsonNode(jobId, taskAllAttemptsUrl));
       if(firstAttempt != null) {
         String stacktrace = firstAttempt.get("diagnostics").getValueAsText();
         return stacktrace;
@@ -368,8 +490,7 @@ public class MapReduceFetcherHadoop2 extends MapReduceFetcher {
       }
     }
 
-    private JsonNode getTaskFirstFailedAttempt(URL taskAllAttemptsUrl) throws IOException, AuthenticationException {
-      JsonNode rootNode = ThreadContextMR2.readJsonNode(taskAllAttemptsUrl);
+    private JsonNode getTaskFirstFailedAttempt(JsonNode rootNode) {
       long firstAttemptFinishTime = Long.MAX_VALUE;
       JsonNode firstAttempt = null;
       JsonNode taskAttempts = rootNode.path("taskAttempts").path("taskAttempt");
@@ -429,7 +550,7 @@ final class ThreadContextMR2 {
   private static final ThreadLocal<AuthenticatedURL> _LOCAL_AUTH_URL = new ThreadLocal<AuthenticatedURL>() {
     @Override
     public AuthenticatedURL initialValue() {
-      return new AuthenticatedURL();
+      return HttpConnectionPool.newAuthenticatedURL();
     }
   };
 
@@ -448,17 +569,37 @@ final class ThreadContextMR2 {
     return _LOCAL_DIAGNOSTIC_PATTERN.get().matcher(diagnosticInfo);
   }
 
-  public static JsonNode readJsonNode(URL url) throws IOException, AuthenticationException {
-    HttpURLConnection conn = _LOCAL_AUTH_URL.get().openConnection(url, _LOCAL_AUTH_TOKEN.get());
-    return _LOCAL_MAPPER.get().readTree(conn.getInputStream());
+  /**
+   * Reads a Json document of the job history server, served by the response cache if already fetched.
+   *
+   * @param jobId The id of the job the document belongs to
+   * @param url The url of the document
+   * @return the Json document
+   */
+  public static JsonNode readJsonNode(String jobId, final URL url) throws IOException, AuthenticationException {
+    InputStream in = ResponseCache.getInstance().open(jobId, url.toString(), new ResponseCache.Loader() {
+      @Override
+      public InputStream load() throws IOException, AuthenticationException {
+        return HttpConnectionPool.openStream(_LOCAL_AUTH_URL.get(), _LOCAL_AUTH_TOKEN.get(), url);
+      }
+    });
+    try {
+      return _LOCAL_MAPPER.get().readTree(in);
+    } finally {
+      in.close();
+    }
   }
 
   public static void updateAuthToken() {
     long curTime = System.currentTimeMillis();
+    if (_LOCAL_LAST_UPDATED.get() == null) {
+      // No request made by this thread yet
+      return;
+    }
     if (curTime - _LOCAL_LAST_UPDATED.get() > _LOCAL_UPDATE_INTERVAL.get()) {
       logger.info("Executor " + _LOCAL_THREAD_ID.get() + " updates its AuthenticatedToken.");
       _LOCAL_AUTH_TOKEN.set(new AuthenticatedURL.Token());
-      _LOCAL_AUTH_URL.set(new AuthenticatedURL());
+      _LOCAL_AUTH_URL.set(HttpConnectionPool.newAuthenticatedURL());
       _LOCAL_LAST_UPDATED.set(curTime);
     }
   }
@@ -18,15 +18,14 @@ package com.linkedin.drelephant.mapreduce.heuristics;
 
 import com.linkedin.drelephant.configurations.heuristic.HeuristicConfigurationData;
 import com.linkedin.drelephant.util.Utils;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import com.linkedin.drelephant.analysis.Heuristic;
 import com.linkedin.drelephant.analysis.HeuristicResult;
 import com.linkedin.drelephant.analysis.Severity;
 import com.linkedin.drelephant.mapreduce.data.MapReduceCounterData;
 import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
-import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskMetrics;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskSketches;
 import com.linkedin.drelephant.math.Statistics;
 import java.util.Map;
 import org.apache.log4j.Logger;
@@ -76,7 +75,12 @@ public abstract class GenericGCHeuristic implements Heuristic<MapReduceApplicati
     loadParameters();
   }
 
-  protected abstract MapReduceTaskData[] getTasks(MapReduceApplicationData data);
+  protected abstract MapReduceTaskMetrics getMetrics(MapReduceApplicationData data);
+
+  /**
+   * @return the sketches of all the tasks, or null if the tasks of the metrics are all the tasks
+   */
+  protected abstract MapReduceTaskSketches getSketches(MapReduceApplicationData data);
 
   @Override
   public HeuristicConfigurationData getHeuristicConfData() {
@@ -90,35 +94,36 @@ public abstract class GenericGCHeuristic implements Heuristic<MapReduceApplicati
       return null;
     }
 
-    MapReduceTaskData[] tasks = getTasks(data);
-    List<Long> gcMs = new ArrayList<Long>();
-    List<Long> cpuMs = new ArrayList<Long>();
-    List<Long> runtimesMs = new ArrayList<Long>();
-
-    for (MapReduceTaskData task : tasks) {
-      if (task.isTimeAndCounterDataPresent()) {
-        runtimesMs.add(task.getTotalRunTimeMs());
-        gcMs.add(task.getCounters().get(MapReduceCounterData.CounterName.GC_MILLISECONDS));
-        cpuMs.add(task.getCounters().get(MapReduceCounterData.CounterName.CPU_MILLISECONDS));
-      }
+    MapReduceTaskMetrics metrics = getMetrics(data);
+    MapReduceTaskSketches sketches = getSketches(data);
+    int numTasks = sketches == null ? metrics.getTaskCount() : sketches.getTaskCount();
+    long avgRuntimeMs;
+    long avgCpuMs;
+    long avgGcMs;
+
+    if (sketches != null) {
+      avgRuntimeMs = Statistics.average(sketches.getRuntimeSketch());
+      avgCpuMs = Statistics.average(sketches.getCounterSketch(MapReduceCounterData.CounterName.CPU_MILLISECONDS));
+      avgGcMs = Statistics.average(sketches.getCounterSketch(MapReduceCounterData.CounterName.GC_MILLISECONDS));
+    } else {
+      int count = metrics.getTimeAndCounterCount();
+      avgRuntimeMs = Statistics.average(metrics.getTimeAndCounterRuntimesMs(), count);
+      avgCpuMs = Statistics.average(metrics.getCpuTimesMs(), count);
+      avgGcMs = Statistics.average(metrics.getGcTimesMs(), count);
     }
-
-    long avgRuntimeMs = Statistics.average(runtimesMs);
-    long avgCpuMs = Statistics.average(cpuMs);
-    long avgGcMs = Statistics.average(gcMs);
     double ratio = avgCpuMs != 0 ? avgGcMs*(1.0)/avgCpuMs: 0;
 
     Severity severity;
-    if (tasks.length == 0) {
+    if (numTasks == 0) {
       severity = Severity.NONE;
     } else {
       severity = getGcRatioSeverity(avgRuntimeMs, avgCpuMs, avgGcMs);
     }
 
     HeuristicResult result = new HeuristicResult(_heuristicConfData.getClassName(),
-        _heuristicConfData.getHeuristicName(), severity, Utils.getHeuristicScore(severity, tasks.length));
+        _heuristicConfData.getHeuristicName(), severity, Utils.getHeuristicScore(severity, numTasks));
 
-    result.addResultDetail("Number of tasks", Integer.toString(tasks.length));
+    result.addResultDetail("Number of tasks", Integer.toString(numTasks));
     result.addResultDetail("Avg task runtime (ms)", Long.toString(avgRuntimeMs));
     result.addResultDetail("Avg task CPU time (ms)", Long.toString(avgCpuMs));
     result.addResultDetail("Avg task GC time (ms)", Long.toString(avgGcMs));
@@ -18,15 +18,15 @@ package com.linkedin.drelephant.mapreduce.heuristics;
 
 import com.linkedin.drelephant.configurations.heuristic.HeuristicConfigurationData;
 import com.linkedin.drelephant.util.Utils;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import com.linkedin.drelephant.analysis.Heuristic;
 import com.linkedin.drelephant.analysis.HeuristicResult;
 import com.linkedin.drelephant.analysis.Severity;
 import com.linkedin.drelephant.mapreduce.data.MapReduceCounterData;
 import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
-import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskMetrics;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskSketches;
+import com.linkedin.drelephant.math.QuantileSketch;
 import com.linkedin.drelephant.math.Statistics;
 
 import java.util.Map;
@@ -100,7 +100,12 @@ public abstract class GenericMemoryHeuristic implements Heuristic<MapReduceAppli
     loadParameters();
   }
 
-  protected abstract MapReduceTaskData[] getTasks(MapReduceApplicationData data);
+  protected abstract MapReduceTaskMetrics getMetrics(MapReduceApplicationData data);
+
+  /**
+   * @return the sketches of all the tasks, or null if the tasks of the metrics are all the tasks
+   */
+  protected abstract MapReduceTaskSketches getSketches(MapReduceApplicationData data);
 
   @Override
   public HeuristicConfigurationData getHeuristicConfData() {
@@ -142,43 +147,53 @@ public abstract class GenericMemoryHeuristic implements Heuristic<MapReduceAppli
     }
     containerMem *= FileUtils.ONE_MB;
 
-    MapReduceTaskData[] tasks = getTasks(data);
-    List<Long> taskPMems = new ArrayList<Long>();
-    List<Long> taskVMems = new ArrayList<Long>();
-    List<Long> runtimesMs = new ArrayList<Long>();
+    MapReduceTaskMetrics metrics = getMetrics(data);
+    MapReduceTaskSketches sketches = getSketches(data);
+    int numTasks = sketches == null ? metrics.getTaskCount() : sketches.getTaskCount();
     long taskPMin = Long.MAX_VALUE;
     long taskPMax = 0;
-    for (MapReduceTaskData task : tasks) {
-      if (task.isTimeAndCounterDataPresent()) {
-        runtimesMs.add(task.getTotalRunTimeMs());
-        long taskPMem = task.getCounters().get(MapReduceCounterData.CounterName.PHYSICAL_MEMORY_BYTES);
-        long taskVMem = task.getCounters().get(MapReduceCounterData.CounterName.VIRTUAL_MEMORY_BYTES);
-        taskPMems.add(taskPMem);
-        taskPMin = Math.min(taskPMin, taskPMem);
-        taskPMax = Math.max(taskPMax, taskPMem);
-        taskVMems.add(taskVMem);
+    long taskPMemAvg;
+    long taskVMemAvg;
+    long averageTimeMs;
+
+    if (sketches != null) {
+      QuantileSketch taskPMems = sketches.getCounterSketch(MapReduceCounterData.CounterName.PHYSICAL_MEMORY_BYTES);
+      if (taskPMems.getCount() > 0) {
+        taskPMin = taskPMems.getMin();
+        taskPMax = taskPMems.getMax();
+      }
+      taskPMemAvg = Statistics.average(taskPMems);
+      taskVMemAvg =
+          Statistics.average(sketches.getCounterSketch(MapReduceCounterData.CounterName.VIRTUAL_MEMORY_BYTES));
+      averageTimeMs = Statistics.average(sketches.getRuntimeSketch());
+    } else {
+      int count = metrics.getTimeAndCounterCount();
+      long[] taskPMems = metrics.getPhysicalMemoryBytes();
+      for (int i = 0; i < count; i++) {
+        taskPMin = Math.min(taskPMin, taskPMems[i]);
+        taskPMax = Math.max(taskPMax, taskPMems[i]);
       }
+
+      taskPMemAvg = Statistics.average(taskPMems, count);
+      taskVMemAvg = Statistics.average(metrics.getVirtualMemoryBytes(), count);
+      averageTimeMs = Statistics.average(metrics.getTimeAndCounterRuntimesMs(), count);
     }
 
     if(taskPMin == Long.MAX_VALUE) {
       taskPMin = 0;
     }
 
-    long taskPMemAvg = Statistics.average(taskPMems);
-    long taskVMemAvg = Statistics.average(taskVMems);
-    long averageTimeMs = Statistics.average(runtimesMs);
-
     Severity severity;
-    if (tasks.length == 0) {
+    if (numTasks == 0) {
       severity = Severity.NONE;
     } else {
       severity = getTaskMemoryUtilSeverity(taskPMemAvg, containerMem);
     }
 
     HeuristicResult result = new HeuristicResult(_heuristicConfData.getClassName(),
-        _heuristicConfData.getHeuristicName(), severity, Utils.getHeuristicScore(severity, tasks.length));
+        _heuristicConfData.getHeuristicName(), severity, Utils.getHeuristicScore(severity, numTasks));
 
-    result.addResultDetail("Number of tasks", Integer.toString(tasks.length));
+    result.addResultDetail("Number of tasks", Integer.toString(numTasks));
     result.addResultDetail("Avg task runtime", Statistics.readableTimespan(averageTimeMs));
     result.addResultDetail("Avg Physical Memory (MB)", Long.toString(taskPMemAvg / FileUtils.ONE_MB));
     result.addResultDetail("Max Physical Memory (MB)", Long.toString(taskPMax / FileUtils.ONE_MB));
@@ -16,21 +16,21 @@
 
 package com.linkedin.drelephant.mapreduce.heuristics;
 
-import com.google.common.primitives.Longs;
 import com.linkedin.drelephant.analysis.HDFSContext;
 import com.linkedin.drelephant.analysis.Heuristic;
 import com.linkedin.drelephant.analysis.HeuristicResult;
 import com.linkedin.drelephant.analysis.Severity;
 import com.linkedin.drelephant.mapreduce.data.MapReduceCounterData;
 import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
-import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskMetrics;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskSketches;
+import com.linkedin.drelephant.math.QuantileSketch;
 import com.linkedin.drelephant.math.Statistics;
 
 import com.linkedin.drelephant.configurations.heuristic.HeuristicConfigurationData;
 import com.linkedin.drelephant.util.Utils;
 
 import java.util.Arrays;
-import java.util.ArrayList;
 import java.util.Map;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -97,7 +97,17 @@ public abstract class GenericSkewHeuristic implements Heuristic<MapReduceApplica
     loadParameters();
   }
 
-  protected abstract MapReduceTaskData[] getTasks(MapReduceApplicationData data);
+  protected abstract MapReduceTaskMetrics getMetrics(MapReduceApplicationData data);
+
+  /**
+   * @return the sizes of the data of the tasks with counter data, the sum of the counters of the heuristic
+   */
+  protected abstract long[] getDataSizes(MapReduceTaskMetrics metrics);
+
+  /**
+   * @return the sketches of all the tasks, or null if the tasks of the metrics are all the tasks
+   */
+  protected abstract MapReduceTaskSketches getSketches(MapReduceApplicationData data);
 
   @Override
   public HeuristicConfigurationData getHeuristicConfData() {
@@ -111,21 +121,20 @@ public abstract class GenericSkewHeuristic implements Heuristic<MapReduceApplica
       return null;
     }
 
-    MapReduceTaskData[] tasks = getTasks(data);
+    MapReduceTaskMetrics metrics = getMetrics(data);
+    // The groups are found among all the tasks when they were sketched, the sampled tasks otherwise
+    MapReduceTaskSketches sketches = getSketches(data);
+    int numTasks = sketches == null ? metrics.getTaskCount() : sketches.getTaskCount();
 
-    //Gathering data for checking time skew
-    List<Long> timeTaken = new ArrayList<Long>();
-
-    for (int i = 0; i < tasks.length; i++) {
-      if (tasks[i].isTimeDataPresent()) {
-        timeTaken.add(tasks[i].getTotalRunTimeMs());
-      }
+    Statistics.Group[] groupsTime;
+    if (sketches != null) {
+      groupsTime = Statistics.findTwoGroups(sketches.getRuntimeSketch());
+    } else {
+      groupsTime = Statistics.findTwoGroups(metrics.getRuntimesMs(), metrics.getTimeCount());
     }
 
-    long[][] groupsTime = Statistics.findTwoGroups(Longs.toArray(timeTaken));
-
-    long timeAvg1 = Statistics.average(groupsTime[0]);
-    long timeAvg2 = Statistics.average(groupsTime[1]);
+    long timeAvg1 = groupsTime[0].getAverage();
+    long timeAvg2 = groupsTime[1].getAverage();
 
     //seconds are used for calculating deviation as they provide a better idea than millisecond.
     long timeAvgSec1 = TimeUnit.MILLISECONDS.toSeconds(timeAvg1);
@@ -139,29 +148,19 @@ public abstract class GenericSkewHeuristic implements Heuristic<MapReduceApplica
 
     //This reduces severity if number of tasks is insignificant
     severityTime = Severity.min(severityTime,
-        Severity.getSeverityAscending(groupsTime[0].length, numTasksLimits[0], numTasksLimits[1], numTasksLimits[2],
-            numTasksLimits[3]));
-
-    //Gather data
-    List<Long> inputBytes = new ArrayList<Long>();
-
-    for (int i = 0; i < tasks.length; i++) {
-      if (tasks[i].isCounterDataPresent()) {
-        long inputByte = 0;
-        for (MapReduceCounterData.CounterName counterName : _counterNames) {
-          inputByte += tasks[i].getCounters().get(counterName);
-        }
-        inputBytes.add(inputByte);
-      }
+        Severity.getSeverityAscending(groupsTime[0].getCount(), numTasksLimits[0], numTasksLimits[1],
+            numTasksLimits[2], numTasksLimits[3]));
+
+    Statistics.Group[] groups;
+    QuantileSketch inputSketch = sketches == null ? null : getInputSketch(sketches);
+    if (inputSketch != null) {
+      groups = Statistics.findTwoGroups(inputSketch);
+    } else {
+      groups = Statistics.findTwoGroups(getDataSizes(metrics), metrics.getCounterCount());
     }
 
-    // Ratio of total tasks / sampled tasks
-    double scale = ((double) tasks.length) / inputBytes.size();
-    //Analyze data. TODO: This is a temp fix. findTwogroups should support list as input
-    long[][] groups = Statistics.findTwoGroups(Longs.toArray(inputBytes));
-
-    long avg1 = Statistics.average(groups[0]);
-    long avg2 = Statistics.average(groups[1]);
+    long avg1 = groups[0].getAverage();
+    long avg2 = groups[1].getAverage();
 
     long min = Math.min(avg1, avg2);
     long diff = Math.abs(avg2 - avg1);
@@ -173,30 +172,49 @@ public abstract class GenericSkewHeuristic implements Heuristic<MapReduceApplica
 
     //This reduces severity if number of tasks is insignificant
     severityData = Severity.min(severityData,
-        Severity.getSeverityAscending(groups[0].length, numTasksLimits[0], numTasksLimits[1], numTasksLimits[2],
+        Severity.getSeverityAscending(groups[0].getCount(), numTasksLimits[0], numTasksLimits[1], numTasksLimits[2],
             numTasksLimits[3]));
 
     Severity severity = Severity.max(severityData, severityTime);
 
     HeuristicResult result =
         new HeuristicResult(_heuristicConfData.getClassName(), _heuristicConfData.getHeuristicName(), severity,
-            Utils.getHeuristicScore(severityData, tasks.length));
+            Utils.getHeuristicScore(severityData, numTasks));
 
-    result.addResultDetail("Data skew (Number of tasks)", Integer.toString(tasks.length));
+    result.addResultDetail("Data skew (Number of tasks)", Integer.toString(numTasks));
     result.addResultDetail("Data skew (Group A)",
-        groups[0].length + " tasks @ " + FileUtils.byteCountToDisplaySize(avg1) + " avg");
+        groups[0].getCount() + " tasks @ " + FileUtils.byteCountToDisplaySize(avg1) + " avg");
     result.addResultDetail("Data skew (Group B)",
-        groups[1].length + " tasks @ " + FileUtils.byteCountToDisplaySize(avg2) + " avg");
+        groups[1].getCount() + " tasks @ " + FileUtils.byteCountToDisplaySize(avg2) + " avg");
 
-    result.addResultDetail("Time skew (Number of tasks)", Integer.toString(tasks.length));
+    result.addResultDetail("Time skew (Number of tasks)", Integer.toString(numTasks));
     result.addResultDetail("Time skew (Group A)",
-        groupsTime[0].length + " tasks @ " + convertTimeMs(timeAvg1) + " avg");
+        groupsTime[0].getCount() + " tasks @ " + convertTimeMs(timeAvg1) + " avg");
     result.addResultDetail("Time skew (Group B)",
-        groupsTime[1].length + " tasks @ " + convertTimeMs(timeAvg2) + " avg");
+        groupsTime[1].getCount() + " tasks @ " + convertTimeMs(timeAvg2) + " avg");
 
     return result;
   }
 
+  /**
+   * The sketch of the sum of the counters of the tasks can only be told from the sketches of the counters when the
+   * tasks have at most one of the counters, e.g. they all read from HDFS.
+   *
+   * @return the sketch of the only counter with values, or null if there are several
+   */
+  private QuantileSketch getInputSketch(MapReduceTaskSketches sketches) {
+    QuantileSketch inputSketch = null;
+    for (MapReduceCounterData.CounterName counterName : _counterNames) {
+      QuantileSketch sketch = sketches.getCounterSketch(counterName);
+      if (inputSketch == null || inputSketch.getSum() == 0) {
+        inputSketch = sketch;
+      } else if (sketch.getSum() != 0) {
+        return null;
+      }
+    }
+    return inputSketch;
+  }
+
   private String convertTimeMs(long timeMs) {
     if (timeMs < 1000) {
       return Long.toString(timeMs) + " msec";
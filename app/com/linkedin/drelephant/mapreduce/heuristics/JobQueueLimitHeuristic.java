@@ -17,11 +17,9 @@
 package com.linkedin.drelephant.mapreduce.heuristics;
 
 import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
-import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskMetrics;
 import com.linkedin.drelephant.configurations.heuristic.HeuristicConfigurationData;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 
@@ -57,14 +55,14 @@ public class JobQueueLimitHeuristic implements Heuristic<MapReduceApplicationDat
     }
 
     // Compute severity if job is submitted to default queue else set severity to NONE.
-    MapReduceTaskData[] mapTasks = data.getMapperData();
-    MapReduceTaskData[] redTasks = data.getReducerData();
-    Severity[] mapTasksSeverity = new Severity[mapTasks.length];
-    Severity[] redTasksSeverity = new Severity[redTasks.length];
+    MapReduceTaskMetrics mapTasks = data.getMapperMetrics();
+    MapReduceTaskMetrics redTasks = data.getReducerMetrics();
+    Severity[] mapTasksSeverity;
+    Severity[] redTasksSeverity;
     if (queueName.equals("default")) {
       result.addResultDetail("Queue: ", queueName, null);
-      result.addResultDetail("Number of Map tasks", Integer.toString(mapTasks.length));
-      result.addResultDetail("Number of Reduce tasks", Integer.toString(redTasks.length));
+      result.addResultDetail("Number of Map tasks", Integer.toString(mapTasks.getTaskCount()));
+      result.addResultDetail("Number of Reduce tasks", Integer.toString(redTasks.getTaskCount()));
 
       // Calculate Severity of Mappers
       mapTasksSeverity = getTasksSeverity(mapTasks, queueTimeoutLimitMs);
@@ -90,14 +88,13 @@ public class JobQueueLimitHeuristic implements Heuristic<MapReduceApplicationDat
     return result;
   }
 
-  private Severity[] getTasksSeverity(MapReduceTaskData[] tasks, long queueTimeout) {
-    List<Severity> taskSeverityList = new ArrayList<Severity>();
-    for (MapReduceTaskData task : tasks) {
-      if (task.isTimeDataPresent()) {
-        taskSeverityList.add(getQueueLimitSeverity(task.getTotalRunTimeMs(), queueTimeout));
-      }
+  private Severity[] getTasksSeverity(MapReduceTaskMetrics tasks, long queueTimeout) {
+    long[] runtimesMs = tasks.getRuntimesMs();
+    Severity[] tasksSeverity = new Severity[tasks.getTimeCount()];
+    for (int i = 0; i < tasksSeverity.length; i++) {
+      tasksSeverity[i] = getQueueLimitSeverity(runtimesMs[i], queueTimeout);
     }
-    return taskSeverityList.toArray(new Severity[taskSeverityList.size()]);
+    return tasksSeverity;
   }
 
   private long getSeverityFrequency(Severity severity, Severity[] tasksSeverity) {
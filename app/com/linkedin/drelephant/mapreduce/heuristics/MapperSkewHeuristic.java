@@ -16,13 +16,11 @@
 
 package com.linkedin.drelephant.mapreduce.heuristics;
 
-import com.linkedin.drelephant.mapreduce.data.MapReduceCounterData;
 import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
-import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskMetrics;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskSketches;
 import com.linkedin.drelephant.configurations.heuristic.HeuristicConfigurationData;
 
-import java.util.Arrays;
-
 
 /**
  * This Heuristic analyses the skewness in the mapper input data
@@ -30,16 +28,21 @@ import java.util.Arrays;
 public class MapperSkewHeuristic extends GenericSkewHeuristic {
 
   public MapperSkewHeuristic(HeuristicConfigurationData heuristicConfData) {
-    super(Arrays.asList(
-        MapReduceCounterData.CounterName.HDFS_BYTES_READ,
-        MapReduceCounterData.CounterName.S3_BYTES_READ,
-        MapReduceCounterData.CounterName.S3A_BYTES_READ,
-        MapReduceCounterData.CounterName.S3N_BYTES_READ
-    ), heuristicConfData);
+    super(MapReduceTaskMetrics.INPUT_BYTES_COUNTERS, heuristicConfData);
+  }
+
+  @Override
+  protected MapReduceTaskMetrics getMetrics(MapReduceApplicationData data) {
+    return data.getMapperMetrics();
+  }
+
+  @Override
+  protected long[] getDataSizes(MapReduceTaskMetrics metrics) {
+    return metrics.getInputBytes();
   }
 
   @Override
-  protected MapReduceTaskData[] getTasks(MapReduceApplicationData data) {
-    return data.getMapperData();
+  protected MapReduceTaskSketches getSketches(MapReduceApplicationData data) {
+    return data.getMapperSketches();
   }
 }
@@ -17,19 +17,16 @@
 package com.linkedin.drelephant.mapreduce.heuristics;
 
 import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
-import com.linkedin.drelephant.mapreduce.data.MapReduceCounterData;
 
 import com.linkedin.drelephant.configurations.heuristic.HeuristicConfigurationData;
 import com.linkedin.drelephant.util.Utils;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 import com.linkedin.drelephant.analysis.HDFSContext;
 import com.linkedin.drelephant.analysis.Heuristic;
 import com.linkedin.drelephant.analysis.HeuristicResult;
 import com.linkedin.drelephant.analysis.Severity;
-import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskMetrics;
 import com.linkedin.drelephant.math.Statistics;
 
 import java.util.Map;
@@ -48,13 +45,6 @@ public class MapperSpeedHeuristic implements Heuristic<MapReduceApplicationData>
   private double[] diskSpeedLimits = {1d/2, 1d/4, 1d/8, 1d/32};  // Fraction of HDFS block size
   private double[] runtimeLimits = {5, 10, 15, 30};              // The Map task runtime in milli sec
 
-  private List<MapReduceCounterData.CounterName> _counterNames = Arrays.asList(
-      MapReduceCounterData.CounterName.HDFS_BYTES_READ,
-      MapReduceCounterData.CounterName.S3_BYTES_READ,
-      MapReduceCounterData.CounterName.S3A_BYTES_READ,
-      MapReduceCounterData.CounterName.S3N_BYTES_READ
-  );
-
   private HeuristicConfigurationData _heuristicConfData;
 
   private void loadParameters() {
@@ -99,35 +89,28 @@ public class MapperSpeedHeuristic implements Heuristic<MapReduceApplicationData>
       return null;
     }
 
-    MapReduceTaskData[] tasks = data.getMapperData();
-
-    List<Long> inputByteSizes = new ArrayList<Long>();
-    List<Long> speeds = new ArrayList<Long>();
-    List<Long> runtimesMs = new ArrayList<Long>();
-
-    for (MapReduceTaskData task : tasks) {
-
-      if (task.isTimeAndCounterDataPresent()) {
-        long inputBytes = 0;
-        for (MapReduceCounterData.CounterName counterName: _counterNames) {
-          inputBytes += task.getCounters().get(counterName);
-        }
-        long runtimeMs = task.getTotalRunTimeMs();
-        inputByteSizes.add(inputBytes);
-        runtimesMs.add(runtimeMs);
-        //Speed is bytes per second
-        speeds.add((1000 * inputBytes) / (runtimeMs));
-      }
+    MapReduceTaskMetrics metrics = data.getMapperMetrics();
+    int numTasks = metrics.getTaskCount();
+    int count = metrics.getTimeAndCounterCount();
+
+    // Copies, as the medians reorder the values
+    long[] inputByteSizes = Arrays.copyOf(metrics.getTimeAndCounterInputBytes(), count);
+    long[] runtimesMs = Arrays.copyOf(metrics.getTimeAndCounterRuntimesMs(), count);
+    long[] speeds = new long[count];
+
+    for (int i = 0; i < count; i++) {
+      //Speed is bytes per second
+      speeds[i] = (1000 * inputByteSizes[i]) / (runtimesMs[i]);
     }
 
     long medianSpeed;
     long medianSize;
     long medianRuntimeMs;
 
-    if (tasks.length != 0) {
-      medianSpeed = Statistics.median(speeds);
-      medianSize = Statistics.median(inputByteSizes);
-      medianRuntimeMs = Statistics.median(runtimesMs);
+    if (numTasks != 0) {
+      medianSpeed = Statistics.median(speeds, count);
+      medianSize = Statistics.median(inputByteSizes, count);
+      medianRuntimeMs = Statistics.median(runtimesMs, count);
     } else {
       medianSpeed = 0;
       medianSize = 0;
@@ -140,9 +123,9 @@ public class MapperSpeedHeuristic implements Heuristic<MapReduceApplicationData>
     severity = Severity.min(severity, getRuntimeSeverity(medianRuntimeMs));
 
     HeuristicResult result = new HeuristicResult(_heuristicConfData.getClassName(),
-        _heuristicConfData.getHeuristicName(), severity, Utils.getHeuristicScore(severity, tasks.length));
+        _heuristicConfData.getHeuristicName(), severity, Utils.getHeuristicScore(severity, numTasks));
 
-    result.addResultDetail("Number of tasks", Integer.toString(tasks.length));
+    result.addResultDetail("Number of tasks", Integer.toString(numTasks));
     result.addResultDetail("Median task input size", FileUtils.byteCountToDisplaySize(medianSize));
     result.addResultDetail("Median task runtime", Statistics.readableTimespan(medianRuntimeMs));
     result.addResultDetail("Median task speed", FileUtils.byteCountToDisplaySize(medianSpeed) + "/s");
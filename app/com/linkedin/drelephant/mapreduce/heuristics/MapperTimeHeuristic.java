@@ -17,17 +17,14 @@
 package com.linkedin.drelephant.mapreduce.heuristics;
 
 import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
-import com.linkedin.drelephant.mapreduce.data.MapReduceCounterData;
 import com.linkedin.drelephant.configurations.heuristic.HeuristicConfigurationData;
 import com.linkedin.drelephant.util.Utils;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 import com.linkedin.drelephant.analysis.Heuristic;
 import com.linkedin.drelephant.analysis.HeuristicResult;
 import com.linkedin.drelephant.analysis.Severity;
-import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskMetrics;
 import com.linkedin.drelephant.math.Statistics;
 
 import java.util.Map;
@@ -48,13 +45,6 @@ public class MapperTimeHeuristic implements Heuristic<MapReduceApplicationData>
   private double[] longRuntimeLimits = {15, 30, 60, 120};  // Limits(ms) for tasks with longer runtime
   private double[] numTasksLimits = {50, 101, 500, 1000};  // Number of Map tasks.
 
-  private List<MapReduceCounterData.CounterName> _counterNames = Arrays.asList(
-      MapReduceCounterData.CounterName.HDFS_BYTES_READ,
-      MapReduceCounterData.CounterName.S3_BYTES_READ,
-      MapReduceCounterData.CounterName.S3A_BYTES_READ,
-      MapReduceCounterData.CounterName.S3N_BYTES_READ
-  );
-
   private HeuristicConfigurationData _heuristicConfData;
 
   private void loadParameters() {
@@ -106,43 +96,34 @@ public class MapperTimeHeuristic implements Heuristic<MapReduceApplicationData>
       return null;
     }
 
-    MapReduceTaskData[] tasks = data.getMapperData();
+    MapReduceTaskMetrics metrics = data.getMapperMetrics();
+    int numTasks = metrics.getTaskCount();
+    int count = metrics.getTimeAndCounterCount();
+    long[] runtimesMs = metrics.getTimeAndCounterRuntimesMs();
 
-    List<Long> inputBytes = new ArrayList<Long>();
-    List<Long> runtimesMs = new ArrayList<Long>();
     long taskMinMs = Long.MAX_VALUE;
     long taskMaxMs = 0;
 
-    for (MapReduceTaskData task : tasks) {
-
-      if (task.isTimeAndCounterDataPresent()) {
-        long inputByte = 0;
-        for (MapReduceCounterData.CounterName counterName: _counterNames) {
-          inputByte += task.getCounters().get(counterName);
-        }
-        inputBytes.add(inputByte);
-        long taskTime = task.getTotalRunTimeMs();
-        runtimesMs.add(taskTime);
-        taskMinMs = Math.min(taskMinMs, taskTime);
-        taskMaxMs = Math.max(taskMaxMs, taskTime);
-      }
+    for (int i = 0; i < count; i++) {
+      taskMinMs = Math.min(taskMinMs, runtimesMs[i]);
+      taskMaxMs = Math.max(taskMaxMs, runtimesMs[i]);
     }
 
     if(taskMinMs == Long.MAX_VALUE) {
       taskMinMs = 0;
     }
 
-    long averageSize = Statistics.average(inputBytes);
-    long averageTimeMs = Statistics.average(runtimesMs);
+    long averageSize = Statistics.average(metrics.getTimeAndCounterInputBytes(), count);
+    long averageTimeMs = Statistics.average(runtimesMs, count);
 
-    Severity shortTaskSeverity = shortTaskSeverity(tasks.length, averageTimeMs);
-    Severity longTaskSeverity = longTaskSeverity(tasks.length, averageTimeMs);
+    Severity shortTaskSeverity = shortTaskSeverity(numTasks, averageTimeMs);
+    Severity longTaskSeverity = longTaskSeverity(numTasks, averageTimeMs);
     Severity severity = Severity.max(shortTaskSeverity, longTaskSeverity);
 
     HeuristicResult result = new HeuristicResult(_heuristicConfData.getClassName(),
-        _heuristicConfData.getHeuristicName(), severity, Utils.getHeuristicScore(severity, tasks.length));
+        _heuristicConfData.getHeuristicName(), severity, Utils.getHeuristicScore(severity, numTasks));
 
-    result.addResultDetail("Number of tasks", Integer.toString(tasks.length));
+    result.addResultDetail("Number of tasks", Integer.toString(numTasks));
     result.addResultDetail("Average task input size", FileUtils.byteCountToDisplaySize(averageSize));
     result.addResultDetail("Average task runtime", Statistics.readableTimespan(averageTimeMs));
     result.addResultDetail("Max task runtime", Statistics.readableTimespan(taskMaxMs));
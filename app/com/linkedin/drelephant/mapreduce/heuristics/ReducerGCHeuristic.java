@@ -17,7 +17,8 @@
 package com.linkedin.drelephant.mapreduce.heuristics;
 
 import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
-import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskMetrics;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskSketches;
 import com.linkedin.drelephant.configurations.heuristic.HeuristicConfigurationData;
 
 
@@ -28,7 +29,12 @@ public class ReducerGCHeuristic extends GenericGCHeuristic {
   }
 
   @Override
-  protected MapReduceTaskData[] getTasks(MapReduceApplicationData data) {
-    return data.getReducerData();
+  protected MapReduceTaskMetrics getMetrics(MapReduceApplicationData data) {
+    return data.getReducerMetrics();
+  }
+
+  @Override
+  protected MapReduceTaskSketches getSketches(MapReduceApplicationData data) {
+    return data.getReducerSketches();
   }
 }
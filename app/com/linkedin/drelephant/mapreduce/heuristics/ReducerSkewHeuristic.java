@@ -18,7 +18,8 @@ package com.linkedin.drelephant.mapreduce.heuristics;
 
 import com.linkedin.drelephant.mapreduce.data.MapReduceCounterData;
 import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
-import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskMetrics;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskSketches;
 import com.linkedin.drelephant.configurations.heuristic.HeuristicConfigurationData;
 
 import java.util.Arrays;
@@ -35,7 +36,17 @@ public class ReducerSkewHeuristic extends GenericSkewHeuristic {
   }
 
   @Override
-  protected MapReduceTaskData[] getTasks(MapReduceApplicationData data) {
-    return data.getReducerData();
+  protected MapReduceTaskMetrics getMetrics(MapReduceApplicationData data) {
+    return data.getReducerMetrics();
+  }
+
+  @Override
+  protected long[] getDataSizes(MapReduceTaskMetrics metrics) {
+    return metrics.getShuffleBytes();
+  }
+
+  @Override
+  protected MapReduceTaskSketches getSketches(MapReduceApplicationData data) {
+    return data.getReducerSketches();
   }
 }
@@ -17,12 +17,10 @@
 package com.linkedin.drelephant.mapreduce.heuristics;
 
 import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
-import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskMetrics;
 import com.linkedin.drelephant.configurations.heuristic.HeuristicConfigurationData;
 import com.linkedin.drelephant.util.Utils;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 import com.linkedin.drelephant.analysis.Heuristic;
 import com.linkedin.drelephant.analysis.HeuristicResult;
@@ -97,19 +95,15 @@ public class ReducerTimeHeuristic implements Heuristic<MapReduceApplicationData>
       return null;
     }
 
-    MapReduceTaskData[] tasks = data.getReducerData();
-
-    List<Long> runTimesMs = new ArrayList<Long>();
+    MapReduceTaskMetrics metrics = data.getReducerMetrics();
+    int numTasks = metrics.getTaskCount();
+    long[] runTimesMs = metrics.getRuntimesMs();
     long taskMinMs = Long.MAX_VALUE;
     long taskMaxMs = 0;
 
-    for (MapReduceTaskData task : tasks) {
-      if (task.isTimeDataPresent()) {
-        long taskTime = task.getTotalRunTimeMs();
-        runTimesMs.add(taskTime);
-        taskMinMs = Math.min(taskMinMs, taskTime);
-        taskMaxMs = Math.max(taskMaxMs, taskTime);
-      }
+    for (int i = 0; i < metrics.getTimeCount(); i++) {
+      taskMinMs = Math.min(taskMinMs, runTimesMs[i]);
+      taskMaxMs = Math.max(taskMaxMs, runTimesMs[i]);
     }
 
     if(taskMinMs == Long.MAX_VALUE) {
@@ -117,16 +111,16 @@ public class ReducerTimeHeuristic implements Heuristic<MapReduceApplicationData>
     }
 
     //Analyze data
-    long averageRuntimeMs = Statistics.average(runTimesMs);
+    long averageRuntimeMs = Statistics.average(runTimesMs, metrics.getTimeCount());
 
-    Severity shortTimeSeverity = shortTimeSeverity(averageRuntimeMs, tasks.length);
-    Severity longTimeSeverity = longTimeSeverity(averageRuntimeMs, tasks.length);
+    Severity shortTimeSeverity = shortTimeSeverity(averageRuntimeMs, numTasks);
+    Severity longTimeSeverity = longTimeSeverity(averageRuntimeMs, numTasks);
     Severity severity = Severity.max(shortTimeSeverity, longTimeSeverity);
 
     HeuristicResult result = new HeuristicResult(_heuristicConfData.getClassName(),
-        _heuristicConfData.getHeuristicName(), severity, Utils.getHeuristicScore(severity, tasks.length));
+        _heuristicConfData.getHeuristicName(), severity, Utils.getHeuristicScore(severity, numTasks));
 
-    result.addResultDetail("Number of tasks", Integer.toString(tasks.length));
+    result.addResultDetail("Number of tasks", Integer.toString(numTasks));
     result.addResultDetail("Average task runtime", Statistics.readableTimespan(averageRuntimeMs));
     result.addResultDetail("Max task runtime", Statistics.readableTimespan(taskMaxMs));
     result.addResultDetail("Min task runtime", Statistics.readableTimespan(taskMinMs));
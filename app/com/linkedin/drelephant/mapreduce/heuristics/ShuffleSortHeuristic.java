@@ -19,14 +19,12 @@ package com.linkedin.drelephant.mapreduce.heuristics;
 import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
 import com.linkedin.drelephant.configurations.heuristic.HeuristicConfigurationData;
 import com.linkedin.drelephant.util.Utils;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 import com.linkedin.drelephant.analysis.Heuristic;
 import com.linkedin.drelephant.analysis.HeuristicResult;
 import com.linkedin.drelephant.analysis.Severity;
-import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskMetrics;
 import com.linkedin.drelephant.math.Statistics;
 import java.util.Map;
 import org.apache.log4j.Logger;
@@ -87,33 +85,23 @@ public class ShuffleSortHeuristic implements Heuristic<MapReduceApplicationData>
       return null;
     }
 
-    MapReduceTaskData[] tasks = data.getReducerData();
-
-    List<Long> execTimeMs = new ArrayList<Long>();
-    List<Long> shuffleTimeMs = new ArrayList<Long>();
-    List<Long> sortTimeMs = new ArrayList<Long>();
-
-    for (MapReduceTaskData task : tasks) {
-      if (task.isTimeDataPresent()) {
-        execTimeMs.add(task.getCodeExecutionTimeMs());
-        shuffleTimeMs.add(task.getShuffleTimeMs());
-        sortTimeMs.add(task.getSortTimeMs());
-      }
-    }
+    MapReduceTaskMetrics metrics = data.getReducerMetrics();
+    int numTasks = metrics.getTaskCount();
+    int timeCount = metrics.getTimeCount();
 
     //Analyze data
-    long avgExecTimeMs = Statistics.average(execTimeMs);
-    long avgShuffleTimeMs = Statistics.average(shuffleTimeMs);
-    long avgSortTimeMs = Statistics.average(sortTimeMs);
+    long avgExecTimeMs = Statistics.average(metrics.getCodeExecutionTimesMs(), timeCount);
+    long avgShuffleTimeMs = Statistics.average(metrics.getShuffleTimesMs(), timeCount);
+    long avgSortTimeMs = Statistics.average(metrics.getSortTimesMs(), timeCount);
 
     Severity shuffleSeverity = getShuffleSortSeverity(avgShuffleTimeMs, avgExecTimeMs);
     Severity sortSeverity = getShuffleSortSeverity(avgSortTimeMs, avgExecTimeMs);
     Severity severity = Severity.max(shuffleSeverity, sortSeverity);
 
     HeuristicResult result = new HeuristicResult(_heuristicConfData.getClassName(),
-        _heuristicConfData.getHeuristicName(), severity, Utils.getHeuristicScore(severity, tasks.length));
+        _heuristicConfData.getHeuristicName(), severity, Utils.getHeuristicScore(severity, numTasks));
 
-    result.addResultDetail("Number of tasks", Integer.toString(data.getReducerData().length));
+    result.addResultDetail("Number of tasks", Integer.toString(numTasks));
     result.addResultDetail("Average code runtime", Statistics.readableTimespan(avgExecTimeMs));
     String shuffleFactor = Statistics.describeFactor(avgShuffleTimeMs, avgExecTimeMs, "x");
     result.addResultDetail("Average shuffle time", Statistics.readableTimespan(avgShuffleTimeMs) + " " + shuffleFactor);
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.math;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * A mergeable streaming sketch of the distribution of long values, in bounded memory, after the KLL sketch of Karnin,
+ * Lang and Liberty, "Optimal Quantile Approximation in Streams".
+ *
+ * The values are kept in levels, a value of level h standing for 2^h values. When a level is full, its values are
+ * sorted and every other one, from a random offset, is promoted to the next level, the others being dropped. The
+ * capacity of the levels decreases geometrically from the top level, of capacity k, so that about 3k values are kept
+ * whatever the number of values seen. The rank of a value is estimated with an error of about 1.7/k of the count.
+ *
+ * The count, sum, min and max are exact. The sketch is exact as long as fewer than k values are seen.
+ *
+ * A sketch is not thread safe.
+ */
+public class QuantileSketch {
+  public static final int DEFAULT_K = 200;
+
+  private static final double CAPACITY_RATIO = 2d / 3;
+  private static final int MIN_CAPACITY = 2;
+
+  private final int _k;
+  // Seeded, so that the same values give the same sketch
+  private final Random _random;
+  private long[][] _levels = new long[1][];
+  private int[] _sizes = new int[1];
+  private long _count = 0;
+  private long _sum = 0;
+  private long _min = Long.MAX_VALUE;
+  private long _max = Long.MIN_VALUE;
+
+  public QuantileSketch() {
+    this(DEFAULT_K);
+  }
+
+  /**
+   * @param k The capacity of the top level, driving the accuracy
+   */
+  public QuantileSketch(int k) {
+    if (k < MIN_CAPACITY) {
+      throw new IllegalArgumentException("The capacity of a sketch must be at least " + MIN_CAPACITY);
+    }
+    _k = k;
+    _random = new Random(k);
+    _levels[0] = new long[MIN_CAPACITY];
+  }
+
+  /**
+   * Adds a value.
+   */
+  public void update(long value) {
+    update(value, 1);
+  }
+
+  /**
+   * Adds a value several times.
+   *
+   * @param value The value
+   * @param count The number of times the value is added
+   */
+  public void update(long value, long count) {
+    if (count <= 0) {
+      return;
+    }
+    _count += count;
+    _sum += value * count;
+    _min = Math.min(_min, value);
+    _max = Math.max(_max, value);
+    // A value of level h stands for 2^h values
+    for (int level = 0; count != 0; level++, count >>>= 1) {
+      if ((count & 1) != 0) {
+        append(level, value);
+      }
+    }
+    compress();
+  }
+
+  /**
+   * Adds the values of another sketch, which is left unchanged.
+   */
+  public void merge(QuantileSketch other) {
+    if (other._count == 0) {
+      return;
+    }
+    _count += other._count;
+    _sum += other._sum;
+    _min = Math.min(_min, other._min);
+    _max = Math.max(_max, other._max);
+    for (int level = 0; level < other._sizes.length; level++) {
+      for (int i = 0; i < other._sizes[level]; i++) {
+        append(level, other._levels[level][i]);
+      }
+    }
+    compress();
+  }
+
+  /**
+   * @return the number of values seen
+   */
+  public long getCount() {
+    return _count;
+  }
+
+  /**
+   * @return the sum of the values seen
+   */
+  public long getSum() {
+    return _sum;
+  }
+
+  /**
+   * @return the smallest value seen, Long.MAX_VALUE if none
+   */
+  public long getMin() {
+    return _min;
+  }
+
+  /**
+   * @return the largest value seen, Long.MIN_VALUE if none
+   */
+  public long getMax() {
+    return _max;
+  }
+
+  /**
+   * Estimates the least value with at least the given fraction of the values smaller or equal to it, i.e. the
+   * nearest rank quantile.
+   *
+   * @param fraction The fraction, between 0 and 1
+   * @return the quantile
+   */
+  public long getQuantile(double fraction) {
+    if (_count == 0) {
+      throw new IllegalArgumentException("Quantile of an empty sketch is not defined.");
+    }
+    if (fraction < 0 || fraction > 1) {
+      throw new IllegalArgumentException("Fraction has to be between 0-1");
+    }
+    return getValueAtRank(Math.max(1, (long) Math.ceil(fraction * _count)));
+  }
+
+  /**
+   * Estimates the value of a rank, i.e. the least value with at least rank values smaller or equal to it.
+   *
+   * @param rank The rank, from 1 to the count
+   * @return the value
+   */
+  public long getValueAtRank(long rank) {
+    if (rank < 1 || rank > _count) {
+      throw new IllegalArgumentException("Rank " + rank + " is not between 1 and " + _count);
+    }
+    long[] values = new long[getRetained()];
+    long[] weights = new long[values.length];
+    getSortedItems(values, weights);
+    long cumulated = 0;
+    for (int i = 0; i < values.length; i++) {
+      cumulated += weights[i];
+      if (cumulated >= rank) {
+        return values[i];
+      }
+    }
+    return _max;
+  }
+
+  /**
+   * @return the estimated number of values strictly smaller than the given value
+   */
+  public long getCountBelow(long value) {
+    long count = 0;
+    for (int level = 0; level < _sizes.length; level++) {
+      for (int i = 0; i < _sizes[level]; i++) {
+        if (_levels[level][i] < value) {
+          count += 1L << level;
+        }
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return the estimated sum of the values strictly smaller than the given value
+   */
+  public long getSumBelow(long value) {
+    long sum = 0;
+    for (int level = 0; level < _sizes.length; level++) {
+      for (int i = 0; i < _sizes[level]; i++) {
+        if (_levels[level][i] < value) {
+          sum += _levels[level][i] << level;
+        }
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * @return the number of values kept by the sketch
+   */
+  int getRetained() {
+    int retained = 0;
+    for (int size : _sizes) {
+      retained += size;
+    }
+    return retained;
+  }
+
+  private void getSortedItems(long[] values, long[] weights) {
+    int n = 0;
+    for (int level = 0; level < _sizes.length; level++) {
+      for (int i = 0; i < _sizes[level]; i++) {
+        values[n] = _levels[level][i];
+        weights[n] = 1L << level;
+        n++;
+      }
+    }
+    // Insertion sort of the pairs, the levels being mostly sorted already
+    for (int i = 1; i < n; i++) {
+      long value = values[i];
+      long weight = weights[i];
+      int j = i - 1;
+      while (j >= 0 && values[j] > value) {
+        values[j + 1] = values[j];
+        weights[j + 1] = weights[j];
+        j--;
+      }
+      values[j + 1] = value;
+      weights[j + 1] = weight;
+    }
+  }
+
+  private int getCapacity(int level) {
+    int depth = _sizes.length - 1 - level;
+    return Math.max(MIN_CAPACITY, (int) Math.ceil(_k * Math.pow(CAPACITY_RATIO, depth)));
+  }
+
+  private void append(int level, long value) {
+    while (level >= _sizes.length) {
+      _levels = Arrays.copyOf(_levels, _levels.length + 1);
+      _levels[_levels.length - 1] = new long[MIN_CAPACITY];
+      _sizes = Arrays.copyOf(_sizes, _sizes.length + 1);
+    }
+    if (_sizes[level] == _levels[level].length) {
+      _levels[level] = Arrays.copyOf(_levels[level], _levels[level].length * 2);
+    }
+    _levels[level][_sizes[level]++] = value;
+  }
+
+  /**
+   * Compacts the full levels, from the bottom.
+   */
+  private void compress() {
+    for (int level = 0; level < _sizes.length; level++) {
+      if (_sizes[level] >= getCapacity(level)) {
+        compact(level);
+      }
+    }
+  }
+
+  /**
+   * Promotes every other value of a level to the next level, keeping the smallest value when their number is odd.
+   */
+  private void compact(int level) {
+    long[] values = _levels[level];
+    int size = _sizes[level];
+    Arrays.sort(values, 0, size);
+    int start = size % 2;
+    for (int i = start + (_random.nextBoolean() ? 1 : 0); i < size; i += 2) {
+      append(level + 1, values[i]);
+    }
+    _sizes[level] = start;
+  }
+}
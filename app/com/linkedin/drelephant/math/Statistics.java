@@ -37,6 +37,15 @@ public final class Statistics {
   public static long MINUTE = 60L;
   public static long HOUR = 60*MINUTE;
 
+  // The scratch buffers of the List versions are only kept up to this length, larger lists being copied every time
+  private static final int MAX_SCRATCH_LENGTH = 1 << 16;
+  private static final ThreadLocal<long[]> SCRATCH = new ThreadLocal<long[]>() {
+    @Override
+    protected long[] initialValue() {
+      return new long[64];
+    }
+  };
+
   private Statistics() {
   }
 
@@ -84,10 +93,26 @@ public final class Statistics {
    * @return The least value from the list with at least the given percentile
    */
   public static long percentile(List<Long> values, int percentile) {
-
     if (values.size() == 0) {
       throw new IllegalArgumentException("Percentile of empty list is not defined.");
     }
+    return percentile(toScratch(values), values.size(), percentile);
+  }
+
+  /**
+   * The percentile method returns the least value from the first length values of the array which has at least given
+   * percentile. The values are reordered.
+   *
+   * @param values The values to find the percentile from
+   * @param length The number of values
+   * @param percentile The percentile
+   * @return The least value with at least the given percentile
+   */
+  public static long percentile(long[] values, int length, int percentile) {
+
+    if (length == 0) {
+      throw new IllegalArgumentException("Percentile of empty list is not defined.");
+    }
 
     if (percentile > 100 || percentile < 0) {
       throw new IllegalArgumentException("Percentile has to be between 0-100");
@@ -97,59 +122,214 @@ public final class Statistics {
       return 0;
     }
 
-    Collections.sort(values);
-
     // Use Nearest Rank method.
     // https://en.wikipedia.org/wiki/Percentile#The_Nearest_Rank_method
-    int position = (int) Math.ceil(values.size() * percentile / 100.0);
+    int position = (int) Math.ceil(length * percentile / 100.0);
+
+    // position is always one greater than index. Return value at the proper index
+    return select(values, length, Math.max(position, 1) - 1);
+  }
 
-    // should never happen.
-    if (position == 0) {
-      return values.get(position);
+  /**
+   * Finds the value of the given index if the first length values of the array were sorted, in linear time. The
+   * values are reordered: the smaller values end up before the index, and the larger after.
+   *
+   * @param values The values
+   * @param length The number of values
+   * @param index The index in the sorted values
+   * @return the value of the index
+   */
+  public static long select(long[] values, int length, int index) {
+    if (index < 0 || index >= length) {
+      throw new IllegalArgumentException("Index " + index + " is not between 0 and " + length);
     }
+    int left = 0;
+    int right = length - 1;
+    // Falls back to sorting when the pivots keep splitting the values badly
+    int partitionsLeft = 2 * (32 - Integer.numberOfLeadingZeros(length));
+    while (left < right) {
+      if (partitionsLeft-- == 0) {
+        Arrays.sort(values, left, right + 1);
+        break;
+      }
+      long pivot = medianOfThree(values, left, (left + right) >>> 1, right);
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (values[i] < pivot) {
+          i++;
+        }
+        while (values[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(values, i++, j--);
+        }
+      }
+      // The values between j and i are equal to the pivot
+      if (index <= j) {
+        right = j;
+      } else if (index >= i) {
+        left = i;
+      } else {
+        break;
+      }
+    }
+    return values[index];
+  }
 
-    // position is always one greater than index. Return value at the proper index
-    return values.get(position - 1);
+  private static long medianOfThree(long[] values, int first, int middle, int last) {
+    if (values[middle] < values[first]) {
+      swap(values, first, middle);
+    }
+    if (values[last] < values[middle]) {
+      swap(values, middle, last);
+      if (values[middle] < values[first]) {
+        swap(values, first, middle);
+      }
+    }
+    return values[middle];
   }
 
+  private static void swap(long[] values, int i, int j) {
+    long value = values[i];
+    values[i] = values[j];
+    values[j] = value;
+  }
 
   public static long[][] findTwoGroups(long[] values) {
     return findTwoGroupsRecursive(values, average(values), 2);
   }
 
   public static long[][] findTwoGroupsRecursive(long[] values, long middle, int levels) {
-    if (levels > 0) {
-      long[][] result = twoMeans(values, middle);
-      long newMiddle = average(result[1]) - average(result[0]);
-      return findTwoGroupsRecursive(values, newMiddle, levels - 1);
+    middle = findMiddle(values, values.length, middle, levels);
+    int smallerCount = 0;
+    for (long value : values) {
+      if (value < middle) {
+        smallerCount++;
+      }
+    }
+
+    long[][] result = new long[][] { new long[smallerCount], new long[values.length - smallerCount] };
+    int smaller = 0;
+    int larger = 0;
+    for (long value : values) {
+      if (value < middle) {
+        result[0][smaller++] = value;
+      } else {
+        result[1][larger++] = value;
+      }
     }
-    return twoMeans(values, middle);
+    return result;
   }
 
-  private static long[][] twoMeans(long[] values, long middle) {
-    List<Long> smaller = new ArrayList<Long>();
-    List<Long> larger = new ArrayList<Long>();
-    for (int i = 0; i < values.length; i++) {
+  /**
+   * Splits the first length values of the array in two groups as findTwoGroups does, without copying them.
+   *
+   * @param values The values
+   * @param length The number of values
+   * @return the group of the smaller values then the group of the larger values
+   */
+  public static Group[] findTwoGroups(long[] values, int length) {
+    long middle = findMiddle(values, length, average(values, length), 2);
+    long smallerCount = 0;
+    double smallerSum = 0d;
+    double largerSum = 0d;
+    for (int i = 0; i < length; i++) {
       if (values[i] < middle) {
-        smaller.add(values[i]);
+        smallerCount++;
+        smallerSum += values[i];
       } else {
-        larger.add(values[i]);
+        largerSum += values[i];
+      }
+    }
+    return new Group[] { new Group(smallerCount, smallerSum), new Group(length - smallerCount, largerSum) };
+  }
+
+  /**
+   * Moves the value splitting the groups to the difference of the averages of the groups, levels times.
+   */
+  private static long findMiddle(long[] values, int length, long middle, int levels) {
+    for (; levels > 0; levels--) {
+      long smallerCount = 0;
+      double smallerSum = 0d;
+      double largerSum = 0d;
+      for (int i = 0; i < length; i++) {
+        if (values[i] < middle) {
+          smallerCount++;
+          smallerSum += values[i];
+        } else {
+          largerSum += values[i];
+        }
       }
+      middle = (long) (largerSum / (length - smallerCount)) - (long) (smallerSum / smallerCount);
     }
+    return middle;
+  }
 
-    long[][] result = new long[2][];
-    result[0] = toArray(smaller);
-    result[1] = toArray(larger);
+  /**
+   * Splits the values of a sketch in two groups as findTwoGroups does with the values themselves, and estimates the
+   * size and average of the groups.
+   *
+   * @param sketch The sketch of the values
+   * @return the group of the smaller values then the group of the larger values
+   */
+  public static Group[] findTwoGroups(QuantileSketch sketch) {
+    long middle = average(sketch);
+    for (int levels = 2; levels > 0; levels--) {
+      Group[] groups = twoMeans(sketch, middle);
+      middle = groups[1].getAverage() - groups[0].getAverage();
+    }
+    return twoMeans(sketch, middle);
+  }
 
-    return result;
+  private static Group[] twoMeans(QuantileSketch sketch, long middle) {
+    long smallerCount = sketch.getCountBelow(middle);
+    long smallerSum = sketch.getSumBelow(middle);
+    return new Group[] { new Group(smallerCount, smallerSum),
+        new Group(sketch.getCount() - smallerCount, sketch.getSum() - smallerSum) };
   }
 
-  private static long[] toArray(List<Long> input) {
-    long[] result = new long[input.size()];
-    for (int i = 0; i < result.length; i++) {
-      result[i] = input.get(i);
+  /**
+   * A group of values found by findTwoGroups.
+   */
+  public static final class Group {
+    private final long _count;
+    private final long _average;
+
+    Group(long count, double sum) {
+      _count = count;
+      _average = (long) (sum / count);
+    }
+
+    public long getCount() {
+      return _count;
+    }
+
+    /**
+     * @return the average of the values, 0 if none
+     */
+    public long getAverage() {
+      return _average;
     }
-    return result;
+  }
+
+  /**
+   * Copies a list to the scratch buffer of the thread, so that the values can be reordered without changing the list.
+   */
+  private static long[] toScratch(List<Long> values) {
+    long[] scratch = SCRATCH.get();
+    if (scratch.length < values.size()) {
+      scratch = new long[Math.max(values.size(), 2 * scratch.length)];
+      if (scratch.length <= MAX_SCRATCH_LENGTH) {
+        SCRATCH.set(scratch);
+      }
+    }
+    int i = 0;
+    for (long value : values) {
+      scratch[i++] = value;
+    }
+    return scratch;
   }
 
   /**
@@ -159,12 +339,23 @@ public final class Statistics {
    * @return The average(values)
    */
   public static long average(long[] values) {
+    return average(values, values.length);
+  }
+
+  /**
+   * Compute average for the first length values of the given array of long
+   *
+   * @param values the values
+   * @param length the number of values
+   * @return The average(values)
+   */
+  public static long average(long[] values, int length) {
     //Find average
     double sum = 0d;
-    for (long value : values) {
-      sum += value;
+    for (int i = 0; i < length; i++) {
+      sum += values[i];
     }
-    return (long) (sum / (double) values.length);
+    return (long) (sum / (double) length);
   }
 
   /**
@@ -182,6 +373,16 @@ public final class Statistics {
     return (long) (sum / (double) values.size());
   }
 
+  /**
+   * Compute average for the values of a sketch
+   *
+   * @param sketch The sketch of the values
+   * @return The average(values)
+   */
+  public static long average(QuantileSketch sketch) {
+    return (long) (sketch.getSum() / (double) sketch.getCount());
+  }
+
   /**
    * Find the median of the given list
    *
@@ -192,13 +393,70 @@ public final class Statistics {
     if (values.size() == 0) {
       throw new IllegalArgumentException("Median of an empty list is not defined.");
     }
-    Collections.sort(values);
-    int middle = values.size() / 2;
-    if (values.size() % 2 == 0) {
-      return (values.get(middle - 1) + values.get(middle)) / 2;
+    return median(toScratch(values), values.size());
+  }
+
+  /**
+   * Find the median of the first length values of the given array, in linear time. The values are reordered.
+   *
+   * @param values The values
+   * @param length The number of values
+   * @return The median(values)
+   */
+  public static long median(long[] values, int length) {
+    if (length == 0) {
+      throw new IllegalArgumentException("Median of an empty list is not defined.");
+    }
+    int middle = length / 2;
+    long upper = select(values, length, middle);
+    if (length % 2 == 0) {
+      // The values before the middle are the smaller ones
+      long lower = values[0];
+      for (int i = 1; i < middle; i++) {
+        lower = Math.max(lower, values[i]);
+      }
+      return (lower + upper) / 2;
+    } else {
+      return upper;
+    }
+  }
+
+  /**
+   * Estimate the median of the values of a sketch
+   *
+   * @param sketch The sketch of the values
+   * @return The median(values)
+   */
+  public static long median(QuantileSketch sketch) {
+    if (sketch.getCount() == 0) {
+      throw new IllegalArgumentException("Median of an empty sketch is not defined.");
+    }
+    long middle = sketch.getCount() / 2;
+    if (sketch.getCount() % 2 == 0) {
+      return (sketch.getValueAtRank(middle) + sketch.getValueAtRank(middle + 1)) / 2;
     } else {
-      return values.get(middle);
+      return sketch.getValueAtRank(middle + 1);
+    }
+  }
+
+  /**
+   * Estimate the least value of a sketch which has at least given percentile, as percentile does for a list.
+   *
+   * @param sketch The sketch of the values
+   * @param percentile The percentile
+   * @return The least value with at least the given percentile
+   */
+  public static long percentile(QuantileSketch sketch, int percentile) {
+    if (sketch.getCount() == 0) {
+      throw new IllegalArgumentException("Percentile of empty sketch is not defined.");
+    }
+    if (percentile > 100 || percentile < 0) {
+      throw new IllegalArgumentException("Percentile has to be between 0-100");
+    }
+    if (percentile == 0) {
+      return 0;
     }
+    return sketch.getQuantile(percentile / 100.0);
   }
 
   /**
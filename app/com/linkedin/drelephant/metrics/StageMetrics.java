@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.metrics;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+
+/**
+ * Time taken and memory allocated by one stage of the analysis, i.e. a fetcher, a heuristic or an aggregator.
+ *
+ * The number of runs and the total time are counted over a sliding time window, in buckets so that the memory used
+ * does not grow with the number of runs. The distributions are sampled by exponentially decaying reservoirs, like the
+ * other histograms of the metrics registry.
+ *
+ * <br><br>
+ * The following metrics are registered.
+ * <ul>&lt;type&gt;.&lt;name&gt;.processingTime - The time taken to process one application.</ul>
+ * <ul>&lt;type&gt;.&lt;name&gt;.allocatedBytes - The bytes allocated by the analysis thread to process one
+ * application, when the JVM supports it.</ul>
+ */
+public class StageMetrics implements MetricSet {
+  public static final String FETCHER = "Fetcher";
+  public static final String HEURISTIC = "Heuristic";
+  public static final String AGGREGATOR = "Aggregator";
+
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+  private static final int WINDOW_BUCKETS = 60;
+
+  private final String _type;
+  private final String _name;
+  private final Timer _processingTime;
+  private final Histogram _allocatedBytes;
+
+  // The number of runs and their total time in nanoseconds of each bucket of the window, by bucket index modulo the
+  // number of buckets
+  private final long _bucketMillis;
+  private final long[] _bucketIndexes = new long[WINDOW_BUCKETS];
+  private final long[] _bucketCounts = new long[WINDOW_BUCKETS];
+  private final long[] _bucketTimes = new long[WINDOW_BUCKETS];
+
+  /**
+   * @param type The type of stage, e.g. {@link #HEURISTIC}
+   * @param name The name of the stage, usually its simple class name
+   * @param window The duration of the sliding window
+   * @param unit The time unit of the window
+   */
+  public StageMetrics(String type, String name, long window, TimeUnit unit) {
+    _type = type;
+    _name = name;
+    _processingTime = new Timer(new ExponentiallyDecayingReservoir());
+    _allocatedBytes = new Histogram(new ExponentiallyDecayingReservoir());
+    _bucketMillis = Math.max(unit.toMillis(window) / WINDOW_BUCKETS, 1);
+  }
+
+  /**
+   * Records one run of the stage.
+   *
+   * @param durationNanos The time taken in nanoseconds
+   * @param allocatedBytes The bytes allocated, negative if unknown
+   */
+  public void update(long durationNanos, long allocatedBytes) {
+    update(durationNanos, allocatedBytes, System.currentTimeMillis());
+  }
+
+  /**
+   * Records one run of the stage.
+   *
+   * @param durationNanos The time taken in nanoseconds
+   * @param allocatedBytes The bytes allocated, negative if unknown
+   * @param now The current time in milliseconds
+   */
+  void update(long durationNanos, long allocatedBytes, long now) {
+    _processingTime.update(durationNanos, TimeUnit.NANOSECONDS);
+    if (allocatedBytes >= 0) {
+      _allocatedBytes.update(allocatedBytes);
+    }
+    long bucketIndex = now / _bucketMillis;
+    int bucket = (int) (bucketIndex % WINDOW_BUCKETS);
+    synchronized (_bucketIndexes) {
+      if (_bucketIndexes[bucket] != bucketIndex) {
+        _bucketIndexes[bucket] = bucketIndex;
+        _bucketCounts[bucket] = 0;
+        _bucketTimes[bucket] = 0;
+      }
+      _bucketCounts[bucket]++;
+      _bucketTimes[bucket] += durationNanos;
+    }
+  }
+
+  /**
+   * Returns the total time spent in the stage over the window, in nanoseconds.
+   *
+   * @return the total processing time
+   */
+  public long getTotalTime() {
+    return getTotalTime(System.currentTimeMillis());
+  }
+
+  /**
+   * @param now The current time in milliseconds
+   * @return the total processing time over the window ending now, in nanoseconds
+   */
+  long getTotalTime(long now) {
+    return sumWindow(_bucketTimes, now);
+  }
+
+  /**
+   * Returns the number of runs of the stage over the window.
+   *
+   * @return the run count
+   */
+  public long getCount() {
+    return getCount(System.currentTimeMillis());
+  }
+
+  /**
+   * @param now The current time in milliseconds
+   * @return the run count over the window ending now
+   */
+  long getCount(long now) {
+    return sumWindow(_bucketCounts, now);
+  }
+
+  private long sumWindow(long[] values, long now) {
+    long oldestBucketIndex = now / _bucketMillis - WINDOW_BUCKETS + 1;
+    long sum = 0;
+    synchronized (_bucketIndexes) {
+      for (int bucket = 0; bucket < WINDOW_BUCKETS; bucket++) {
+        if (_bucketIndexes[bucket] >= oldestBucketIndex) {
+          sum += values[bucket];
+        }
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Returns a summary of the stage, with times in milliseconds. The count, total and mean times are those of the
+   * window, the percentile and max those of the recent runs sampled.
+   *
+   * @return the summary, to be rendered as Json
+   */
+  public Map<String, Object> getSummary() {
+    Snapshot time = _processingTime.getSnapshot();
+    long now = System.currentTimeMillis();
+    long count = getCount(now);
+    long totalTime = getTotalTime(now);
+    Map<String, Object> summary = new LinkedHashMap<String, Object>();
+    summary.put("stage", name(_type, _name));
+    summary.put("count", count);
+    summary.put("totalTime", TimeUnit.NANOSECONDS.toMillis(totalTime));
+    summary.put("meanTime", count == 0 ? 0L : TimeUnit.NANOSECONDS.toMillis(totalTime / count));
+    summary.put("p95Time", TimeUnit.NANOSECONDS.toMillis((long) time.get95thPercentile()));
+    summary.put("maxTime", TimeUnit.NANOSECONDS.toMillis(time.getMax()));
+    summary.put("meanAllocatedBytes", (long) _allocatedBytes.getSnapshot().getMean());
+    return summary;
+  }
+
+  @Override
+  public Map<String, Metric> getMetrics() {
+    Map<String, Metric> metrics = new HashMap<String, Metric>();
+    metrics.put(name(_type, _name, "processingTime"), _processingTime);
+    metrics.put(name(_type, _name, "allocatedBytes"), _allocatedBytes);
+    return metrics;
+  }
+
+  /**
+   * Returns the number of bytes allocated so far by the current thread.
+   *
+   * @return the allocated bytes, or -1 if the JVM does not measure them
+   */
+  public static long getCurrentThreadAllocatedBytes() {
+    if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+      if (threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled()) {
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+}
@@ -3,6 +3,7 @@ package com.linkedin.drelephant.purge;
 import com.avaje.ebean.Ebean;
 import com.avaje.ebean.SqlRow;
 import com.avaje.ebean.Transaction;
+import com.linkedin.drelephant.analysis.LeaderElection;
 import java.util.List;
 
 import org.apache.log4j.Logger;
@@ -17,6 +18,18 @@ public class AppResultPurger {
     private static StringBuilder sBuilder = new StringBuilder();
 
     public static int deleteOlderThan(int days, int batchSize) {
+        return deleteOlderThan(days, batchSize, null);
+    }
+
+    /**
+     * Deletes the results of the apps finished more than the given days ago, one batch at a time.
+     *
+     * @param days The retention period in days
+     * @param batchSize The number of results deleted per batch
+     * @param leaderElection The election of the node running the purge, checked before each batch, or null
+     * @return the number of results deleted
+     */
+    public static int deleteOlderThan(int days, int batchSize, LeaderElection leaderElection) {
 
         logger.info("AppResults purge started...");
 
@@ -30,6 +43,11 @@ public class AppResultPurger {
 
         while (true) {
 
+            if (leaderElection != null && !leaderElection.isLeader()) {
+                logger.info("Not the leader of " + leaderElection.getName() + " anymore, stop purging");
+                break;
+            }
+
             logger.debug("Loop " + loopCount + " - trying to purge " + batchSize + " app results");
 
             Transaction transaction = null;
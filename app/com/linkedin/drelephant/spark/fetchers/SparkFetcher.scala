@@ -16,16 +16,22 @@
 
 package com.linkedin.drelephant.spark.fetchers
 
+import java.util.concurrent.{CancellationException, ConcurrentLinkedQueue, ExecutionException, Executor, Executors,
+  LinkedBlockingQueue, ScheduledExecutorService, Semaphore, ThreadPoolExecutor, TimeUnit, TimeoutException}
+import java.util.concurrent.atomic.AtomicBoolean
+
 import scala.async.Async
 import scala.concurrent.{Await, ExecutionContext, Future}
 import scala.concurrent.duration.{Duration, SECONDS}
 import scala.util.{Try, Success, Failure}
 import scala.util.control.NonFatal
 
-import com.linkedin.drelephant.analysis.{AnalyticJob, ElephantFetcher}
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import com.linkedin.drelephant.analysis.{AnalyticJob, AsyncElephantFetcher}
 import com.linkedin.drelephant.configurations.fetcher.FetcherConfigurationData
 import com.linkedin.drelephant.spark.data.SparkApplicationData
-import com.linkedin.drelephant.util.SparkUtils
+import com.linkedin.drelephant.util.{ResponseCache, SparkUtils}
+import controllers.MetricsController
 import org.apache.hadoop.conf.Configuration
 import org.apache.log4j.Logger
 import org.apache.spark.SparkConf
@@ -33,28 +39,70 @@ import org.apache.spark.SparkConf
 
 /**
   * A fetcher that gets Spark-related data from a combination of the Spark monitoring REST API and Spark event logs.
+  *
+  * The requests run in a thread pool of the fetcher, rather than in the global execution context. In non-blocking mode,
+  * the runner is notified once the data is fetched instead of waiting for it: at most fetch_thread_count fetches run
+  * at once, the others waiting for their turn, and the timeout of a fetch only starts when it runs. The callbacks run
+  * in their own thread pool, as the runner may block in them until it can queue the analysis.
   */
 class SparkFetcher(fetcherConfigurationData: FetcherConfigurationData)
-    extends ElephantFetcher[SparkApplicationData] {
+    extends AsyncElephantFetcher[SparkApplicationData] {
   import SparkFetcher._
   import Async.{async, await}
-  import ExecutionContext.Implicits.global
 
   private val logger: Logger = Logger.getLogger(classOf[SparkFetcher])
 
   val eventLogUri = Option(fetcherConfigurationData.getParamMap.get(LOG_LOCATION_URI_XML_FIELD))
   logger.info("The event log location of Spark application is set to " + eventLogUri)
 
+  val fetchThreadCount: Int = Option(fetcherConfigurationData.getParamMap.get(FETCH_THREAD_COUNT_XML_FIELD))
+    .map(_.toInt).filter(_ > 0).getOrElse(DEFAULT_FETCH_THREAD_COUNT)
+
+  val fetchTimeout: Duration = Option(fetcherConfigurationData.getParamMap.get(FETCH_TIMEOUT_XML_FIELD))
+    .map { timeout => Duration(timeout.toLong, SECONDS) }.getOrElse(DEFAULT_TIMEOUT)
+
+  val nonBlocking: Boolean = Option(fetcherConfigurationData.getParamMap.get(NON_BLOCKING_XML_FIELD)).exists(_.toBoolean)
+  logger.info(s"The Spark fetcher uses ${fetchThreadCount} threads, a timeout of ${fetchTimeout}, non-blocking is " +
+    nonBlocking)
+
+  private[fetchers] implicit lazy val executionContext: ExecutionContext = {
+    val threadPool = new ThreadPoolExecutor(fetchThreadCount, fetchThreadCount, 60L, TimeUnit.SECONDS,
+      new LinkedBlockingQueue[Runnable](),
+      new ThreadFactoryBuilder().setNameFormat("dr-el-spark-fetch-thread-%d").setDaemon(true).build())
+    threadPool.allowCoreThreadTimeOut(true)
+    MetricsController.registerThreadPool(classOf[SparkFetcher].getSimpleName, threadPool)
+    ExecutionContext.fromExecutorService(threadPool)
+  }
+
+  private lazy val callbackExecutor: Executor = {
+    val threadPool = new ThreadPoolExecutor(fetchThreadCount, fetchThreadCount, 60L, TimeUnit.SECONDS,
+      new LinkedBlockingQueue[Runnable](),
+      new ThreadFactoryBuilder().setNameFormat("dr-el-spark-callback-thread-%d").setDaemon(true).build())
+    threadPool.allowCoreThreadTimeOut(true)
+    threadPool
+  }
+
+  /** The non-blocking fetches waiting for one of the fetchPermits. */
+  private val pendingFetches = new ConcurrentLinkedQueue[AsyncFetch]()
+
+  private val fetchPermits = new Semaphore(fetchThreadCount)
+
   private[fetchers] lazy val hadoopConfiguration: Configuration = new Configuration()
 
   private[fetchers] lazy val sparkUtils: SparkUtils = SparkUtils
 
+  val historyServerAddress = Option(fetcherConfigurationData.getParamMap.get(HISTORY_SERVER_ADDRESS_XML_FIELD))
+    .map(_.trim).filter(_.nonEmpty)
+
   private[fetchers] lazy val sparkConf: SparkConf = {
     val sparkConf = new SparkConf()
     sparkUtils.getDefaultPropertiesFile() match {
       case Some(filename) => sparkConf.setAll(sparkUtils.getPropertiesFromFile(filename))
+      // The history server address is enough to use the REST API
+      case None if historyServerAddress.isDefined =>
       case None => throw new IllegalStateException("can't find Spark conf; please set SPARK_HOME or SPARK_CONF_DIR")
     }
+    historyServerAddress.foreach { sparkConf.set(SparkRestClient.HISTORY_SERVER_ADDRESS_KEY, _) }
     sparkConf
   }
 
@@ -83,36 +131,121 @@ class SparkFetcher(fetcherConfigurationData: FetcherConfigurationData)
     }
   }
 
+  override def isNonBlocking(): Boolean = nonBlocking
+
+  override def fetchDataAsync(
+    analyticJob: AnalyticJob,
+    callback: AsyncElephantFetcher.Callback[SparkApplicationData]
+  ): Unit = {
+    pendingFetches.add(new AsyncFetch(analyticJob, callback))
+    startPendingFetches()
+  }
+
+  /** Starts the pending fetches while there are permits left, called again whenever a fetch releases its permit. */
+  private def startPendingFetches(): Unit = {
+    while (!pendingFetches.isEmpty && fetchPermits.tryAcquire()) {
+      val fetch = pendingFetches.poll()
+      if (fetch == null) {
+        fetchPermits.release()
+      } else {
+        fetch.start()
+      }
+    }
+  }
+
+  /**
+    * A non-blocking fetch, holding one of the fetchPermits from its start until its requests complete. On timeout the
+    * callback is failed right away, and the fetch is cancelled: the requests in flight run to completion, but the
+    * following ones are not sent.
+    */
+  private class AsyncFetch(analyticJob: AnalyticJob, callback: AsyncElephantFetcher.Callback[SparkApplicationData]) {
+    private val appId = analyticJob.getAppId
+    private val completed = new AtomicBoolean(false)
+    private val cancelled = new AtomicBoolean(false)
+
+    def start(): Unit = {
+      logger.info(s"Fetching data for ${appId}")
+      val timeout = timeoutScheduler.schedule(new Runnable {
+        override def run(): Unit = {
+          cancelled.set(true)
+          complete(Failure(new TimeoutException(s"Futures timed out after [${fetchTimeout}]")))
+        }
+      }, fetchTimeout.toMillis, TimeUnit.MILLISECONDS)
+      Try(doFetchSparkApplicationData(analyticJob, cancelled)) match {
+        case Success(future) => future.onComplete { result =>
+          timeout.cancel(false)
+          release()
+          complete(result)
+        }
+        case Failure(e) =>
+          timeout.cancel(false)
+          release()
+          complete(Failure(e))
+      }
+    }
+
+    private def release(): Unit = {
+      fetchPermits.release()
+      startPendingFetches()
+    }
+
+    private def complete(result: Try[SparkApplicationData]): Unit = if (completed.compareAndSet(false, true)) {
+      callbackExecutor.execute(new Runnable {
+        override def run(): Unit = logResult(appId, result) match {
+          case Success(data) => callback.onSuccess(data)
+          case Failure(e: Exception) => callback.onFailure(e)
+          case Failure(e) => callback.onFailure(new ExecutionException(e))
+        }
+      })
+    }
+  }
+
   private def doFetchData(analyticJob: AnalyticJob): Try[SparkApplicationData] = {
     val appId = analyticJob.getAppId
     logger.info(s"Fetching data for ${appId}")
-    Try {
-      Await.result(doFetchSparkApplicationData(analyticJob), DEFAULT_TIMEOUT)
-    }.transform(
-      data => {
-        logger.info(s"Succeeded fetching data for ${appId}")
-        Success(data)
-      },
-      e => {
-        logger.error(s"Failed fetching data for ${appId}", e)
-        Failure(e)
-      }
-    )
+    val cancelled = new AtomicBoolean(false)
+    val result = logResult(appId, Try {
+      Await.result(doFetchSparkApplicationData(analyticJob, cancelled), fetchTimeout)
+    })
+    // Do not send the following requests of a fetch timing out
+    cancelled.set(result.isFailure)
+    result
   }
 
-  private def doFetchSparkApplicationData(analyticJob: AnalyticJob): Future[SparkApplicationData] = {
+  private def logResult(appId: String, result: Try[SparkApplicationData]): Try[SparkApplicationData] = {
+    result match {
+      case Success(_) => logger.info(s"Succeeded fetching data for ${appId}")
+      case Failure(e) => logger.error(s"Failed fetching data for ${appId}", e)
+    }
+    result
+  }
+
+  private def doFetchSparkApplicationData(
+    analyticJob: AnalyticJob,
+    cancelled: AtomicBoolean
+  ): Future[SparkApplicationData] = {
+    // The history server may serve incomplete data just after an app finished, do not read it again from the cache
+    if (analyticJob.getRetries > 0) {
+      ResponseCache.getInstance.invalidate(analyticJob.getAppId)
+    }
     if (shouldProcessLogsLocally) {
       async {
+        checkCancelled(cancelled)
         sparkRestClient.fetchEventLogAndParse(analyticJob.getAppId)
       }
     } else {
-      doFetchDataUsingRestAndLogClients(analyticJob)
+      doFetchDataUsingRestAndLogClients(analyticJob, cancelled)
     }
   }
 
-  private def doFetchDataUsingRestAndLogClients(analyticJob: AnalyticJob): Future[SparkApplicationData] = async {
+  private def doFetchDataUsingRestAndLogClients(
+    analyticJob: AnalyticJob,
+    cancelled: AtomicBoolean
+  ): Future[SparkApplicationData] = async {
     val appId = analyticJob.getAppId
+    checkCancelled(cancelled)
     val restDerivedData = await(sparkRestClient.fetchData(appId, eventLogSource == EventLogSource.Rest))
+    checkCancelled(cancelled)
 
     val logDerivedData = eventLogSource match {
       case EventLogSource.None => None
@@ -125,6 +258,12 @@ class SparkFetcher(fetcherConfigurationData: FetcherConfigurationData)
     SparkApplicationData(appId, restDerivedData, logDerivedData)
   }
 
+  private def checkCancelled(cancelled: AtomicBoolean): Unit = {
+    if (cancelled.get) {
+      throw new CancellationException("The fetch timed out")
+    }
+  }
+
 }
 
 object SparkFetcher {
@@ -142,5 +281,14 @@ object SparkFetcher {
 
   val SPARK_EVENT_LOG_ENABLED_KEY = "spark.eventLog.enabled"
   val DEFAULT_TIMEOUT = Duration(60, SECONDS)
+  val DEFAULT_FETCH_THREAD_COUNT = 16
   val LOG_LOCATION_URI_XML_FIELD = "event_log_location_uri"
+  val FETCH_THREAD_COUNT_XML_FIELD = "fetch_thread_count"
+  val FETCH_TIMEOUT_XML_FIELD = "fetch_timeout_in_seconds"
+  val NON_BLOCKING_XML_FIELD = "non_blocking"
+  val HISTORY_SERVER_ADDRESS_XML_FIELD = "history_server_address"
+
+  /** Fails the non-blocking fetches that did not complete in time. */
+  private lazy val timeoutScheduler: ScheduledExecutorService = Executors.newSingleThreadScheduledExecutor(
+    new ThreadFactoryBuilder().setNameFormat("dr-el-spark-fetch-timeout-thread-%d").setDaemon(true).build())
 }
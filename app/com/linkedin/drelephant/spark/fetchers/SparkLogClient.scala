@@ -23,14 +23,15 @@ import scala.async.Async
 import scala.concurrent.{ExecutionContext, Future}
 import scala.io.Source
 
+import com.fasterxml.jackson.core.{JsonFactory, JsonProcessingException, JsonToken}
 import com.linkedin.drelephant.security.HadoopSecurity
 import com.linkedin.drelephant.spark.data.SparkLogDerivedData
 import com.linkedin.drelephant.util.SparkUtils
 import org.apache.hadoop.conf.Configuration
 import org.apache.log4j.Logger
 import org.apache.spark.SparkConf
-import org.apache.spark.scheduler.{SparkListenerEnvironmentUpdate, SparkListenerEvent}
-import org.json4s.{DefaultFormats, JsonAST}
+import org.apache.spark.scheduler.SparkListenerEnvironmentUpdate
+import org.json4s.JsonAST
 import org.json4s.jackson.JsonMethods
 
 
@@ -73,30 +74,73 @@ class SparkLogClient(hadoopConfiguration: Configuration, sparkConf: SparkConf, e
 object SparkLogClient {
   import JsonAST._
 
-  private implicit val formats: DefaultFormats = DefaultFormats
+  private val jsonFactory: JsonFactory = new JsonFactory()
+
+  private val EVENT_FIELD = "Event"
 
   def findDerivedData(in: InputStream, eventsLimit: Option[Int] = None): SparkLogDerivedData = {
-    val events = eventsLimit.map { getEvents(in).take(_) }.getOrElse { getEvents(in) }
-
-    var environmentUpdate: Option[SparkListenerEnvironmentUpdate] = None
-    while (events.hasNext && environmentUpdate.isEmpty) {
-      val event = events.next
-      event match {
-        case Some(eu: SparkListenerEnvironmentUpdate) => environmentUpdate = Some(eu)
-        case _ => {} // Do nothing.
-      }
-    }
+    val environmentUpdate = getFormattedClassName(SparkListenerEnvironmentUpdate)
+    val events = findEvents(in, Set(environmentUpdate), eventsLimit)
 
-    environmentUpdate
-      .map(SparkLogDerivedData(_))
+    events.get(environmentUpdate)
+      .map { json => SparkLogDerivedData(environmentUpdateFromJson(json)) }
       .getOrElse { throw new IllegalArgumentException("Spark event log doesn't have Spark properties") }
   }
 
-  private def getEvents(in: InputStream): Iterator[Option[SparkListenerEvent]] = getLines(in).map(lineToEvent)
+  /**
+    * Finds the first event of each of the given types in an event log.
+    *
+    * The type of each event is read with a streaming tokenizer, and only the events of the given types are fully
+    * parsed. The log stops being read once an event of every type is found.
+    *
+    * @param in the event log
+    * @param eventTypes the types of the events to find, e.g. SparkListenerEnvironmentUpdate
+    * @param eventsLimit the max number of events to read
+    * @return the events found, by type
+    */
+  def findEvents(in: InputStream, eventTypes: Set[String], eventsLimit: Option[Int] = None): Map[String, JValue] = {
+    val lines = eventsLimit.map { getLines(in).take(_) }.getOrElse { getLines(in) }
+
+    var events = Map.empty[String, JValue]
+    while (lines.hasNext && events.size < eventTypes.size) {
+      val line = lines.next
+      eventTypeOf(line)
+        .filter { eventType => eventTypes.contains(eventType) && !events.contains(eventType) }
+        .foreach { eventType => events += (eventType -> JsonMethods.parse(line)) }
+    }
+    events
+  }
 
-  private def getLines(in: InputStream): Iterator[String] = Source.fromInputStream(in).getLines
+  /**
+    * Reads the type of an event from its Json line, without parsing the rest of the event. Spark writes the type as
+    * the first field of the events, so only the first tokens of the line are usually read.
+    *
+    * @param line the Json line of the event
+    * @return the type of the event, or None if the line is not an event
+    */
+  def eventTypeOf(line: String): Option[String] = {
+    val parser = jsonFactory.createParser(line)
+    try {
+      var eventType: Option[String] = None
+      if (parser.nextToken() == JsonToken.START_OBJECT) {
+        while (eventType.isEmpty && parser.nextToken() == JsonToken.FIELD_NAME) {
+          val fieldName = parser.getCurrentName
+          if (parser.nextToken() == JsonToken.VALUE_STRING && fieldName == EVENT_FIELD) {
+            eventType = Some(parser.getText)
+          } else {
+            parser.skipChildren()
+          }
+        }
+      }
+      eventType
+    } catch {
+      case e: JsonProcessingException => None
+    } finally {
+      parser.close()
+    }
+  }
 
-  private def lineToEvent(line: String): Option[SparkListenerEvent] = sparkEventFromJson(JsonMethods.parse(line))
+  private def getLines(in: InputStream): Iterator[String] = Source.fromInputStream(in).getLines
 
   // Below this line are modified utility methods from:
   //
@@ -104,15 +148,6 @@ object SparkLogClient {
   // https://github.com/apache/spark/blob/v1.4.1/core/src/main/scala/org/apache/spark/util/JsonProtocol.scala
   // https://github.com/apache/spark/blob/v1.4.1/core/src/main/scala/org/apache/spark/util/Utils.scala
 
-  private def sparkEventFromJson(json: JValue): Option[SparkListenerEvent] = {
-    val environmentUpdate = getFormattedClassName(SparkListenerEnvironmentUpdate)
-
-    (json \ "Event").extract[String] match {
-      case `environmentUpdate` => Some(environmentUpdateFromJson(json))
-      case _ => None
-    }
-  }
-
   private def getFormattedClassName(obj: AnyRef): String = obj.getClass.getSimpleName.replace("$", "")
 
   private def environmentUpdateFromJson(json: JValue): SparkListenerEnvironmentUpdate = {
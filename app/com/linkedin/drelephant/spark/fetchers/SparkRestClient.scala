@@ -34,10 +34,11 @@ import com.fasterxml.jackson.module.scala.experimental.ScalaObjectMapper
 import com.linkedin.drelephant.spark.data.{SparkApplicationData, SparkLogDerivedData, SparkRestDerivedData}
 import com.linkedin.drelephant.spark.fetchers.statusapiv1.{ApplicationInfo, ExecutorSummary, JobData, StageData}
 import com.linkedin.drelephant.spark.fetchers.statusapiv1.{ApplicationInfoImpl, ExecutorSummaryImpl, JobDataImpl, StageDataImpl}
-import com.linkedin.drelephant.util.SparkUtils
-import javax.ws.rs.client.{Client, ClientBuilder, WebTarget}
+import com.linkedin.drelephant.util.{HttpConnectionPool, ResponseCache, SparkUtils}
+import javax.ws.rs.client.{Client, WebTarget}
 import javax.ws.rs.core.MediaType
 
+import org.apache.commons.io.IOUtils
 import org.apache.log4j.Logger
 import org.apache.spark.SparkConf
 
@@ -53,7 +54,7 @@ class SparkRestClient(sparkConf: SparkConf) {
 
   private val logger: Logger = Logger.getLogger(classOf[SparkRestClient])
 
-  private val client: Client = ClientBuilder.newClient()
+  private val client: Client = HttpConnectionPool.newClient()
 
   private val historyServerUri: URI = sparkConf.getOption(HISTORY_SERVER_ADDRESS_KEY) match {
     case Some(historyServerAddress) =>
@@ -80,11 +81,11 @@ class SparkRestClient(sparkConf: SparkConf) {
 
     // Limit the scope of async.
     async {
-      val futureJobDatas = async { getJobDatas(attemptTarget) }
-      val futureStageDatas = async { getStageDatas(attemptTarget) }
-      val futureExecutorSummaries = async { getExecutorSummaries(attemptTarget) }
+      val futureJobDatas = async { getJobDatas(appId, attemptTarget) }
+      val futureStageDatas = async { getStageDatas(appId, attemptTarget) }
+      val futureExecutorSummaries = async { getExecutorSummaries(appId, attemptTarget) }
       val futureLogData = if (fetchLogs) {
-        async { getLogData(attemptTarget)}
+        async { getLogData(appId, attemptTarget)}
       } else Future.successful(None)
 
       SparkRestDerivedData(
@@ -101,7 +102,7 @@ class SparkRestClient(sparkConf: SparkConf) {
     val (_, attemptTarget) = getApplicationMetaData(appId)
     val logTarget = attemptTarget.path("logs")
     logger.info(s"creating SparkApplication by calling REST API at ${logTarget.getUri} to get eventlogs")
-    resource.managed { getApplicationLogs(logTarget) }.acquireAndGet { zipInputStream =>
+    resource.managed { getApplicationLogs(appId, logTarget) }.acquireAndGet { zipInputStream =>
       getLogInputStream(zipInputStream, logTarget) match {
         case (None, _) => throw new RuntimeException(s"Failed to read log for application ${appId}")
         case (Some(inputStream), fileName) => {
@@ -117,7 +118,7 @@ class SparkRestClient(sparkConf: SparkConf) {
     val appTarget = apiTarget.path(s"applications/${appId}")
     logger.info(s"calling REST API at ${appTarget.getUri}")
 
-    val applicationInfo = getApplicationInfo(appTarget)
+    val applicationInfo = getApplicationInfo(appId, appTarget)
 
     // These are pure and cannot fail, therefore it is safe to have
     // them outside of the async block.
@@ -126,9 +127,9 @@ class SparkRestClient(sparkConf: SparkConf) {
     (applicationInfo, attemptTarget)
   }
 
-  private def getApplicationInfo(appTarget: WebTarget): ApplicationInfoImpl = {
+  private def getApplicationInfo(appId: String, appTarget: WebTarget): ApplicationInfoImpl = {
     try {
-      get(appTarget, SparkRestObjectMapper.readValue[ApplicationInfoImpl])
+      get(appId, appTarget, SparkRestObjectMapper.readValue[ApplicationInfoImpl])
     } catch {
       case NonFatal(e) => {
         logger.error(s"error reading applicationInfo ${appTarget.getUri}", e)
@@ -137,19 +138,20 @@ class SparkRestClient(sparkConf: SparkConf) {
     }
   }
 
-  private def getLogData(attemptTarget: WebTarget): Option[SparkLogDerivedData] = {
+  private def getLogData(appId: String, attemptTarget: WebTarget): Option[SparkLogDerivedData] = {
     val target = attemptTarget.path("logs")
     logger.info(s"calling REST API at ${target.getUri} to get eventlogs")
-    resource.managed { getApplicationLogs(target) }.acquireAndGet { zis =>
+    resource.managed { getApplicationLogs(appId, target) }.acquireAndGet { zis =>
       val (inputStream, _) = getLogInputStream(zis, target)
       inputStream.map(SparkLogClient.findDerivedData(_))
     }
   }
 
-  private[fetchers] def getApplicationLogs(logTarget: WebTarget): ZipInputStream = {
+  private[fetchers] def getApplicationLogs(appId: String, logTarget: WebTarget): ZipInputStream = {
     try {
-      val is = logTarget.request(MediaType.APPLICATION_OCTET_STREAM)
-        .get(classOf[java.io.InputStream])
+      val is = ResponseCache.getInstance.open(appId, logTarget.getUri.toString, new ResponseCache.Loader {
+        override def load(): InputStream = HttpConnectionPool.openStream(logTarget, MediaType.APPLICATION_OCTET_STREAM)
+      })
       new ZipInputStream(new BufferedInputStream(is))
     } catch {
       case NonFatal(e) => {
@@ -178,10 +180,10 @@ class SparkRestClient(sparkConf: SparkConf) {
     }
   }
 
-  private def getJobDatas(attemptTarget: WebTarget): Seq[JobDataImpl] = {
+  private def getJobDatas(appId: String, attemptTarget: WebTarget): Seq[JobDataImpl] = {
     val target = attemptTarget.path("jobs")
     try {
-      get(target, SparkRestObjectMapper.readValue[Seq[JobDataImpl]])
+      get(appId, target, SparkRestObjectMapper.readValue[Seq[JobDataImpl]])
     } catch {
       case NonFatal(e) => {
         logger.error(s"error reading jobData ${target.getUri}", e)
@@ -190,10 +192,10 @@ class SparkRestClient(sparkConf: SparkConf) {
     }
   }
 
-  private def getStageDatas(attemptTarget: WebTarget): Seq[StageDataImpl] = {
+  private def getStageDatas(appId: String, attemptTarget: WebTarget): Seq[StageDataImpl] = {
     val target = attemptTarget.path("stages")
     try {
-      get(target, SparkRestObjectMapper.readValue[Seq[StageDataImpl]])
+      get(appId, target, SparkRestObjectMapper.readValue[Seq[StageDataImpl]])
     } catch {
       case NonFatal(e) => {
         logger.error(s"error reading stageData ${target.getUri}", e)
@@ -202,10 +204,10 @@ class SparkRestClient(sparkConf: SparkConf) {
     }
   }
 
-  private def getExecutorSummaries(attemptTarget: WebTarget): Seq[ExecutorSummaryImpl] = {
+  private def getExecutorSummaries(appId: String, attemptTarget: WebTarget): Seq[ExecutorSummaryImpl] = {
     val target = attemptTarget.path("executors")
     try {
-      get(target, SparkRestObjectMapper.readValue[Seq[ExecutorSummaryImpl]])
+      get(appId, target, SparkRestObjectMapper.readValue[Seq[ExecutorSummaryImpl]])
     } catch {
       case NonFatal(e) => {
         logger.error(s"error reading executorSummary ${target.getUri}", e)
@@ -235,6 +237,17 @@ object SparkRestClient {
     objectMapper
   }
 
-  def get[T](webTarget: WebTarget, converter: String => T): T =
-    converter(webTarget.request(MediaType.APPLICATION_JSON).get(classOf[String]))
+  /**
+    * Reads a Json document of the Spark REST API, served by the response cache if already fetched.
+    */
+  def get[T](appId: String, webTarget: WebTarget, converter: String => T): T = {
+    val in = ResponseCache.getInstance.open(appId, webTarget.getUri.toString, new ResponseCache.Loader {
+      override def load(): InputStream = HttpConnectionPool.openStream(webTarget, MediaType.APPLICATION_JSON)
+    })
+    try {
+      converter(IOUtils.toString(in, "UTF-8"))
+    } finally {
+      in.close()
+    }
+  }
 }
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.util;
+
+import controllers.MetricsController;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPInputStream;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.WebTarget;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.security.authentication.client.AuthenticatedURL;
+import org.apache.hadoop.security.authentication.client.AuthenticationException;
+import org.apache.hadoop.security.authentication.client.ConnectionConfigurator;
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.filter.EncodingFilter;
+import org.glassfish.jersey.message.GZipEncoder;
+
+
+/**
+ * The HTTP layer shared by the clients of the Hadoop REST APIs: the resource manager, the job history server and the
+ * Spark history server.
+ *
+ * Connections are kept alive and reused through the JDK connection cache, which requires the responses to be fully
+ * read and closed, error responses included. This class takes care of it, and also sets the timeouts, asks for gzip
+ * compressed responses, limits the number of concurrent requests to each host and records their latency.
+ */
+public class HttpConnectionPool {
+  private static final Logger logger = Logger.getLogger(HttpConnectionPool.class);
+
+  private static final String CONNECT_TIMEOUT_KEY = "drelephant.http.connect.timeout";
+  private static final String READ_TIMEOUT_KEY = "drelephant.http.read.timeout";
+  private static final String MAX_CONNECTIONS_PER_HOST_KEY = "drelephant.http.max.connections.per.host";
+  private static final String GZIP_ENABLED_KEY = "drelephant.http.gzip.enabled";
+  private static final int CONNECT_TIMEOUT = 10 * 1000;
+  private static final int READ_TIMEOUT = 5 * 60 * 1000;
+  private static final int MAX_CONNECTIONS_PER_HOST = 16;
+
+  private static final String GZIP_ENCODING = "gzip";
+  private static final int DRAIN_BUFFER_SIZE = 4096;
+
+  private static volatile int _connectTimeout = CONNECT_TIMEOUT;
+  private static volatile int _readTimeout = READ_TIMEOUT;
+  private static volatile int _maxConnectionsPerHost = MAX_CONNECTIONS_PER_HOST;
+  private static volatile boolean _gzipEnabled = true;
+  private static final Map<String, Semaphore> _hostPermits = new ConcurrentHashMap<String, Semaphore>();
+
+  private static final ConnectionConfigurator CONFIGURATOR = new ConnectionConfigurator() {
+    @Override
+    public HttpURLConnection configure(HttpURLConnection conn) throws IOException {
+      conn.setConnectTimeout(_connectTimeout);
+      conn.setReadTimeout(_readTimeout);
+      if (_gzipEnabled) {
+        conn.setRequestProperty("Accept-Encoding", GZIP_ENCODING);
+      }
+      return conn;
+    }
+  };
+
+  private HttpConnectionPool() {
+    // Static methods only
+  }
+
+  /**
+   * Configures the HTTP layer from the general configuration. It must be called before any connection is opened, as
+   * the JDK reads the size of its connection cache only once.
+   *
+   * @param configuration The general configuration
+   */
+  public static void configure(Configuration configuration) {
+    _connectTimeout = Utils.getNonNegativeInt(configuration, CONNECT_TIMEOUT_KEY, CONNECT_TIMEOUT);
+    _readTimeout = Utils.getNonNegativeInt(configuration, READ_TIMEOUT_KEY, READ_TIMEOUT);
+    _maxConnectionsPerHost = Math.max(1,
+        Utils.getNonNegativeInt(configuration, MAX_CONNECTIONS_PER_HOST_KEY, MAX_CONNECTIONS_PER_HOST));
+    _gzipEnabled = configuration.getBoolean(GZIP_ENABLED_KEY, true);
+    // The max number of idle connections the JDK keeps alive per host
+    System.setProperty("http.maxConnections", String.valueOf(_maxConnectionsPerHost));
+    logger.info("HTTP connect timeout is " + _connectTimeout + "ms, read timeout is " + _readTimeout
+        + "ms, max connections per host is " + _maxConnectionsPerHost + ", gzip is " + _gzipEnabled);
+  }
+
+  /**
+   * @return a new AuthenticatedURL opening the connections with the configured timeouts and encoding
+   */
+  public static AuthenticatedURL newAuthenticatedURL() {
+    return new AuthenticatedURL(null, CONFIGURATOR);
+  }
+
+  /**
+   * @return a new client for the REST APIs served by Jersey, with the configured timeouts and encoding. Its requests
+   *         are sent with {@link #openStream(WebTarget, String)}.
+   */
+  public static Client newClient() {
+    Client client = ClientBuilder.newClient()
+        .property(ClientProperties.CONNECT_TIMEOUT, _connectTimeout)
+        .property(ClientProperties.READ_TIMEOUT, _readTimeout);
+    if (_gzipEnabled) {
+      client.register(EncodingFilter.class).register(GZipEncoder.class);
+    }
+    return client;
+  }
+
+  /**
+   * Opens the response stream of an authenticated GET request. Closing the stream, once read, gives the connection
+   * back to the pool.
+   *
+   * @param authenticatedURL The AuthenticatedURL, see {@link #newAuthenticatedURL()}
+   * @param token The authentication token
+   * @param url The url to request
+   * @return the response stream, decompressed if needed
+   * @throws IOException if the request failed
+   * @throws AuthenticationException if the authentication failed
+   */
+  public static InputStream openStream(AuthenticatedURL authenticatedURL, AuthenticatedURL.Token token, URL url)
+      throws IOException, AuthenticationException {
+    String host = getHost(url);
+    Semaphore permits = acquireHostPermit(host);
+    long startTime = System.nanoTime();
+    boolean opened = false;
+    try {
+      HttpURLConnection conn = authenticatedURL.openConnection(url, token);
+      InputStream in;
+      try {
+        in = conn.getInputStream();
+      } catch (IOException e) {
+        // The error response must be read for the connection to be reused
+        drain(conn.getErrorStream());
+        throw e;
+      }
+      if (GZIP_ENCODING.equalsIgnoreCase(conn.getContentEncoding())) {
+        in = new GZIPInputStream(in);
+      }
+      opened = true;
+      return new ResponseStream(in, host, getEndpoint(url), startTime, permits);
+    } finally {
+      if (!opened) {
+        permits.release();
+        MetricsController.updateHttpRequestTime(host, getEndpoint(url), System.nanoTime() - startTime);
+      }
+    }
+  }
+
+  /**
+   * Opens the response stream of a GET request of a Jersey client, see {@link #newClient()}. The requests are limited
+   * per host and their latency recorded like the authenticated ones. Closing the stream, once read, gives the
+   * connection back to the pool.
+   *
+   * @param target The target to request
+   * @param mediaType The media type accepted
+   * @return the response stream, decompressed if needed
+   * @throws IOException if the wait for a connection was interrupted
+   */
+  public static InputStream openStream(WebTarget target, String mediaType) throws IOException {
+    URL url = target.getUri().toURL();
+    String host = getHost(url);
+    Semaphore permits = acquireHostPermit(host);
+    long startTime = System.nanoTime();
+    boolean opened = false;
+    try {
+      // Jersey reads and closes the error responses before throwing
+      InputStream in = target.request(mediaType).get(InputStream.class);
+      opened = true;
+      return new ResponseStream(in, host, getEndpoint(url), startTime, permits);
+    } finally {
+      if (!opened) {
+        permits.release();
+        MetricsController.updateHttpRequestTime(host, getEndpoint(url), System.nanoTime() - startTime);
+      }
+    }
+  }
+
+  /**
+   * Reads the Json response of an authenticated GET request.
+   *
+   * @param authenticatedURL The AuthenticatedURL, see {@link #newAuthenticatedURL()}
+   * @param token The authentication token
+   * @param url The url to request
+   * @param objectMapper The mapper reading the response
+   * @return the Json response
+   * @throws IOException if the request failed
+   * @throws AuthenticationException if the authentication failed
+   */
+  public static JsonNode readJsonNode(AuthenticatedURL authenticatedURL, AuthenticatedURL.Token token, URL url,
+      ObjectMapper objectMapper) throws IOException, AuthenticationException {
+    InputStream in = openStream(authenticatedURL, token, url);
+    try {
+      return objectMapper.readTree(in);
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Returns the name of the endpoint of a url in metrics, i.e. its path with the ids replaced by '_', e.g.
+   * ws.v1.history.mapreduce.jobs._.tasks for /ws/v1/history/mapreduce/jobs/job_1458194917883_1453361/tasks
+   *
+   * @param url The url
+   * @return the endpoint name
+   */
+  static String getEndpoint(URL url) {
+    StringBuilder endpoint = new StringBuilder();
+    for (String segment : url.getPath().split("/")) {
+      if (segment.isEmpty()) {
+        continue;
+      }
+      if (endpoint.length() > 0) {
+        endpoint.append('.');
+      }
+      endpoint.append(segment.matches(".*[0-9].*") && !segment.matches("v[0-9]+") ? "_" : segment);
+    }
+    return endpoint.toString();
+  }
+
+  /**
+   * Registers the gauges of the hosts requested so far, called once the metrics are initialized. The gauges of the
+   * hosts requested later are registered on their first request.
+   */
+  public static void registerMetrics() {
+    synchronized (_hostPermits) {
+      for (Map.Entry<String, Semaphore> entry : _hostPermits.entrySet()) {
+        MetricsController.registerHttpActiveRequests(entry.getKey(), entry.getValue(), _maxConnectionsPerHost);
+      }
+    }
+  }
+
+  static String getHost(URL url) {
+    return (url.getHost() + "_" + url.getPort()).replace('.', '_');
+  }
+
+  static Semaphore getHostPermits(String host) {
+    Semaphore permits = _hostPermits.get(host);
+    if (permits == null) {
+      synchronized (_hostPermits) {
+        permits = _hostPermits.get(host);
+        if (permits == null) {
+          permits = new Semaphore(_maxConnectionsPerHost);
+          _hostPermits.put(host, permits);
+          MetricsController.registerHttpActiveRequests(host, permits, _maxConnectionsPerHost);
+        }
+      }
+    }
+    return permits;
+  }
+
+  private static Semaphore acquireHostPermit(String host) throws InterruptedIOException {
+    Semaphore permits = getHostPermits(host);
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a connection to " + host);
+    }
+    return permits;
+  }
+
+  private static void drain(InputStream in) {
+    if (in == null) {
+      return;
+    }
+    try {
+      byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+      while (in.read(buffer) >= 0) {
+        // Discard
+      }
+    } catch (IOException e) {
+      logger.debug("Failed to read the error response", e);
+    } finally {
+      try {
+        in.close();
+      } catch (IOException e) {
+        logger.debug("Failed to close the error response", e);
+      }
+    }
+  }
+
+  /**
+   * Response stream giving the connection back and recording the request latency once closed.
+   */
+  private static class ResponseStream extends FilterInputStream {
+    private final String _host;
+    private final String _endpoint;
+    private final long _startTime;
+    private final Semaphore _permits;
+    private boolean _closed = false;
+
+    ResponseStream(InputStream in, String host, String endpoint, long startTime, Semaphore permits) {
+      super(in);
+      _host = host;
+      _endpoint = endpoint;
+      _startTime = startTime;
+      _permits = permits;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (_closed) {
+        return;
+      }
+      _closed = true;
+      try {
+        super.close();
+      } finally {
+        _permits.release();
+        MetricsController.updateHttpRequestTime(_host, _endpoint, System.nanoTime() - _startTime);
+      }
+    }
+  }
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.util;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import controllers.MetricsController;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.security.authentication.client.AuthenticationException;
+import org.apache.log4j.Logger;
+
+
+/**
+ * A local disk cache of the raw responses of the job history server, the Spark history server and the history files,
+ * so that retried or re-analysed applications are not fetched again.
+ *
+ * The responses are keyed by application id and resource, e.g. the url requested, and the least recently used ones
+ * are evicted once the cache exceeds its max size. A missing response is written to the cache as the caller reads
+ * it, and only cached once fully read without error, the remainder being read on close. The responses larger than
+ * the cache are not written past its size. The cache is disabled unless a directory is configured, and survives
+ * restarts. The fetchers whose servers may serve incomplete responses at first drop those of an application with
+ * invalidate before retrying it.
+ */
+public class ResponseCache {
+  private static final Logger logger = Logger.getLogger(ResponseCache.class);
+
+  private static final String CACHE_DIR_KEY = "drelephant.fetch.cache.dir";
+  private static final String CACHE_SIZE_KEY = "drelephant.fetch.cache.size.mb";
+  private static final int CACHE_SIZE_MB = 1024;
+
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final int DRAIN_BUFFER_SIZE = 4096;
+
+  private static volatile ResponseCache _instance = new ResponseCache(null, 0);
+
+  /**
+   * Loads a response missing from the cache.
+   */
+  public interface Loader {
+
+    /**
+     * @return the response stream, closed by the cache once read
+     * @throws IOException if the request failed
+     * @throws AuthenticationException if the authentication failed
+     */
+    public InputStream load() throws IOException, AuthenticationException;
+  }
+
+  private final File _dir;
+  private final long _maxBytes;
+  // The size of the cached files, by file name, in access order
+  private final LinkedHashMap<String, Long> _entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+  private long _bytes = 0;
+
+  /**
+   * @param dir The directory of the cached files, null to disable the cache
+   * @param maxBytes The max size of the cached files
+   */
+  ResponseCache(File dir, long maxBytes) {
+    _dir = dir;
+    _maxBytes = maxBytes;
+    if (_dir != null) {
+      loadEntries();
+    }
+  }
+
+  /**
+   * Configures the cache shared by the fetchers from the general configuration.
+   *
+   * @param configuration The general configuration
+   */
+  public static void configure(Configuration configuration) {
+    String dir = configuration.get(CACHE_DIR_KEY);
+    if (dir == null || dir.trim().isEmpty()) {
+      logger.info("The response cache is disabled");
+      _instance = new ResponseCache(null, 0);
+      return;
+    }
+    long maxBytes = Utils.getNonNegativeInt(configuration, CACHE_SIZE_KEY, CACHE_SIZE_MB) * FileUtils.ONE_MB;
+    _instance = new ResponseCache(new File(dir.trim()), maxBytes);
+    logger.info("The response cache is in " + dir.trim() + ", with a max size of " + maxBytes / FileUtils.ONE_MB
+        + " MB");
+  }
+
+  /**
+   * @return the cache shared by the fetchers
+   */
+  public static ResponseCache getInstance() {
+    return _instance;
+  }
+
+  /**
+   * @return true if the responses are cached
+   */
+  public boolean isEnabled() {
+    return _dir != null && _maxBytes > 0;
+  }
+
+  /**
+   * @return the size in bytes of the cached responses
+   */
+  public synchronized long getSizeBytes() {
+    return _bytes;
+  }
+
+  /**
+   * Opens a response from the cache, or loads and caches it if missing.
+   *
+   * @param appId The id of the application the response belongs to
+   * @param resource The resource requested, e.g. its url
+   * @param loader The loader of the response, called if missing from the cache
+   * @return the response stream
+   * @throws IOException if the response cannot be loaded
+   * @throws AuthenticationException if the authentication failed
+   */
+  public InputStream open(String appId, String resource, Loader loader) throws IOException, AuthenticationException {
+    if (!isEnabled()) {
+      return loader.load();
+    }
+
+    String fileName = getFileName(appId, resource);
+    File file = new File(_dir, fileName);
+    synchronized (this) {
+      if (_entries.get(fileName) != null) {
+        try {
+          InputStream in = new FileInputStream(file);
+          file.setLastModified(System.currentTimeMillis());
+          MetricsController.markResponseCacheHit();
+          return in;
+        } catch (FileNotFoundException e) {
+          logger.warn("The cached response " + file + " was deleted");
+          _bytes -= _entries.remove(fileName);
+        }
+      }
+    }
+    MetricsController.markResponseCacheMiss();
+
+    File tmpFile = File.createTempFile(fileName, TMP_SUFFIX, _dir);
+    boolean opened = false;
+    try {
+      InputStream in = loader.load();
+      try {
+        CachingStream cachingStream = new CachingStream(in, tmpFile, file);
+        opened = true;
+        return cachingStream;
+      } finally {
+        if (!opened) {
+          in.close();
+        }
+      }
+    } finally {
+      if (!opened) {
+        FileUtils.deleteQuietly(tmpFile);
+      }
+    }
+  }
+
+  /**
+   * Drops the cached responses of an application, e.g. when its analysis is retried because the responses served were
+   * not complete yet.
+   *
+   * @param appId The id of the application
+   */
+  public synchronized void invalidate(String appId) {
+    if (!isEnabled()) {
+      return;
+    }
+    String prefix = getFileName(appId, "");
+    prefix = prefix.substring(0, prefix.lastIndexOf('-') + 1);
+    Iterator<Map.Entry<String, Long>> it = _entries.entrySet().iterator();
+    int count = 0;
+    while (it.hasNext()) {
+      Map.Entry<String, Long> entry = it.next();
+      // The hash of the resource follows the application id, so the ids sharing a prefix are not matched
+      if (entry.getKey().startsWith(prefix) && entry.getKey().indexOf('-', prefix.length()) < 0) {
+        it.remove();
+        _bytes -= entry.getValue();
+        FileUtils.deleteQuietly(new File(_dir, entry.getKey()));
+        count++;
+      }
+    }
+    if (count > 0) {
+      logger.info("Dropped the " + count + " cached responses of " + appId);
+    }
+  }
+
+  private synchronized void admit(File tmpFile, File file) {
+    long size = tmpFile.length();
+    if (size > _maxBytes) {
+      logger.debug("The response " + file.getName() + " of " + size + " bytes is too large to be cached");
+      return;
+    }
+    if (!tmpFile.renameTo(file)) {
+      logger.warn("Failed to move the response " + tmpFile + " to " + file);
+      return;
+    }
+    Long previousSize = _entries.put(file.getName(), size);
+    if (previousSize != null) {
+      _bytes -= previousSize;
+    }
+    _bytes += size;
+    evict();
+  }
+
+  /**
+   * Response stream writing the bytes read to a temporary file, which is admitted into the cache on close if the
+   * response was fully read without error.
+   */
+  private class CachingStream extends FilterInputStream {
+    private final File _tmpFile;
+    private final File _file;
+    // Null once the response is not cached anymore
+    private OutputStream _out;
+    private long _bytes = 0;
+    private boolean _eof = false;
+    private boolean _failed = false;
+    private boolean _closed = false;
+
+    CachingStream(InputStream in, File tmpFile, File file) throws IOException {
+      super(in);
+      _tmpFile = tmpFile;
+      _file = file;
+      _out = new FileOutputStream(tmpFile);
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int n = read(b, 0, 1);
+      return n <= 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n;
+      try {
+        n = super.read(b, off, len);
+      } catch (IOException e) {
+        _failed = true;
+        throw e;
+      }
+      if (n < 0) {
+        _eof = true;
+      } else {
+        write(b, off, n);
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      // The skipped bytes are part of the response
+      byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), DRAIN_BUFFER_SIZE)];
+      int read = buffer.length == 0 ? 0 : read(buffer, 0, buffer.length);
+      return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (_closed) {
+        return;
+      }
+      _closed = true;
+      try {
+        // The remainder of a response not read to the end is still cached
+        byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+        while (_out != null && !_failed && !_eof) {
+          read(buffer, 0, buffer.length);
+        }
+      } catch (IOException e) {
+        logger.debug("Failed to read the remainder of the response " + _file.getName(), e);
+      } finally {
+        try {
+          super.close();
+        } finally {
+          finish();
+        }
+      }
+    }
+
+    private void write(byte[] b, int off, int len) {
+      if (_out == null) {
+        return;
+      }
+      if (_bytes + len > _maxBytes) {
+        logger.debug("The response " + _file.getName() + " is too large to be cached");
+        abandon();
+        return;
+      }
+      try {
+        _out.write(b, off, len);
+        _bytes += len;
+      } catch (IOException e) {
+        logger.warn("Failed to cache the response " + _file.getName(), e);
+        abandon();
+      }
+    }
+
+    private void abandon() {
+      IOUtils.closeQuietly(_out);
+      _out = null;
+      FileUtils.deleteQuietly(_tmpFile);
+    }
+
+    private void finish() {
+      if (_out == null) {
+        return;
+      }
+      try {
+        _out.close();
+        if (_eof && !_failed) {
+          admit(_tmpFile, _file);
+        }
+      } catch (IOException e) {
+        logger.warn("Failed to cache the response " + _file.getName(), e);
+      } finally {
+        _out = null;
+        if (_tmpFile.exists()) {
+          FileUtils.deleteQuietly(_tmpFile);
+        }
+      }
+    }
+  }
+
+  private synchronized void evict() {
+    Iterator<Map.Entry<String, Long>> it = _entries.entrySet().iterator();
+    while (_bytes > _maxBytes && it.hasNext()) {
+      Map.Entry<String, Long> eldest = it.next();
+      it.remove();
+      _bytes -= eldest.getValue();
+      FileUtils.deleteQuietly(new File(_dir, eldest.getKey()));
+    }
+  }
+
+  private synchronized void loadEntries() {
+    if (!_dir.isDirectory() && !_dir.mkdirs()) {
+      throw new IllegalArgumentException("Cannot create the response cache directory " + _dir);
+    }
+    File[] files = _dir.listFiles();
+    if (files == null) {
+      throw new IllegalArgumentException("Cannot list the response cache directory " + _dir);
+    }
+    // The least recently used files first
+    Arrays.sort(files, new Comparator<File>() {
+      @Override
+      public int compare(File f1, File f2) {
+        long lastModified1 = f1.lastModified();
+        long lastModified2 = f2.lastModified();
+        return lastModified1 < lastModified2 ? -1 : (lastModified1 == lastModified2 ? 0 : 1);
+      }
+    });
+    for (File file : files) {
+      if (!file.isFile()) {
+        continue;
+      }
+      if (file.getName().endsWith(TMP_SUFFIX)) {
+        // Left by an interrupted load
+        FileUtils.deleteQuietly(file);
+        continue;
+      }
+      _entries.put(file.getName(), file.length());
+      _bytes += file.length();
+    }
+    evict();
+    logger.info("Loaded " + _entries.size() + " cached responses of " + _bytes + " bytes from " + _dir);
+  }
+
+  /**
+   * @return the name of the cached file of a response, i.e. the application id followed by the hash of the resource
+   */
+  static String getFileName(String appId, String resource) {
+    return appId.replaceAll("[^A-Za-z0-9_-]", "_") + "-"
+        + Hashing.sha1().hashString(resource, Charsets.UTF_8).toString();
+  }
+}
@@ -91,6 +91,7 @@ public class Application extends Controller {
   public static final String JOB_DEF_ID = "job-def-id";
   public static final String USERNAME = "username";
   public static final String QUEUE_NAME = "queue-name";
+  public static final String CLUSTER = "cluster";
   public static final String SEVERITY = "severity";
   public static final String JOB_TYPE = "job-type";
   public static final String ANALYSIS = "analysis";
@@ -332,6 +333,9 @@ public class Application extends Controller {
     String queuename = form.get(QUEUE_NAME);
     queuename = queuename != null ? queuename.trim().toLowerCase() : null;
     searchParams.put(QUEUE_NAME, queuename);
+    String cluster = form.get(CLUSTER);
+    cluster = cluster != null ? cluster.trim() : null;
+    searchParams.put(CLUSTER, cluster);
     searchParams.put(SEVERITY, form.get(SEVERITY));
     searchParams.put(JOB_TYPE, form.get(JOB_TYPE));
     searchParams.put(ANALYSIS, form.get(ANALYSIS));
@@ -366,6 +370,10 @@ public class Application extends Controller {
     if (Utils.isSet(queuename)) {
       query = query.eq(AppResult.TABLE.QUEUE_NAME, queuename);
     }
+    String cluster = searchParams.get(CLUSTER);
+    if (Utils.isSet(cluster)) {
+      query = query.eq(AppResult.TABLE.CLUSTER, cluster);
+    }
     String jobType = searchParams.get(JOB_TYPE);
     if (Utils.isSet(jobType)) {
       query = query.eq(AppResult.TABLE.JOB_TYPE, jobType);
@@ -26,7 +26,23 @@ import com.codahale.metrics.health.HealthCheckRegistry;
 import com.codahale.metrics.health.jvm.ThreadDeadlockHealthCheck;
 import com.codahale.metrics.jvm.MemoryUsageGaugeSet;
 import com.linkedin.drelephant.analysis.AnalyticJob;
+import com.linkedin.drelephant.analysis.LeaderElection;
 import com.linkedin.drelephant.metrics.CustomGarbageCollectorMetricSet;
+import com.linkedin.drelephant.metrics.StageMetrics;
+import com.linkedin.drelephant.util.HttpConnectionPool;
+import com.linkedin.drelephant.util.ResponseCache;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.log4j.Logger;
 
 import models.AppResult;
@@ -47,6 +63,7 @@ import static com.codahale.metrics.MetricRegistry.name;
  * <ul>/ping - Reports application status if up</ul>
  * <ul>/healthcheck - Returns status in Json format from all the implemented healthchecks</ul>
  * <ul>/metrics - Returns all the metrics in Json format</ul>
+ * <ul>/metrics/stages - Returns the slowest fetchers, heuristics and aggregators in Json format</ul>
  */
 public class MetricsController extends Controller {
   private static final Logger LOGGER = Logger.getLogger(MetricsController.class);
@@ -54,6 +71,7 @@ public class MetricsController extends Controller {
   private static final String METRICS_NOT_ENABLED = "Metrics not enabled";
   private static final String HEALTHCHECK_NOT_ENABLED = "Healthcheck not enabled";
   private static final String UNINITIALIZED_MESSAGE = "Metrics should be initialized before use.";
+  private static final long STAGE_WINDOW_MINUTES = 15;
 
   private static MetricRegistry _metricRegistry = null;
   private static HealthCheckRegistry _healthCheckRegistry = null;
@@ -63,6 +81,10 @@ public class MetricsController extends Controller {
   private static Meter _skippedJobs;
   private static Meter _processedJobs;
   private static Histogram _jobProcessingTime;
+  private static Meter _responseCacheHits;
+  private static Meter _responseCacheMisses;
+  private static final Map<String, AtomicInteger> _queueSizeByPriority = new ConcurrentHashMap<String, AtomicInteger>();
+  private static final Map<String, StageMetrics> _stageMetrics = new ConcurrentHashMap<String, StageMetrics>();
 
   /**
    * Initializer method for the metrics registry. Call this method before registering
@@ -88,6 +110,16 @@ public class MetricsController extends Controller {
     _skippedJobs = _metricRegistry.meter(name(className, "skippedJobs", "count"));
     _processedJobs = _metricRegistry.meter(name(className, "processedJobs", "count"));
     _jobProcessingTime = _metricRegistry.histogram(name(className, "jobProcessingTime", "ms"));
+    _responseCacheHits = _metricRegistry.meter(name("ResponseCache", "hits"));
+    _responseCacheMisses = _metricRegistry.meter(name("ResponseCache", "misses"));
+    _metricRegistry.register(name("ResponseCache", "size", "bytes"), new Gauge<Long>() {
+      @Override
+      public Long getValue() {
+        return ResponseCache.getInstance().getSizeBytes();
+      }
+    });
+    // The hosts requested before the metrics were initialized
+    HttpConnectionPool.registerMetrics();
     _metricRegistry.register(name(className, "jobQueue", "size"), new Gauge<Integer>() {
       @Override
       public Integer getValue() {
@@ -172,6 +204,180 @@ public class MetricsController extends Controller {
     _retryQueueSize = retryQueueSize;
   }
 
+  /**
+   * Updates the number of jobs waiting in the analysis queue for the given priority level.
+   *
+   * @param priority The priority level of the jobs
+   * @param delta The number of jobs added to (positive) or removed from (negative) the queue
+   */
+  public static void updateQueueSize(String priority, int delta) {
+    getQueueSizeCounter(priority).addAndGet(delta);
+  }
+
+  /**
+   * Sets the time in milliseconds a job of the given priority level waited in the analysis queue.
+   *
+   * @param priority The priority level of the job
+   * @param waitTime The time spent in the queue
+   */
+  public static void setQueueWaitTime(String priority, long waitTime) {
+    if (_metricRegistry != null) {
+      _metricRegistry.histogram(name(AnalyticJob.class.getSimpleName(), "jobQueue", priority, "waitTime", "ms"))
+          .update(waitTime);
+    }
+  }
+
+  private static synchronized AtomicInteger getQueueSizeCounter(String priority) {
+    AtomicInteger counter = _queueSizeByPriority.get(priority);
+    if (counter == null) {
+      counter = new AtomicInteger();
+      _queueSizeByPriority.put(priority, counter);
+      if (_metricRegistry != null) {
+        final AtomicInteger size = counter;
+        _metricRegistry.register(name(AnalyticJob.class.getSimpleName(), "jobQueue", priority, "size"),
+            new Gauge<Integer>() {
+              @Override
+              public Integer getValue() {
+                return size.get();
+              }
+            });
+      }
+    }
+    return counter;
+  }
+
+  /**
+   * Registers a gauge reporting the number of jobs waiting in the queue of a stage of the analysis pipeline.
+   *
+   * @param stage The name of the pipeline stage
+   * @param queue The queue of the stage
+   */
+  public static void registerPipelineQueue(String stage, final Collection<?> queue) {
+    if (_metricRegistry != null) {
+      _metricRegistry.register(name("Pipeline", stage, "queue", "size"), new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+          return queue.size();
+        }
+      });
+    }
+  }
+
+  /**
+   * Registers gauges reporting whether this node is the leader of an election, and the id of the leader.
+   *
+   * @param election The leader election
+   */
+  public static void registerLeaderElection(final LeaderElection election) {
+    if (_metricRegistry != null && !_metricRegistry.getNames().contains(
+        name("LeaderElection", election.getName(), "isLeader"))) {
+      _metricRegistry.register(name("LeaderElection", election.getName(), "isLeader"), new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+          return election.isLeader() ? 1 : 0;
+        }
+      });
+      _metricRegistry.register(name("LeaderElection", election.getName(), "leader"), new Gauge<String>() {
+        @Override
+        public String getValue() {
+          return election.getLeader();
+        }
+      });
+    }
+  }
+
+  /**
+   * Registers gauges reporting the active threads and the queued tasks of a thread pool.
+   *
+   * @param pool The name of the thread pool
+   * @param executor The thread pool
+   */
+  public static void registerThreadPool(String pool, final ThreadPoolExecutor executor) {
+    if (_metricRegistry != null && !_metricRegistry.getNames().contains(name("ThreadPool", pool, "activeThreads"))) {
+      _metricRegistry.register(name("ThreadPool", pool, "activeThreads"), new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+          return executor.getActiveCount();
+        }
+      });
+      _metricRegistry.register(name("ThreadPool", pool, "queue", "size"), new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+          return executor.getQueue().size();
+        }
+      });
+    }
+  }
+
+  /**
+   * Sets the time in milliseconds a stage of the analysis pipeline took to process a job, or a batch of jobs.
+   *
+   * @param stage The name of the pipeline stage
+   * @param time The processing time
+   */
+  public static void setPipelineStageTime(String stage, long time) {
+    if (_metricRegistry != null) {
+      _metricRegistry.histogram(name("Pipeline", stage, "processingTime", "ms")).update(time);
+    }
+  }
+
+  /**
+   * Registers a gauge reporting the number of requests in progress to a host, out of the max allowed.
+   *
+   * @param host The host and port of the server
+   * @param permits The permits of the requests to the host
+   * @param maxRequests The max number of concurrent requests to the host
+   */
+  public static synchronized void registerHttpActiveRequests(String host, final Semaphore permits,
+      final int maxRequests) {
+    if (_metricRegistry != null && !_metricRegistry.getNames().contains(name("Http", host, "activeRequests"))) {
+      _metricRegistry.register(name("Http", host, "activeRequests"), new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+          return maxRequests - permits.availablePermits();
+        }
+      });
+    }
+  }
+
+  /**
+   * Records the time taken by a request to a REST endpoint.
+   *
+   * @param host The host and port of the server
+   * @param endpoint The endpoint requested
+   * @param durationNanos The duration of the request in nanoseconds
+   */
+  public static void updateHttpRequestTime(String host, String endpoint, long durationNanos) {
+    if (_metricRegistry != null) {
+      _metricRegistry.timer(name("Http", host, endpoint, "requestTime")).update(durationNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Records one run of an analysis stage, i.e. a fetcher, a heuristic or an aggregator.
+   *
+   * @param type The type of stage, e.g. StageMetrics.HEURISTIC
+   * @param stage The simple class name of the stage
+   * @param durationNanos The time taken in nanoseconds
+   * @param allocatedBytes The bytes allocated, negative if unknown
+   */
+  public static void updateStageMetrics(String type, String stage, long durationNanos, long allocatedBytes) {
+    if (_metricRegistry != null) {
+      getStageMetrics(type, stage).update(durationNanos, allocatedBytes);
+    }
+  }
+
+  private static synchronized StageMetrics getStageMetrics(String type, String stage) {
+    String key = name(type, stage);
+    StageMetrics metrics = _stageMetrics.get(key);
+    if (metrics == null) {
+      metrics = new StageMetrics(type, stage, STAGE_WINDOW_MINUTES, TimeUnit.MINUTES);
+      _metricRegistry.registerAll(metrics);
+      _stageMetrics.put(key, metrics);
+    }
+    return metrics;
+  }
+
   /**
    * Increments the meter for keeping track of processed jobs in metrics registry.
    */
@@ -202,6 +408,46 @@ public class MetricsController extends Controller {
     }
   }
 
+  /**
+   * A meter for the retries of the failed jobs, by class of failure.
+   *
+   * @param failureClass The class of the failure causing the retry
+   */
+  public static void markRetry(String failureClass) {
+    if (_metricRegistry != null) {
+      _metricRegistry.meter(name(AnalyticJob.class.getSimpleName(), "retries", failureClass, "count")).mark();
+    }
+  }
+
+  /**
+   * A meter for the failed jobs dropped as their retry budget is exhausted, by class of failure.
+   *
+   * @param failureClass The class of the failure exhausting the budget
+   */
+  public static void markRetryExhausted(String failureClass) {
+    if (_metricRegistry != null) {
+      _metricRegistry.meter(name(AnalyticJob.class.getSimpleName(), "retriesExhausted", failureClass, "count")).mark();
+    }
+  }
+
+  /**
+   * A meter for the fetched responses served by the response cache.
+   */
+  public static void markResponseCacheHit() {
+    if(_responseCacheHits != null) {
+      _responseCacheHits.mark();
+    }
+  }
+
+  /**
+   * A meter for the fetched responses missing from the response cache.
+   */
+  public static void markResponseCacheMiss() {
+    if(_responseCacheMisses != null) {
+      _responseCacheMisses.mark();
+    }
+  }
+
   /**
    * The endpoint /ping
    * Ping will respond with the message 'alive' if the application is running.
@@ -226,6 +472,38 @@ public class MetricsController extends Controller {
     }
   }
 
+  /**
+   * The endpoint /metrics/stages
+   * Endpoint can be queried if metrics is enabled.
+   *
+   * @param count The number of stages to return
+   * @return Will return the fetchers, heuristics and aggregators that took the most time over the last
+   * STAGE_WINDOW_MINUTES minutes in Json format, slowest first.
+   */
+  public static Result slowestStages(int count) {
+    if (_metricRegistry == null) {
+      return ok(Json.toJson(METRICS_NOT_ENABLED));
+    }
+
+    final Map<StageMetrics, Long> totalTimes = new HashMap<StageMetrics, Long>();
+    for (StageMetrics metrics : _stageMetrics.values()) {
+      totalTimes.put(metrics, metrics.getTotalTime());
+    }
+    List<StageMetrics> stages = new ArrayList<StageMetrics>(totalTimes.keySet());
+    Collections.sort(stages, new Comparator<StageMetrics>() {
+      @Override
+      public int compare(StageMetrics stage1, StageMetrics stage2) {
+        return totalTimes.get(stage2).compareTo(totalTimes.get(stage1));
+      }
+    });
+
+    List<Map<String, Object>> slowest = new ArrayList<Map<String, Object>>();
+    for (StageMetrics metrics : stages.subList(0, Math.min(Math.max(count, 0), stages.size()))) {
+      slowest.add(metrics.getSummary());
+    }
+    return ok(Json.toJson(slowest));
+  }
+
   /**
    * The endpoint /healthcheck
    * Endpoint can be queried if metrics is enabled.
@@ -32,6 +32,7 @@ public class JsonKeys {
   public static final String COUNT = "count";
   public static final String VALUE = "value";
   public static final String QUEUE = "queue";
+  public static final String CLUSTER = "cluster";
   public static final String SEARCH_OPTS = "search-options";
   public static final String START = "start";
   public static final String END = "end";
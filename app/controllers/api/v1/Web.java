@@ -328,6 +328,7 @@ public class Web extends Controller {
       applicationObject.addProperty(JsonKeys.RESOURCE_USED, application.resourceUsed);
       applicationObject.addProperty(JsonKeys.RESOURCE_WASTED, application.resourceWasted);
       applicationObject.addProperty(JsonKeys.QUEUE, application.queueName);
+      applicationObject.addProperty(JsonKeys.CLUSTER, application.cluster);
       applicationObject.addProperty(JsonKeys.SEVERITY, application.severity.getText());
 
       applicationObject.add(JsonKeys.HEURISTICS_SUMMARY, heuristicsArray);
@@ -1188,6 +1189,7 @@ public class Web extends Controller {
     applicationObject.addProperty(JsonKeys.FLOW_EXEC_ID, result.flowExecId);
     applicationObject.addProperty(JsonKeys.FLOW_DEF_ID, result.flowDefId);
     applicationObject.addProperty(JsonKeys.QUEUE, result.queueName);
+    applicationObject.addProperty(JsonKeys.CLUSTER, result.cluster);
 
     applicationObject.add(JsonKeys.YARN_APP_HEURISTIC_RESULTS, heuristicsArray);
 
@@ -20,6 +20,7 @@ import java.io.InputStream
 import java.util.{Set => JSet, Properties, List => JList, HashSet => JHashSet, ArrayList => JArrayList}
 
 import scala.collection.mutable
+import scala.util.Random
 
 import com.linkedin.drelephant.analysis.ApplicationType
 import com.linkedin.drelephant.spark.legacydata._
@@ -63,6 +64,7 @@ class SparkDataCollection extends SparkApplicationData {
   private var _executorData: SparkExecutorData = null;
   private var _storageData: SparkStorageData = null;
   private var _isThrottled: Boolean = false;
+  private var _droppedTasks: Long = 0L;
 
   def throttle(): Unit = {
     _isThrottled = true
@@ -289,6 +291,31 @@ class SparkDataCollection extends SparkApplicationData {
   }
 
   def load(in: InputStream, sourceName: String): Unit = {
+    newReplayBus().replay(in, sourceName, maybeTruncated = false)
+  }
+
+  /**
+   * Replays an event log in bounded memory, keeping the data of a sample of the ended tasks of each stage only. The
+   * stage and executor metrics still aggregate every task.
+   *
+   * @param in the event log
+   * @param sourceName the name of the event log
+   * @param taskSampleSize the max number of ended tasks kept per stage attempt
+   */
+  def load(in: InputStream, sourceName: String, taskSampleSize: Int): Unit = {
+    val replayBus = newReplayBus()
+    val samplingListener = new TaskDataSamplingListener(jobProgressListener, taskSampleSize, new Random())
+    replayBus.addListener(samplingListener)
+    replayBus.replay(in, sourceName, maybeTruncated = false)
+    _droppedTasks = samplingListener.droppedTasks
+  }
+
+  /**
+   * @return the number of ended tasks whose data was dropped by a sampled replay
+   */
+  def getDroppedTasks(): Long = _droppedTasks
+
+  private def newReplayBus(): ReplayListenerBus = {
     val replayBus = new ReplayListenerBus()
     replayBus.addListener(applicationEventListener)
     replayBus.addListener(jobProgressListener)
@@ -297,7 +324,7 @@ class SparkDataCollection extends SparkApplicationData {
     replayBus.addListener(executorsListener)
     replayBus.addListener(storageListener)
     replayBus.addListener(storageStatusTrackingListener)
-    replayBus.replay(in, sourceName, maybeTruncated = false)
+    replayBus
   }
 }
 
@@ -51,6 +51,9 @@ class SparkFSFetcher(fetcherConfData: FetcherConfigurationData) extends Elephant
   logger.info("The event log limit of Spark application is set to " + eventLogSizeLimitMb + " MB")
   val eventLogUri = Option(fetcherConfData.getParamMap.get(LOG_LOCATION_URI_XML_FIELD))
   logger.info("The event log location of Spark application is set to " + eventLogUri)
+  val samplingEnabled = Option(fetcherConfData.getParamMap.get(SAMPLING_ENABLED_XML_FIELD)).exists(_.toBoolean)
+  logger.info("The sampled replay of the event logs over the limit size is " +
+    (if (samplingEnabled) "enabled" else "disabled"))
 
   private lazy val security = new HadoopSecurity()
 
@@ -85,9 +88,19 @@ class SparkFSFetcher(fetcherConfData: FetcherConfigurationData) extends Elephant
     val (eventLogPath, eventLogCodec) =
       sparkUtils.pathAndCodecforEventLog(sparkConf, eventLogFileSystem, baseEventLogPath, appId, None)
 
-    // Check if the log parser should be throttled when the file is too large.
-    val shouldThrottle = eventLogFileSystem.getFileStatus(eventLogPath).getLen() > (eventLogSizeLimitMb * FileUtils.ONE_MB)
-    if (shouldThrottle) {
+    // Check if the log parser should be throttled, or sample the tasks, when the file is too large.
+    val isOverLimit = eventLogFileSystem.getFileStatus(eventLogPath).getLen() > (eventLogSizeLimitMb * FileUtils.ONE_MB)
+    if (isOverLimit && samplingEnabled) {
+      logger.info("The event log of Spark application: " + appId + " is over the limit size of "
+        + eventLogSizeLimitMb + " MB, replaying it with a sample of " + TASK_SAMPLE_SIZE + " tasks per stage.")
+
+      sparkUtils.withEventLog(eventLogFileSystem, eventLogPath, eventLogCodec) { in =>
+        dataCollection.load(in, eventLogPath.toString(), TASK_SAMPLE_SIZE)
+      }
+
+      logger.info("Sampled replay completed for application: " + appId + ", the data of "
+        + dataCollection.getDroppedTasks() + " tasks was dropped")
+    } else if (isOverLimit) {
       dataCollection.throttle()
       // Since the data set is empty, we need to set the application id,
       // so that we could detect this is Spark job type
@@ -122,5 +135,9 @@ object SparkFSFetcher {
 
   val LOG_LOCATION_URI_XML_FIELD = "event_log_location_uri"
 
+  val SAMPLING_ENABLED_XML_FIELD = "sampling_enabled"
+
+  val TASK_SAMPLE_SIZE = 1000
+
   val DEFAULT_ATTEMPT_ID = Some("1")
 }
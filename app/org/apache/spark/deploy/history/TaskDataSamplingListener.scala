@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.apache.spark.deploy.history
+
+import scala.collection.mutable
+import scala.util.Random
+
+import org.apache.spark.scheduler.{SparkListener, SparkListenerStageCompleted, SparkListenerTaskEnd}
+import org.apache.spark.ui.jobs.JobProgressListener
+
+/**
+ * Bounds the memory used by a JobProgressListener replaying a large event log.
+ *
+ * The JobProgressListener aggregates the metrics of the tasks into their stage and executor as the task end events are
+ * replayed, but it also keeps the data of every task. This listener, which must be registered after the
+ * JobProgressListener, only keeps a reservoir sample of the ended tasks of each stage and drops the data of the others.
+ * The aggregated metrics still account for every task.
+ *
+ * @param jobProgressListener the listener whose task data is sampled
+ * @param sampleSize the max number of ended tasks kept per stage attempt
+ * @param random the random generator sampling the tasks
+ */
+class TaskDataSamplingListener(jobProgressListener: JobProgressListener, sampleSize: Int, random: Random)
+    extends SparkListener {
+
+  private class TaskSample {
+    val taskIds = new mutable.ArrayBuffer[Long]()
+    var seen = 0
+  }
+
+  private val samples = new mutable.HashMap[(Int, Int), TaskSample]()
+
+  private var _droppedTasks = 0L
+
+  override def onTaskEnd(taskEnd: SparkListenerTaskEnd): Unit = {
+    val stageKey = (taskEnd.stageId, taskEnd.stageAttemptId)
+    jobProgressListener.stageIdToData.get(stageKey).foreach { stageData =>
+      val sample = samples.getOrElseUpdate(stageKey, new TaskSample())
+      val taskId = taskEnd.taskInfo.taskId
+      sample.seen += 1
+      if (sample.taskIds.size < sampleSize) {
+        sample.taskIds += taskId
+      } else {
+        _droppedTasks += 1
+        val index = random.nextInt(sample.seen)
+        if (index < sampleSize) {
+          stageData.taskData.remove(sample.taskIds(index))
+          sample.taskIds(index) = taskId
+        } else {
+          stageData.taskData.remove(taskId)
+        }
+      }
+    }
+  }
+
+  override def onStageCompleted(stageCompleted: SparkListenerStageCompleted): Unit = {
+    samples.remove((stageCompleted.stageInfo.stageId, stageCompleted.stageInfo.attemptId))
+  }
+
+  /**
+   * @return the number of ended tasks whose data was dropped
+   */
+  def droppedTasks: Long = _droppedTasks
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.benchmark;
+
+import com.linkedin.drelephant.analysis.ApplicationType;
+import com.linkedin.drelephant.analysis.HadoopAggregatedData;
+import com.linkedin.drelephant.configurations.aggregator.AggregatorConfigurationData;
+import com.linkedin.drelephant.mapreduce.MapReduceMetricsAggregator;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Throughput of the MapReduce metrics aggregator by number of tasks of the job. The allocation is reported by the gc
+ * profiler, as gc.alloc.rate.norm, e.g.
+ * <pre>sbt "benchmark/jmh:run -prof gc MapReduceAggregatorBenchmark"</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class MapReduceAggregatorBenchmark {
+  // One aggregator aggregates all the jobs, as in the analysis
+  private final MapReduceMetricsAggregator _aggregator = new MapReduceMetricsAggregator(
+      new AggregatorConfigurationData(MapReduceMetricsAggregator.class.getName(), new ApplicationType("mapreduce"),
+          new HashMap<String, String>()));
+
+  @Benchmark
+  public HadoopAggregatedData aggregate(MapReduceJobState job) {
+    _aggregator.aggregate(job.data);
+    return _aggregator.getResult();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.benchmark;
+
+import com.linkedin.drelephant.analysis.ApplicationType;
+import com.linkedin.drelephant.analysis.Heuristic;
+import com.linkedin.drelephant.analysis.HeuristicResult;
+import com.linkedin.drelephant.configurations.heuristic.HeuristicConfigurationData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Throughput of the MapReduce heuristics by number of tasks of the job. The allocation of each heuristic is reported
+ * by the gc profiler, as gc.alloc.rate.norm, e.g.
+ * <pre>sbt "benchmark/jmh:run -prof gc -p tasks=1000,1000000 MapReduceHeuristicBenchmark"</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class MapReduceHeuristicBenchmark {
+  private static final String HEURISTICS_PACKAGE = "com.linkedin.drelephant.mapreduce.heuristics.";
+
+  /**
+   * The simple class name of the heuristic, configured with its default params
+   */
+  @Param({ "MapperSkewHeuristic", "MapperGCHeuristic", "MapperTimeHeuristic", "MapperSpeedHeuristic",
+      "MapperSpillHeuristic", "MapperMemoryHeuristic", "ReducerSkewHeuristic", "ReducerGCHeuristic",
+      "ReducerTimeHeuristic", "ReducerMemoryHeuristic", "ShuffleSortHeuristic", "ExceptionHeuristic",
+      "DistributedCacheLimitHeuristic" })
+  public String heuristic;
+
+  private Heuristic<MapReduceApplicationData> _heuristic;
+
+  @Setup(Level.Trial)
+  @SuppressWarnings("unchecked")
+  public void setUp() throws Exception {
+    // Instantiated the way ElephantContext loads the heuristics of HeuristicConf.xml
+    String className = HEURISTICS_PACKAGE + heuristic;
+    HeuristicConfigurationData heuristicConfData = new HeuristicConfigurationData(heuristic, className, null,
+        new ApplicationType("mapreduce"), new HashMap<String, String>());
+    _heuristic = (Heuristic<MapReduceApplicationData>) Class.forName(className)
+        .getConstructor(HeuristicConfigurationData.class).newInstance(heuristicConfData);
+  }
+
+  @Benchmark
+  public HeuristicResult apply(MapReduceJobState job) {
+    return _heuristic.apply(job.data);
+  }
+}
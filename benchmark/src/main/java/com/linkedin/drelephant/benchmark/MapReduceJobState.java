@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.benchmark;
+
+import com.linkedin.drelephant.analysis.HDFSContext;
+import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceCounterData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskTable;
+import java.util.Properties;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * A synthetic MapReduce job, as returned by the fetchers without sampling, shared by the benchmarks.
+ *
+ * The tasks are generated from a fixed seed, 80% of them being mappers, with log-normal input sizes so that the skew
+ * heuristics have some work to do, and every counter read by the heuristics and the aggregator.
+ *
+ * The task metrics gathered by the job data on first use are dropped before each invocation, so that every invocation
+ * pays for the pass over the tasks, as the first heuristic applied to a fetched job does.
+ */
+@State(Scope.Benchmark)
+public class MapReduceJobState {
+  private static final long SEED = 42;
+  private static final long START_TIME = 1460980616502L;
+  private static final long MB = 1024 * 1024;
+
+  /**
+   * The number of tasks of the job, mappers and reducers
+   */
+  @Param({ "1000", "10000", "100000", "1000000" })
+  public int tasks;
+
+  public MapReduceApplicationData data;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(SEED);
+    int reducers = Math.max(1, tasks / 5);
+    int mappers = tasks - reducers;
+
+    // The tasks are stored in one table per type, as the fetchers do
+    MapReduceTaskTable mapperTable = new MapReduceTaskTable(mappers);
+    long mappersFinishTime = START_TIME;
+    for (int i = 0; i < mappers; i++) {
+      MapReduceTaskData task = generateTask(mapperTable, "m", i, random, START_TIME, false);
+      mappersFinishTime = Math.max(mappersFinishTime, task.getFinishTimeMs());
+    }
+    MapReduceTaskTable reducerTable = new MapReduceTaskTable(reducers);
+    long finishTime = mappersFinishTime;
+    for (int i = 0; i < reducers; i++) {
+      MapReduceTaskData task = generateTask(reducerTable, "r", i, random, mappersFinishTime, true);
+      finishTime = Math.max(finishTime, task.getFinishTimeMs());
+    }
+    MapReduceTaskData[] mapperData = mapperTable.getTasks();
+    MapReduceTaskData[] reducerData = reducerTable.getTasks();
+
+    MapReduceCounterData counters = new MapReduceCounterData();
+    for (MapReduceCounterData.CounterName counterName : MapReduceCounterData.CounterName.values()) {
+      long total = 0;
+      for (MapReduceTaskData task : mapperData) {
+        total += task.getCounters().get(counterName);
+      }
+      for (MapReduceTaskData task : reducerData) {
+        total += task.getCounters().get(counterName);
+      }
+      counters.set(counterName, total);
+    }
+
+    Properties conf = new Properties();
+    conf.setProperty("mapreduce.map.memory.mb", "2048");
+    conf.setProperty("mapreduce.reduce.memory.mb", "4096");
+    conf.setProperty("mapreduce.job.reduce.slowstart.completedmaps", "0.8");
+    conf.setProperty("mapreduce.job.cache.files", "/lib/a.jar,/lib/b.jar");
+    conf.setProperty("mapreduce.job.cache.files.filesizes", "1048576,2097152");
+
+    data = new MapReduceApplicationData()
+        .setAppId("application_1460980616502_0001")
+        .setJobId("job_1460980616502_0001")
+        .setJobName("synthetic")
+        .setUsername("benchmark")
+        .setSucceeded(true)
+        .setSubmitTime(START_TIME)
+        .setStartTime(START_TIME)
+        .setFinishTime(finishTime)
+        .setCounters(counters)
+        .setMapperData(mapperData)
+        .setReducerData(reducerData)
+        .setJobConf(conf);
+  }
+
+  @Setup(Level.Invocation)
+  public void resetMetrics() {
+    data.setMapperData(data.getMapperData()).setReducerData(data.getReducerData());
+  }
+
+  private static MapReduceTaskData generateTask(MapReduceTaskTable table, String type, int index, Random random,
+      long startTime, boolean reducer) {
+    String id = String.format("1460980616502_0001_%s_%06d", type, index);
+    MapReduceTaskData task = table.addTask("task_" + id, "attempt_" + id + "_0", "SUCCEEDED");
+
+    // Log-normal sizes around the block size, so that a few tasks are much bigger than the others
+    long bytes = (long) (HDFSContext.HDFS_BLOCK_SIZE * Math.exp(random.nextGaussian()));
+    long records = bytes / 100;
+    long runTime = 10000 + bytes / MB * 200 + random.nextInt(10000);
+    long shuffleTime = reducer ? runTime / 4 : 0;
+    long sortTime = reducer ? runTime / 10 : 0;
+    long taskStartTime = startTime + random.nextInt(60000);
+
+    task.setTime(new long[] { runTime, shuffleTime, sortTime, taskStartTime, taskStartTime + runTime });
+    setCounter(task, MapReduceCounterData.CounterName.HDFS_BYTES_READ, reducer ? 0 : bytes);
+    setCounter(task, MapReduceCounterData.CounterName.HDFS_BYTES_WRITTEN, reducer ? bytes / 2 : 0);
+    setCounter(task, MapReduceCounterData.CounterName.FILE_BYTES_READ, reducer ? bytes : 0);
+    setCounter(task, MapReduceCounterData.CounterName.FILE_BYTES_WRITTEN, bytes / 2);
+    setCounter(task, MapReduceCounterData.CounterName.MAP_INPUT_RECORDS, reducer ? 0 : records);
+    setCounter(task, MapReduceCounterData.CounterName.MAP_OUTPUT_RECORDS, reducer ? 0 : records);
+    setCounter(task, MapReduceCounterData.CounterName.SPILLED_RECORDS, records + random.nextInt(1000));
+    setCounter(task, MapReduceCounterData.CounterName.REDUCE_SHUFFLE_BYTES, reducer ? bytes : 0);
+    setCounter(task, MapReduceCounterData.CounterName.REDUCE_INPUT_RECORDS, reducer ? records : 0);
+    setCounter(task, MapReduceCounterData.CounterName.CPU_MILLISECONDS, runTime * 8 / 10);
+    setCounter(task, MapReduceCounterData.CounterName.GC_MILLISECONDS, runTime / 20 + random.nextInt(1000));
+    setCounter(task, MapReduceCounterData.CounterName.COMMITTED_HEAP_BYTES, 1024 * MB);
+    setCounter(task, MapReduceCounterData.CounterName.PHYSICAL_MEMORY_BYTES, (512 + random.nextInt(1024)) * MB);
+    setCounter(task, MapReduceCounterData.CounterName.VIRTUAL_MEMORY_BYTES, 3072 * MB);
+    return task;
+  }
+
+  private static void setCounter(MapReduceTaskData task, MapReduceCounterData.CounterName counterName, long value) {
+    task.setCounter(counterName.getName(), value);
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.benchmark;
+
+import com.linkedin.drelephant.math.Statistics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Throughput of the statistics used by the heuristics, on arrays of primitives, on lists, and with the sort and list
+ * based implementations they replaced, e.g.
+ * <pre>sbt "benchmark/jmh:run -prof gc StatisticsBenchmark"</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class StatisticsBenchmark {
+  private static final long SEED = 42;
+
+  /**
+   * The number of values, e.g. of tasks
+   */
+  @Param({ "200", "10000", "1000000" })
+  public int values;
+
+  private long[] _values;
+  private long[] _work;
+  private List<Long> _list;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(SEED);
+    _values = new long[values];
+    _list = new ArrayList<Long>(values);
+    for (int i = 0; i < values; i++) {
+      // Log-normal, as the sizes and run times of the tasks
+      _values[i] = (long) (Math.exp(random.nextGaussian()) * 1000000);
+      _list.add(_values[i]);
+    }
+    _work = new long[values];
+  }
+
+  @Benchmark
+  public long medianOfArray() {
+    // The values are reordered, so the heuristics work on their own copy
+    System.arraycopy(_values, 0, _work, 0, values);
+    return Statistics.median(_work, values);
+  }
+
+  @Benchmark
+  public long medianOfList() {
+    return Statistics.median(_list);
+  }
+
+  @Benchmark
+  public long medianBySorting() {
+    List<Long> list = new ArrayList<Long>(_list);
+    Collections.sort(list);
+    int middle = list.size() / 2;
+    if (list.size() % 2 == 0) {
+      return (list.get(middle - 1) + list.get(middle)) / 2;
+    }
+    return list.get(middle);
+  }
+
+  @Benchmark
+  public long percentileOfArray() {
+    System.arraycopy(_values, 0, _work, 0, values);
+    return Statistics.percentile(_work, values, 95);
+  }
+
+  @Benchmark
+  public long percentileOfList() {
+    return Statistics.percentile(_list, 95);
+  }
+
+  @Benchmark
+  public long percentileBySorting() {
+    List<Long> list = new ArrayList<Long>(_list);
+    Collections.sort(list);
+    return list.get((int) Math.ceil(list.size() * 95 / 100.0) - 1);
+  }
+
+  @Benchmark
+  public Statistics.Group[] twoGroupsOfArray() {
+    return Statistics.findTwoGroups(_values, values);
+  }
+
+  @Benchmark
+  public long[][] twoGroupsByCopying() {
+    return Statistics.findTwoGroups(_values);
+  }
+
+  @Benchmark
+  public long[][] twoGroupsByLists() {
+    return findTwoGroupsRecursive(_values, Statistics.average(_values), 2);
+  }
+
+  /**
+   * The implementation of findTwoGroups splitting the values in new lists at every level.
+   */
+  private static long[][] findTwoGroupsRecursive(long[] values, long middle, int levels) {
+    List<Long> smaller = new ArrayList<Long>();
+    List<Long> larger = new ArrayList<Long>();
+    for (long value : values) {
+      if (value < middle) {
+        smaller.add(value);
+      } else {
+        larger.add(value);
+      }
+    }
+    long[][] groups = new long[][] { toArray(smaller), toArray(larger) };
+    if (levels > 0) {
+      long newMiddle = Statistics.average(groups[1]) - Statistics.average(groups[0]);
+      return findTwoGroupsRecursive(values, newMiddle, levels - 1);
+    }
+    return groups;
+  }
+
+  private static long[] toArray(List<Long> list) {
+    long[] array = new long[list.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = list.get(i);
+    }
+    return array;
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.benchmark
+
+import java.io.ByteArrayInputStream
+import java.util.concurrent.TimeUnit
+
+import scala.collection.JavaConverters
+import scala.io.Source
+
+import com.linkedin.drelephant.spark.data.SparkLogDerivedData
+import com.linkedin.drelephant.spark.fetchers.SparkLogClient
+import org.apache.commons.io.IOUtils
+import org.json4s.JsonAST.{JString, JValue}
+import org.json4s.jackson.JsonMethods
+import org.openjdk.jmh.annotations.{Benchmark, BenchmarkMode, Fork, Level, Measurement, Mode, OutputTimeUnit, Param,
+  Scope, Setup, State, Warmup}
+
+/**
+  * Throughput of the decoding of a Spark event log by SparkLogClient, compared with the parsing of every line, which
+  * it used to do, e.g.
+  * <pre>sbt "benchmark/jmh:run -prof gc SparkLogClientBenchmark"</pre>
+  *
+  * The log is built from spark_event_logs/event_log_1, with its task events repeated, and its environment update moved
+  * to the end so that the whole log has to be read.
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = Array("-Xms4g", "-Xmx4g"))
+class SparkLogClientBenchmark {
+  import JavaConverters._
+  import SparkLogClientBenchmark._
+
+  /**
+    * The number of times the task events of the log are repeated
+    */
+  @Param(Array("100", "10000"))
+  var repetitions: Int = _
+
+  private var log: Array[Byte] = _
+
+  @Setup(Level.Trial)
+  def setUp(): Unit = {
+    val lines = IOUtils.readLines(getClass.getClassLoader.getResourceAsStream("spark_event_logs/event_log_1"))
+      .asScala
+    val (environmentUpdates, otherLines) = lines.partition { line => line.contains("\"" + EnvironmentUpdate + "\"") }
+    val taskLines = otherLines.filter { line => line.contains("\"SparkListenerTask") }
+    log = (otherLines ++ Iterator.fill(repetitions)(taskLines).flatten ++ environmentUpdates).mkString("\n")
+      .getBytes("UTF-8")
+  }
+
+  @Benchmark
+  def parseEveryEvent(): JValue = {
+    Source.fromInputStream(new ByteArrayInputStream(log)).getLines
+      .map { line => JsonMethods.parse(line) }
+      .find { json => (json \ "Event") == JString(EnvironmentUpdate) }
+      .getOrElse { throw new IllegalStateException("No environment update") }
+  }
+
+  @Benchmark
+  def decodeSelectively(): SparkLogDerivedData = SparkLogClient.findDerivedData(new ByteArrayInputStream(log))
+}
+
+object SparkLogClientBenchmark {
+  private val EnvironmentUpdate = "SparkListenerEnvironmentUpdate"
+}
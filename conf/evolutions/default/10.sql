@@ -0,0 +1,43 @@
+#
+# Copyright 2016 LinkedIn Corp.
+#
+# Licensed under the Apache License, Version 2.0 (the "License"); you may not
+# use this file except in compliance with the License. You may obtain a copy of
+# the License at
+#
+# http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+# WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+# License for the specific language governing permissions and limitations under
+# the License.
+#
+
+# --- !Ups
+CREATE TABLE analysis_lease (
+  name             VARCHAR(120)  NOT NULL              COMMENT 'The leased resource, e.g. a partition of the applications to analyse',
+  owner            VARCHAR(100)  NOT NULL              COMMENT 'The node holding the lease',
+  expiry_time      BIGINT        UNSIGNED NOT NULL     COMMENT 'The time until which the lease is held, unless renewed',
+
+  PRIMARY KEY (name)
+);
+
+CREATE TABLE analysis_node (
+  node_id          VARCHAR(100)  NOT NULL              COMMENT 'The node id, e.g., 1234@host.example.com',
+  heartbeat_time   BIGINT        UNSIGNED NOT NULL     COMMENT 'The time of the last heartbeat of the node',
+
+  PRIMARY KEY (node_id)
+);
+
+ALTER TABLE analysis_checkpoint MODIFY generator_id VARCHAR(100) NOT NULL COMMENT 'The analytic job generator owning the checkpoint, followed by the partition when partitioned';
+ALTER TABLE analysis_retry MODIFY generator_id VARCHAR(100) NOT NULL COMMENT 'The analytic job generator which provided the application, followed by the partition when partitioned';
+
+# --- !Downs
+
+ALTER TABLE analysis_retry MODIFY generator_id VARCHAR(50) NOT NULL COMMENT 'The analytic job generator which provided the application';
+ALTER TABLE analysis_checkpoint MODIFY generator_id VARCHAR(50) NOT NULL COMMENT 'The analytic job generator owning the checkpoint';
+
+DROP TABLE analysis_node;
+
+DROP TABLE analysis_lease;
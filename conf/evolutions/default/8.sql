@@ -0,0 +1,50 @@
+#
+# Copyright 2016 LinkedIn Corp.
+#
+# Licensed under the Apache License, Version 2.0 (the "License"); you may not
+# use this file except in compliance with the License. You may obtain a copy of
+# the License at
+#
+# http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+# WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+# License for the specific language governing permissions and limitations under
+# the License.
+#
+
+# --- !Ups
+CREATE TABLE analysis_checkpoint (
+  generator_id     VARCHAR(50)   NOT NULL              COMMENT 'The analytic job generator owning the checkpoint',
+  last_fetch_time  BIGINT        UNSIGNED NOT NULL     COMMENT 'The finish time up to which all the applications were fetched and analysed',
+
+  PRIMARY KEY (generator_id)
+);
+
+CREATE TABLE analysis_retry (
+  id               VARCHAR(50)   NOT NULL              COMMENT 'The application id, e.g., application_1236543456321_1234567',
+  generator_id     VARCHAR(50)   NOT NULL              COMMENT 'The analytic job generator which provided the application',
+  app_type         VARCHAR(20)   NOT NULL              COMMENT 'The application type, e.g. MAPREDUCE, SPARK',
+  name             VARCHAR(100)  NOT NULL              COMMENT 'The application name',
+  username         VARCHAR(50)   NOT NULL              COMMENT 'The user who started the application',
+  queue_name       VARCHAR(50)   DEFAULT NULL          COMMENT 'The queue the application was submitted to',
+  tracking_url     VARCHAR(255)  DEFAULT NULL          COMMENT 'The web URL that can be used to track the application',
+  final_status     VARCHAR(20)   DEFAULT NULL          COMMENT 'The final status reported by the resource manager',
+  start_time       BIGINT        UNSIGNED NOT NULL     COMMENT 'The time in which application started',
+  finish_time      BIGINT        UNSIGNED NOT NULL     COMMENT 'The time in which application finished',
+  retries          TINYINT(2)    UNSIGNED NOT NULL     COMMENT 'The number of analyses already attempted',
+
+  PRIMARY KEY (id)
+);
+
+create index analysis_retry_i1 on analysis_retry (generator_id);
+
+# --- !Downs
+
+DROP TABLE analysis_retry;
+
+DROP TABLE analysis_checkpoint;
+
+# --- Created by Ebean DDL
+# To stop Ebean DDL generation, remove this comment and start using Evolutions
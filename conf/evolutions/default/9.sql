@@ -0,0 +1,28 @@
+#
+# Copyright 2016 LinkedIn Corp.
+#
+# Licensed under the Apache License, Version 2.0 (the "License"); you may not
+# use this file except in compliance with the License. You may obtain a copy of
+# the License at
+#
+# http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+# WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+# License for the specific language governing permissions and limitations under
+# the License.
+#
+
+# --- Cluster of the applications, when a single instance analyses several clusters
+# --- !Ups
+
+ALTER TABLE yarn_app_result ADD COLUMN cluster VARCHAR(50) NOT NULL DEFAULT '' COMMENT 'The cluster which ran the application, empty for the default cluster';
+
+create index yarn_app_result_i11 on yarn_app_result (cluster,finish_time);
+
+# --- !Downs
+
+drop index yarn_app_result_i11 on yarn_app_result;
+
+ALTER TABLE yarn_app_result DROP COLUMN cluster;
@@ -108,6 +108,12 @@ object Dependencies {
   var dependencies = Seq(javaJdbc, javaEbean, cache)
   dependencies ++= requiredDep
 
+  // The benchmark module runs the heuristics outside of Hadoop, whose classes are only provided at compile time
+  val benchmarkDependencies = Seq(
+    "org.apache.hadoop" % "hadoop-common" % hadoopVersion,
+    "org.apache.hadoop" % "hadoop-mapreduce-client-core" % hadoopVersion
+  )
+
   val exclusionRules = Seq(
     ExclusionRule(organization = "com.sun.jersey", name = "jersey-core"),
     ExclusionRule(organization = "com.sun.jersey", name = "jersey-server")
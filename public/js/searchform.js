@@ -24,6 +24,7 @@ $(document).ready(function(){
   var jobDefId = $("#form-job-def-id");
   var user = $("#form-username");
   var queueName = $("#form-queue-name");
+  var cluster = $("#form-cluster");
   var jobtypeEnable = $("#form-job-type-enable");
   var jobtype = $("#form-job-type");
   var severityEnable = $("#form-severity-enable");
@@ -67,6 +68,7 @@ $(document).ready(function(){
       flowExecId.prop('disabled', true);
       user.prop('disabled', true);
       queueName.prop('disabled', true);
+      cluster.prop('disabled', true);
       severity.prop('disabled', true);
       analysis.prop('disabled', true);
       jobtype.prop('disabled', true);
@@ -80,6 +82,7 @@ $(document).ready(function(){
       jobDefId.prop('disabled', true);
       user.prop('disabled', true);
       queueName.prop('disabled', true);
+      cluster.prop('disabled', true);
       severity.prop('disabled', true);
       analysis.prop('disabled', true);
       jobtype.prop('disabled', true);
@@ -93,6 +96,7 @@ $(document).ready(function(){
       flowExecId.prop('disabled', true);
       user.prop('disabled', true);
       queueName.prop('disabled', true);
+      cluster.prop('disabled', true);
       severity.prop('disabled', true);
       analysis.prop('disabled', true);
       jobtype.prop('disabled', true);
@@ -111,6 +115,7 @@ $(document).ready(function(){
       datetimeEnable.prop('disabled', false);
       user.prop('disabled', false);
       queueName.prop('disabled', false);
+      cluster.prop('disabled', false);
       if(jobtypeEnable.prop('checked')){
         jobtype.prop('disabled', false);
       }
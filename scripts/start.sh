@@ -91,7 +91,8 @@ then
   exit 1
 fi
 
-db_loc="jdbc:mysql://"$db_url"/"$db_name"?characterEncoding=UTF-8"
+# rewriteBatchedStatements turns the JDBC batches of the saved results into multi-row inserts
+db_loc="jdbc:mysql://"$db_url"/"$db_name"?characterEncoding=UTF-8&rewriteBatchedStatements=true"
 
 # db_password is optional. default is ""
 db_password="${db_password:-""}"
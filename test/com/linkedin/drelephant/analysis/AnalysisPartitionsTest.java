@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * This class tests the AnalysisPartitions class
+ */
+public class AnalysisPartitionsTest {
+  private static final int PARTITION_COUNT = 16;
+  private static final long LEASE_MS = 1000;
+
+  @Test
+  public void testSingleNode() {
+    AnalysisPartitions partitions = new AnalysisPartitions("default");
+    assertEquals(0, partitions.getPartition("application_1_1"));
+    assertEquals("default", partitions.getPartitionName(0));
+    assertEquals(1, partitions.getOwnedPartitions(System.currentTimeMillis()).size());
+  }
+
+  @Test
+  public void testPartition() {
+    AnalysisPartitions partitions = new AnalysisPartitions("default", PARTITION_COUNT, "node1", LEASE_MS,
+        new MemoryLeaseTable());
+    int[] counts = new int[PARTITION_COUNT];
+    for (int i = 0; i < 1600; i++) {
+      int partition = partitions.getPartition("application_1_" + i);
+      assertEquals(partition, partitions.getPartition("application_1_" + i));
+      counts[partition]++;
+    }
+    for (int count : counts) {
+      assertTrue("Unbalanced partition of " + count + " apps", count > 50 && count < 150);
+    }
+    assertEquals("default#3", partitions.getPartitionName(3));
+  }
+
+  @Test
+  public void testRebalance() {
+    MemoryLeaseTable leaseTable = new MemoryLeaseTable();
+    AnalysisPartitions node1 = new AnalysisPartitions("default", PARTITION_COUNT, "node1", LEASE_MS, leaseTable);
+    AnalysisPartitions node2 = new AnalysisPartitions("default", PARTITION_COUNT, "node2", LEASE_MS, leaseTable);
+
+    node1.rebalance(0);
+    assertEquals(PARTITION_COUNT, node1.getOwnedPartitions(0).size());
+
+    // node2 joins, node1 releases half of its partitions which node2 acquires
+    node2.rebalance(100);
+    node1.rebalance(200);
+    node2.rebalance(300);
+    assertEquals(PARTITION_COUNT / 2, node1.getOwnedPartitions(300).size());
+    assertEquals(PARTITION_COUNT / 2, node2.getOwnedPartitions(300).size());
+    Set<Integer> owned = new HashSet<Integer>(node1.getOwnedPartitions(300));
+    owned.addAll(node2.getOwnedPartitions(300));
+    assertEquals(PARTITION_COUNT, owned.size());
+
+    // node1 dies, node2 takes its partitions over once their leases expired
+    node2.rebalance(1100);
+    assertEquals(PARTITION_COUNT / 2, node2.getOwnedPartitions(1100).size());
+    node2.rebalance(1400);
+    assertEquals(PARTITION_COUNT, node2.getOwnedPartitions(1400).size());
+    assertEquals(0, node1.getOwnedPartitions(1400).size());
+  }
+
+  @Test
+  public void testShare() {
+    MemoryLeaseTable leaseTable = new MemoryLeaseTable();
+    List<AnalysisPartitions> nodes = new ArrayList<AnalysisPartitions>();
+    for (int i = 1; i <= 3; i++) {
+      nodes.add(new AnalysisPartitions("default", 4, "node" + i, LEASE_MS, leaseTable));
+    }
+    assertEquals(2, nodes.get(0).getShare(Arrays.asList("node1", "node2", "node3"), "node1"));
+    assertEquals(1, nodes.get(1).getShare(Arrays.asList("node1", "node2", "node3"), "node2"));
+    assertEquals(1, nodes.get(2).getShare(Arrays.asList("node1", "node2", "node3"), "node3"));
+
+    // Every node gets partitions once the nodes balanced them, node1 first
+    for (long now = 0; now < 500; now += 100) {
+      for (AnalysisPartitions node : nodes) {
+        node.rebalance(now);
+      }
+    }
+    assertEquals(2, nodes.get(0).getOwnedPartitions(500).size());
+    assertEquals(1, nodes.get(1).getOwnedPartitions(500).size());
+    assertEquals(1, nodes.get(2).getOwnedPartitions(500).size());
+  }
+
+  @Test
+  public void testIsOwned() {
+    MemoryLeaseTable leaseTable = new MemoryLeaseTable();
+    AnalysisPartitions node1 = new AnalysisPartitions("default", PARTITION_COUNT, "node1", LEASE_MS, leaseTable);
+    AnalysisPartitions node2 = new AnalysisPartitions("default", PARTITION_COUNT, "node2", LEASE_MS, leaseTable);
+    assertFalse(node1.isOwned("application_1_1", 0));
+
+    node1.rebalance(0);
+    assertTrue(node1.isOwned("application_1_1", 0));
+
+    // The partitions released by node1 are not owned anymore, even before the next fetch
+    node2.rebalance(100);
+    node1.rebalance(200);
+    node2.rebalance(300);
+    int owners = 0;
+    for (int i = 0; i < 100; i++) {
+      String appId = "application_1_" + i;
+      assertTrue(node1.isOwned(appId, 300) != node2.isOwned(appId, 300));
+      owners += node1.isOwned(appId, 300) ? 1 : 0;
+    }
+    assertTrue(owners > 0 && owners < 100);
+
+    // Nor once the leases expired without being renewed
+    assertFalse(node1.isOwned("application_1_1", 1300));
+  }
+}
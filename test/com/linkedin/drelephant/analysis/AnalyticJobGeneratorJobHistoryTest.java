@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * This class tests the AnalyticJobGeneratorJobHistory class
+ */
+public class AnalyticJobGeneratorJobHistoryTest {
+  private File _doneDir;
+  private File _serialDir;
+  private AnalyticJobGeneratorJobHistory _generator;
+
+  @Before
+  public void setUp() throws IOException {
+    _doneDir = File.createTempFile("mr-history-done", "");
+    _doneDir.delete();
+    SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy/MM/dd");
+    dayFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    _serialDir = new File(_doneDir, dayFormat.format(new Date()) + "/000000");
+    _serialDir.mkdirs();
+
+    Configuration configuration = new Configuration(false);
+    configuration.set("fs.defaultFS", "file:///");
+    configuration.set("drelephant.analysis.history.done-dir", _doneDir.toURI().toString());
+    configuration.set("drelephant.analysis.history.time.zone", "UTC");
+    configuration.set("drelephant.analysis.fetch.checkpoint.enabled", "false");
+    configuration.set("mapreduce.jobhistory.webapp.address", "jhs:19888");
+    _generator = new AnalyticJobGeneratorJobHistory("cluster1") {
+      @Override
+      protected boolean isAnalyzed(String appId) {
+        return false;
+      }
+    };
+    _generator.configure(configuration);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(_doneDir);
+  }
+
+  @Test
+  public void testReadJob() {
+    AnalyticJob job = _generator.readJob("job_1461566847127_0001-1461570000000-some%2Duser-word%20count-1461570060000"
+        + "-10-2-SUCCEEDED-default-1461570001000.jhist");
+    assertEquals("application_1461566847127_0001", job.getAppId());
+    assertEquals("some-user", job.getUser());
+    assertEquals("word count", job.getName());
+    assertEquals("default", job.getQueueName());
+    assertEquals(1461570001000L, job.getStartTime());
+    assertEquals(1461570060000L, job.getFinishTime());
+    assertEquals("SUCCEEDED", job.getFinalStatus());
+    assertEquals("MAPREDUCE", job.getAppType().getName());
+    assertEquals("cluster1", job.getCluster());
+    assertEquals("http://jhs:19888/jobhistory/job/job_1461566847127_0001", job.getTrackingUrl());
+
+    job = _generator.readJob("job_1461566847127_0002-1461570000000-user-name-1461570060000-1-0-FAILED.jhist");
+    assertEquals("Start time defaults to submit time", 1461570000000L, job.getStartTime());
+    assertNull(job.getQueueName());
+
+    assertNull(_generator.readJob("job_1461566847127_0003-1461570000000-user-name-1461570060000-1-0-KILLED.jhist"));
+    assertNull(_generator.readJob("job_1461566847127_0001_conf.xml"));
+  }
+
+  @Test
+  public void testIncrementalScan() throws Exception {
+    addJob(1);
+    addJob(2);
+    List<AnalyticJob> jobs = _generator.fetchAnalyticJobs();
+    assertEquals(2, jobs.size());
+    assertTrue(_generator.fetchAnalyticJobs().isEmpty());
+
+    addJob(3);
+    jobs = _generator.fetchAnalyticJobs();
+    assertEquals(1, jobs.size());
+    assertEquals("application_1461566847127_0003", jobs.get(0).getAppId());
+  }
+
+  @Test
+  public void testRefusedJobsAreProvidedAgain() throws Exception {
+    addJob(1);
+    addJob(2);
+    assertFalse(_generator.fetchAnalyticJobs(new AnalyticJobConsumer() {
+      private int _count = 0;
+
+      @Override
+      public boolean consume(AnalyticJob job) {
+        return ++_count < 2;
+      }
+    }));
+    List<AnalyticJob> jobs = _generator.fetchAnalyticJobs();
+    assertEquals("The refused job should be provided again", 1, jobs.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPartitionsRequireCheckpoints() throws IOException {
+    Configuration configuration = new Configuration(false);
+    configuration.set("fs.defaultFS", "file:///");
+    configuration.set("drelephant.analysis.history.done-dir", _doneDir.toURI().toString());
+    configuration.set("drelephant.analysis.fetch.checkpoint.enabled", "false");
+    configuration.set("drelephant.analysis.partition.count", "4");
+    new AnalyticJobGeneratorJobHistory().configure(configuration);
+  }
+
+  private void addJob(int sequence) throws IOException {
+    String jobId = String.format("job_1461566847127_%04d", sequence);
+    new File(_serialDir, jobId + "-1461570000000-user-name-1461570060000-1-0-SUCCEEDED-default-1461570001000.jhist")
+        .createNewFile();
+    // The modification time of a directory has a second granularity on some file systems
+    _serialDir.setLastModified(_serialDir.lastModified() + 1000);
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+
+/**
+ * This class tests the AnalyticJobPriority class
+ */
+public class AnalyticJobPriorityTest {
+
+  private static AnalyticJob newJob(String appId, String finalStatus, String queue, long finishTime) {
+    return new AnalyticJob().setAppId(appId).setFinalStatus(finalStatus).setQueueName(queue)
+        .setFinishTime(finishTime);
+  }
+
+  private static List<String> sortedIds(AnalyticJobPriority priority, AnalyticJob... jobs) {
+    List<AnalyticJob> sorted = new ArrayList<AnalyticJob>();
+    Collections.addAll(sorted, jobs);
+    Collections.sort(sorted, priority);
+    List<String> ids = new ArrayList<String>();
+    for (AnalyticJob job : sorted) {
+      ids.add(job.getAppId());
+    }
+    return ids;
+  }
+
+  @Test
+  public void testNoCriteria() {
+    AnalyticJobPriority priority = new AnalyticJobPriority(new Configuration(false));
+    AnalyticJob job1 = newJob("app_1", "SUCCEEDED", "default", 2000);
+    AnalyticJob job2 = newJob("app_2", "FAILED", "default", 1000);
+
+    assertEquals(0, priority.compare(job1, job2));
+    assertEquals(AnalyticJobPriority.DEFAULT_LEVEL, priority.getLevel(job1));
+  }
+
+  @Test
+  public void testFailedThenFinishTime() {
+    Configuration configuration = new Configuration(false);
+    configuration.set(AnalyticJobPriority.PRIORITY_KEY, "failed, finishTime, unknown");
+    AnalyticJobPriority priority = new AnalyticJobPriority(configuration);
+
+    AnalyticJob job1 = newJob("app_1", "SUCCEEDED", "default", 1000);
+    AnalyticJob job2 = newJob("app_2", "FAILED", "default", 3000);
+    AnalyticJob job3 = newJob("app_3", "FAILED", "default", 2000);
+    AnalyticJob job4 = newJob("app_4", "SUCCEEDED", "default", 500);
+
+    assertEquals("[app_3, app_2, app_4, app_1]", sortedIds(priority, job1, job2, job3, job4).toString());
+    assertEquals("failed", priority.getLevel(job2));
+    assertEquals("succeeded", priority.getLevel(job1));
+  }
+
+  @Test
+  public void testQueue() {
+    Configuration configuration = new Configuration(false);
+    configuration.set(AnalyticJobPriority.PRIORITY_KEY, "queue");
+    configuration.set(AnalyticJobPriority.PRIORITY_QUEUES_KEY, "production,adhoc");
+    AnalyticJobPriority priority = new AnalyticJobPriority(configuration);
+
+    AnalyticJob job1 = newJob("app_1", "SUCCEEDED", "other", 1000);
+    AnalyticJob job2 = newJob("app_2", "SUCCEEDED", "adhoc", 1000);
+    AnalyticJob job3 = newJob("app_3", "SUCCEEDED", "production", 1000);
+
+    assertEquals("[app_3, app_2, app_1]", sortedIds(priority, job1, job2, job3).toString());
+    assertEquals("production", priority.getLevel(job3));
+    assertEquals("other", priority.getLevel(job1));
+  }
+}
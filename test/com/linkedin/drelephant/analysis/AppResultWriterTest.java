@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import models.AppResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * This class tests the AppResultWriter class
+ */
+public class AppResultWriterTest {
+
+  private static class RecordingListener implements AppResultWriter.Listener {
+    final List<String> _saved = Collections.synchronizedList(new ArrayList<String>());
+    final List<String> _failed = Collections.synchronizedList(new ArrayList<String>());
+    final CountDownLatch _latch;
+
+    RecordingListener(int count) {
+      _latch = new CountDownLatch(count);
+    }
+
+    @Override
+    public boolean accept(AnalyticJob job) {
+      return true;
+    }
+
+    @Override
+    public void onSaved(AnalyticJob job) {
+      _saved.add(job.getAppId());
+      _latch.countDown();
+    }
+
+    @Override
+    public void onFailed(AnalyticJob job, Exception e) {
+      _failed.add(job.getAppId());
+      _latch.countDown();
+    }
+  }
+
+  private static AnalyticJob newJob(String appId) {
+    return new AnalyticJob().setAppId(appId);
+  }
+
+  @Test
+  public void testBatches() throws Exception {
+    RecordingListener listener = new RecordingListener(5);
+    final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+    AppResultWriter writer = new AppResultWriter(1, 2, 100, listener) {
+      @Override
+      void saveBatch(List<Entry> batch) {
+        batchSizes.add(batch.size());
+      }
+    };
+    for (int i = 1; i <= 5; i++) {
+      writer.write(newJob("app_" + i), new AppResult());
+    }
+    writer.start();
+
+    assertTrue(listener._latch.await(10, TimeUnit.SECONDS));
+    writer.stop();
+    assertEquals("[2, 2, 1]", batchSizes.toString());
+    assertEquals("[app_1, app_2, app_3, app_4, app_5]", listener._saved.toString());
+  }
+
+  @Test
+  public void testFailedBatch() throws Exception {
+    RecordingListener listener = new RecordingListener(3);
+    AppResultWriter writer = new AppResultWriter(1, 3, 100, listener) {
+      @Override
+      void saveBatch(List<Entry> batch) {
+        throw new RuntimeException("Batch failed");
+      }
+
+      @Override
+      void saveOne(Entry entry) {
+        if (entry._job.getAppId().equals("app_2")) {
+          throw new RuntimeException("Save failed");
+        }
+      }
+    };
+    for (int i = 1; i <= 3; i++) {
+      writer.write(newJob("app_" + i), new AppResult());
+    }
+    writer.start();
+
+    assertTrue(listener._latch.await(10, TimeUnit.SECONDS));
+    writer.stop();
+    assertEquals("[app_1, app_3]", listener._saved.toString());
+    assertEquals("[app_2]", listener._failed.toString());
+  }
+
+  @Test
+  public void testDroppedResult() throws Exception {
+    RecordingListener listener = new RecordingListener(2) {
+      @Override
+      public boolean accept(AnalyticJob job) {
+        if (job.getAppId().equals("app_2")) {
+          _latch.countDown();
+          return false;
+        }
+        return true;
+      }
+    };
+    final List<String> savedIds = Collections.synchronizedList(new ArrayList<String>());
+    AppResultWriter writer = new AppResultWriter(1, 2, 100, listener) {
+      @Override
+      void saveBatch(List<Entry> batch) {
+        for (Entry entry : batch) {
+          savedIds.add(entry._job.getAppId());
+        }
+      }
+    };
+    writer.write(newJob("app_1"), new AppResult());
+    writer.write(newJob("app_2"), new AppResult());
+    writer.start();
+
+    assertTrue(listener._latch.await(10, TimeUnit.SECONDS));
+    writer.stop();
+    assertEquals("[app_1]", savedIds.toString());
+    assertEquals("[app_1]", listener._saved.toString());
+    assertTrue(listener._failed.isEmpty());
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * This class tests the LeaderElection class
+ */
+public class LeaderElectionTest {
+  private static final long LEASE_MS = 1000;
+
+  @Test
+  public void testSingleNode() {
+    LeaderElection election = new LeaderElection("schedulers", "node1");
+    election.start();
+    assertTrue(election.isLeader());
+    assertEquals("node1", election.getLeader());
+  }
+
+  @Test
+  public void testFailover() {
+    MemoryLeaseTable leaseTable = new MemoryLeaseTable();
+    LeaderElection node1 = new LeaderElection("schedulers", "node1", LEASE_MS, leaseTable);
+    LeaderElection node2 = new LeaderElection("schedulers", "node2", LEASE_MS, leaseTable);
+
+    node1.elect(0);
+    node2.elect(100);
+    assertTrue(node1.isLeader(100));
+    assertFalse(node2.isLeader(100));
+    assertEquals("node1", node2.getLeader());
+
+    // node1 renews its lease
+    node1.elect(500);
+    node2.elect(1200);
+    assertTrue(node1.isLeader(1200));
+    assertFalse(node2.isLeader(1200));
+
+    // node1 dies, node2 is elected once its lease expired
+    assertFalse(node1.isLeader(1600));
+    node2.elect(1600);
+    assertTrue(node2.isLeader(1600));
+    assertEquals("node2", node2.getLeader());
+
+    // node1 comes back, node2 stays the leader
+    node1.elect(1700);
+    assertFalse(node1.isLeader(1700));
+    assertEquals("node2", node1.getLeader());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooShortLease() {
+    new LeaderElection("schedulers", "node1", 0, new MemoryLeaseTable());
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * An in memory LeaseTable, for the tests of the classes coordinating the nodes
+ */
+class MemoryLeaseTable extends LeaseTable {
+  private final Map<String, String> _owners = new HashMap<String, String>();
+  private final Map<String, Long> _expiryTimes = new HashMap<String, Long>();
+  private final Map<String, Long> _heartbeats = new HashMap<String, Long>();
+
+  @Override
+  public boolean acquire(String name, String owner, long expiryTime, long now) {
+    if (_owners.containsKey(name) && !owner.equals(_owners.get(name)) && _expiryTimes.get(name) >= now) {
+      return false;
+    }
+    _owners.put(name, owner);
+    _expiryTimes.put(name, expiryTime);
+    return true;
+  }
+
+  @Override
+  public void release(String name, String owner) {
+    if (owner.equals(_owners.get(name))) {
+      _expiryTimes.put(name, 0L);
+    }
+  }
+
+  @Override
+  public String getOwner(String name, long now) {
+    return _expiryTimes.containsKey(name) && _expiryTimes.get(name) >= now ? _owners.get(name) : null;
+  }
+
+  @Override
+  public void heartbeat(String nodeId, long now) {
+    _heartbeats.put(nodeId, now);
+  }
+
+  @Override
+  public List<String> listLiveNodes(long since) {
+    List<String> nodeIds = new ArrayList<String>();
+    for (Map.Entry<String, Long> heartbeat : _heartbeats.entrySet()) {
+      if (heartbeat.getValue() >= since) {
+        nodeIds.add(heartbeat.getKey());
+      }
+    }
+    Collections.sort(nodeIds);
+    return nodeIds;
+  }
+
+  @Override
+  public void removeNode(String nodeId) {
+    _heartbeats.remove(nodeId);
+  }
+}
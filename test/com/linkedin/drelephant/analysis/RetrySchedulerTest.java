@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.analysis;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Random;
+import javax.ws.rs.NotFoundException;
+import org.apache.hadoop.conf.Configuration;
+import org.codehaus.jackson.JsonParseException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * This class tests the RetryScheduler class
+ */
+public class RetrySchedulerTest {
+
+  @Test
+  public void testClassify() {
+    assertEquals(RetryScheduler.FailureClass.TRANSIENT,
+        RetryScheduler.classify(new SocketTimeoutException("Read timed out")));
+    assertEquals(RetryScheduler.FailureClass.MISSING_DATA,
+        RetryScheduler.classify(new FileNotFoundException("/mr-history/done/job_1_1.jhist")));
+    assertEquals(RetryScheduler.FailureClass.MISSING_DATA, RetryScheduler.classify(new NotFoundException()));
+    assertEquals(RetryScheduler.FailureClass.PARSE, RetryScheduler.classify(
+        new RuntimeException("Could not parse history file", new JsonParseException("Unexpected character", null))));
+    assertEquals(RetryScheduler.FailureClass.PARSE,
+        RetryScheduler.classify(new IOException(new NumberFormatException("For input string: \"x\""))));
+    assertEquals(RetryScheduler.FailureClass.OTHER, RetryScheduler.classify(new NullPointerException()));
+  }
+
+  @Test
+  public void testExponentialBackoff() {
+    Configuration configuration = new Configuration(false);
+    configuration.set("drelephant.analysis.retry.backoff.initial.ms", "1000");
+    configuration.set("drelephant.analysis.retry.backoff.max.ms", "5000");
+    configuration.set("drelephant.analysis.retry.transient.limit", "10");
+    RetryScheduler scheduler = new RetryScheduler(configuration, new Random(1));
+    AnalyticJob job = new AnalyticJob().setAppId("application_1_1");
+
+    long[] maxDelays = new long[] { 1000, 2000, 4000, 5000, 5000, 5000, 5000, 5000, 5000, 5000 };
+    for (int i = 0; i < maxDelays.length; i++) {
+      long delay = scheduler.backOff(job, new SocketTimeoutException());
+      assertTrue("Retry " + i + " delay " + delay, delay >= maxDelays[i] / 2 && delay <= maxDelays[i]);
+      assertEquals(i + 1, job.getRetries());
+    }
+    assertEquals(-1, scheduler.backOff(job, new SocketTimeoutException()));
+  }
+
+  @Test
+  public void testRetryBudgets() {
+    RetryScheduler scheduler = new RetryScheduler(new Configuration(false), new Random(1));
+
+    AnalyticJob job = new AnalyticJob().setAppId("application_1_1");
+    assertTrue(scheduler.backOff(job, new JsonParseException("Unexpected character", null)) >= 0);
+    assertEquals("A parse error should be retried once", -1,
+        scheduler.backOff(job, new JsonParseException("Unexpected character", null)));
+    assertTrue("A transient failure has its own budget", scheduler.backOff(job, new SocketTimeoutException()) >= 0);
+  }
+
+  @Test
+  public void testPollDueRetries() {
+    RetryScheduler scheduler = new RetryScheduler(new Configuration(false), new Random(1));
+    AnalyticJob due = new AnalyticJob().setAppId("application_1_1");
+    AnalyticJob later = new AnalyticJob().setAppId("application_1_2");
+
+    scheduler.schedule(later, 60000);
+    scheduler.schedule(due, 0);
+    assertEquals(2, scheduler.size());
+    assertSame(due, scheduler.poll());
+    assertNull(scheduler.poll());
+    assertEquals(1, scheduler.size());
+  }
+}
@@ -30,6 +30,7 @@ import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 
 public class FetcherConfigurationTest {
@@ -39,6 +40,7 @@ public class FetcherConfigurationTest {
   private static Document document3 = null;
   private static Document document4 = null;
   private static Document document5 = null;
+  private static Document document6 = null;
 
   private static final String spark = "SPARK";
   private static final String logDirField = "event_log_dir";
@@ -67,6 +69,9 @@ public class FetcherConfigurationTest {
       document5 = builder.parse(
               FetcherConfigurationTest.class.getClassLoader().getResourceAsStream(
                       "configurations/fetcher/FetcherConfTest5.xml"));
+      document6 = builder.parse(
+          FetcherConfigurationTest.class.getClassLoader().getResourceAsStream(
+              "configurations/fetcher/FetcherConfTest12.xml"));
     } catch (ParserConfigurationException e) {
       throw new RuntimeException("XML Parser could not be created.", e);
     } catch (SAXException e) {
@@ -129,4 +134,17 @@ public class FetcherConfigurationTest {
     assertEquals(fetcherConf.getFetchersConfigurationData().get(0).getAppType().getName(), spark);
   }
 
+  /**
+   *  Test the fetchers of another cluster than the default one
+   */
+  @Test
+  public void testParseFetcherConf6() {
+    FetcherConfiguration fetcherConf = new FetcherConfiguration(document6.getDocumentElement());
+    assertEquals(fetcherConf.getFetchersConfigurationData().size(), 2);
+    assertNull(fetcherConf.getFetchersConfigurationData().get(0).getCluster());
+    assertEquals(fetcherConf.getFetchersConfigurationData().get(1).getCluster(), "cluster2");
+    assertEquals(fetcherConf.getFetchersConfigurationData().get(1).getParamMap().get("jhistory_webapp_address"),
+        "jhs.cluster2:19888");
+  }
+
 }
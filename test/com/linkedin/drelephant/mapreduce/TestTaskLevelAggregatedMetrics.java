@@ -34,7 +34,7 @@ public class TestTaskLevelAggregatedMetrics {
 
     @Test
     public void testNullTaskArray() {
-        TaskLevelAggregatedMetrics taskMetrics = new TaskLevelAggregatedMetrics(null, 0, 0);
+        TaskLevelAggregatedMetrics taskMetrics = new TaskLevelAggregatedMetrics((MapReduceTaskData[]) null, 0, 0);
         Assert.assertEquals(taskMetrics.getDelay(), 0);
         Assert.assertEquals(taskMetrics.getResourceUsed(), 0);
         Assert.assertEquals(taskMetrics.getResourceWasted(), 0);
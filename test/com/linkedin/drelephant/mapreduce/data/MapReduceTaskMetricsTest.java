@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.mapreduce.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+
+/**
+ * This class tests the MapReduceTaskMetrics class, and its groups of tasks
+ */
+public class MapReduceTaskMetricsTest {
+
+  @Test
+  public void testGroups() {
+    MapReduceTaskData[] tasks = new MapReduceTaskData[4];
+    // Time and counter data
+    tasks[0] = new MapReduceTaskData("task_0", "attempt_0");
+    tasks[0].setTime(new long[] { 100, 10, 20, 1000, 1100 });
+    tasks[0].setCounter(MapReduceCounterData.CounterName.HDFS_BYTES_READ.getName(), 5);
+    tasks[0].setCounter(MapReduceCounterData.CounterName.S3A_BYTES_READ.getName(), 3);
+    tasks[0].setCounter(MapReduceCounterData.CounterName.GC_MILLISECONDS.getName(), 7);
+    // Time data only
+    tasks[1] = new MapReduceTaskData("task_1", "attempt_1");
+    tasks[1].setTime(new long[] { 200, 30, 40, 2000, 2200 });
+    // Counter data only
+    tasks[2] = new MapReduceTaskData("task_2", "attempt_2");
+    tasks[2].setCounter(MapReduceCounterData.CounterName.SPILLED_RECORDS.getName(), 9);
+    // Neither, e.g. a task which was not sampled
+    tasks[3] = new MapReduceTaskData("task_3", "attempt_3");
+
+    MapReduceTaskMetrics metrics = new MapReduceTaskMetrics(tasks);
+    assertEquals(4, metrics.getTaskCount());
+
+    assertEquals(2, metrics.getTimeCount());
+    assertEquals(100, metrics.getRuntimesMs()[0]);
+    assertEquals(200, metrics.getRuntimesMs()[1]);
+    assertEquals(130, metrics.getCodeExecutionTimesMs()[1]);
+    assertEquals(30, metrics.getShuffleTimesMs()[1]);
+    assertEquals(40, metrics.getSortTimesMs()[1]);
+
+    assertEquals(2, metrics.getCounterCount());
+    assertEquals(8, metrics.getInputBytes()[0]);
+    assertEquals(0, metrics.getInputBytes()[1]);
+    assertEquals(0, metrics.getSpilledRecords()[0]);
+    assertEquals(9, metrics.getSpilledRecords()[1]);
+
+    assertEquals(1, metrics.getTimeAndCounterCount());
+    assertEquals(100, metrics.getTimeAndCounterRuntimesMs()[0]);
+    assertEquals(8, metrics.getTimeAndCounterInputBytes()[0]);
+    assertEquals(7, metrics.getGcTimesMs()[0]);
+    assertEquals(1000, metrics.getStartTimesMs()[0]);
+    assertEquals(1100, metrics.getFinishTimesMs()[0]);
+  }
+
+  @Test
+  public void testNoTasks() {
+    MapReduceTaskMetrics metrics = new MapReduceTaskMetrics(null);
+    assertEquals(0, metrics.getTaskCount());
+    assertEquals(0, metrics.getTimeCount());
+    assertEquals(0, metrics.getCounterCount());
+    assertEquals(0, metrics.getTimeAndCounterCount());
+  }
+
+  @Test
+  public void testMetricsOfApplicationData() {
+    MapReduceTaskData task = new MapReduceTaskData("task_0", "attempt_0");
+    task.setTime(new long[] { 100, 10, 20, 1000, 1100 });
+    MapReduceApplicationData data = new MapReduceApplicationData()
+        .setMapperData(new MapReduceTaskData[] { task })
+        .setReducerData(new MapReduceTaskData[0]);
+
+    MapReduceTaskMetrics metrics = data.getMapperMetrics();
+    assertSame(metrics, data.getMapperMetrics());
+    assertEquals(1, metrics.getTimeCount());
+    assertEquals(0, data.getReducerMetrics().getTaskCount());
+
+    // The metrics follow the tasks
+    data.setMapperData(new MapReduceTaskData[0]);
+    assertEquals(0, data.getMapperMetrics().getTaskCount());
+  }
+}
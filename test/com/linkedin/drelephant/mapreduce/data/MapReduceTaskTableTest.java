@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.mapreduce.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * This class tests the MapReduceTaskTable class, and the views of its tasks
+ */
+public class MapReduceTaskTableTest {
+
+  @Test
+  public void testAddTasks() {
+    MapReduceTaskTable table = new MapReduceTaskTable(2);
+    for (int i = 0; i < 5; i++) {
+      MapReduceTaskData task = table.addTask("task_" + i, "attempt_" + i, "SUCCEEDED");
+      task.setTime(new long[] { 100 + i, 10, 20, 1000, 1100 + i });
+      task.setCounter(MapReduceCounterData.CounterName.HDFS_BYTES_READ.getName(), i);
+    }
+
+    assertEquals(5, table.size());
+    MapReduceTaskData[] tasks = table.getTasks();
+    assertEquals(5, tasks.length);
+    for (int i = 0; i < 5; i++) {
+      assertEquals("task_" + i, tasks[i].getTaskId());
+      assertEquals("attempt_" + i, tasks[i].getAttemptId());
+      assertEquals("SUCCEEDED", tasks[i].getState());
+      assertTrue(tasks[i].isTimeAndCounterDataPresent());
+      assertEquals(100 + i, tasks[i].getTotalRunTimeMs());
+      assertEquals(70 + i, tasks[i].getCodeExecutionTimeMs());
+      assertEquals(1100 + i, tasks[i].getFinishTimeMs());
+      assertEquals(i, tasks[i].getCounters().get(MapReduceCounterData.CounterName.HDFS_BYTES_READ));
+      assertEquals(0, tasks[i].getCounters().get(MapReduceCounterData.CounterName.SPILLED_RECORDS));
+    }
+  }
+
+  @Test
+  public void testReplaceTask() {
+    MapReduceTaskTable table = new MapReduceTaskTable();
+    MapReduceTaskData task = table.addTask("task_0", "attempt_0", "SUCCEEDED");
+    task.setTime(new long[] { 100, 0, 0, 1000, 1100 });
+    task.setCounter(MapReduceCounterData.CounterName.CPU_MILLISECONDS.getName(), 50);
+
+    task = table.replaceTask(0, "task_1", "", "FAILED");
+    assertEquals(1, table.size());
+    assertEquals("task_1", task.getTaskId());
+    assertEquals("FAILED", task.getState());
+    assertFalse(task.isTimeDataPresent());
+    assertFalse(task.isCounterDataPresent());
+    assertNull(task.getCounters());
+    assertEquals(0, task.getTotalRunTimeMs());
+
+    task.setCounter(MapReduceCounterData.CounterName.SPILLED_RECORDS.getName(), 7);
+    assertEquals(0, task.getCounters().get(MapReduceCounterData.CounterName.CPU_MILLISECONDS));
+  }
+
+  @Test
+  public void testCounters() {
+    MapReduceTaskData task = new MapReduceTaskTable().addTask("task_0", "attempt_0", "SUCCEEDED");
+    MapReduceCounterData counterHolder = new MapReduceCounterData();
+    counterHolder.set("org.apache.hadoop.mapreduce.TaskCounter", "GC_TIME_MILLIS", 42);
+    counterHolder.set("org.apache.hadoop.mapreduce.TaskCounter", "UNKNOWN_COUNTER", 1);
+    assertEquals(42, counterHolder.get(MapReduceCounterData.CounterName.GC_MILLISECONDS));
+    task.setTimeAndCounter(null, counterHolder);
+
+    MapReduceCounterData counters = task.getCounters();
+    assertEquals(42, counters.get(MapReduceCounterData.CounterName.GC_MILLISECONDS));
+    assertEquals(1, counters.getGroupNames().size());
+    assertTrue(counters.getGroupNames().contains(MapReduceCounterData.GroupName.MapReduce.name()));
+    assertEquals(1, counters.getAllCountersInGroup(MapReduceCounterData.GroupName.MapReduce.name()).size());
+
+    counters.set(MapReduceCounterData.CounterName.GC_MILLISECONDS, 43);
+    assertEquals(43, task.getCounters().get(MapReduceCounterData.CounterName.GC_MILLISECONDS));
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.mapreduce.fetchers;
+
+import com.linkedin.drelephant.mapreduce.data.MapReduceCounterData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceTaskSketches;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.TaskID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.jobhistory.JobFinishedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.JobUnsuccessfulCompletionEvent;
+import org.apache.hadoop.mapreduce.jobhistory.MapAttemptFinishedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.ReduceAttemptFinishedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.TaskAttemptStartedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.TaskFailedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.TaskFinishedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.TaskStartedEvent;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+public class JobHistoryEventParserTest {
+  private static final JobID JOB_ID = new JobID("14000", 1);
+  private static final int SAMPLE_SIZE = 10;
+
+  @Test
+  public void testSamplingBoundsTheTasks() {
+    JobHistoryEventParser parser = new JobHistoryEventParser(JOB_ID.toString(), true, SAMPLE_SIZE, new Random(1));
+    for (int i = 0; i < 100; i++) {
+      addMapper(parser, i, 1000L * i);
+    }
+    addReducer(parser, 0);
+
+    MapReduceTaskData[] mappers = parser.getMapperData();
+    assertEquals(SAMPLE_SIZE, mappers.length);
+    Set<String> taskIds = new HashSet<String>();
+    for (MapReduceTaskData mapper : mappers) {
+      taskIds.add(mapper.getTaskId());
+      assertEquals(1000L, mapper.getTotalRunTimeMs());
+      assertEquals(7L, mapper.getCounters().get(MapReduceCounterData.CounterName.MAP_INPUT_RECORDS));
+    }
+    assertEquals("The sample should not contain duplicates", SAMPLE_SIZE, taskIds.size());
+    assertEquals(1, parser.getReducerData().length);
+  }
+
+  @Test
+  public void testSketchesOfAllTheTasks() {
+    JobHistoryEventParser parser = new JobHistoryEventParser(JOB_ID.toString(), true, SAMPLE_SIZE, new Random(1));
+    for (int i = 0; i < 100; i++) {
+      addMapper(parser, i, 1000L * i);
+    }
+    addReducer(parser, 0);
+
+    MapReduceTaskSketches sketches = parser.getMapperSketches();
+    assertEquals(100, sketches.getTaskCount());
+    assertEquals(100, sketches.getRuntimeSketch().getCount());
+    assertEquals(100000L, sketches.getRuntimeSketch().getSum());
+    assertEquals(700L, sketches.getCounterSketch(MapReduceCounterData.CounterName.MAP_INPUT_RECORDS).getSum());
+    assertEquals(100, sketches.getCounterSketch(MapReduceCounterData.CounterName.GC_MILLISECONDS).getCount());
+    assertNull("All the reducers are in the sample", parser.getReducerSketches());
+  }
+
+  @Test
+  public void testAllTasksWithoutSampling() {
+    JobHistoryEventParser parser = new JobHistoryEventParser(JOB_ID.toString(), false, SAMPLE_SIZE, new Random(1));
+    for (int i = 0; i < 100; i++) {
+      addMapper(parser, i, 1000L * i);
+    }
+    assertEquals(100, parser.getMapperData().length);
+    assertEquals(0, parser.getReducerData().length);
+  }
+
+  @Test
+  public void testReducerTimes() {
+    JobHistoryEventParser parser = new JobHistoryEventParser(JOB_ID.toString(), false, SAMPLE_SIZE, new Random(1));
+    addReducer(parser, 0);
+
+    MapReduceTaskData reducer = parser.getReducerData()[0];
+    assertEquals("SUCCEEDED", reducer.getState());
+    assertEquals(4000L, reducer.getTotalRunTimeMs());
+    assertEquals(1000L, reducer.getShuffleTimeMs());
+    assertEquals(2000L, reducer.getSortTimeMs());
+    assertEquals(1000L, reducer.getStartTimeMs());
+    assertEquals(5000L, reducer.getFinishTimeMs());
+  }
+
+  @Test
+  public void testSucceededJob() {
+    JobHistoryEventParser parser = new JobHistoryEventParser(JOB_ID.toString(), false, SAMPLE_SIZE, new Random(1));
+    parser.handleEvent(new JobFinishedEvent(JOB_ID, 9000L, 1, 0, 0, 0, getCounters(), new Counters(),
+        getCounters()));
+
+    assertEquals("SUCCEEDED", parser.getJobStatus());
+    assertEquals(9000L, parser.getFinishTime());
+    assertEquals(7L, parser.getTotalCounters().get(MapReduceCounterData.CounterName.MAP_INPUT_RECORDS));
+  }
+
+  @Test
+  public void testFailedJob() {
+    JobHistoryEventParser parser = new JobHistoryEventParser(JOB_ID.toString(), false, SAMPLE_SIZE, new Random(1));
+    TaskID taskId = new TaskID(JOB_ID, TaskType.MAP, 0);
+    TaskAttemptID attemptId = new TaskAttemptID(taskId, 0);
+    parser.handleEvent(new TaskStartedEvent(taskId, 0L, TaskType.MAP, ""));
+    parser.handleEvent(new TaskAttemptStartedEvent(attemptId, TaskType.MAP, 0L, "", 0, 0, "", ""));
+    parser.handleEvent(new TaskFailedEvent(taskId, 1000L, TaskType.MAP, "error", "FAILED", attemptId,
+        new Counters()));
+    parser.handleEvent(new JobUnsuccessfulCompletionEvent(JOB_ID, 2000L, 0, 0, "FAILED"));
+
+    assertEquals("FAILED", parser.getJobStatus());
+    assertTrue(parser.getErrorInfo().startsWith("Task " + taskId + " failed 1 times"));
+    MapReduceTaskData mapper = parser.getMapperData()[0];
+    assertEquals("FAILED", mapper.getState());
+    assertEquals(attemptId.toString(), mapper.getAttemptId());
+  }
+
+  private static void addMapper(JobHistoryEventParser parser, int id, long startTime) {
+    TaskID taskId = new TaskID(JOB_ID, TaskType.MAP, id);
+    TaskAttemptID attemptId = new TaskAttemptID(taskId, 0);
+    parser.handleEvent(new TaskStartedEvent(taskId, startTime, TaskType.MAP, ""));
+    parser.handleEvent(new TaskAttemptStartedEvent(attemptId, TaskType.MAP, startTime, "", 0, 0, "", ""));
+    parser.handleEvent(new MapAttemptFinishedEvent(attemptId, TaskType.MAP, "SUCCEEDED", startTime + 500,
+        startTime + 1000, "", "", getCounters()));
+    parser.handleEvent(new TaskFinishedEvent(taskId, attemptId, startTime + 1000, TaskType.MAP, "SUCCEEDED",
+        getCounters()));
+  }
+
+  private static void addReducer(JobHistoryEventParser parser, int id) {
+    TaskID taskId = new TaskID(JOB_ID, TaskType.REDUCE, id);
+    TaskAttemptID attemptId = new TaskAttemptID(taskId, 0);
+    parser.handleEvent(new TaskStartedEvent(taskId, 1000L, TaskType.REDUCE, ""));
+    parser.handleEvent(new TaskAttemptStartedEvent(attemptId, TaskType.REDUCE, 1000L, "", 0, 0, "", ""));
+    parser.handleEvent(new ReduceAttemptFinishedEvent(attemptId, TaskType.REDUCE, "SUCCEEDED", 2000L, 4000L, 5000L,
+        "", "", new Counters()));
+    parser.handleEvent(new TaskFinishedEvent(taskId, attemptId, 5000L, TaskType.REDUCE, "SUCCEEDED",
+        new Counters()));
+  }
+
+  private static Counters getCounters() {
+    Counters counters = new Counters();
+    counters.findCounter(TaskCounter.MAP_INPUT_RECORDS).setValue(7L);
+    return counters;
+  }
+}
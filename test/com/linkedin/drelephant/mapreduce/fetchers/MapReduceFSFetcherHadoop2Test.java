@@ -24,7 +24,12 @@ import org.apache.hadoop.mapreduce.Counters;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
 import org.apache.hadoop.mapreduce.TaskID;
 import org.apache.hadoop.mapreduce.TaskType;
-import org.apache.hadoop.mapreduce.jobhistory.JobHistoryParser;
+import org.apache.hadoop.mapreduce.jobhistory.MapAttemptFinishedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.TaskAttemptStartedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.TaskAttemptUnsuccessfulCompletionEvent;
+import org.apache.hadoop.mapreduce.jobhistory.TaskFailedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.TaskFinishedEvent;
+import org.apache.hadoop.mapreduce.jobhistory.TaskStartedEvent;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -39,8 +44,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
+import java.util.Random;
 import java.util.TimeZone;
 
 public class MapReduceFSFetcherHadoop2Test {
@@ -48,6 +52,7 @@ public class MapReduceFSFetcherHadoop2Test {
   private static Document document9 = null;
   private static Document document10 = null;
   private static Document document11 = null;
+  private static Document document13 = null;
 
   @BeforeClass
   public static void before() {
@@ -61,6 +66,8 @@ public class MapReduceFSFetcherHadoop2Test {
               "configurations/fetcher/FetcherConfTest10.xml"));
       document11 = builder.parse(classLoader.getResourceAsStream(
               "configurations/fetcher/FetcherConfTest11.xml"));
+      document13 = builder.parse(classLoader.getResourceAsStream(
+              "configurations/fetcher/FetcherConfTest13.xml"));
     } catch (ParserConfigurationException e) {
       throw new RuntimeException("XML Parser could not be created.", e);
     } catch (SAXException e) {
@@ -136,6 +143,18 @@ public class MapReduceFSFetcherHadoop2Test {
     }
   }
 
+  @Test
+  public void testFetcherClusterConfig() {
+    FetcherConfiguration fetcherConf = new FetcherConfiguration(document13.getDocumentElement());
+    try {
+      MapReduceFSFetcherHadoop2 fetcher = new MapReduceFSFetcherHadoop2(
+              fetcherConf.getFetchersConfigurationData().get(0));
+      Assert.assertEquals("file:///mr-history/cluster2/done", fetcher.getHistoryLocation());
+    } catch (IOException e) {
+      Assert.assertNull("Failed to initialize FileSystem", e);
+    }
+  }
+
   @Test
   public void testGetHistoryDir() {
     FetcherConfiguration fetcherConf = new FetcherConfiguration(document9.getDocumentElement());
@@ -157,66 +176,45 @@ public class MapReduceFSFetcherHadoop2Test {
 
   @Test
   public void testGetTaskData() {
-    FetcherConfiguration fetcherConf = new FetcherConfiguration(document9.getDocumentElement());
-
-    try {
-      MapReduceFSFetcherHadoop2 fetcher = new MapReduceFSFetcherHadoop2(
-              fetcherConf.getFetchersConfigurationData().get(0));
-      String jobId = "job_14000_001";
-      List<JobHistoryParser.TaskInfo> infoList = new ArrayList<JobHistoryParser.TaskInfo>();
-      infoList.add(new MockTaskInfo(1, true));
-      infoList.add(new MockTaskInfo(2, false));
-
-      MapReduceTaskData[] taskList = fetcher.getTaskData(jobId, infoList);
-      Assert.assertNotNull("taskList should not be null.", taskList);
-      int succeededTaskCount = 0;
-      for (MapReduceTaskData task : taskList) {
-        Assert.assertNotNull("Null pointer in taskList.", task);
-        if(task.getState().equals("SUCCEEDED")) {
-          succeededTaskCount++;
-        }
+    String jobId = "job_14000_001";
+    JobHistoryEventParser parser =
+        new JobHistoryEventParser(jobId, false, MapReduceFetcher.MAX_SAMPLE_SIZE, new Random());
+    addTask(parser, 1, true);
+    addTask(parser, 2, false);
+
+    MapReduceTaskData[] taskList = parser.getMapperData();
+    Assert.assertNotNull("taskList should not be null.", taskList);
+    int succeededTaskCount = 0;
+    for (MapReduceTaskData task : taskList) {
+      Assert.assertNotNull("Null pointer in taskList.", task);
+      if(task.getState().equals("SUCCEEDED")) {
+        succeededTaskCount++;
       }
-      Assert.assertEquals("Should have total two tasks.", 2, taskList.length);
-      Assert.assertEquals("Should have only one succeeded task.", 1, succeededTaskCount);
-    } catch (IOException e) {
-      Assert.assertNull("Failed to initialize FileSystem.", e);
     }
+    Assert.assertEquals("Should have total two tasks.", 2, taskList.length);
+    Assert.assertEquals("Should have only one succeeded task.", 1, succeededTaskCount);
   }
 
-  class MockTaskInfo extends JobHistoryParser.TaskInfo {
-    TaskID taskId;
-    TaskType taskType;
-    boolean succeeded;
-    Counters counters;
-    long startTime, finishTime;
-    TaskAttemptID failedDueToAttemptId;
-    TaskAttemptID successfulAttemptId;
-    Map<TaskAttemptID, JobHistoryParser.TaskAttemptInfo> attemptsMap;
-
-    public MockTaskInfo(int id, boolean succeeded) {
-      this.taskId = new TaskID("job1", 1, TaskType.MAP, id);
-      this.taskType = TaskType.MAP;
-      this.succeeded = succeeded;
-      this.counters = new Counters();
-      this.finishTime = System.currentTimeMillis();
-      this.startTime = finishTime - 10000;
-      this.failedDueToAttemptId = new TaskAttemptID(taskId, 0);
-      this.successfulAttemptId = new TaskAttemptID(taskId, 1);
-      this.attemptsMap = new HashMap<TaskAttemptID, JobHistoryParser.TaskAttemptInfo>();
-      this.attemptsMap.put(failedDueToAttemptId, new JobHistoryParser.TaskAttemptInfo());
-      this.attemptsMap.put(successfulAttemptId, new JobHistoryParser.TaskAttemptInfo());
-    }
-
-    public TaskID getTaskId() { return taskId;  }
-    public long getStartTime() { return startTime; }
-    public long getFinishTime() { return finishTime; }
-    public Counters getCounters() { return counters; }
-    public TaskType getTaskType() { return taskType; }
-    public String getTaskStatus() { return succeeded ? "SUCCEEDED" : "FAILED";  }
-    public TaskAttemptID getSuccessfulAttemptId() { return successfulAttemptId;  }
-    public TaskAttemptID getFailedDueToAttemptId() {  return failedDueToAttemptId;  }
-    public Map<TaskAttemptID, JobHistoryParser.TaskAttemptInfo> getAllTaskAttempts() {
-      return attemptsMap;
+  private void addTask(JobHistoryEventParser parser, int id, boolean succeeded) {
+    TaskID taskId = new TaskID("job1", 1, TaskType.MAP, id);
+    long finishTime = System.currentTimeMillis();
+    long startTime = finishTime - 10000;
+    TaskAttemptID failedDueToAttemptId = new TaskAttemptID(taskId, 0);
+    TaskAttemptID successfulAttemptId = new TaskAttemptID(taskId, 1);
+
+    parser.handleEvent(new TaskStartedEvent(taskId, startTime, TaskType.MAP, ""));
+    parser.handleEvent(new TaskAttemptStartedEvent(failedDueToAttemptId, TaskType.MAP, startTime, "", 0, 0, "", ""));
+    parser.handleEvent(new TaskAttemptUnsuccessfulCompletionEvent(failedDueToAttemptId, TaskType.MAP, "FAILED",
+        finishTime, "", "error"));
+    if (succeeded) {
+      parser.handleEvent(new TaskAttemptStartedEvent(successfulAttemptId, TaskType.MAP, startTime, "", 0, 0, "", ""));
+      parser.handleEvent(new MapAttemptFinishedEvent(successfulAttemptId, TaskType.MAP, "SUCCEEDED", finishTime,
+          finishTime, "", "", new Counters()));
+      parser.handleEvent(new TaskFinishedEvent(taskId, successfulAttemptId, finishTime, TaskType.MAP, "SUCCEEDED",
+          new Counters()));
+    } else {
+      parser.handleEvent(new TaskFailedEvent(taskId, finishTime, TaskType.MAP, "error", "FAILED",
+          failedDueToAttemptId, new Counters()));
     }
   }
 }
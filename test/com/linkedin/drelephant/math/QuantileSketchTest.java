@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.math;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class QuantileSketchTest {
+  private static final int COUNT = 1000000;
+  // The rank error allowed, as a fraction of the count
+  private static final double RANK_ERROR = 0.01;
+
+  @Test
+  public void testExactBelowCapacity() {
+    QuantileSketch sketch = new QuantileSketch();
+    List<Long> values = new ArrayList<Long>();
+    for (long value = 100; value > 0; value--) {
+      sketch.update(value);
+      values.add(value);
+    }
+    assertEquals(100, sketch.getCount());
+    assertEquals(5050, sketch.getSum());
+    assertEquals(1, sketch.getMin());
+    assertEquals(100, sketch.getMax());
+    assertEquals(Statistics.percentile(values, 90), Statistics.percentile(sketch, 90));
+    assertEquals(Statistics.median(values), Statistics.median(sketch));
+    assertEquals(45, sketch.getCountBelow(46));
+    assertEquals(1035, sketch.getSumBelow(46));
+  }
+
+  @Test
+  public void testQuantilesOfALargeStream() {
+    QuantileSketch sketch = new QuantileSketch();
+    Random random = new Random(1);
+    long[] values = new long[COUNT];
+    for (int i = 0; i < COUNT; i++) {
+      values[i] = (long) (Math.exp(random.nextGaussian()) * 1000);
+      sketch.update(values[i]);
+    }
+    assertTrue("The sketch should be bounded", sketch.getRetained() < 4 * QuantileSketch.DEFAULT_K);
+    assertRanks(values, sketch);
+  }
+
+  @Test
+  public void testMerge() {
+    QuantileSketch sketch = new QuantileSketch();
+    long[] values = new long[COUNT];
+    for (int part = 0; part < 10; part++) {
+      QuantileSketch partSketch = new QuantileSketch();
+      for (int i = part; i < COUNT; i += 10) {
+        values[i] = i;
+        partSketch.update(i);
+      }
+      sketch.merge(partSketch);
+    }
+    assertEquals(COUNT, sketch.getCount());
+    assertEquals((long) COUNT * (COUNT - 1) / 2, sketch.getSum());
+    assertEquals(0, sketch.getMin());
+    assertEquals(COUNT - 1, sketch.getMax());
+    assertRanks(values, sketch);
+  }
+
+  @Test
+  public void testRepeatedValue() {
+    QuantileSketch sketch = new QuantileSketch();
+    sketch.update(0, COUNT);
+    sketch.update(5);
+    assertEquals(COUNT + 1, sketch.getCount());
+    assertEquals(5, sketch.getSum());
+    assertEquals(0, sketch.getQuantile(0.99));
+    assertEquals(5, sketch.getQuantile(1));
+    assertEquals(COUNT, sketch.getCountBelow(5));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testQuantileOfEmptySketch() {
+    new QuantileSketch().getQuantile(0.5);
+  }
+
+  private static void assertRanks(long[] values, QuantileSketch sketch) {
+    List<Long> sorted = new ArrayList<Long>();
+    for (long value : values) {
+      sorted.add(value);
+    }
+    Collections.sort(sorted);
+    for (int percentile = 1; percentile < 100; percentile++) {
+      long estimate = Statistics.percentile(sketch, percentile);
+      int rank = Collections.binarySearch(sorted, estimate);
+      int expectedRank = (int) Math.ceil(values.length * percentile / 100.0) - 1;
+      assertTrue("Percentile " + percentile + " off by " + (rank - expectedRank),
+          Math.abs(rank - expectedRank) <= RANK_ERROR * values.length);
+    }
+  }
+}
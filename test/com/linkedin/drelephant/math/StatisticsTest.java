@@ -17,12 +17,15 @@
 package com.linkedin.drelephant.math;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 
@@ -113,4 +116,87 @@ public class StatisticsTest {
     assertEquals(10,Statistics.percentile(finishTimeSingle, 10));
     assertEquals(10,Statistics.percentile(finishTimeSingle, 50));
   }
+
+  @Test
+  public void testFindTwoGroupsOfSketch() {
+    long[] values = new long[]{10, 11, 12, 13, 100, 110, 120, 1000};
+    QuantileSketch sketch = new QuantileSketch();
+    for (long value : values) {
+      sketch.update(value);
+    }
+    long[][] groups = Statistics.findTwoGroups(values);
+    Statistics.Group[] sketchGroups = Statistics.findTwoGroups(sketch);
+    for (int i = 0; i < 2; i++) {
+      assertEquals(groups[i].length, sketchGroups[i].getCount());
+      assertEquals(Statistics.average(groups[i]), sketchGroups[i].getAverage());
+    }
+  }
+
+  @Test
+  public void testFindTwoGroupsOfEmptySketch() {
+    Statistics.Group[] groups = Statistics.findTwoGroups(new QuantileSketch());
+    assertEquals(0, groups[0].getCount());
+    assertEquals(0, groups[1].getCount());
+    assertEquals(0, groups[1].getAverage());
+  }
+
+  @Test
+  public void testSelect() {
+    Random random = new Random(1);
+    for (int length = 1; length < 200; length++) {
+      long[] values = new long[length];
+      for (int i = 0; i < length; i++) {
+        // Many duplicates
+        values[i] = random.nextInt(length / 4 + 1);
+      }
+      long[] sorted = values.clone();
+      Arrays.sort(sorted);
+      int index = random.nextInt(length);
+      assertEquals(sorted[index], Statistics.select(values, length, index));
+    }
+  }
+
+  @Test
+  public void testSelectSortedValues() {
+    long[] values = new long[100000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = i / 3;
+    }
+    assertEquals(33333, Statistics.select(values, values.length, 100000 - 1));
+    assertEquals(0, Statistics.select(values, values.length, 0));
+  }
+
+  @Test
+  public void testArrayMedianAndPercentile() {
+    // The values are reordered, and only the first ones are used
+    assertEquals(6, Statistics.median(new long[]{15, 2, 8, 4, 6, 0}, 5));
+    assertEquals(6, Statistics.median(new long[]{15, 2, 8, 4, 6, 0}, 4));
+    assertEquals(8, Statistics.percentile(new long[]{15, 2, 8, 4, 6, 0}, 5, 80));
+    assertEquals(2, Statistics.percentile(new long[]{15, 2, 8, 4, 6, 0}, 5, 1));
+    assertEquals(15, Statistics.percentile(new long[]{15, 2, 8, 4, 6, 0}, 5, 100));
+  }
+
+  @Test
+  public void testListIsNotReordered() {
+    List<Long> values = new ArrayList<Long>();
+    values.add(3L);
+    values.add(1L);
+    values.add(2L);
+    assertEquals(2, Statistics.median(values));
+    assertEquals(3, Statistics.percentile(values, 90));
+    assertEquals(Long.valueOf(3L), values.get(0));
+  }
+
+  @Test
+  public void testFindTwoGroupsOfArray() {
+    long[] values = new long[]{10, 11, 12, 13, 100, 110, 120, 1000, -1};
+    long[][] groups = Statistics.findTwoGroups(Arrays.copyOf(values, 8));
+    Statistics.Group[] arrayGroups = Statistics.findTwoGroups(values, 8);
+    for (int i = 0; i < 2; i++) {
+      assertEquals(groups[i].length, arrayGroups[i].getCount());
+      assertEquals(Statistics.average(groups[i]), arrayGroups[i].getAverage());
+    }
+    assertArrayEquals(new long[]{10, 11, 12, 13, 100, 110, 120}, groups[0]);
+    assertArrayEquals(new long[]{1000}, groups[1]);
+  }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.metrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * This class tests the StageMetrics class
+ */
+public class StageMetricsTest {
+
+  @Test
+  public void testSummary() {
+    StageMetrics metrics = new StageMetrics(StageMetrics.HEURISTIC, "MapperSkewHeuristic", 5, TimeUnit.MINUTES);
+    metrics.update(TimeUnit.MILLISECONDS.toNanos(10), 1000);
+    metrics.update(TimeUnit.MILLISECONDS.toNanos(30), -1);
+
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(40), metrics.getTotalTime());
+    Map<String, Object> summary = metrics.getSummary();
+    assertEquals("Heuristic.MapperSkewHeuristic", summary.get("stage"));
+    assertEquals(2L, summary.get("count"));
+    assertEquals(40L, summary.get("totalTime"));
+    assertEquals(30L, summary.get("maxTime"));
+    assertEquals(1000L, summary.get("meanAllocatedBytes"));
+    assertTrue(metrics.getMetrics().containsKey("Heuristic.MapperSkewHeuristic.processingTime"));
+  }
+
+  @Test
+  public void testWindow() {
+    // A window of 60s, in buckets of 1s
+    StageMetrics metrics = new StageMetrics(StageMetrics.FETCHER, "MapReduceFetcherHadoop2", 1, TimeUnit.MINUTES);
+    long start = 1000000;
+    metrics.update(TimeUnit.MILLISECONDS.toNanos(10), -1, start);
+    metrics.update(TimeUnit.MILLISECONDS.toNanos(20), -1, start + 30000);
+    assertEquals(2, metrics.getCount(start + 59999));
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(30), metrics.getTotalTime(start + 59999));
+
+    // The first run leaves the window
+    assertEquals(1, metrics.getCount(start + 60000));
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(20), metrics.getTotalTime(start + 60000));
+
+    // A run in the bucket of the first one a window later replaces it
+    metrics.update(TimeUnit.MILLISECONDS.toNanos(40), -1, start + 60000);
+    assertEquals(2, metrics.getCount(start + 60000));
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(60), metrics.getTotalTime(start + 60000));
+    assertEquals(0, metrics.getCount(start + 200000));
+  }
+
+  @Test
+  public void testCurrentThreadAllocatedBytes() {
+    long before = StageMetrics.getCurrentThreadAllocatedBytes();
+    byte[] bytes = new byte[1 << 20];
+    long after = StageMetrics.getCurrentThreadAllocatedBytes();
+    if (before >= 0) {
+      assertTrue(after - before >= bytes.length);
+    }
+  }
+}
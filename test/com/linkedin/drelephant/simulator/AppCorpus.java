@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.simulator;
+
+import java.io.IOException;
+import java.util.List;
+
+
+/**
+ * The applications served by the ClusterSimulator, and the responses of the job history server and the Spark history
+ * server about them.
+ */
+public interface AppCorpus {
+
+  /**
+   * @return the applications of the corpus
+   */
+  public List<SimulatedApp> getApps();
+
+  /**
+   * Returns a response of the job history server or the Spark history server about an application.
+   *
+   * @param app The application
+   * @param path The path of the resource, relative to /ws/v1/history/mapreduce/jobs/ for the job history server, e.g.
+   *             job_1461566847127_0001/tasks, or to /api/v1/applications/ for the Spark history server, e.g.
+   *             application_1461566847127_0001/stages
+   * @return the Json response, or null if the resource does not exist
+   * @throws IOException
+   */
+  public String getResponse(SimulatedApp app, String path) throws IOException;
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.simulator;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Logger;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.ObjectNode;
+import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.Request;
+import org.glassfish.grizzly.http.server.Response;
+
+
+/**
+ * An embedded fake cluster serving the REST APIs of the resource manager, the job history server and the Spark history
+ * server used by Dr. Elephant, on a single address, to measure the throughput of the analysis without a real cluster.
+ *
+ * The applications of the corpus finish one after the other at the configured arrival rate from the start of the
+ * simulator, under new ids, the corpus being replayed as many times as needed. The responses about an application are
+ * the responses about its application in the corpus, whose ids are replaced with its own.
+ */
+public class ClusterSimulator {
+  private static final Logger logger = Logger.getLogger(ClusterSimulator.class);
+
+  private static final String RM_INFO_PATH = "/ws/v1/cluster/info";
+  private static final String RM_APPS_PATH = "/ws/v1/cluster/apps";
+  private static final String JHS_JOBS_PATH = "/ws/v1/history/mapreduce/jobs";
+  private static final String SHS_APPS_PATH = "/api/v1/applications";
+  private static final String LISTENER_NAME = "grizzly";
+
+  private final AppCorpus _corpus;
+  private final List<SimulatedApp> _corpusApps;
+  private final double _appsPerSecond;
+  private final int _maxApps;
+  private final ObjectMapper _objectMapper = new ObjectMapper();
+  private final AtomicLong _requests = new AtomicLong(0);
+  private volatile long _responseDelay = 0;
+  private long _startTime;
+  private HttpServer _server;
+
+  /**
+   * @param corpus The corpus of the applications
+   * @param appsPerSecond The number of applications finishing per second
+   * @param maxApps The number of applications after which no application finishes anymore
+   */
+  public ClusterSimulator(AppCorpus corpus, double appsPerSecond, int maxApps) {
+    if (appsPerSecond <= 0) {
+      throw new IllegalArgumentException("The arrival rate must be positive");
+    }
+    _corpus = corpus;
+    _corpusApps = corpus.getApps();
+    _appsPerSecond = appsPerSecond;
+    _maxApps = maxApps;
+  }
+
+  /**
+   * Sets the time the responses of the history servers are delayed by, to simulate loaded servers.
+   *
+   * @param responseDelay The delay in milliseconds
+   */
+  public void setResponseDelay(long responseDelay) {
+    _responseDelay = responseDelay;
+  }
+
+  /**
+   * Starts serving on a free port of localhost. The applications start finishing from now.
+   *
+   * @throws IOException if the server could not start
+   */
+  public void start() throws IOException {
+    ServerSocket socket = new ServerSocket(0);
+    int port = socket.getLocalPort();
+    socket.close();
+    _server = HttpServer.createSimpleServer(null, "localhost", port);
+    _server.getServerConfiguration().addHttpHandler(new HttpHandler() {
+      @Override
+      public void service(Request request, Response response) throws Exception {
+        handle(request, response);
+      }
+    }, "/");
+    _server.start();
+    _startTime = System.currentTimeMillis();
+    logger.info("Simulating a cluster at " + getAddress() + " with " + _appsPerSecond + " apps/s");
+  }
+
+  public void stop() {
+    if (_server != null) {
+      _server.shutdownNow();
+    }
+  }
+
+  /**
+   * @return the host and port of the resource manager, the job history server and the Spark history server
+   */
+  public String getAddress() {
+    return "localhost:" + _server.getListener(LISTENER_NAME).getPort();
+  }
+
+  /**
+   * @return the id the cluster gives to its applications, i.e. its start time
+   */
+  public long getClusterTimestamp() {
+    return _startTime;
+  }
+
+  /**
+   * @param now The current time
+   * @return the number of applications finished
+   */
+  public int getFinishedApps(long now) {
+    return (int) Math.min(_maxApps, Math.max(0, (long) ((now - _startTime) * _appsPerSecond / 1000)));
+  }
+
+  /**
+   * @return the number of requests served so far
+   */
+  public long getRequestCount() {
+    return _requests.get();
+  }
+
+  /**
+   * @param sequence The sequence of an application, from 0
+   * @return the time at which the application finishes
+   */
+  long getFinishTime(int sequence) {
+    // The time after which the number of applications finished exceeds the sequence
+    long finishTime = _startTime + (long) Math.ceil((sequence + 1) * 1000 / _appsPerSecond);
+    while (getFinishedApps(finishTime) <= sequence) {
+      finishTime++;
+    }
+    return finishTime;
+  }
+
+  String getAppId(int sequence) {
+    return String.format("application_%d_%04d", _startTime, sequence + 1);
+  }
+
+  private void handle(Request request, Response response) throws IOException, InterruptedException {
+    _requests.incrementAndGet();
+    String path = request.getRequestURI();
+    long now = System.currentTimeMillis();
+    String body = null;
+    if (path.equals(RM_INFO_PATH)) {
+      body = "{\"clusterInfo\":{\"haState\":\"ACTIVE\"}}";
+    } else if (path.equals(RM_APPS_PATH)) {
+      body = getApps(request, now);
+    } else if (path.equals(JHS_JOBS_PATH)) {
+      body = "{\"jobs\":{\"job\":[]}}";
+    } else if (path.startsWith(JHS_JOBS_PATH + "/")) {
+      body = getHistoryResponse(path.substring(JHS_JOBS_PATH.length() + 1), "job_", now);
+    } else if (path.startsWith(SHS_APPS_PATH + "/")) {
+      body = getHistoryResponse(path.substring(SHS_APPS_PATH.length() + 1), "application_", now);
+    }
+
+    if (body == null) {
+      response.sendError(404);
+      return;
+    }
+    response.setContentType("application/json");
+    response.setCharacterEncoding("UTF-8");
+    response.getWriter().write(body);
+  }
+
+  /**
+   * Returns the applications finished in the requested time range with the requested final status, as the resource
+   * manager does.
+   */
+  private String getApps(Request request, long now) throws IOException {
+    long begin = getLongParameter(request, "finishedTimeBegin", 0);
+    long end = Math.min(getLongParameter(request, "finishedTimeEnd", Long.MAX_VALUE), now);
+    String finalStatus = request.getParameter("finalStatus");
+
+    ObjectNode apps = _objectMapper.createObjectNode();
+    ArrayNode appNodes = apps.putObject("apps").putArray("app");
+    int first = Math.max(0, getFinishedApps(begin) - 1);
+    int last = getFinishedApps(end);
+    for (int sequence = first; sequence < last; sequence++) {
+      long finishTime = getFinishTime(sequence);
+      SimulatedApp app = _corpusApps.get(sequence % _corpusApps.size());
+      if (finishTime < begin || finishTime > end
+          || (finalStatus != null && !finalStatus.equals(app.getFinalStatus()))) {
+        continue;
+      }
+      String appId = getAppId(sequence);
+      ObjectNode appNode = appNodes.addObject();
+      appNode.put("id", appId);
+      appNode.put("user", app.getUser());
+      appNode.put("name", app.getName());
+      appNode.put("queue", app.getQueue());
+      appNode.put("state", "FINISHED");
+      appNode.put("finalStatus", app.getFinalStatus());
+      appNode.put("trackingUrl", "http://" + getAddress() + "/proxy/" + appId + "/");
+      appNode.put("applicationType", app.getApplicationType());
+      appNode.put("startedTime", finishTime - app.getDuration());
+      appNode.put("finishedTime", finishTime);
+      appNode.put("elapsedTime", app.getDuration());
+    }
+    return _objectMapper.writeValueAsString(apps);
+  }
+
+  /**
+   * Returns a response of a history server about a finished application, from the response of the corpus about the
+   * application it replays.
+   *
+   * @param path The path relative to the root of the API, starting with the id of the application or its job
+   * @param idPrefix The prefix of the id the path starts with
+   * @param now The current time
+   * @return the response, or null if the application is not finished or the resource does not exist
+   */
+  private String getHistoryResponse(String path, String idPrefix, long now)
+      throws IOException, InterruptedException {
+    String clusterPrefix = idPrefix + _startTime + "_";
+    if (!path.startsWith(clusterPrefix)) {
+      return null;
+    }
+    int idEnd = path.indexOf('/');
+    int sequence;
+    try {
+      sequence = Integer.parseInt(path.substring(clusterPrefix.length(), idEnd < 0 ? path.length() : idEnd)) - 1;
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    if (sequence < 0 || sequence >= getFinishedApps(now)) {
+      return null;
+    }
+    if (_responseDelay > 0) {
+      Thread.sleep(_responseDelay);
+    }
+
+    SimulatedApp app = _corpusApps.get(sequence % _corpusApps.size());
+    String idSuffix = SimulatedApp.getIdSuffix(getAppId(sequence));
+    String response = _corpus.getResponse(app, path.replace(idSuffix, app.getIdSuffix()));
+    return response == null ? null : response.replace(app.getIdSuffix(), idSuffix);
+  }
+
+  private static long getLongParameter(Request request, String name, long defaultValue) {
+    String value = request.getParameter(name);
+    return value == null ? defaultValue : Long.parseLong(value);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.simulator;
+
+import com.linkedin.drelephant.analysis.AnalyticJob;
+import com.linkedin.drelephant.analysis.ApplicationType;
+import com.linkedin.drelephant.configurations.fetcher.FetcherConfigurationData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceApplicationData;
+import com.linkedin.drelephant.mapreduce.data.MapReduceCounterData;
+import com.linkedin.drelephant.mapreduce.fetchers.MapReduceFetcherHadoop2;
+import com.linkedin.drelephant.spark.data.SparkApplicationData;
+import com.linkedin.drelephant.spark.fetchers.SparkFetcher;
+import java.io.FileNotFoundException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * This class tests the ClusterSimulator class, and that the fetchers read the synthetic corpus
+ */
+public class ClusterSimulatorTest {
+  private static final int APP_COUNT = 4;
+
+  private ClusterSimulator _simulator;
+
+  @Before
+  public void setUp() throws Exception {
+    _simulator = new ClusterSimulator(new SyntheticCorpus(2, 0.5, 4, 2), 1000, APP_COUNT);
+    _simulator.start();
+    while (_simulator.getFinishedApps(System.currentTimeMillis()) < APP_COUNT) {
+      Thread.sleep(10);
+    }
+  }
+
+  @After
+  public void tearDown() {
+    _simulator.stop();
+  }
+
+  @Test
+  public void testApps() throws Exception {
+    JsonNode apps = readJson("/ws/v1/cluster/apps?finalStatus=SUCCEEDED&finishedTimeBegin=0&finishedTimeEnd="
+        + System.currentTimeMillis());
+    JsonNode app = apps.path("apps").path("app");
+    assertEquals(APP_COUNT, app.size());
+    assertEquals(_simulator.getAppId(0), app.get(0).path("id").getValueAsText());
+    assertEquals("MAPREDUCE", app.get(0).path("applicationType").getValueAsText());
+    assertEquals("SPARK", app.get(1).path("applicationType").getValueAsText());
+    assertEquals("The corpus is replayed", "MAPREDUCE", app.get(2).path("applicationType").getValueAsText());
+
+    long finishTime = _simulator.getFinishTime(1);
+    apps = readJson("/ws/v1/cluster/apps?finishedTimeBegin=" + finishTime + "&finishedTimeEnd=" + finishTime);
+    assertEquals(1, apps.path("apps").path("app").size());
+    assertEquals(_simulator.getAppId(1), apps.path("apps").path("app").get(0).path("id").getValueAsText());
+  }
+
+  @Test(expected = FileNotFoundException.class)
+  public void testUnfinishedApp() throws Exception {
+    readJson("/ws/v1/history/mapreduce/jobs/job_" + _simulator.getClusterTimestamp() + "_" + (APP_COUNT + 1));
+  }
+
+  @Test
+  public void testMapReduceFetcher() throws Exception {
+    Map<String, String> params = new HashMap<String, String>();
+    params.put("jhistory_webapp_address", _simulator.getAddress());
+    MapReduceFetcherHadoop2 fetcher = new MapReduceFetcherHadoop2(new FetcherConfigurationData(
+        MapReduceFetcherHadoop2.class.getName(), new ApplicationType("MAPREDUCE"), params));
+
+    AnalyticJob job = new AnalyticJob().setAppId(_simulator.getAppId(2));
+    MapReduceApplicationData data = fetcher.fetchData(job);
+    assertTrue(data.getSucceeded());
+    assertEquals(4, data.getMapperData().length);
+    assertEquals(2, data.getReducerData().length);
+    assertTrue(data.getCounters().get(MapReduceCounterData.CounterName.HDFS_BYTES_READ) > 0);
+    assertTrue(data.getMapperData()[0].getCounters().get(MapReduceCounterData.CounterName.HDFS_BYTES_READ) > 0);
+    assertTrue(data.getReducerData()[0].getShuffleTimeMs() > 0);
+    assertEquals("2048", data.getConf().getProperty("mapreduce.map.memory.mb"));
+  }
+
+  @Test
+  public void testSparkFetcher() throws Exception {
+    Map<String, String> params = new HashMap<String, String>();
+    params.put(SparkFetcher.HISTORY_SERVER_ADDRESS_XML_FIELD(), _simulator.getAddress());
+    SparkFetcher fetcher = new SparkFetcher(new FetcherConfigurationData(
+        SparkFetcher.class.getName(), new ApplicationType("SPARK"), params));
+
+    SparkApplicationData data = fetcher.fetchData(new AnalyticJob().setAppId(_simulator.getAppId(3)));
+    assertEquals(_simulator.getAppId(3), data.getAppId());
+    assertEquals(1, data.jobDatas().size());
+    assertEquals(2, data.stageDatas().size());
+    assertTrue(data.executorSummaries().size() > 1);
+  }
+
+  private JsonNode readJson(String path) throws Exception {
+    return new ObjectMapper().readValue(new URL("http://" + _simulator.getAddress() + path), JsonNode.class);
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.simulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+
+
+/**
+ * A corpus of applications recorded from a real cluster, e.g. with curl. Each application has its own directory, named
+ * after its id, holding:
+ * <ul>app.json - The application as returned by the resource manager, i.e. an element of apps.app of
+ * /ws/v1/cluster/apps.</ul>
+ * <ul>[path].json - The responses of the history servers, by path relative to the root of their API, e.g.
+ * job_1461566847127_0001/tasks.json for /ws/v1/history/mapreduce/jobs/job_1461566847127_0001/tasks, or
+ * application_1461566847127_0002/1/stages.json for /api/v1/applications/application_1461566847127_0002/1/stages.</ul>
+ */
+public class RecordedCorpus implements AppCorpus {
+  private static final String APP_FILE = "app.json";
+  private static final String RESPONSE_SUFFIX = ".json";
+
+  private final File _dir;
+  private final List<SimulatedApp> _apps = new ArrayList<SimulatedApp>();
+
+  /**
+   * @param dir The directory of the corpus
+   * @throws IOException if an application could not be read
+   */
+  public RecordedCorpus(File dir) throws IOException {
+    _dir = dir;
+    ObjectMapper objectMapper = new ObjectMapper();
+    File[] appDirs = dir.listFiles();
+    if (appDirs == null) {
+      throw new IOException("Cannot list the applications of " + dir);
+    }
+    Arrays.sort(appDirs);
+    for (File appDir : appDirs) {
+      File appFile = new File(appDir, APP_FILE);
+      if (!appFile.isFile()) {
+        continue;
+      }
+      JsonNode app = objectMapper.readValue(appFile, JsonNode.class);
+      _apps.add(new SimulatedApp(appDir.getName(), app.path("applicationType").getValueAsText(),
+          app.path("user").getValueAsText(), app.path("name").getValueAsText(), app.path("queue").getValueAsText(),
+          app.path("finalStatus").getValueAsText(),
+          app.path("finishedTime").getLongValue() - app.path("startedTime").getLongValue()));
+    }
+    if (_apps.isEmpty()) {
+      throw new IOException("No application recorded in " + dir);
+    }
+  }
+
+  @Override
+  public List<SimulatedApp> getApps() {
+    return Collections.unmodifiableList(_apps);
+  }
+
+  @Override
+  public String getResponse(SimulatedApp app, String path) throws IOException {
+    File response = new File(new File(_dir, app.getAppId()), path + RESPONSE_SUFFIX);
+    if (path.contains("..") || !response.isFile()) {
+      return null;
+    }
+    return FileUtils.readFileToString(response, "UTF-8");
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.simulator;
+
+/**
+ * An application of a corpus, served by the ClusterSimulator under new ids as many times as needed.
+ */
+public class SimulatedApp {
+  private final String _appId;
+  private final String _applicationType;
+  private final String _user;
+  private final String _name;
+  private final String _queue;
+  private final String _finalStatus;
+  private final long _duration;
+
+  /**
+   * @param appId The id of the application in the corpus, e.g. application_1461566847127_0001
+   * @param applicationType The application type, i.e. MAPREDUCE or SPARK
+   * @param user The user
+   * @param name The name
+   * @param queue The queue
+   * @param finalStatus The final status, i.e. SUCCEEDED or FAILED
+   * @param duration The time in milliseconds between the start and the end of the application
+   */
+  public SimulatedApp(String appId, String applicationType, String user, String name, String queue,
+      String finalStatus, long duration) {
+    _appId = appId;
+    _applicationType = applicationType;
+    _user = user;
+    _name = name;
+    _queue = queue;
+    _finalStatus = finalStatus;
+    _duration = duration;
+  }
+
+  public String getAppId() {
+    return _appId;
+  }
+
+  /**
+   * @return the id of the application without its application_ prefix, shared by the ids of its job, tasks and attempts
+   */
+  public String getIdSuffix() {
+    return getIdSuffix(_appId);
+  }
+
+  public String getApplicationType() {
+    return _applicationType;
+  }
+
+  public String getUser() {
+    return _user;
+  }
+
+  public String getName() {
+    return _name;
+  }
+
+  public String getQueue() {
+    return _queue;
+  }
+
+  public String getFinalStatus() {
+    return _finalStatus;
+  }
+
+  public long getDuration() {
+    return _duration;
+  }
+
+  static String getIdSuffix(String appId) {
+    return appId.substring(appId.indexOf('_') + 1);
+  }
+}
@@ -0,0 +1,444 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.simulator;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.node.ArrayNode;
+import org.codehaus.jackson.node.ObjectNode;
+
+
+/**
+ * A corpus of generated MapReduce and Spark applications. The tasks of an application have random durations, sizes
+ * and memory usage, always the same for a given application, and are generated on request so that the corpus takes
+ * no memory whatever its size.
+ */
+public class SyntheticCorpus implements AppCorpus {
+  private static final String ID_PREFIX = "application_1000000000000_";
+  private static final long BASE_TIME = 1460000000000L;
+  private static final long MB = 1024L * 1024L;
+  private static final int FAILED_APP_INTERVAL = 20;
+  private static final int TASKS_PER_EXECUTOR = 10;
+  private static final String SPARK_ATTEMPT_ID = "1";
+
+  private static final String FILE_SYSTEM_COUNTER = "org.apache.hadoop.mapreduce.FileSystemCounter";
+  private static final String TASK_COUNTER = "org.apache.hadoop.mapreduce.TaskCounter";
+
+  private final int _mapperCount;
+  private final int _reducerCount;
+  private final List<SimulatedApp> _apps = new ArrayList<SimulatedApp>();
+  private final ObjectMapper _objectMapper = new ObjectMapper();
+
+  /**
+   * The counters and times of a task.
+   */
+  private static class Task {
+    private long _startTime;
+    private long _finishTime;
+    private long _shuffleTime;
+    private long _mergeTime;
+    private final Map<String, Map<String, Long>> _counters = new LinkedHashMap<String, Map<String, Long>>();
+
+    private void setCounter(String group, String name, long value) {
+      Map<String, Long> counters = _counters.get(group);
+      if (counters == null) {
+        counters = new LinkedHashMap<String, Long>();
+        _counters.put(group, counters);
+      }
+      counters.put(name, value);
+    }
+  }
+
+  /**
+   * @param appCount The number of applications
+   * @param sparkRatio The ratio of Spark applications, between 0 and 1
+   * @param mapperCount The number of mappers of the MapReduce jobs, and of tasks per stage of the Spark applications
+   * @param reducerCount The number of reducers of the MapReduce jobs
+   */
+  public SyntheticCorpus(int appCount, double sparkRatio, int mapperCount, int reducerCount) {
+    _mapperCount = mapperCount;
+    _reducerCount = reducerCount;
+    Random random = new Random(appCount);
+    for (int i = 0; i < appCount; i++) {
+      boolean isSpark = Math.floor((i + 1) * sparkRatio) > Math.floor(i * sparkRatio);
+      _apps.add(new SimulatedApp(String.format("%s%04d", ID_PREFIX, i + 1), isSpark ? "SPARK" : "MAPREDUCE",
+          "user" + (i % 10), "synthetic job " + i, "queue" + (i % 3),
+          (i + 1) % FAILED_APP_INTERVAL == 0 ? "FAILED" : "SUCCEEDED", 60000 + random.nextInt(15 * 60000)));
+    }
+  }
+
+  @Override
+  public List<SimulatedApp> getApps() {
+    return Collections.unmodifiableList(_apps);
+  }
+
+  @Override
+  public String getResponse(SimulatedApp app, String path) throws IOException {
+    if (!app.getAppId().startsWith(ID_PREFIX)) {
+      return null;
+    }
+    int index = Integer.parseInt(app.getAppId().substring(ID_PREFIX.length())) - 1;
+    String[] parts = path.split("/");
+    ObjectNode response;
+    if (parts[0].equals("job_" + app.getIdSuffix()) && app.getApplicationType().equals("MAPREDUCE")) {
+      response = getJobHistoryResponse(index, app, parts);
+    } else if (parts[0].equals(app.getAppId()) && app.getApplicationType().equals("SPARK")) {
+      return getSparkHistoryResponse(index, app, parts);
+    } else {
+      response = null;
+    }
+    return response == null ? null : _objectMapper.writeValueAsString(response);
+  }
+
+  private ObjectNode getJobHistoryResponse(int index, SimulatedApp app, String[] parts) {
+    if (parts.length == 1) {
+      return getJob(index, app);
+    } else if (parts.length == 2 && parts[1].equals("conf")) {
+      return getJobConf(app);
+    } else if (parts.length == 2 && parts[1].equals("counters")) {
+      return getJobCounters(index, app);
+    } else if (parts.length == 2 && parts[1].equals("tasks")) {
+      return getTasks(index, app);
+    } else if (parts.length >= 4 && parts[1].equals("tasks")) {
+      String taskId = parts[2];
+      String taskPrefix = "task_" + app.getIdSuffix() + "_";
+      if (!taskId.startsWith(taskPrefix) || taskId.length() != taskPrefix.length() + 8) {
+        return null;
+      }
+      boolean isMap = taskId.charAt(taskPrefix.length()) == 'm';
+      int taskIndex = Integer.parseInt(taskId.substring(taskPrefix.length() + 2));
+      if (taskIndex >= (isMap ? _mapperCount : _reducerCount)) {
+        return null;
+      }
+      Task task = getTask(index, isMap, taskIndex);
+      if (parts.length == 4 && parts[3].equals("counters")) {
+        return getTaskCounters(taskId, task);
+      } else if (parts.length == 4 && parts[3].equals("attempts")) {
+        ObjectNode taskAttempts = _objectMapper.createObjectNode();
+        taskAttempts.putObject("taskAttempts").putArray("taskAttempt")
+            .add(getTaskAttempt(getAttemptId(taskId), isMap, task));
+        return taskAttempts;
+      } else if (parts.length == 5 && parts[3].equals("attempts") && parts[4].equals(getAttemptId(taskId))) {
+        ObjectNode taskAttempt = _objectMapper.createObjectNode();
+        taskAttempt.put("taskAttempt", getTaskAttempt(parts[4], isMap, task));
+        return taskAttempt;
+      }
+    }
+    return null;
+  }
+
+  private ObjectNode getJob(int index, SimulatedApp app) {
+    long startTime = getStartTime(index);
+    ObjectNode job = _objectMapper.createObjectNode();
+    ObjectNode jobNode = job.putObject("job");
+    jobNode.put("id", "job_" + app.getIdSuffix());
+    jobNode.put("name", app.getName());
+    jobNode.put("queue", app.getQueue());
+    jobNode.put("user", app.getUser());
+    jobNode.put("state", app.getFinalStatus());
+    jobNode.put("submitTime", startTime - 1000);
+    jobNode.put("startTime", startTime);
+    jobNode.put("finishTime", startTime + app.getDuration());
+    jobNode.put("mapsTotal", _mapperCount);
+    jobNode.put("reducesTotal", _reducerCount);
+    jobNode.put("diagnostics", app.getFinalStatus().equals("FAILED") ? "Job failed as tasks failed." : "");
+    return job;
+  }
+
+  private ObjectNode getJobConf(SimulatedApp app) {
+    Map<String, String> properties = new LinkedHashMap<String, String>();
+    properties.put("mapreduce.job.name", app.getName());
+    properties.put("mapreduce.job.user.name", app.getUser());
+    properties.put("mapreduce.job.queuename", app.getQueue());
+    properties.put("mapreduce.map.memory.mb", "2048");
+    properties.put("mapreduce.reduce.memory.mb", "4096");
+    properties.put("mapreduce.map.java.opts", "-Xmx1536m");
+    properties.put("mapreduce.reduce.java.opts", "-Xmx3072m");
+    properties.put("mapreduce.task.io.sort.mb", "100");
+    properties.put("mapreduce.map.sort.spill.percent", "0.80");
+    properties.put("mapreduce.job.reduce.slowstart.completedmaps", "0.95");
+
+    ObjectNode conf = _objectMapper.createObjectNode();
+    ArrayNode propertyNodes = conf.putObject("conf").putArray("property");
+    for (Map.Entry<String, String> property : properties.entrySet()) {
+      ObjectNode propertyNode = propertyNodes.addObject();
+      propertyNode.put("name", property.getKey());
+      propertyNode.put("value", property.getValue());
+    }
+    return conf;
+  }
+
+  private ObjectNode getJobCounters(int index, SimulatedApp app) {
+    Task job = new Task();
+    for (int i = 0; i < _mapperCount + _reducerCount; i++) {
+      Task task = i < _mapperCount ? getTask(index, true, i) : getTask(index, false, i - _mapperCount);
+      for (Map.Entry<String, Map<String, Long>> group : task._counters.entrySet()) {
+        for (Map.Entry<String, Long> counter : group.getValue().entrySet()) {
+          Map<String, Long> jobGroup = job._counters.get(group.getKey());
+          Long total = jobGroup == null ? null : jobGroup.get(counter.getKey());
+          job.setCounter(group.getKey(), counter.getKey(), (total == null ? 0 : total) + counter.getValue());
+        }
+      }
+    }
+
+    ObjectNode counters = _objectMapper.createObjectNode();
+    ObjectNode jobCounters = counters.putObject("jobCounters");
+    jobCounters.put("id", "job_" + app.getIdSuffix());
+    ArrayNode groupNodes = jobCounters.putArray("counterGroup");
+    for (Map.Entry<String, Map<String, Long>> group : job._counters.entrySet()) {
+      ObjectNode groupNode = groupNodes.addObject();
+      groupNode.put("counterGroupName", group.getKey());
+      ArrayNode counterNodes = groupNode.putArray("counter");
+      for (Map.Entry<String, Long> counter : group.getValue().entrySet()) {
+        ObjectNode counterNode = counterNodes.addObject();
+        counterNode.put("name", counter.getKey());
+        counterNode.put("totalCounterValue", counter.getValue());
+      }
+    }
+    return counters;
+  }
+
+  private ObjectNode getTasks(int index, SimulatedApp app) {
+    ObjectNode tasks = _objectMapper.createObjectNode();
+    ArrayNode taskNodes = tasks.putObject("tasks").putArray("task");
+    for (int i = 0; i < _mapperCount + _reducerCount; i++) {
+      boolean isMap = i < _mapperCount;
+      int taskIndex = isMap ? i : i - _mapperCount;
+      Task task = getTask(index, isMap, taskIndex);
+      String taskId = String.format("task_%s_%s_%06d", app.getIdSuffix(), isMap ? "m" : "r", taskIndex);
+      ObjectNode taskNode = taskNodes.addObject();
+      taskNode.put("id", taskId);
+      taskNode.put("type", isMap ? "MAP" : "REDUCE");
+      taskNode.put("state", "SUCCEEDED");
+      taskNode.put("successfulAttempt", getAttemptId(taskId));
+      taskNode.put("startTime", task._startTime);
+      taskNode.put("finishTime", task._finishTime);
+      taskNode.put("elapsedTime", task._finishTime - task._startTime);
+      taskNode.put("progress", 100.0);
+    }
+    return tasks;
+  }
+
+  private ObjectNode getTaskCounters(String taskId, Task task) {
+    ObjectNode counters = _objectMapper.createObjectNode();
+    ObjectNode taskCounters = counters.putObject("jobTaskCounters");
+    taskCounters.put("id", taskId);
+    ArrayNode groupNodes = taskCounters.putArray("taskCounterGroup");
+    for (Map.Entry<String, Map<String, Long>> group : task._counters.entrySet()) {
+      ObjectNode groupNode = groupNodes.addObject();
+      groupNode.put("counterGroupName", group.getKey());
+      ArrayNode counterNodes = groupNode.putArray("counter");
+      for (Map.Entry<String, Long> counter : group.getValue().entrySet()) {
+        ObjectNode counterNode = counterNodes.addObject();
+        counterNode.put("name", counter.getKey());
+        counterNode.put("value", counter.getValue());
+      }
+    }
+    return counters;
+  }
+
+  private ObjectNode getTaskAttempt(String attemptId, boolean isMap, Task task) {
+    ObjectNode attempt = _objectMapper.createObjectNode();
+    attempt.put("id", attemptId);
+    attempt.put("type", isMap ? "MAP" : "REDUCE");
+    attempt.put("state", "SUCCEEDED");
+    attempt.put("startTime", task._startTime);
+    attempt.put("finishTime", task._finishTime);
+    attempt.put("elapsedTime", task._finishTime - task._startTime);
+    if (!isMap) {
+      attempt.put("elapsedShuffleTime", task._shuffleTime);
+      attempt.put("elapsedMergeTime", task._mergeTime);
+      attempt.put("elapsedReduceTime", task._finishTime - task._startTime - task._shuffleTime - task._mergeTime);
+    }
+    return attempt;
+  }
+
+  private Task getTask(int index, boolean isMap, int taskIndex) {
+    Random random = new Random(31L * (31L * index + (isMap ? 0 : 1)) + taskIndex);
+    Task task = new Task();
+    long startTime = getStartTime(index);
+    long duration;
+    long physicalMemory = (600 + random.nextInt(800)) * MB;
+    if (isMap) {
+      duration = 20000 + random.nextInt(60000);
+      task._startTime = startTime + random.nextInt(10000);
+      long inputBytes = (64 + random.nextInt(128)) * MB;
+      task.setCounter(FILE_SYSTEM_COUNTER, "HDFS_BYTES_READ", inputBytes);
+      task.setCounter(FILE_SYSTEM_COUNTER, "FILE_BYTES_WRITTEN", inputBytes / 2);
+      task.setCounter(TASK_COUNTER, "MAP_INPUT_RECORDS", inputBytes / 100);
+      task.setCounter(TASK_COUNTER, "MAP_OUTPUT_RECORDS", inputBytes / 200);
+      task.setCounter(TASK_COUNTER, "MAP_OUTPUT_BYTES", inputBytes / 2);
+      task.setCounter(TASK_COUNTER, "SPILLED_RECORDS", inputBytes / 200);
+      task.setCounter(TASK_COUNTER, "SPLIT_RAW_BYTES", 300);
+    } else {
+      duration = 60000 + random.nextInt(120000);
+      task._startTime = startTime + 90000 + random.nextInt(10000);
+      task._shuffleTime = duration / 3;
+      task._mergeTime = duration / 10;
+      long shuffleBytes = (_mapperCount * 48L * MB) / Math.max(_reducerCount, 1) * (50 + random.nextInt(100)) / 100;
+      task.setCounter(FILE_SYSTEM_COUNTER, "FILE_BYTES_READ", shuffleBytes);
+      task.setCounter(FILE_SYSTEM_COUNTER, "HDFS_BYTES_WRITTEN", shuffleBytes / 4);
+      task.setCounter(TASK_COUNTER, "REDUCE_SHUFFLE_BYTES", shuffleBytes);
+      task.setCounter(TASK_COUNTER, "REDUCE_INPUT_GROUPS", shuffleBytes / 1000);
+      task.setCounter(TASK_COUNTER, "REDUCE_INPUT_RECORDS", shuffleBytes / 100);
+      task.setCounter(TASK_COUNTER, "REDUCE_OUTPUT_RECORDS", shuffleBytes / 400);
+      task.setCounter(TASK_COUNTER, "SPILLED_RECORDS", shuffleBytes / 100);
+    }
+    task._finishTime = task._startTime + duration;
+    task.setCounter(TASK_COUNTER, "CPU_MILLISECONDS", duration * (40 + random.nextInt(60)) / 100);
+    task.setCounter(TASK_COUNTER, "GC_TIME_MILLIS", duration * random.nextInt(10) / 100);
+    task.setCounter(TASK_COUNTER, "PHYSICAL_MEMORY_BYTES", physicalMemory);
+    task.setCounter(TASK_COUNTER, "VIRTUAL_MEMORY_BYTES", physicalMemory * 3);
+    task.setCounter(TASK_COUNTER, "COMMITTED_HEAP_BYTES", physicalMemory * 3 / 4);
+    return task;
+  }
+
+  private String getSparkHistoryResponse(int index, SimulatedApp app, String[] parts) throws IOException {
+    if (parts.length == 1) {
+      return _objectMapper.writeValueAsString(getApplication(index, app));
+    } else if (parts.length == 3 && parts[1].equals(SPARK_ATTEMPT_ID)) {
+      if (parts[2].equals("jobs")) {
+        return _objectMapper.writeValueAsString(getSparkJobs(index, app));
+      } else if (parts[2].equals("stages")) {
+        return _objectMapper.writeValueAsString(getSparkStages(index));
+      } else if (parts[2].equals("executors")) {
+        return _objectMapper.writeValueAsString(getSparkExecutors(index));
+      }
+    }
+    return null;
+  }
+
+  private ObjectNode getApplication(int index, SimulatedApp app) {
+    long startTime = getStartTime(index);
+    ObjectNode application = _objectMapper.createObjectNode();
+    application.put("id", app.getAppId());
+    application.put("name", app.getName());
+    ObjectNode attempt = application.putArray("attempts").addObject();
+    attempt.put("attemptId", SPARK_ATTEMPT_ID);
+    attempt.put("startTime", formatSparkDate(startTime));
+    attempt.put("endTime", formatSparkDate(startTime + app.getDuration()));
+    attempt.put("sparkUser", app.getUser());
+    attempt.put("completed", true);
+    return application;
+  }
+
+  private ArrayNode getSparkJobs(int index, SimulatedApp app) {
+    long startTime = getStartTime(index);
+    boolean succeeded = app.getFinalStatus().equals("SUCCEEDED");
+    ArrayNode jobs = _objectMapper.createArrayNode();
+    ObjectNode job = jobs.addObject();
+    job.put("jobId", 0);
+    job.put("name", "count at Synthetic.scala:42");
+    job.put("submissionTime", formatSparkDate(startTime));
+    job.put("completionTime", formatSparkDate(startTime + app.getDuration()));
+    ArrayNode stageIds = job.putArray("stageIds");
+    stageIds.add(0);
+    stageIds.add(1);
+    job.put("status", succeeded ? "SUCCEEDED" : "FAILED");
+    job.put("numTasks", 2 * _mapperCount);
+    job.put("numActiveTasks", 0);
+    job.put("numCompletedTasks", succeeded ? 2 * _mapperCount : _mapperCount);
+    job.put("numSkippedTasks", 0);
+    job.put("numFailedTasks", succeeded ? 0 : _mapperCount);
+    job.put("numActiveStages", 0);
+    job.put("numCompletedStages", succeeded ? 2 : 1);
+    job.put("numSkippedStages", 0);
+    job.put("numFailedStages", succeeded ? 0 : 1);
+    return jobs;
+  }
+
+  private ArrayNode getSparkStages(int index) {
+    ArrayNode stages = _objectMapper.createArrayNode();
+    for (int stageId = 0; stageId < 2; stageId++) {
+      Random random = new Random(31L * index + stageId);
+      long inputBytes = stageId == 0 ? _mapperCount * (64 + random.nextInt(128)) * MB : 0;
+      long shuffleBytes = _mapperCount * (16 + random.nextInt(64)) * MB;
+      ObjectNode stage = stages.addObject();
+      stage.put("status", "COMPLETE");
+      stage.put("stageId", stageId);
+      stage.put("attemptId", 0);
+      stage.put("numActiveTasks", 0);
+      stage.put("numCompleteTasks", _mapperCount);
+      stage.put("numFailedTasks", 0);
+      stage.put("executorRunTime", _mapperCount * (20000L + random.nextInt(60000)));
+      stage.put("inputBytes", inputBytes);
+      stage.put("inputRecords", inputBytes / 100);
+      stage.put("outputBytes", stageId == 1 ? shuffleBytes / 4 : 0);
+      stage.put("outputRecords", stageId == 1 ? shuffleBytes / 400 : 0);
+      stage.put("shuffleReadBytes", stageId == 1 ? shuffleBytes : 0);
+      stage.put("shuffleReadRecords", stageId == 1 ? shuffleBytes / 100 : 0);
+      stage.put("shuffleWriteBytes", stageId == 0 ? shuffleBytes : 0);
+      stage.put("shuffleWriteRecords", stageId == 0 ? shuffleBytes / 100 : 0);
+      stage.put("memoryBytesSpilled", random.nextInt(4) * shuffleBytes / 10);
+      stage.put("diskBytesSpilled", random.nextInt(2) * shuffleBytes / 10);
+      stage.put("name", stageId == 0 ? "map at Synthetic.scala:40" : "count at Synthetic.scala:42");
+      stage.put("details", "");
+      stage.put("schedulingPool", "default");
+      stage.putArray("accumulatorUpdates");
+    }
+    return stages;
+  }
+
+  private ArrayNode getSparkExecutors(int index) {
+    int executorCount = Math.max(1, _mapperCount / TASKS_PER_EXECUTOR);
+    ArrayNode executors = _objectMapper.createArrayNode();
+    for (int i = 0; i <= executorCount; i++) {
+      Random random = new Random(31L * index + i);
+      int tasks = i == 0 ? 0 : 2 * _mapperCount / executorCount;
+      ObjectNode executor = executors.addObject();
+      executor.put("id", i == 0 ? "driver" : String.valueOf(i));
+      executor.put("hostPort", "node" + i + ".simulator:" + (40000 + i));
+      executor.put("rddBlocks", 0);
+      executor.put("memoryUsed", (100 + random.nextInt(900)) * MB);
+      executor.put("diskUsed", 0);
+      executor.put("activeTasks", 0);
+      executor.put("failedTasks", 0);
+      executor.put("completedTasks", tasks);
+      executor.put("totalTasks", tasks);
+      executor.put("totalDuration", tasks * (20000L + random.nextInt(60000)));
+      executor.put("totalInputBytes", tasks * (32 + random.nextInt(64)) * MB);
+      executor.put("totalShuffleRead", tasks * (8 + random.nextInt(32)) * MB);
+      executor.put("totalShuffleWrite", tasks * (8 + random.nextInt(32)) * MB);
+      executor.put("maxMemory", 2048 * MB);
+      executor.putObject("executorLogs");
+    }
+    return executors;
+  }
+
+  private static long getStartTime(int index) {
+    return BASE_TIME + index * 60000L;
+  }
+
+  private static String getAttemptId(String taskId) {
+    return "attempt" + taskId.substring("task".length()) + "_0";
+  }
+
+  private static String formatSparkDate(long time) {
+    SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'GMT'");
+    dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+    return dateFormat.format(new Date(time));
+  }
+}
@@ -19,9 +19,12 @@ package com.linkedin.drelephant.spark.fetchers
 import java.nio.file.Files
 import java.util.Date
 
-import scala.concurrent.{ExecutionContext, Future}
+import java.util.concurrent.TimeoutException
 
-import com.linkedin.drelephant.analysis.{AnalyticJob, ApplicationType}
+import scala.concurrent.{Await, ExecutionContext, Future, Promise}
+import scala.concurrent.duration.{Duration, SECONDS}
+
+import com.linkedin.drelephant.analysis.{AnalyticJob, ApplicationType, AsyncElephantFetcher}
 import com.linkedin.drelephant.configurations.fetcher.FetcherConfigurationData
 import com.linkedin.drelephant.spark.data.{SparkApplicationData, SparkLogDerivedData, SparkRestDerivedData}
 import com.linkedin.drelephant.spark.fetchers.SparkFetcher.EventLogSource
@@ -30,7 +33,7 @@ import com.linkedin.drelephant.util.{SparkUtils, HadoopUtils}
 import org.apache.log4j.Logger
 import org.apache.spark.SparkConf
 import org.apache.spark.scheduler.SparkListenerEnvironmentUpdate
-import org.mockito.Mockito
+import org.mockito.{Matchers => MockitoMatchers, Mockito}
 import org.scalatest.{FunSpec, Matchers}
 import org.scalatest.mockito.MockitoSugar
 
@@ -97,6 +100,66 @@ class SparkFetcherTest extends FunSpec with Matchers with MockitoSugar {
       an[Exception] should be thrownBy { sparkFetcher.fetchData(analyticJob) }
     }
 
+    it("reads its thread count, timeout and non-blocking params") {
+      val sparkFetcher = new SparkFetcher(newFakeFetcherConfigurationData(Map(
+        SparkFetcher.FETCH_THREAD_COUNT_XML_FIELD -> "4",
+        SparkFetcher.FETCH_TIMEOUT_XML_FIELD -> "120",
+        SparkFetcher.NON_BLOCKING_XML_FIELD -> "true")))
+      sparkFetcher.fetchThreadCount should be(4)
+      sparkFetcher.fetchTimeout should be(Duration(120, SECONDS))
+      sparkFetcher.isNonBlocking should be(true)
+
+      val defaultSparkFetcher = new SparkFetcher(fetcherConfigurationData)
+      defaultSparkFetcher.fetchThreadCount should be(SparkFetcher.DEFAULT_FETCH_THREAD_COUNT)
+      defaultSparkFetcher.fetchTimeout should be(SparkFetcher.DEFAULT_TIMEOUT)
+      defaultSparkFetcher.isNonBlocking should be(false)
+    }
+
+    it("notifies the callback of a non-blocking fetch") {
+      val sparkFetcher = new SparkFetcher(fetcherConfigurationData) {
+        override lazy val sparkConf = new SparkConf()
+        override lazy val sparkRestClient = newFakeSparkRestClient(appId, Future(restDerivedData))
+        override lazy val sparkLogClient = newFakeSparkLogClient(appId, Some("2"), Future(logDerivedData))
+      }
+      val callback = new PromiseCallback()
+      sparkFetcher.fetchDataAsync(analyticJob, callback)
+      Await.result(callback.promise.future, Duration(10, SECONDS)).appId should be(appId)
+    }
+
+    it("fails a non-blocking fetch that times out") {
+      val sparkFetcher = new SparkFetcher(newFakeFetcherConfigurationData(Map(
+        SparkFetcher.FETCH_TIMEOUT_XML_FIELD -> "1"))) {
+        override lazy val sparkConf = new SparkConf()
+        override lazy val sparkRestClient = newFakeSparkRestClient(appId, Promise[SparkRestDerivedData]().future)
+        override lazy val sparkLogClient = newFakeSparkLogClient(appId, Some("2"), Future(logDerivedData))
+      }
+      val callback = new PromiseCallback()
+      sparkFetcher.fetchDataAsync(analyticJob, callback)
+      a[TimeoutException] should be thrownBy { Await.result(callback.promise.future, Duration(10, SECONDS)) }
+    }
+
+    it("starts a non-blocking fetch once a fetch thread is free") {
+      val restDerivedDataPromise = Promise[SparkRestDerivedData]()
+      val sparkFetcher = new SparkFetcher(newFakeFetcherConfigurationData(Map(
+        SparkFetcher.FETCH_THREAD_COUNT_XML_FIELD -> "1",
+        SparkFetcher.FETCH_TIMEOUT_XML_FIELD -> "1"))) {
+        override lazy val sparkConf = new SparkConf()
+        override lazy val sparkRestClient = newFakeSparkRestClient(appId, restDerivedDataPromise.future)
+      }
+      val timedOutCallback = new PromiseCallback()
+      val waitingCallback = new PromiseCallback()
+      sparkFetcher.fetchDataAsync(analyticJob, timedOutCallback)
+      sparkFetcher.fetchDataAsync(analyticJob, waitingCallback)
+      a[TimeoutException] should be thrownBy { Await.result(timedOutCallback.promise.future, Duration(10, SECONDS)) }
+      Mockito.verify(sparkFetcher.sparkRestClient, Mockito.times(1)).fetchData(appId, false)(sparkFetcher.executionContext)
+
+      // The waiting fetch starts once the requests of the timed out one complete, with a timeout of its own
+      Thread.sleep(1500)
+      restDerivedDataPromise.success(restDerivedData)
+      Await.result(waitingCallback.promise.future, Duration(10, SECONDS)).appId should be(appId)
+      Mockito.verify(sparkFetcher.sparkRestClient, Mockito.times(2)).fetchData(appId, false)(sparkFetcher.executionContext)
+    }
+
     it("returns SparkApplicationData when use_rest_for_eventlogs and should_process_logs_locally both are true") {
       val fetcherConfigurationData = newFakeFetcherConfigurationData(
         Map("use_rest_for_eventlogs" -> "true", "should_process_logs_locally" -> "true"))
@@ -196,6 +259,20 @@ class SparkFetcherTest extends FunSpec with Matchers with MockitoSugar {
       an[IllegalStateException] should be thrownBy { sparkFetcher.sparkConf }
     }
 
+    it("uses the history server address of its params, without Spark conf") {
+      val fetcherConfigurationData = newFakeFetcherConfigurationData(
+        Map(SparkFetcher.HISTORY_SERVER_ADDRESS_XML_FIELD -> "shs.cluster2:18080"))
+      val sparkFetcher = new SparkFetcher(fetcherConfigurationData) {
+        override lazy val sparkUtils = new SparkUtils() {
+          override lazy val logger = mock[Logger]
+          override lazy val hadoopUtils = mock[HadoopUtils]
+          override lazy val defaultEnv = Map.empty[String, String]
+        }
+      }
+
+      sparkFetcher.sparkConf.get("spark.yarn.historyServer.address") should be("shs.cluster2:18080")
+    }
+
     it("eventlog source defaults to WebHDFS") {
       val fetcherConfigurationData = newFakeFetcherConfigurationData()
       val sparkFetcher = new SparkFetcher(fetcherConfigurationData) {
@@ -277,6 +354,14 @@ class SparkFetcherTest extends FunSpec with Matchers with MockitoSugar {
 object SparkFetcherTest {
   import scala.collection.JavaConverters._
 
+  class PromiseCallback extends AsyncElephantFetcher.Callback[SparkApplicationData] {
+    val promise = Promise[SparkApplicationData]()
+
+    override def onSuccess(data: SparkApplicationData): Unit = promise.success(data)
+
+    override def onFailure(e: Exception): Unit = promise.failure(e)
+  }
+
   def newFakeFetcherConfigurationData(paramMap: Map[String, String] = Map.empty): FetcherConfigurationData =
     new FetcherConfigurationData(classOf[SparkFetcher].getName, new ApplicationType("SPARK"), paramMap.asJava)
 
@@ -299,7 +384,9 @@ object SparkFetcherTest {
     implicit ec: ExecutionContext
   ): SparkRestClient = {
     val sparkRestClient = Mockito.mock(classOf[SparkRestClient])
-    Mockito.when(sparkRestClient.fetchData(appId)).thenReturn(restDerivedData)
+    // The fetcher runs the clients in its own execution context
+    Mockito.when(sparkRestClient.fetchData(MockitoMatchers.eq(appId), MockitoMatchers.eq(false))(
+      MockitoMatchers.any[ExecutionContext])).thenReturn(restDerivedData)
     sparkRestClient
   }
 
@@ -311,7 +398,8 @@ object SparkFetcherTest {
     implicit ec: ExecutionContext
   ): SparkLogClient = {
     val sparkLogClient = Mockito.mock(classOf[SparkLogClient])
-    Mockito.when(sparkLogClient.fetchData(appId, attemptId)).thenReturn(logDerivedData)
+    Mockito.when(sparkLogClient.fetchData(MockitoMatchers.eq(appId), MockitoMatchers.eq(attemptId))(
+      MockitoMatchers.any[ExecutionContext])).thenReturn(logDerivedData)
     sparkLogClient
   }
 }
@@ -26,6 +26,8 @@ import org.apache.commons.io.IOUtils
 import org.apache.hadoop.conf.Configuration
 import org.apache.hadoop.fs.Path
 import org.apache.spark.SparkConf
+import org.json4s.JsonAST.{JInt, JString}
+import org.json4s.jackson.JsonMethods
 import org.scalatest.{AsyncFunSpec, Matchers}
 import org.scalatest.mockito.MockitoSugar
 import org.xerial.snappy.SnappyOutputStream
@@ -79,5 +81,31 @@ class SparkLogClientTest extends AsyncFunSpec with Matchers with MockitoSugar {
         actualProperties should be(expectedProperties)
       }
     }
+
+    it("reads the event types like the Json parser") {
+      val lines = IOUtils.readLines(getClass.getClassLoader.getResourceAsStream("spark_event_logs/event_log_1"))
+      lines.size should be > 0
+      for (i <- 0 until lines.size) {
+        val line = lines.get(i)
+        val expectedEventType = (JsonMethods.parse(line) \ "Event") match {
+          case JString(eventType) => Some(eventType)
+          case _ => None
+        }
+        SparkLogClient.eventTypeOf(line) should be(expectedEventType)
+      }
+      SparkLogClient.eventTypeOf("""{"Stage ID":0,"Info":{"Event":"x"},"Event":"SparkListenerStageSubmitted"}""") should
+        be(Some("SparkListenerStageSubmitted"))
+      SparkLogClient.eventTypeOf("""{"Stage ID":0}""") should be(None)
+      SparkLogClient.eventTypeOf("""{"Event":"SparkListenerTaskEnd","Task""") should be(Some("SparkListenerTaskEnd"))
+      SparkLogClient.eventTypeOf("""{"Stage""") should be(None)
+    }
+
+    it("finds the first event of each type") {
+      val in = getClass.getClassLoader.getResourceAsStream("spark_event_logs/event_log_1")
+      val events = SparkLogClient.findEvents(in, Set("SparkListenerJobStart", "SparkListenerTaskEnd"))
+      events.keySet should be(Set("SparkListenerJobStart", "SparkListenerTaskEnd"))
+      (events("SparkListenerJobStart") \ "Job ID") should be(JInt(0))
+      (events("SparkListenerTaskEnd") \ "Event") should be(JString("SparkListenerTaskEnd"))
+    }
   }
 }
@@ -152,7 +152,7 @@ class SparkRestClientTest extends AsyncFunSpec with Matchers {
 
       val sparkConf = new SparkConf().set("spark.yarn.historyServer.address", s"${historyServerUri.getHost}:${historyServerUri.getPort}")
       val sparkRestClient = new SparkRestClient(sparkConf) {
-        override def getApplicationLogs(logTarget: WebTarget): ZipInputStream = {
+        override def getApplicationLogs(appId: String, logTarget: WebTarget): ZipInputStream = {
           new ZipInputStream(newFakeLog(FetchClusterModeDataFixtures.APP_ID, None, ".inprogress"))
         }
       }
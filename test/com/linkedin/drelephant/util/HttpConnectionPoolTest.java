@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.security.authentication.client.AuthenticatedURL;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+
+/**
+ * This class tests the HttpConnectionPool class
+ */
+public class HttpConnectionPoolTest {
+
+  @Test
+  public void testGetEndpoint() throws Exception {
+    assertEquals("ws.v1.cluster.apps",
+        HttpConnectionPool.getEndpoint(new URL("http://localhost:8088/ws/v1/cluster/apps?finishedTimeBegin=1")));
+    assertEquals("ws.v1.history.mapreduce.jobs._.tasks._.counters", HttpConnectionPool.getEndpoint(new URL(
+        "http://localhost:19888/ws/v1/history/mapreduce/jobs/job_1_1/tasks/task_1_1_m_000000/counters")));
+    assertEquals("api.v1.applications._._.stages",
+        HttpConnectionPool.getEndpoint(new URL("http://localhost:18080/api/v1/applications/application_1_1/1/stages")));
+  }
+
+  @Test
+  public void testMaxConnectionsPerHost() throws Exception {
+    Configuration configuration = new Configuration(false);
+    configuration.set("drelephant.http.max.connections.per.host", "2");
+    HttpConnectionPool.configure(configuration);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final URL url = new URL("http://localhost:19999/ws/v1/history/mapreduce/jobs");
+      final AuthenticatedURL authenticatedURL = Mockito.mock(AuthenticatedURL.class);
+      Mockito.when(authenticatedURL.openConnection(Mockito.eq(url), Mockito.any(AuthenticatedURL.Token.class)))
+          .thenAnswer(new Answer<HttpURLConnection>() {
+            @Override
+            public HttpURLConnection answer(InvocationOnMock invocation) throws Exception {
+              HttpURLConnection conn = Mockito.mock(HttpURLConnection.class);
+              Mockito.when(conn.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[] { 1 }));
+              return conn;
+            }
+          });
+      Semaphore permits = HttpConnectionPool.getHostPermits(HttpConnectionPool.getHost(url));
+
+      InputStream first = HttpConnectionPool.openStream(authenticatedURL, new AuthenticatedURL.Token(), url);
+      InputStream second = HttpConnectionPool.openStream(authenticatedURL, new AuthenticatedURL.Token(), url);
+      assertEquals(0, permits.availablePermits());
+
+      // A third request waits for one of the first two to complete
+      Future<InputStream> third = executor.submit(new Callable<InputStream>() {
+        @Override
+        public InputStream call() throws Exception {
+          return HttpConnectionPool.openStream(authenticatedURL, new AuthenticatedURL.Token(), url);
+        }
+      });
+      try {
+        third.get(200, TimeUnit.MILLISECONDS);
+        fail("The request should wait for a connection");
+      } catch (TimeoutException e) {
+        // Expected
+      }
+      first.close();
+      first.close();
+      InputStream thirdStream = third.get(10, TimeUnit.SECONDS);
+      assertEquals(0, permits.availablePermits());
+
+      second.close();
+      thirdStream.close();
+      assertEquals(2, permits.availablePermits());
+    } finally {
+      executor.shutdownNow();
+      HttpConnectionPool.configure(new Configuration(false));
+    }
+  }
+
+  @Test
+  public void testJerseyRequestsPerHost() throws Exception {
+    Configuration configuration = new Configuration(false);
+    configuration.set("drelephant.http.max.connections.per.host", "1");
+    HttpConnectionPool.configure(configuration);
+    try {
+      URI uri = new URI("http://localhost:19998/api/v1/applications/application_1_1/jobs");
+      WebTarget target = Mockito.mock(WebTarget.class);
+      Invocation.Builder request = Mockito.mock(Invocation.Builder.class);
+      Mockito.when(target.getUri()).thenReturn(uri);
+      Mockito.when(target.request(MediaType.APPLICATION_JSON)).thenReturn(request);
+      Mockito.when(request.get(InputStream.class)).thenReturn(new ByteArrayInputStream(new byte[] { 1 }))
+          .thenThrow(new NotFoundException());
+      Semaphore permits = HttpConnectionPool.getHostPermits(HttpConnectionPool.getHost(uri.toURL()));
+
+      InputStream in = HttpConnectionPool.openStream(target, MediaType.APPLICATION_JSON);
+      assertEquals(0, permits.availablePermits());
+      in.close();
+      assertEquals(1, permits.availablePermits());
+
+      try {
+        HttpConnectionPool.openStream(target, MediaType.APPLICATION_JSON);
+        fail("The error response should be thrown");
+      } catch (NotFoundException e) {
+        // Expected
+      }
+      assertEquals("The permit of a failed request should be released", 1, permits.availablePermits());
+    } finally {
+      HttpConnectionPool.configure(new Configuration(false));
+    }
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.linkedin.drelephant.util;
+
+import com.google.common.io.Files;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+
+/**
+ * This class tests the ResponseCache class
+ */
+public class ResponseCacheTest {
+  private File _dir;
+
+  @Before
+  public void setUp() {
+    _dir = Files.createTempDir();
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(_dir);
+  }
+
+  @Test
+  public void testCachedResponse() throws Exception {
+    ResponseCache cache = new ResponseCache(_dir, 100);
+    CountingLoader loader = new CountingLoader("response");
+
+    assertEquals("response", read(cache.open("application_1_1", "http://host/jobs", loader)));
+    assertEquals("response", read(cache.open("application_1_1", "http://host/jobs", loader)));
+    assertEquals(1, loader._loads);
+    assertEquals(8, cache.getSizeBytes());
+
+    read(cache.open("application_1_2", "http://host/jobs", loader));
+    assertEquals("The responses should be keyed by application", 2, loader._loads);
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEviction() throws Exception {
+    ResponseCache cache = new ResponseCache(_dir, 25);
+    CountingLoader loader1 = new CountingLoader("0123456789");
+    CountingLoader loader2 = new CountingLoader("0123456789");
+    CountingLoader loader3 = new CountingLoader("0123456789");
+
+    read(cache.open("application_1_1", "1", loader1));
+    read(cache.open("application_1_1", "2", loader2));
+    read(cache.open("application_1_1", "1", loader1));
+    read(cache.open("application_1_1", "3", loader3));
+    assertEquals(20, cache.getSizeBytes());
+
+    read(cache.open("application_1_1", "1", loader1));
+    read(cache.open("application_1_1", "2", loader2));
+    assertEquals(1, loader1._loads);
+    assertEquals("The least recently used response should be evicted", 2, loader2._loads);
+  }
+
+  @Test
+  public void testTooLargeResponse() throws Exception {
+    ResponseCache cache = new ResponseCache(_dir, 5);
+    CountingLoader loader = new CountingLoader("0123456789");
+
+    assertEquals("0123456789", read(cache.open("application_1_1", "1", loader)));
+    assertEquals("0123456789", read(cache.open("application_1_1", "1", loader)));
+    assertEquals(2, loader._loads);
+    assertEquals(0, cache.getSizeBytes());
+    assertEquals(0, _dir.list().length);
+  }
+
+  @Test
+  public void testFailedLoad() throws Exception {
+    ResponseCache cache = new ResponseCache(_dir, 100);
+    try {
+      cache.open("application_1_1", "1", new ResponseCache.Loader() {
+        @Override
+        public InputStream load() throws IOException {
+          throw new IOException("Not found");
+        }
+      });
+      fail("The failure of the load should be thrown");
+    } catch (IOException e) {
+      assertEquals("Not found", e.getMessage());
+    }
+    assertEquals(0, cache.getSizeBytes());
+    assertEquals(0, _dir.list().length);
+  }
+
+  @Test
+  public void testPartiallyReadResponse() throws Exception {
+    ResponseCache cache = new ResponseCache(_dir, 100);
+    CountingLoader loader = new CountingLoader("response");
+
+    InputStream in = cache.open("application_1_1", "1", loader);
+    assertEquals('r', in.read());
+    assertEquals(0, cache.getSizeBytes());
+    in.close();
+    assertEquals("The remainder should be read on close", 8, cache.getSizeBytes());
+    assertEquals("response", read(cache.open("application_1_1", "1", loader)));
+    assertEquals(1, loader._loads);
+  }
+
+  @Test
+  public void testFailedRead() throws Exception {
+    ResponseCache cache = new ResponseCache(_dir, 100);
+    InputStream in = cache.open("application_1_1", "1", new ResponseCache.Loader() {
+      @Override
+      public InputStream load() {
+        return new SequenceInputStream(new ByteArrayInputStream(new byte[] { 1, 2 }), new InputStream() {
+          @Override
+          public int read() throws IOException {
+            throw new IOException("Connection reset");
+          }
+        });
+      }
+    });
+    try {
+      IOUtils.toByteArray(in);
+      fail("The failure of the read should be thrown");
+    } catch (IOException e) {
+      assertEquals("Connection reset", e.getMessage());
+    } finally {
+      in.close();
+    }
+    assertEquals(0, cache.getSizeBytes());
+    assertEquals(0, _dir.list().length);
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    ResponseCache cache = new ResponseCache(_dir, 100);
+    CountingLoader loader1 = new CountingLoader("response");
+    CountingLoader loader10 = new CountingLoader("response");
+
+    read(cache.open("application_1_1", "http://host/jobs", loader1));
+    read(cache.open("application_1_1", "http://host/stages", loader1));
+    read(cache.open("application_1_10", "http://host/jobs", loader10));
+    cache.invalidate("application_1_1");
+    assertEquals(8, cache.getSizeBytes());
+
+    read(cache.open("application_1_1", "http://host/jobs", loader1));
+    assertEquals("The responses of the application should be loaded again", 3, loader1._loads);
+    read(cache.open("application_1_10", "http://host/jobs", loader10));
+    assertEquals("The responses of other applications should stay cached", 1, loader10._loads);
+  }
+
+  @Test
+  public void testReloadedCache() throws Exception {
+    read(new ResponseCache(_dir, 100).open("application_1_1", "1", new CountingLoader("response")));
+
+    ResponseCache cache = new ResponseCache(_dir, 100);
+    CountingLoader loader = new CountingLoader("response");
+    assertEquals("response", read(cache.open("application_1_1", "1", loader)));
+    assertEquals(0, loader._loads);
+  }
+
+  @Test
+  public void testDisabledCache() throws Exception {
+    ResponseCache cache = new ResponseCache(null, 0);
+    CountingLoader loader = new CountingLoader("response");
+    read(cache.open("application_1_1", "1", loader));
+    read(cache.open("application_1_1", "1", loader));
+    assertFalse(cache.isEnabled());
+    assertEquals(2, loader._loads);
+  }
+
+  private static String read(InputStream in) throws IOException {
+    try {
+      return IOUtils.toString(in, "UTF-8");
+    } finally {
+      in.close();
+    }
+  }
+
+  private static class CountingLoader implements ResponseCache.Loader {
+    private final String _response;
+    private int _loads = 0;
+
+    CountingLoader(String response) {
+      _response = response;
+    }
+
+    @Override
+    public InputStream load() throws IOException {
+      _loads++;
+      return new ByteArrayInputStream(_response.getBytes("UTF-8"));
+    }
+  }
+}
@@ -33,6 +33,7 @@ import org.junit.Test;
 import java.io.BufferedInputStream;
 import java.io.InputStream;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 public class SparkDataCollectionTest {
@@ -52,4 +53,28 @@ public class SparkDataCollectionTest {
         assertNotNull("can't get job progress data", jobProgressData);
     }
 
+    @Test
+    public void testSampledLoadKeepsStageMetrics() throws IOException {
+        SparkDataCollection fullCollection = new SparkDataCollection();
+        InputStream in = new BufferedInputStream(
+                SparkDataCollectionTest.class.getClassLoader().getResourceAsStream(event_log_dir + "event_log_1"));
+        fullCollection.load(in, in.toString());
+        in.close();
+
+        SparkDataCollection sampledCollection = new SparkDataCollection();
+        in = new BufferedInputStream(
+                SparkDataCollectionTest.class.getClassLoader().getResourceAsStream(event_log_dir + "event_log_1"));
+        sampledCollection.load(in, in.toString(), 3);
+        in.close();
+
+        // The event log has 10 ended tasks in its only stage
+        assertEquals(7L, sampledCollection.getDroppedTasks());
+        SparkJobProgressData.StageInfo fullStage = fullCollection.getJobProgressData().getStageInfo(0, 0);
+        SparkJobProgressData.StageInfo sampledStage = sampledCollection.getJobProgressData().getStageInfo(0, 0);
+        assertEquals(fullStage.numCompleteTasks, sampledStage.numCompleteTasks);
+        assertEquals(fullStage.executorRunTime, sampledStage.executorRunTime);
+        assertEquals(fullStage.inputBytes, sampledStage.inputBytes);
+        assertEquals(fullStage.shuffleWriteBytes, sampledStage.shuffleWriteBytes);
+    }
+
 }